@@ -43,6 +43,7 @@ import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPItem;
 import org.aion.rlp.RLPList;
+import org.aion.mcf.trie.Cache;
 import org.aion.mcf.trie.SecureTrie;
 
 public class AionContractDetailsImpl extends AbstractContractDetails<DataWord> {
@@ -54,7 +55,7 @@ public class AionContractDetailsImpl extends AbstractContractDetails<DataWord> {
     private Address address = Address.EMPTY_ADDRESS();
 
     private Set<ByteArrayWrapper> keys = new HashSet<>();
-    private SecureTrie storageTrie = new SecureTrie(null);
+    private SecureTrie storageTrie = new SecureTrie(null, "", Cache.STORAGE_CAPACITY);
 
     public boolean externalStorage;
     private IByteArrayKeyValueStore externalStorageDataSource;
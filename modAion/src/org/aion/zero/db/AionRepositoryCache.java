@@ -35,7 +35,9 @@ import org.aion.mcf.db.ContractDetailsCacheImpl;
 import org.aion.mcf.db.IBlockStoreBase;
 import org.aion.mcf.vm.types.DataWord;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class AionRepositoryCache extends AbstractRepositoryCache<IBlockStoreBase<?, ?>> {
@@ -73,13 +75,22 @@ public class AionRepositoryCache extends AbstractRepositoryCache<IBlockStoreBase
         }
 
         // determine which contracts should get stored
-        for (Map.Entry<Address, IContractDetails<DataWord>> entry : cachedDetails.entrySet()) {
-            IContractDetails<DataWord> ctd = entry.getValue();
+        List<ContractDetailsCacheImpl> toCommit = new ArrayList<>();
+        for (IContractDetails<DataWord> ctd : cachedDetails.values()) {
             // TODO: this functionality will be improved with the switch to a
             // different ContractDetails implementation
+            if (ctd != null && ctd instanceof ContractDetailsCacheImpl) {
+                toCommit.add((ContractDetailsCacheImpl) ctd);
+            }
+        }
+
+        // the storage tries are independent so they are updated in parallel
+        ContractDetailsCacheImpl.commit(toCommit);
+
+        for (Map.Entry<Address, IContractDetails<DataWord>> entry : cachedDetails.entrySet()) {
+            IContractDetails<DataWord> ctd = entry.getValue();
             if (ctd != null && ctd instanceof ContractDetailsCacheImpl) {
                 ContractDetailsCacheImpl contractDetailsCache = (ContractDetailsCacheImpl) ctd;
-                contractDetailsCache.commit();
 
                 if (contractDetailsCache.origContract == null && repository.hasContractDetails(entry.getKey())) {
                     // in forked block the contract account might not exist thus
@@ -39,8 +39,8 @@ import org.aion.base.type.IPowBlockHeader;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Utils;
 import org.aion.crypto.HashUtil;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RlpWriter;
 import org.aion.mcf.types.AbstractBlockHeader;
 import org.json.JSONObject;
 
@@ -88,49 +88,47 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     public byte[] solution;
 
     public A0BlockHeader(byte[] encoded) {
-        this((RLPList) RLP.decode2(encoded).get(0));
+        this(RLPView.decode(encoded).getElements());
     }
 
-    public A0BlockHeader(RLPList rlpHeader) {
+    public A0BlockHeader(RLPView rlpHeader) {
+        this(rlpHeader.getElements());
+    }
+
+    private A0BlockHeader(List<RLPView> rlpHeader) {
 
-        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getRLPData();
+        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getData();
 
-        byte[] data = rlpHeader.get(RPL_BH_COINBASE).getRLPData();
+        byte[] data = rlpHeader.get(RPL_BH_COINBASE).getData();
         this.coinbase = (data == null) ? Address.EMPTY_ADDRESS()
-                : Address.wrap(rlpHeader.get(RPL_BH_COINBASE).getRLPData());
+                : Address.wrap(rlpHeader.get(RPL_BH_COINBASE).getData());
 
-        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getRLPData();
+        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getData();
 
-        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
+        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getData();
         if (this.txTrieRoot == null) {
             this.txTrieRoot = EMPTY_TRIE_HASH;
         }
 
-        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
+        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getData();
         if (this.receiptTrieRoot == null) {
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
         }
 
-        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData();
-        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData();
-
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
+        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getData();
+        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getData();
 
         // TODO: not a huge concern, but how should we handle possible
         // overflows?
-        this.number = nrBytes == null ? 0 : (new BigInteger(1, nrBytes)).longValue();
-        this.timestamp = tsBytes == null ? 0 : (new BigInteger(1, tsBytes)).longValue();
+        this.number = rlpHeader.get(RPL_BH_NUMBER).getLong();
+        this.timestamp = rlpHeader.get(RPL_BH_TIMESTAMP).getLong();
 
-        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getRLPData();
-        this.nonce = rlpHeader.get(RPL_BH_NONCE).getRLPData();
-        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getRLPData();
+        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getData();
+        this.nonce = rlpHeader.get(RPL_BH_NONCE).getData();
+        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getData();
 
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
-
-        this.energyConsumed = energyConsumedBytes == null ? 0 : (new BigInteger(1, energyConsumedBytes).longValue());
-        this.energyLimit = energyLimitBytes == null ? 0 : (new BigInteger(1, energyLimitBytes).longValue());
+        this.energyConsumed = rlpHeader.get(RPL_BH_NRG_CONSUMED).getLong();
+        this.energyLimit = rlpHeader.get(RPL_BH_NRG_LIMIT).getLong();
     }
 
     /**
@@ -226,38 +224,35 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
 
     public byte[] getEncoded(boolean withNonce) {
 
-        byte[] parentHash = RLP.encodeElement(this.parentHash);
-        byte[] coinbase = RLP.encodeElement(this.coinbase.toBytes());
-        byte[] stateRoot = RLP.encodeElement(this.stateRoot);
-
         if (txTrieRoot == null) {
             this.txTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] txTrieRoot = RLP.encodeElement(this.txTrieRoot);
-
         if (receiptTrieRoot == null) {
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] receiptTrieRoot = RLP.encodeElement(this.receiptTrieRoot);
-        byte[] logsBloom = RLP.encodeElement(this.logsBloom);
-        byte[] difficulty = RLP.encodeElement(this.difficulty);
-        byte[] number = RLP.encodeBigInteger(BigInteger.valueOf(this.number));
-        byte[] timestamp = RLP.encodeBigInteger(BigInteger.valueOf(this.timestamp));
-
-        byte[] extraData = RLP.encodeElement(this.extraData);
-        byte[] solution = RLP.encodeElement(this.solution);
+        byte[] coinbase = this.coinbase.toBytes();
 
-        byte[] energyConsumed = RLP.encodeBigInteger(BigInteger.valueOf(this.energyConsumed));
-        byte[] energyLimit = RLP.encodeBigInteger(BigInteger.valueOf(this.energyLimit));
+        int length = RlpWriter.elementLength(this.parentHash) + RlpWriter.elementLength(coinbase)
+                + RlpWriter.elementLength(this.stateRoot) + RlpWriter.elementLength(this.txTrieRoot)
+                + RlpWriter.elementLength(this.receiptTrieRoot) + RlpWriter.elementLength(this.logsBloom)
+                + RlpWriter.elementLength(this.difficulty) + RlpWriter.numberLength(this.number)
+                + RlpWriter.numberLength(this.timestamp) + RlpWriter.elementLength(this.extraData)
+                + RlpWriter.elementLength(this.solution) + RlpWriter.numberLength(this.energyConsumed)
+                + RlpWriter.numberLength(this.energyLimit);
+        if (withNonce) {
+            length += RlpWriter.elementLength(this.nonce);
+        }
 
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length).writeElement(this.parentHash).writeElement(coinbase).writeElement(this.stateRoot)
+                .writeElement(this.txTrieRoot).writeElement(this.receiptTrieRoot).writeElement(this.logsBloom)
+                .writeElement(this.difficulty).writeNumber(this.number).writeNumber(this.timestamp)
+                .writeElement(this.extraData);
         if (withNonce) {
-            byte[] nonce = RLP.encodeElement(this.nonce);
-            return RLP.encodeList(parentHash, coinbase, stateRoot, txTrieRoot, receiptTrieRoot, logsBloom, difficulty,
-                    number, timestamp, extraData, nonce, solution, energyConsumed, energyLimit);
-        } else {
-            return RLP.encodeList(parentHash, coinbase, stateRoot, txTrieRoot, receiptTrieRoot, logsBloom, difficulty,
-                    number, timestamp, extraData, solution, energyConsumed, energyLimit);
+            rlp.writeElement(this.nonce);
         }
+        rlp.writeElement(this.solution).writeNumber(this.energyConsumed).writeNumber(this.energyLimit);
+        return rlp.toByteArray();
     }
 
     public String toString() {
@@ -349,7 +344,7 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public static A0BlockHeader fromRLP(byte[] rawData, boolean isUnsafe) throws Exception {
-        return fromRLP((RLPList) RLP.decode2(rawData).get(0), isUnsafe);
+        return fromRLP(RLPView.decode(rawData), isUnsafe);
     }
 
     /**
@@ -359,31 +354,32 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
      * @param isUnsafe
      * @return
      */
-    public static A0BlockHeader fromRLP(RLPList rlpHeader, boolean isUnsafe) throws Exception {
+    public static A0BlockHeader fromRLP(RLPView rlpView, boolean isUnsafe) throws Exception {
+        List<RLPView> rlpHeader = rlpView.getElements();
         Builder builder = new Builder();
         if (isUnsafe) {
             builder.fromUnsafeSource();
         }
 
-        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getRLPData());
-        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getRLPData()));
-        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getRLPData());
+        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getData());
+        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getData()));
+        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getData());
 
-        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
+        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getData();
         if (txTrieRoot != null) {
             builder.withTxTrieRoot(txTrieRoot);
         }
 
-        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
+        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getData();
         if (receiptTrieRoot != null) {
             builder.withReceiptTrieRoot(receiptTrieRoot);
         }
 
-        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData());
-        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData());
+        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getData());
+        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getData());
 
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
+        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getData();
+        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getData();
 
         if (nrBytes != null) {
             builder.withNumber(nrBytes);
@@ -393,12 +389,12 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
             builder.withTimestamp(tsBytes);
         }
 
-        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getRLPData());
-        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getRLPData());
-        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getRLPData());
+        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getData());
+        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getData());
+        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getData());
 
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
+        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getData();
+        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getData();
 
         if (energyConsumedBytes != null) {
             builder.withEnergyConsumed(energyConsumedBytes);
@@ -29,6 +29,7 @@ import static org.aion.base.util.ByteUtil.ZERO_BYTE_ARRAY;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.List;
 
 import org.aion.base.type.Address;
 import org.aion.base.util.ByteUtil;
@@ -40,8 +41,8 @@ import org.aion.crypto.ISignature;
 import org.aion.crypto.SignatureFac;
 import org.aion.mcf.vm.Constants;
 import org.aion.mcf.vm.types.DataWord;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RlpWriter;
 import org.aion.mcf.types.AbstractTransaction;
 
 /**
@@ -75,6 +76,11 @@ public class AionTransaction extends AbstractTransaction {
      */
     protected boolean parsed = false;
 
+    /*
+     * Indicates if the signature has been verified against the current content of this transaction
+     */
+    private volatile boolean signatureVerified = false;
+
     public AionTransaction(byte[] encodedData) {
         this.rlpEncoded = encodedData;
         parsed = false;
@@ -120,25 +126,25 @@ public class AionTransaction extends AbstractTransaction {
 
     public void rlpParse() {
 
-        RLPList decodedTxList = RLP.decode2(rlpEncoded);
-        RLPList tx = (RLPList) decodedTxList.get(0);
+        List<RLPView> tx = RLPView.decode(rlpEncoded).getElements();
 
-        this.nonce = tx.get(RLP_TX_NONCE).getRLPData();
-        this.value = tx.get(RLP_TX_VALUE).getRLPData();
-        this.data = tx.get(RLP_TX_DATA).getRLPData();
+        this.nonce = tx.get(RLP_TX_NONCE).getData();
+        this.value = tx.get(RLP_TX_VALUE).getData();
+        this.data = tx.get(RLP_TX_DATA).getData();
 
-        if (tx.get(RLP_TX_TO).getRLPData() == null) {
+        byte[] to = tx.get(RLP_TX_TO).getData();
+        if (to == null) {
             this.to = null;
         } else {
-            this.to = Address.wrap(tx.get(RLP_TX_TO).getRLPData());
+            this.to = Address.wrap(to);
         }
 
-        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getRLPData();
-        this.nrg = new BigInteger(1, tx.get(RLP_TX_NRG).getRLPData()).longValue();
-        this.nrgPrice = new BigInteger(1, tx.get(RLP_TX_NRGPRICE).getRLPData()).longValue();
-        this.type = new BigInteger(1, tx.get(RLP_TX_TYPE).getRLPData()).byteValue();
+        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getData();
+        this.nrg = tx.get(RLP_TX_NRG).getLong();
+        this.nrgPrice = tx.get(RLP_TX_NRGPRICE).getLong();
+        this.type = (byte) tx.get(RLP_TX_TYPE).getLong();
 
-        byte[] sigs = tx.get(RLP_TX_SIG).getRLPData();
+        byte[] sigs = tx.get(RLP_TX_SIG).getData();
         if (sigs != null) {
             // Singature Factory will decode the signature based on the algo
             // presetted in main() entry.
@@ -215,6 +221,9 @@ public class AionTransaction extends AbstractTransaction {
     public void setTimeStamp(long timeStamp) {
         this.timeStamp = BigInteger.valueOf(timeStamp).toByteArray();
         this.parsed = true;
+        this.rlpRaw = null;
+        this.hash = null;
+        this.signatureVerified = false;
     }
 
     public byte[] getValue() {
@@ -307,8 +316,27 @@ public class AionTransaction extends AbstractTransaction {
 
     public void sign(ECKey key) throws MissingPrivateKeyException {
         this.timeStamp = ByteUtil.longToBytes(TimeInstant.now().toEpochMicro());
+        this.rlpRaw = null;
         this.signature = key.sign(this.getRawHash());
         this.rlpEncoded = null;
+        this.hash = null;
+        this.signatureVerified = false;
+    }
+
+    /**
+     * @return {@code true} if the signature of this transaction was already verified,
+     *         {@code false} otherwise
+     */
+    public boolean isSignatureVerified() {
+        return signatureVerified;
+    }
+
+    /**
+     * Records that the signature of this transaction is valid, allowing later validations to skip the
+     * verification. The flag is cleared when the signed content changes.
+     */
+    public void setSignatureVerified() {
+        this.signatureVerified = true;
     }
 
     @Override
@@ -349,23 +377,7 @@ public class AionTransaction extends AbstractTransaction {
             return rlpRaw;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        rlpRaw = RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type);
+        rlpRaw = encode(null);
         return rlpRaw;
     }
 
@@ -375,36 +387,42 @@ public class AionTransaction extends AbstractTransaction {
             return rlpEncoded;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        byte[] sigs;
-
         if (signature == null) {
             LOG.error("Encoded transaction has no signature!");
             return null;
         }
 
-        sigs = RLP.encodeElement(signature.toBytes());
-        this.rlpEncoded = RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type, sigs);
+        this.rlpEncoded = encode(signature.toBytes());
         this.hash = this.getHash();
 
         return rlpEncoded;
     }
 
+    /**
+     * Writes the transaction fields, followed by the signature when it is not
+     * {@code null}, into a single exactly sized array.
+     */
+    private byte[] encode(byte[] sig) {
+        byte[] to = this.to == null ? null : this.to.toBytes();
+
+        int length = RlpWriter.elementLength(this.nonce) + RlpWriter.elementLength(to)
+                + RlpWriter.elementLength(this.value) + RlpWriter.elementLength(this.data)
+                + RlpWriter.elementLength(this.timeStamp) + RlpWriter.longLength(this.nrg)
+                + RlpWriter.longLength(this.nrgPrice) + RlpWriter.byteLength(this.type);
+        if (sig != null) {
+            length += RlpWriter.elementLength(sig);
+        }
+
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length).writeElement(this.nonce).writeElement(to).writeElement(this.value)
+                .writeElement(this.data).writeElement(this.timeStamp).writeLong(this.nrg).writeLong(this.nrgPrice)
+                .writeByte(this.type);
+        if (sig != null) {
+            rlp.writeElement(sig);
+        }
+        return rlp.toByteArray();
+    }
+
     @Override
     public int hashCode() {
 
@@ -442,7 +460,10 @@ public class AionTransaction extends AbstractTransaction {
     @Override
     public void setEncoded(byte[] _encodedData) {
         this.rlpEncoded = _encodedData;
+        this.rlpRaw = null;
+        this.hash = null;
         parsed = false;
+        signatureVerified = false;
     }
 
     public DataWord nrgPrice() {
@@ -44,6 +44,7 @@ import org.aion.rlp.RLP;
 import org.aion.rlp.RLPElement;
 import org.aion.rlp.RLPItem;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RlpWriter;
 import org.aion.mcf.types.AbstractTxReceipt;
 
 /**
@@ -137,26 +138,40 @@ public class AionTxReceipt extends AbstractTxReceipt<AionTransaction> implements
      */
     private byte[] getEncoded(boolean receiptTrie) {
 
-        byte[] postTxStateRLP = RLP.encodeElement(this.postTxState);
-        byte[] bloomRLP = RLP.encodeElement(this.bloomFilter.data);
-
-        final byte[] logInfoListRLP;
+        byte[][] logInfoListE;
+        int logsLength = 0;
         if (logInfoList != null) {
-            byte[][] logInfoListE = new byte[logInfoList.size()][];
+            logInfoListE = new byte[logInfoList.size()][];
 
             int i = 0;
             for (Log logInfo : logInfoList) {
                 logInfoListE[i] = logInfo.getEncoded();
+                logsLength += logInfoListE[i].length;
                 ++i;
             }
-            logInfoListRLP = RLP.encodeList(logInfoListE);
         } else {
-            logInfoListRLP = RLP.encodeList();
+            logInfoListE = new byte[0][];
+        }
+
+        byte[] errorBytes = receiptTrie ? null : error.getBytes(StandardCharsets.UTF_8);
+
+        int length = RlpWriter.elementLength(this.postTxState) + RlpWriter.elementLength(this.bloomFilter.data)
+                + RlpWriter.listLength(logsLength);
+        if (!receiptTrie) {
+            length += RlpWriter.elementLength(executionResult) + RlpWriter.longLength(energyUsed)
+                    + RlpWriter.elementLength(errorBytes);
         }
 
-        return receiptTrie ? RLP.encodeList(postTxStateRLP, bloomRLP, logInfoListRLP)
-                : RLP.encodeList(postTxStateRLP, bloomRLP, logInfoListRLP, RLP.encodeElement(executionResult),
-                        RLP.encodeLong(energyUsed), RLP.encodeElement(error.getBytes(StandardCharsets.UTF_8)));
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length).writeElement(this.postTxState).writeElement(this.bloomFilter.data)
+                .writeListHeader(logsLength);
+        for (byte[] logInfo : logInfoListE) {
+            rlp.writeEncoded(logInfo);
+        }
+        if (!receiptTrie) {
+            rlp.writeElement(executionResult).writeLong(energyUsed).writeElement(errorBytes);
+        }
+        return rlp.toByteArray();
 
     }
 
@@ -34,5 +34,88 @@
  ******************************************************************************/
 package org.aion.base.db;
 
+import java.util.Arrays;
+
 public interface IByteArrayKeyValueDatabase extends IByteArrayKeyValueStore, IDatabase {
+
+    // Iteration
+    // -----------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns a cursor over all the entries in the database, in ascending
+     * unsigned lexicographic order of the keys.
+     *
+     * @return a cursor that must be closed after use
+     * @throws RuntimeException
+     *             if the data store is closed
+     */
+    default IKeyValueIterator<byte[], byte[]> iterator() {
+        return iterator(null, null);
+    }
+
+    /**
+     * Returns a cursor over the entries with keys in the range {@code [from,
+     * to)}, in ascending unsigned lexicographic order of the keys.
+     *
+     * @param from
+     *            the inclusive lower bound, or {@code null} to start with the
+     *            first key in the database
+     * @param to
+     *            the exclusive upper bound, or {@code null} to end with the
+     *            last key in the database
+     * @return a cursor that must be closed after use
+     * @throws RuntimeException
+     *             if the data store is closed
+     */
+    IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to);
+
+    /**
+     * Returns a cursor over the entries with keys starting with the given
+     * prefix, in ascending unsigned lexicographic order of the keys.
+     *
+     * @param prefix
+     *            the common prefix of the returned keys
+     * @return a cursor that must be closed after use
+     * @throws RuntimeException
+     *             if the data store is closed
+     * @throws IllegalArgumentException
+     *             if the prefix is null
+     */
+    default IKeyValueIterator<byte[], byte[]> prefixIterator(byte[] prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("The database does not accept null prefixes.");
+        }
+
+        // the upper bound is the smallest key larger than all the keys with the given prefix
+        byte[] to = null;
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                to = Arrays.copyOf(prefix, i + 1);
+                to[i]++;
+                break;
+            }
+        }
+
+        return iterator(prefix, to);
+    }
+
+    // Snapshots
+    // -----------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns a read-only view of the database frozen at the time of the call.
+     * Updates applied to the database after the snapshot was taken, including
+     * deletions, are not visible through the snapshot.
+     * <p>
+     * Closing the snapshot releases the resources held by the view without
+     * affecting the database. The snapshot is also closed when the database is
+     * closed.
+     *
+     * @return a read-only database view that must be closed after use
+     * @throws RuntimeException
+     *             if the data store is closed
+     * @apiNote All update operations on the returned view throw an
+     *          {@link UnsupportedOperationException}.
+     */
+    IByteArrayKeyValueDatabase snapshot();
 }
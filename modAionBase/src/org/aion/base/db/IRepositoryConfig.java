@@ -42,6 +42,13 @@ package org.aion.base.db;
  */
 public interface IRepositoryConfig {
 
+    // database tuning defaults
+    int DEFAULT_MAX_FD_ALLOC_SIZE = 32; // per database, the repository opens several
+    int DEFAULT_BLOCK_SIZE = 4 * 1024; // 4kb, matching the levelDb default for point lookups
+    int DEFAULT_WRITE_BUFFER_SIZE = 10 * 1024 * 1024; // 10mb (levelDb default: 4mb)
+    int DEFAULT_CACHE_SIZE = 128 * 1024 * 1024; // 128mb
+    int DEFAULT_TRIE_CACHE_SIZE = 64 * 1024 * 1024; // 64mb
+
     String[] getVendorList();
 
     String getActiveVendor();
@@ -71,4 +78,50 @@ public interface IRepositoryConfig {
      * @return
      */
     String getMaxHeapCacheSize();
+
+    /**
+     * @return the maximum number of open files for each database
+     */
+    default int getMaxFdAllocSize() {
+        return DEFAULT_MAX_FD_ALLOC_SIZE;
+    }
+
+    /**
+     * @return the size in bytes of the data blocks stored on disk
+     */
+    default int getBlockSize() {
+        return DEFAULT_BLOCK_SIZE;
+    }
+
+    /**
+     * @return the size in bytes of the in-memory write buffer of each database
+     */
+    default int getWriteBufferSize() {
+        return DEFAULT_WRITE_BUFFER_SIZE;
+    }
+
+    /**
+     * @return the size in bytes of the block cache used when the database cache is enabled
+     */
+    default int getCacheSize() {
+        return DEFAULT_CACHE_SIZE;
+    }
+
+    /**
+     * Depth below the best block past which main chain blocks are moved out
+     * of the key-value store into the append-only block archive. Size 0
+     * disables the archive.
+     *
+     * @return the number of recent levels kept in the key-value store
+     */
+    default int getBlockArchiveDepth() {
+        return 0;
+    }
+
+    /**
+     * @return the size in bytes of the committed state trie nodes kept in memory
+     */
+    default int getTrieCacheSize() {
+        return DEFAULT_TRIE_CACHE_SIZE;
+    }
 }
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.base.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the data parallel work of the kernel, such as batch validation and
+ * commits, on a single pool bounded by the number of processors instead of the
+ * JVM common pool. A parallel stream started by a task executed here uses the
+ * same pool.
+ *
+ * When the parallel task fails the failure is passed to the given handler and
+ * the serial version of the task is executed instead, so callers must provide
+ * a serial task with the same outcome.
+ */
+public final class ParallelExecutor {
+
+    private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), p -> {
+        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        t.setName("parallel-" + threadNumber.getAndIncrement());
+        return t;
+    }, null, false);
+
+    private ParallelExecutor() {}
+
+    /**
+     * Executes the parallel task on the shared pool and waits for its result.
+     *
+     * @param parallel the task to execute on the shared pool
+     * @param serial the task executed on the calling thread if the parallel one fails
+     * @param onFailure notified of the failure of the parallel task before the serial one is executed
+     * @return the result of the parallel task, or of the serial task if the parallel one failed
+     */
+    public static <T> T invoke(Functional.Supplier<T> parallel, Functional.Supplier<T> serial,
+            Functional.Consumer<Throwable> onFailure) {
+        // already on the pool, waiting on it could starve the workers
+        Thread current = Thread.currentThread();
+        if (current instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) current).getPool() == pool) {
+            return parallel.get();
+        }
+
+        try {
+            return pool.submit(parallel::get).get();
+        } catch (InterruptedException | ExecutionException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            onFailure.accept(e);
+            return serial.get();
+        }
+    }
+
+    /**
+     * Executes the parallel task on the shared pool and waits for it to
+     * complete.
+     *
+     * @see #invoke(Functional.Supplier, Functional.Supplier, Functional.Consumer)
+     */
+    public static void run(Functional.InvokeWrapper parallel, Functional.InvokeWrapper serial,
+            Functional.Consumer<Throwable> onFailure) {
+        invoke(() -> {
+            parallel.invoke();
+            return null;
+        }, () -> {
+            serial.invoke();
+            return null;
+        }, onFailure);
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.base.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelExecutorTest {
+
+    @Test
+    public void testInvokeOnPool() {
+        List<Integer> values = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        int sum = ParallelExecutor.invoke(() -> values.parallelStream().mapToInt(Integer::intValue).sum(), () -> -1,
+                failure::set);
+
+        assertEquals(499_500, sum);
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testFallbackToSerial() {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        int result = ParallelExecutor.invoke(() -> {
+            throw new IllegalStateException("parallel failure");
+        }, () -> 1, failure::set);
+
+        assertEquals(1, result);
+        assertTrue(failure.get().getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testNestedInvoke() {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        String name = ParallelExecutor.invoke(
+                () -> ParallelExecutor.invoke(() -> Thread.currentThread().getName(), () -> "serial", failure::set),
+                () -> "serial", failure::set);
+
+        assertTrue(name.startsWith("parallel-"));
+        assertNull(failure.get());
+    }
+}
@@ -14,6 +14,7 @@ module aion.zero.impl {
     requires aion.crypto;
     requires aion.db.impl;
     requires aion.zero;
+    requires guava;
 
     exports org.aion.zero.impl.blockchain;
     exports org.aion.solidity;
@@ -56,6 +56,8 @@ public class EquiValidator {
 
     private Param initState;
 
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
     public EquiValidator(int n, int k) {
         this.n = n;
         this.k = k;
@@ -114,99 +116,174 @@ public class EquiValidator {
             return false;
         }
 
-        // blake instance can be reused inside 512 indiecs loop.
-        // it save both blake and initState mem cost.
-        // if use blake in Equivalidator instance level, as it's multi-threaded,
-        // have to pay a lock cost.
-        // so still keep it in function level.
-        Blake2b blake = Blake2b.Digest.newInstance(initState);
-
-        // Create array with 2^k slots
-        FullStepRow[] X = new FullStepRow[1 << k];
-
-        byte[] tmpHash;
-        int j = 0;
-        for (int i : getIndicesFromMinimal(solution, collisionBitLength)) {
-
-            // as reuse blake instance, need reset before every round.
-            blake.reset();
-
-            // Build H(I | V ...
-
-            // I = block header minus nonce and solution
-            blake.update(blockHeader, 0, blockHeader.length);
-
-            // V = nonce
-            blake.update(nonce, 0, nonce.length);
-
-            byte[] x = intToBytesLE(i / indicesPerHashOutput);
-
-            blake.update(x, 0, x.length);
-
-            tmpHash = blake.digest();
-
-            X[j] = new FullStepRow(finalFullWidth,
-                    Arrays.copyOfRange(tmpHash, (i % indicesPerHashOutput) * indicesHashLength,
-                            ((i % indicesPerHashOutput) * indicesHashLength) + hashLength),
-                    indicesHashLength, hashLength, collisionBitLength, i);
-            j++;
+        Scratch sc = scratch.get();
+        int[] indices = sc.indices;
+        byte[] rows = sc.rows;
+
+        readIndices(solution, indices, collisionBitLength + 1);
+
+        // expand the hash of every index into its row, rows are hashLength
+        // bytes apart
+        Blake2b blake = sc.blake;
+        byte[] digest = sc.digest;
+        byte[] counter = sc.counter;
+        int lastCounter = -1;
+        for (int j = 0; j < indices.length; j++) {
+            int i = indices[j];
+
+            // H(I | V | i / indicesPerHashOutput), I = block header minus nonce
+            // and solution, V = nonce
+            if (i / indicesPerHashOutput != lastCounter) {
+                lastCounter = i / indicesPerHashOutput;
+                writeIntLE(lastCounter, counter);
+                blake.update(blockHeader, 0, blockHeader.length);
+                blake.update(nonce, 0, nonce.length);
+                blake.update(counter, 0, counter.length);
+                // resets the instance for the next index
+                blake.digest(digest, 0, hashOutput);
+            }
 
+            expandHash(digest, (i % indicesPerHashOutput) * indicesHashLength, rows, j * hashLength);
         }
 
-        int hashLen = hashLength;
-        int lenIndices = Integer.BYTES;
-
-        // for this specific algo , for looping is 256, fix side alloc ArrayList
-        // will prevent
-        // multiple ArrayList increase space cost, with 256, the default
-        // arraylist size is 10.
-        // move out from 512 round while loop also helps avoid looping alloc.
-        // ArrayList<FullStepRow> Xc = new ArrayList<>(256);
-
-        int loopLen = 512;
-
-        // use X, Y as swap container for this algo to avoid 512 round memory
-        // alloc and copy.
-        FullStepRow[] Y = new FullStepRow[1 << k];
-
-        for (int loopIdx = 0; loopIdx < 9; loopIdx++, loopLen >>= 1) {
-
-            for (int i = 0; i < loopLen / 2; i++) {
-
-                if (!hasCollision(X[i * 2], X[i * 2 + 1], collisionByteLength)) {
-                    LOG.error("Invalid Solution: Collision not present");
-                    return false;
+        // merge neighbouring subtrees in place: after round r row p holds the
+        // XOR of the rows of the p-th subtree of 2^(r+1) leaves, and its bytes
+        // before the (r+1)-th collision are no longer read. The indices of a
+        // merged subtree are those of its left and right subtrees in solution
+        // order, which the ordering check below enforces.
+        for (int round = 0, pairs = indices.length / 2; round < k; round++, pairs >>= 1) {
+            int leaves = 1 << round;
+            int from = round * collisionByteLength;
+
+            for (int p = 0; p < pairs; p++) {
+                int left = 2 * p * hashLength;
+                int right = left + hashLength;
+
+                for (int b = from; b < from + collisionByteLength; b++) {
+                    if (rows[left + b] != rows[right + b]) {
+                        LOG.error("Invalid Solution: Collision not present");
+                        return false;
+                    }
                 }
 
-                if (EquiUtils.indicesBefore(X[i * 2 + 1], X[i * 2], hashLen, lenIndices)) {
+                int leftIndices = 2 * p * leaves;
+                int rightIndices = leftIndices + leaves;
+                if (!indicesBefore(indices, leftIndices, rightIndices, leaves)) {
                     LOG.error("Invalid Solution: Index tree incorrecly ordered");
                     return false;
                 }
-                if (!distinctIndices(X[i * 2 + 1], X[i * 2], hashLen, lenIndices)) {
+                if (!distinctIndices(indices, leftIndices, rightIndices, leaves)) {
                     LOG.error("Invalid solution: duplicate indices");
                     return false;
                 }
 
-                // Check order of X[i] and X[i+1] in because indices before is
-                // called in the constructor
-                // Xc.add(new FullStepRow(finalFullWidth, X[i], X[i + 1],
-                // hashLen, lenIndices, collisionByteLength));
-                Y[i] = new FullStepRow(finalFullWidth, X[i * 2], X[i * 2 + 1], hashLen, lenIndices,
-                        collisionByteLength);
+                int merged = p * hashLength;
+                for (int b = from + collisionByteLength; b < hashLength; b++) {
+                    rows[merged + b] = (byte) (rows[left + b] ^ rows[right + b]);
+                }
+            }
+        }
 
+        for (int b = k * collisionByteLength; b < hashLength; b++) {
+            if (rows[b] != 0) {
+                return false;
             }
+        }
+        return true;
+    }
+
+    /**
+     * Per-thread working memory of {@link #isValidSolution(byte[], byte[], byte[])}.
+     * The Blake2b instance is reused since it resets itself after every digest.
+     */
+    private final class Scratch {
+        private final Blake2b blake = Blake2b.Digest.newInstance(initState);
+        private final byte[] digest = new byte[hashOutput];
+        private final byte[] counter = new byte[Integer.BYTES];
+        private final int[] indices = new int[1 << k];
+        private final byte[] rows = new byte[(1 << k) * hashLength];
+    }
+
+    /**
+     * Unpacks the bitLen wide big-endian indices of the minimal solution, same
+     * as {@link #getIndicesFromMinimal(byte[], int)}.
+     */
+    private static void readIndices(byte[] minimal, int[] out, int bitLen) {
+        int mask = (1 << bitLen) - 1;
+        int accBits = 0;
+        int accValue = 0;
 
-            hashLen -= collisionByteLength;
-            lenIndices *= 2;
+        int j = 0;
+        for (int i = 0; i < minimal.length && j < out.length; i++) {
+            accValue = (accValue << 8) | (minimal[i] & 0xff);
+            accBits += 8;
 
-            // swap X, Y
-            FullStepRow[] swap = X;
-            X = Y;
-            Y = swap;
+            if (accBits >= bitLen) {
+                accBits -= bitLen;
+                out[j++] = (accValue >>> accBits) & mask;
+            }
         }
+    }
 
-        return X[0].isZero(hashLen);
+    /**
+     * Expands indicesHashLength bytes of the digest into collisionBitLength
+     * wide values of collisionByteLength big-endian bytes each, same as
+     * {@link EquiUtils#extendArray(byte[], int, byte[], int, int, int)}.
+     */
+    private void expandHash(byte[] in, int inOff, byte[] out, int outOff) {
+        int mask = (1 << collisionBitLength) - 1;
+        int accBits = 0;
+        int accValue = 0;
+
+        int j = outOff;
+        for (int i = inOff; i < inOff + indicesHashLength && j < outOff + hashLength; i++) {
+            accValue = (accValue << 8) | (in[i] & 0xff);
+            accBits += 8;
+
+            if (accBits >= collisionBitLength) {
+                accBits -= collisionBitLength;
+                int value = (accValue >>> accBits) & mask;
+                for (int x = collisionByteLength - 1; x >= 0; x--) {
+                    out[j + x] = (byte) value;
+                    value >>>= 8;
+                }
+                j += collisionByteLength;
+            }
+        }
+    }
 
+    private static void writeIntLE(int value, byte[] out) {
+        out[0] = (byte) value;
+        out[1] = (byte) (value >>> 8);
+        out[2] = (byte) (value >>> 16);
+        out[3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * @return true if the count indices at a sort strictly before those at b,
+     *         compared lexicographically
+     */
+    private static boolean indicesBefore(int[] indices, int a, int b, int count) {
+        for (int i = 0; i < count; i++) {
+            if (indices[a + i] != indices[b + i]) {
+                return indices[a + i] < indices[b + i];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if none of the count indices at a occurs among those at b
+     */
+    private static boolean distinctIndices(int[] indices, int a, int b, int count) {
+        for (int i = a; i < a + count; i++) {
+            for (int j = b; j < b + count; j++) {
+                if (indices[i] == indices[j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     /**
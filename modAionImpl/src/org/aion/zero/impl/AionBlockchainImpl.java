@@ -70,12 +70,17 @@ import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxReceipt;
 import org.aion.zero.types.IAionBlock;
+import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 import static java.lang.Math.max;
 import static java.lang.Runtime.getRuntime;
@@ -128,6 +133,26 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     private NonceMgr nonceMgr;
 
+    /**
+     * Blocks that passed {@link #preValidate(AionBlock)}, keyed by hash. The
+     * instance is kept so that only the validated object skips the checks.
+     */
+    private final Map<ByteArrayWrapper, AionBlock> preValidatedBlocks = Collections
+            .synchronizedMap(new LRUMap<>(4096));
+
+    /**
+     * The header rules keep their errors per instance, so every thread
+     * running {@link #preValidate(AionBlock)} gets its own validator.
+     */
+    private final ThreadLocal<BlockHeaderValidator<A0BlockHeader>> preValidators = ThreadLocal
+            .withInitial(() -> this.chainConfiguration.createBlockHeaderValidator());
+
+    /**
+     * Writes the stores to disk when flushing is deferred, see
+     * {@link #setDeferredFlush(boolean)}.
+     */
+    private volatile ThreadPoolExecutor flushExecutor;
+
     /**
      * Chain configuration class, because chain configuration may change
      * dependant on the block being executed. This is simple for now but in the
@@ -175,8 +200,18 @@ public class AionBlockchainImpl implements IAionBlockchain {
         };
     }
 
+    /**
+     * Creates the chain configuration, applying the chain wide settings read
+     * from the genesis.
+     */
+    private static ChainConfiguration generateChainConfig(CfgAion cfgAion) {
+        ChainConfiguration chainConfig = new ChainConfiguration();
+        chainConfig.setPostTxStateEnabled(cfgAion.getGenesis().isPostTxStateEnabled());
+        return chainConfig;
+    }
+
     private AionBlockchainImpl() {
-        this(generateBCConfig(CfgAion.inst()), AionRepositoryImpl.inst(), new ChainConfiguration());
+        this(generateBCConfig(CfgAion.inst()), AionRepositoryImpl.inst(), generateChainConfig(CfgAion.inst()));
     }
 
     protected AionBlockchainImpl(final A0BCConfig config, final IRepository repository,
@@ -261,6 +296,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getBlockStore().getChainBlockByNumber(blockNr);
     }
 
+    @Override
+    public A0BlockHeader getHeaderByNumber(long blockNr) {
+        return getBlockStore().getChainHeaderByNumber(blockNr);
+    }
+
     @Override
     public AionTxInfo getTransactionInfo(byte[] hash) {
 
@@ -545,12 +585,50 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
             storeBlock(block, receipts);
 
-            flush();
+            ThreadPoolExecutor executor = flushExecutor;
+            if (executor != null) {
+                executor.execute(this::deferredFlush);
+            } else {
+                flush();
+            }
         }
 
         return summary;
     }
 
+    /**
+     * Defers the disk writes of imported blocks to a separate thread, so that
+     * writing block N overlaps the execution of block N + 1. A single flush is
+     * queued at any time, it covers every block imported before it starts.
+     * The flush takes the chain lock only to capture the writes, see
+     * {@link #flush()}. Disabling waits for the queued writes and flushes
+     * once more, the caller is expected to stop importing first.
+     */
+    public void setDeferredFlush(boolean deferred) {
+        if (deferred) {
+            if (flushExecutor == null) {
+                flushExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                        r -> new Thread(r, "chain-flush"), new ThreadPoolExecutor.DiscardPolicy());
+            }
+        } else {
+            ThreadPoolExecutor executor = flushExecutor;
+            flushExecutor = null;
+            if (executor != null) {
+                executor.shutdown();
+                try {
+                    if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                        LOG.error("The deferred flush did not complete within a minute, waiting for it to flush again.");
+                    }
+                } catch (InterruptedException e) {
+                    LOG.error("Interrupted while waiting for the deferred flush, waiting for it to flush again.");
+                    Thread.currentThread().interrupt();
+                }
+                // waits for a running flush to complete its writes
+                flush();
+            }
+        }
+    }
+
     public synchronized AionBlockSummary add(AionBlock block, boolean rebuild) {
 
         if (block == null) {
@@ -590,6 +668,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 LOG.warn("Block's given Receipt Hash doesn't match: {} != {}", receiptHash, receiptListHash);
                 LOG.warn("Calculated receipts: " + receipts);
             }
+            track.rollback();
+            // the transactions were already applied, restore the original state
+            ((AionRepositoryImpl) repository).setRoot(origRoot);
             return null;
         }
 
@@ -601,6 +682,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 LOG.warn("Block's given logBloom Hash doesn't match: {} != {}", ByteUtil.toHexString(logBloomHash),
                         ByteUtil.toHexString(logBloomListHash));
             track.rollback();
+            ((AionRepositoryImpl) repository).setRoot(origRoot);
             return null;
         }
 
@@ -649,16 +731,43 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return summary;
     }
 
+    private void deferredFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.error("Deferred flush failed.", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Captures the writes of the imported blocks under the chain lock and
+     * writes them to disk without it, so the next block can be imported in
+     * the meantime. The state, the blocks and the transactions are written as
+     * one repository write group, whose block index is written last. The deep
+     * main chain blocks are then moved to the archive, also without the chain
+     * lock.
+     */
     @Override
     public void flush() {
-        repository.flush();
-        try {
-            getBlockStore().flush();
-        } catch (Exception e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        if (!prepareFlush().getAsBoolean()) {
+            LOG.error("Unable to flush the chain.");
         }
-        transactionStore.flush();
+    }
+
+    private synchronized BooleanSupplier prepareFlush() {
+        Runnable archive = getBlockStore().prepareFlush();
+        BooleanSupplier commit = ((AionRepositoryImpl) repository).prepareFlush();
+
+        return () -> {
+            boolean written = commit.getAsBoolean();
+            try {
+                archive.run();
+            } catch (Exception e) {
+                LOG.error("Unable to archive the blocks.", e);
+            }
+            return written;
+        };
     }
 
     @SuppressWarnings("unused")
@@ -707,6 +816,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return false;
         }
 
+        return isValidOnParent(header);
+    }
+
+    private boolean isValidOnParent(A0BlockHeader header) {
         if (!this.parentHeaderValidator.validate(header, this.getParent(header).getHeader())) {
             if (LOG.isErrorEnabled()) {
                 LOG.error(parentHeaderValidator.getErrors().toString());
@@ -734,19 +847,31 @@ public class AionBlockchainImpl implements IAionBlockchain {
         boolean isValid = true;
 
         if (!block.isGenesis()) {
-            isValid = isValid(block.getHeader());
+            boolean preValidated = preValidatedBlocks.remove(ByteArrayWrapper.wrap(block.getHash())) == block;
 
-            // Sanity checks
-            String trieHash = Hex.toHexString(block.getTxTrieRoot());
-            String trieListHash = Hex.toHexString(calcTxTrie(block.getTransactionsList()));
+            if (preValidated) {
+                isValid = isValidOnParent(block.getHeader());
+            } else {
+                isValid = isValid(block.getHeader());
 
-            if (!trieHash.equals(trieListHash)) {
-                LOG.warn("Block's given Trie Hash doesn't match: {} != {}", trieHash, trieListHash);
-                return false;
+                // Sanity checks
+                String trieHash = Hex.toHexString(block.getTxTrieRoot());
+                String trieListHash = Hex.toHexString(calcTxTrie(block.getTransactionsList()));
+
+                if (!trieHash.equals(trieListHash)) {
+                    LOG.warn("Block's given Trie Hash doesn't match: {} != {}", trieHash, trieListHash);
+                    return false;
+                }
             }
 
             List<AionTransaction> txs = block.getTransactionsList();
             if (txs != null && !txs.isEmpty()) {
+                // signatures are verified in parallel before the sequential nonce checks
+                if (!preValidated && !TXValidator.isValid(txs)) {
+                    LOG.error("tx sig does not match with the tx raw data, block[{}]", block.getShortDescr());
+                    return false;
+                }
+
                 IRepository parentRepo = repository;
                 if (!Arrays.equals(getBlockStore().getBestBlock().getHash(), block.getParentHash())) {
                     parentRepo = repository.getSnapshotTo(getBlockByHash(block.getParentHash()).getStateRoot());
@@ -755,11 +880,6 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 Map<Address, BigInteger> nonceCache = new HashMap<>();
 
                 for (AionTransaction tx : txs) {
-                    if (!TXValidator.isValid(tx)) {
-                        LOG.error("tx sig does not match with the tx raw data, tx[{}]", tx.toString());
-                        return false;
-                    }
-
                     Address txSender = tx.getFrom();
 
                     BigInteger expectedNonce = nonceCache.get(txSender);
@@ -785,6 +905,46 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return isValid;
     }
 
+    /**
+     * Runs the checks of a block that do not depend on the chain state: the
+     * header rules including the Equihash solution, the transaction trie and
+     * the transaction signatures. It is safe to call from any thread ahead of
+     * {@link #tryToConnect(AionBlock)}, which then only performs the checks
+     * against the parent and the state for this block instance.
+     *
+     * @return {@code true} if the block passed the checks
+     */
+    public boolean preValidate(AionBlock block) {
+        if (block == null || block.isGenesis()) {
+            return false;
+        }
+
+        BlockHeaderValidator<A0BlockHeader> validator = preValidators.get();
+        if (!validator.validate(block.getHeader())) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error(validator.getErrors().toString());
+            }
+            return false;
+        }
+
+        List<AionTransaction> txs = block.getTransactionsList();
+        if (!Arrays.equals(block.getTxTrieRoot(), calcTxTrie(txs))) {
+            LOG.warn("Block's given Trie Hash doesn't match, block[{}]", block.getShortDescr());
+            return false;
+        }
+
+        // the caller already runs blocks in parallel
+        for (AionTransaction tx : txs) {
+            if (!TXValidator.isValid(tx)) {
+                LOG.error("tx sig does not match with the tx raw data, block[{}]", block.getShortDescr());
+                return false;
+            }
+        }
+
+        preValidatedBlocks.put(ByteArrayWrapper.wrap(block.getHash()), block);
+        return true;
+    }
+
     public static Set<ByteArrayWrapper> getAncestors(IBlockStorePow<IAionBlock, A0BlockHeader> blockStore,
             IAionBlock testedBlock, int limitNum, boolean isParentBlock) {
         Set<ByteArrayWrapper> ret = new HashSet<>();
@@ -824,6 +984,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<AionTxExecSummary> summaries = new ArrayList<>();
         List<AionTransaction> transactions = new ArrayList<>();
 
+        boolean postTxStateEnabled = chainConfiguration.isPostTxStateEnabled();
         long energyRemaining = block.getNrgLimit();
         for (AionTransaction tx : block.getTransactionsList()) {
             TransactionExecutor executor = new TransactionExecutor(tx, block, track, false, energyRemaining);
@@ -833,7 +994,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
                 track.flush();
 
                 AionTxReceipt receipt = summary.getReceipt();
-                receipt.setPostTxState(repository.getRoot());
+                if (postTxStateEnabled) {
+                    receipt.setPostTxState(repository.getRoot());
+                }
                 receipt.setTransaction(tx);
 
                 // otherwise, assuming we don't have timeouts, add the
@@ -861,13 +1024,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<AionTxReceipt> receipts = new ArrayList<>();
         List<AionTxExecSummary> summaries = new ArrayList<>();
 
+        boolean postTxStateEnabled = chainConfiguration.isPostTxStateEnabled();
         for (AionTransaction tx : block.getTransactionsList()) {
             TransactionExecutor executor = new TransactionExecutor(tx, block, track);
             AionTxExecSummary summary = executor.execute();
 
             track.flush();
             AionTxReceipt receipt = summary.getReceipt();
-            receipt.setPostTxState(repository.getRoot());
+            if (postTxStateEnabled) {
+                receipt.setPostTxState(repository.getRoot());
+            }
             receipts.add(receipt);
 
             summaries.add(summary);
@@ -1033,11 +1199,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
             boolean reverse) {
 
         // Identifying block we'll move from
-        IAionBlock startBlock;
+        A0BlockHeader startBlock;
         if (identifier.getHash() != null) {
-            startBlock = getBlockByHash(identifier.getHash());
+            startBlock = getBlockStore().getHeaderByHash(identifier.getHash());
         } else {
-            startBlock = getBlockByNumber(identifier.getNumber());
+            startBlock = getHeaderByNumber(identifier.getNumber());
         }
 
         // If nothing found or provided hash is not on main chain, return empty
@@ -1046,8 +1212,8 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return emptyList();
         }
         if (identifier.getHash() != null) {
-            IAionBlock mainChainBlock = getBlockByNumber(startBlock.getNumber());
-            if (!startBlock.equals(mainChainBlock)) {
+            byte[] mainChainHash = getBlockStore().getBlockHashByNumber(startBlock.getNumber());
+            if (!Arrays.equals(startBlock.getHash(), mainChainHash)) {
                 return emptyList();
             }
         }
@@ -1108,9 +1274,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
      *            Order of search
      * @return headers found by query or empty list if none
      */
-    private List<A0BlockHeader> getGapedHeaders(IAionBlock startBlock, int skip, int limit, boolean reverse) {
+    private List<A0BlockHeader> getGapedHeaders(A0BlockHeader startBlock, int skip, int limit, boolean reverse) {
         List<A0BlockHeader> headers = new ArrayList<>();
-        headers.add(startBlock.getHeader());
+        headers.add(startBlock);
         int offset = skip + 1;
         if (reverse) {
             offset = -offset;
@@ -1120,11 +1286,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
         while (!finished && headers.size() < limit) {
             currentNumber += offset;
-            IAionBlock nextBlock = getBlockStore().getChainBlockByNumber(currentNumber);
+            A0BlockHeader nextBlock = getHeaderByNumber(currentNumber);
             if (nextBlock == null) {
                 finished = true;
             } else {
-                headers.add(nextBlock.getHeader());
+                headers.add(nextBlock);
             }
         }
 
@@ -1153,13 +1319,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
             startNumber = blockNumber + qty - 1;
         }
 
-        IAionBlock block = getBlockByNumber(startNumber);
-
-        if (block == null) {
-            return null;
-        }
-
-        return block.getHash();
+        return getBlockStore().getBlockHashByNumber(startNumber);
     }
 
     @Override
@@ -137,6 +137,18 @@ public class AionGenesis extends AionBlock {
      */
     protected static final long GENESIS_ENERGY_LIMIT = 10000000;
 
+    /**
+     * Corresponds to {@link AionGenesis#postTxStateEnabled} by default the
+     * receipts carry the state root after each transaction
+     */
+    protected static final boolean GENESIS_POST_TX_STATE = true;
+
+    /**
+     * Appended to the extra data of a genesis that disables the post-tx state,
+     * so that the chain gets a genesis hash of its own
+     */
+    protected static final byte[] GENESIS_NO_POST_TX_STATE_TAG = "noPostTxState".getBytes();
+
     /**
      * Corresponds to {@link AionGenesis#premine} default premined accounts
      */
@@ -161,6 +173,15 @@ public class AionGenesis extends AionBlock {
      */
     private Map<Address, AccountState> premine = new HashMap<>();
 
+    /**
+     * Whether the receipts of this chain carry the state root after each
+     * transaction, see {@code ChainConfiguration#isPostTxStateEnabled()}. All
+     * the nodes on a chain must agree on it since it changes the receipts
+     * root, so a value other than the default is tagged in the extra data and
+     * therefore part of the genesis hash.
+     */
+    private boolean postTxStateEnabled = GENESIS_POST_TX_STATE;
+
     // TODO: verify whether setting the solution to null is okay
     // TODO: set energyLimit to a correct value (after genesis loader is
     // completed)
@@ -185,6 +206,14 @@ public class AionGenesis extends AionBlock {
         return this.networkBalances;
     }
 
+    public boolean isPostTxStateEnabled() {
+        return this.postTxStateEnabled;
+    }
+
+    public void setPostTxStateEnabled(boolean postTxStateEnabled) {
+        this.postTxStateEnabled = postTxStateEnabled;
+    }
+
     /**
      * Genesis will fallback to a set of default values given that the loader
      * does not override them, note that because a block by default is not
@@ -207,6 +236,7 @@ public class AionGenesis extends AionBlock {
         protected byte[] extraData;
         protected byte[] nonce;
         protected Long energyLimit;
+        protected Boolean postTxStateEnabled;
 
         protected Map<Integer, BigInteger> networkBalance;
         protected Map<Address, AccountState> premined;
@@ -260,6 +290,11 @@ public class AionGenesis extends AionBlock {
             return this;
         }
 
+        public Builder withPostTxStateEnabled(final boolean postTxStateEnabled) {
+            this.postTxStateEnabled = postTxStateEnabled;
+            return this;
+        }
+
         public Builder addPreminedAccount(final Address address, final AccountState state) {
             if (this.premined == null)
                 this.premined = new HashMap<>();
@@ -320,6 +355,13 @@ public class AionGenesis extends AionBlock {
             if (this.energyLimit == null)
                 this.energyLimit = GENESIS_ENERGY_LIMIT;
 
+            if (this.postTxStateEnabled == null)
+                this.postTxStateEnabled = GENESIS_POST_TX_STATE;
+
+            // nodes disagreeing on the option must not see the same genesis
+            byte[] extraData = this.postTxStateEnabled == GENESIS_POST_TX_STATE ? this.extraData
+                    : ByteUtil.merge(this.extraData, GENESIS_NO_POST_TX_STATE_TAG);
+
             if (this.premined == null)
                 this.premined = GENESIS_PREMINE;
 
@@ -327,11 +369,12 @@ public class AionGenesis extends AionBlock {
                 this.networkBalance = GENESIS_NETWORK_BALANCE;
 
             AionGenesis genesis = new AionGenesis(this.parentHash, this.coinbase, this.logsBloom, this.difficulty,
-                    this.number, this.timestamp, this.extraData, this.nonce, this.energyLimit);
+                    this.number, this.timestamp, extraData, this.nonce, this.energyLimit);
 
             // temporary solution, so as not to disrupt the constructors
             genesis.setPremine(this.premined);
             genesis.setNetworkBalance(this.networkBalance);
+            genesis.setPostTxStateEnabled(this.postTxStateEnabled);
 
             byte[] rootHash = generateRootHash();
 
@@ -24,7 +24,6 @@
 
 package org.aion.zero.impl;
 
-import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.type.Address;
 import org.aion.base.util.ByteUtil;
@@ -204,7 +203,7 @@ public class AionHub {
         this.eventMgr.start();
     }
 
-    public IRepository getRepository() {
+    public AionRepositoryImpl getRepository() {
         return repository;
     }
 
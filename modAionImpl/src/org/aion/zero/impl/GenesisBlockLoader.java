@@ -113,6 +113,10 @@ public class GenesisBlockLoader {
                     }
                 }
 
+                if (mapper.has("postTxState")) {
+                    genesisBuilder.withPostTxStateEnabled(mapper.getBoolean("postTxState"));
+                }
+
                 if (mapper.has("networkBalanceAllocs")) {
                     JSONObject networkBalanceAllocs = mapper.getJSONObject("networkBalanceAllocs");
 
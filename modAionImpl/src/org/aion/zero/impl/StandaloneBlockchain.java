@@ -158,6 +158,7 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
         private List<ECKey> defaultKeys = new ArrayList<>();
         private Map<ByteArrayWrapper, AccountState> initialState = new HashMap<>();
         private boolean blockPruningEnabled = false;
+        private Boolean postTxStateEnabled;
 
         public static final int INITIAL_ACC_LEN = 10;
         public static final BigInteger DEFAULT_BALANCE = new BigInteger("1000000000000000000000000");
@@ -216,6 +217,11 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
             return this;
         }
 
+        public Builder withPostTxStateEnabled(boolean postTxStateEnabled) {
+            this.postTxStateEnabled = postTxStateEnabled;
+            return this;
+        }
+
         public Builder withBlockPruningEnabled() {
             blockPruningEnabled = true;
             return this;
@@ -342,10 +348,15 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
                 }
             }
 
+            if (this.postTxStateEnabled != null) {
+                this.configuration.setPostTxStateEnabled(this.postTxStateEnabled);
+            }
+
             IRepositoryConfig repoConfig = generateRepositoryConfig();
             StandaloneBlockchain bc = new StandaloneBlockchain(this.a0Config, this.configuration, repoConfig);
 
-            AionGenesis.Builder genesisBuilder = new AionGenesis.Builder();
+            AionGenesis.Builder genesisBuilder = new AionGenesis.Builder()
+                    .withPostTxStateEnabled(this.configuration.isPostTxStateEnabled());
             for (Map.Entry<ByteArrayWrapper, AccountState> acc : this.initialState.entrySet()) {
                 genesisBuilder.addPreminedAccount(Address.wrap(acc.getKey()), acc.getValue());
             }
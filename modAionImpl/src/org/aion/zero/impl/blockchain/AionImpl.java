@@ -141,13 +141,16 @@ public class AionImpl implements IAionChain {
             tx.sign(ECKeyFac.inst().fromPrivate(Address.ZERO_ADDRESS().toBytes()));
         }
 
-        IRepositoryCache repository = aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
+        // executing on a frozen view does not block and is not affected by block imports
+        IRepository snapshot = aionHub.getRepository().getFrozenSnapshotTo(block.getStateRoot());
+        IRepositoryCache repository = snapshot.startTracking();
 
         try {
             TransactionExecutor executor = new TransactionExecutor(tx, block, repository, true);
             return executor.execute().getReceipt().getEnergyUsed();
         } finally {
             repository.rollback();
+            snapshot.close();
         }
     }
 
@@ -160,13 +163,16 @@ public class AionImpl implements IAionChain {
             tx.sign(ECKeyFac.inst().fromPrivate(new byte[32]));
         }
 
-        IRepositoryCache repository = aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
+        // executing on a frozen view does not block and is not affected by block imports
+        IRepository snapshot = aionHub.getRepository().getFrozenSnapshotTo(block.getStateRoot());
+        IRepositoryCache repository = snapshot.startTracking();
 
         try {
             TransactionExecutor executor = new TransactionExecutor(tx, block, repository, true);
             return executor.execute().getReceipt();
         } finally {
             repository.rollback();
+            snapshot.close();
         }
     }
 
@@ -271,54 +277,43 @@ public class AionImpl implements IAionChain {
     // assumes a correctly formatted block number
     @Override
     public Optional<AccountState> getAccountState(Address address, long blockNumber) {
+        byte[] stateRoot;
         try {
-            byte[] stateRoot = this.aionHub.getBlockStore().getChainBlockByNumber(blockNumber).getStateRoot();
-            AccountState account = (AccountState) this.aionHub.getRepository().getSnapshotTo(stateRoot)
-                    .getAccountState(address);
-
-            if (account == null)
-                return Optional.empty();
-
-            return Optional.of(account);
+            stateRoot = this.aionHub.getBlockStore().getChainBlockByNumber(blockNumber).getStateRoot();
         } catch (Exception e) {
             LOG.debug("query request failed", e);
             return Optional.empty();
         }
+        return getAccountStateAt(address, stateRoot);
     }
 
     // assumes a correctly formatted blockHash
     @Override
     public Optional<AccountState> getAccountState(Address address, byte[] blockHash) {
+        byte[] stateRoot;
         try {
-            byte[] stateRoot = this.aionHub.getBlockchain().getBlockByHash(blockHash).getStateRoot();
-            AccountState account = (AccountState) this.aionHub.getRepository().getSnapshotTo(stateRoot)
-                    .getAccountState(address);
-
-            if (account == null)
-                return Optional.empty();
-
-            return Optional.of(account);
+            stateRoot = this.aionHub.getBlockchain().getBlockByHash(blockHash).getStateRoot();
         } catch (Exception e) {
             LOG.debug("query request failed", e);
             return Optional.empty();
         }
+        return getAccountStateAt(address, stateRoot);
     }
 
+    // single reads are answered from the live state trie, only the calls
+    // reading several accounts need a frozen snapshot
     @Override
     public Optional<AccountState> getAccountState(Address address) {
-        try {
-            byte[] stateRoot = this.aionHub.getBlockchain().getBestBlock().getStateRoot();
-            AccountState account = (AccountState) this.aionHub.getRepository().getSnapshotTo(stateRoot)
-                    .getAccountState(address);
-
-            if (account == null)
-                return Optional.empty();
+        return getAccountStateAt(address, this.aionHub.getBlockchain().getBestBlock().getStateRoot());
+    }
 
-            return Optional.of(account);
-        } catch (Exception e) {
-            LOG.debug("query request failed", e);
-            return Optional.empty();
-        }
+    /**
+     * The state of an old block can be pruned while it is read, in which case
+     * the repository fails the read. The failure is passed on to the caller
+     * rather than answered as a missing account.
+     */
+    private Optional<AccountState> getAccountStateAt(Address address, byte[] stateRoot) {
+        return Optional.ofNullable(this.aionHub.getRepository().getAccountState(address, stateRoot));
     }
 
     @Override
@@ -328,4 +323,4 @@ public class AionImpl implements IAionChain {
             return Optional.empty();
         return Optional.of(new ByteArrayWrapper(code));
     }
-}
\ No newline at end of file
+}
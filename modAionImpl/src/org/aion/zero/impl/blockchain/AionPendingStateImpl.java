@@ -66,12 +66,19 @@ import org.slf4j.Logger;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class AionPendingStateImpl
         implements IPendingStateInternal<org.aion.zero.impl.types.AionBlock, AionTransaction> {
 
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.GEN.name());
 
+    // a transaction larger than a block can never be included
+    private static final int BLK_SIZE_LIMIT = 16_000_000;
+    // the nonces admitted ahead of the account nonce of a sender
+    private static final int NONCE_WINDOW = 1000;
+    private static final ITimer timerDummy = new TimerDummy();
+
     public static class TransactionSortedSet extends TreeSet<AionTransaction> {
 
         private static final long serialVersionUID = 4941385879122799663L;
@@ -112,8 +119,14 @@ public class AionPendingStateImpl
     private final Map<ByteArrayWrapper, Object> receivedTxs = Collections.synchronizedMap(new LRUMap<>(100000));
     private final Object dummyObject = new Object();
 
+    private final TxAdmissionStats admissionStats = new TxAdmissionStats();
+
     private IRepositoryCache pendingState;
 
+    // set when transactions executed on the pending state left the txpool
+    // other than by being included into a block
+    private boolean pendingStateStale = false;
+
     private AionBlock best = null;
 
     static private NonceMgr nonceMgr;
@@ -128,6 +141,20 @@ public class AionPendingStateImpl
         return inst;
     }
 
+    /**
+     * Creates a pending state over the given chain which is not the instance
+     * used by the kernel. The blockchain must have an event manager.
+     */
+    static AionPendingStateImpl createForTesting(AionRepositoryImpl repository, AionBlockchainImpl blockchain) {
+        AionPendingStateImpl ps = new AionPendingStateImpl(repository);
+        ps.blockchain = blockchain;
+        ps.blockStore = blockchain.getBlockStore();
+        ps.transactionStore = blockchain.getTransactionStore();
+        ps.evtMgr = blockchain.getEventMgr();
+        ps.pendingState = repository.startTracking();
+        return ps;
+    }
+
     private AionPendingStateImpl(AionRepositoryImpl repository) {
         this.repository = repository;
 
@@ -143,8 +170,10 @@ public class AionPendingStateImpl
         prop.put(TxPoolModule.MODULENAME, "org.aion.txpool.zero.TxPoolA0");
         // The BlockEnergyLimit will be updated when the best block found.
         prop.put(ITxPool.PROP_BLOCK_NRG_LIMIT, "1000000");
-        prop.put(ITxPool.PROP_BLOCK_SIZE_LIMIT, "16000000");
+        prop.put(ITxPool.PROP_BLOCK_SIZE_LIMIT, String.valueOf(BLK_SIZE_LIMIT));
         prop.put(ITxPool.PROP_TXN_TIMEOUT, "86400");
+        prop.put(ITxPool.PROP_POOL_SIZE_MAX, String.valueOf(cfg.getTx().getPoolSizeMax()));
+        prop.put(ITxPool.PROP_ACCOUNT_SLOTS_MAX, String.valueOf(cfg.getTx().getAccountSlotsMax()));
         TxPoolModule txPoolModule = null;
         try {
             txPoolModule = TxPoolModule.getSingleton(prop);
@@ -196,6 +225,14 @@ public class AionPendingStateImpl
         return this.txPool.size();
     }
 
+    /**
+     * @return the admission counters since the start, reported by the sync
+     *         status log
+     */
+    public TxAdmissionStats getAdmissionStats() {
+        return this.admissionStats;
+    }
+
     @Override
     public synchronized List<AionTransaction> getPendingTransactions() {
         return this.txPool.snapshot();
@@ -217,33 +254,74 @@ public class AionPendingStateImpl
      * rework the model that libAion uses to work with timers
      */
     @Override
-    public synchronized List<AionTransaction> addPendingTransaction(AionTransaction tx, ITimer timer) {
+    public List<AionTransaction> addPendingTransaction(AionTransaction tx, ITimer timer) {
         return addPendingTransactions(Collections.singletonList(tx), timer);
     }
 
+    /**
+     * Admits the transactions in two stages. The checks which do not depend
+     * on the pending state, the size, the signature and the nonce window, run
+     * on the batch against the repository, with the signatures verified in
+     * parallel. Only the transactions passing them are executed on the
+     * pending state, one at a time and in the order received, and added to
+     * the txpool.
+     *
+     * @implNote the nonce checks read the best state. The pending nonce of an
+     *           account is never below its best nonce and never more than
+     *           the account slots ahead of it, so they only reject
+     *           transactions which the pending state would reject too. The
+     *           balance is left to the execution, since the pending
+     *           transactions can credit the sender.
+     */
     @Override
-    public synchronized List<AionTransaction> addPendingTransactions(List<AionTransaction> transactions, ITimer timer) {
-        int unknownTx = 0;
-        List<AionTransaction> newPending = new ArrayList<>();
+    public List<AionTransaction> addPendingTransactions(List<AionTransaction> transactions, ITimer timer) {
+        admissionStats.addReceived(transactions.size());
 
+        List<AionTransaction> unknown = new ArrayList<>();
         for (AionTransaction tx : transactions) {
-
             if (addNewTxIfNotExist(tx)) {
-                unknownTx++;
-                if (addPendingTransactionImpl(tx, timer)) {
-                    newPending.add(tx);
-                }
+                unknown.add(tx);
             } else {
+                admissionStats.addRejected(TxAdmissionStats.Rejection.KNOWN);
                 if (LOG.isTraceEnabled()) {
                     LOG.trace("addPendingTransactions tx exist:[{}] ", tx.toString());
                 }
             }
         }
 
+        List<TxAdmissionStats.Rejection> checked = checkStateless(unknown);
+        List<AionTransaction> newPending = new ArrayList<>();
+
+        synchronized (this) {
+            for (int i = 0; i < unknown.size(); i++) {
+                AionTransaction tx = unknown.get(i);
+                TxAdmissionStats.Rejection rejection = checked.get(i);
+
+                if (rejection == null) {
+                    rejection = addPendingTransactionImpl(tx);
+                } else if (rejection != TxAdmissionStats.Rejection.INVALID) {
+                    fireTxUpdate(createDroppedReceipt(tx, "Tx rejected: " + rejection.name()),
+                            PendingTransactionState.DROPPED, getBestBlock());
+                }
+
+                if (rejection == null) {
+                    admissionStats.addAdmitted();
+                    newPending.add(tx);
+                } else {
+                    admissionStats.addRejected(rejection);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("addPendingTransactions tx [{}] rejected: {}", Hex.toHexString(tx.getHash()),
+                                rejection);
+                    }
+                }
+            }
+        }
+
         if (LOG.isDebugEnabled()) {
             LOG.debug(
                     "Wire transaction list added: total: {}, new: {}, valid (added to pending): {} (current #of known txs: {})",
-                    transactions.size(), unknownTx, newPending, receivedTxs.size());
+                    transactions.size(), unknown.size(), newPending, receivedTxs.size());
+            LOG.debug("Pending transaction admission: {}", admissionStats);
         }
 
         if (!newPending.isEmpty()) {
@@ -258,6 +336,50 @@ public class AionPendingStateImpl
         return newPending;
     }
 
+    /**
+     * Runs the stateless checks on the transactions, after verifying their
+     * signatures in parallel.
+     *
+     * @return the rejection reason of each transaction in order, or
+     *         {@code null} for the ones passing the checks
+     */
+    private List<TxAdmissionStats.Rejection> checkStateless(List<AionTransaction> txs) {
+        TXValidator.preVerify(txs);
+        return txs.stream().map(tx -> checkStateless(tx, repository)).collect(Collectors.toList());
+    }
+
+    /**
+     * Checks the transaction without the pending state. The nonce is read
+     * from the given repository.
+     *
+     * @return the rejection reason, or {@code null} if the transaction passes
+     */
+    static TxAdmissionStats.Rejection checkStateless(AionTransaction tx, IRepository repo) {
+        byte[] encoded = tx.getEncoded();
+        if (encoded == null) {
+            return TxAdmissionStats.Rejection.INVALID;
+        }
+        if (encoded.length > BLK_SIZE_LIMIT) {
+            return TxAdmissionStats.Rejection.OVERSIZED;
+        }
+
+        if (!TXValidator.isValid(tx)) {
+            return TxAdmissionStats.Rejection.INVALID;
+        }
+
+        Address from = tx.getFrom();
+        BigInteger accNonce = repo.getNonce(from);
+        BigInteger txNonce = new BigInteger(1, tx.getNonce());
+        if (txNonce.compareTo(accNonce) < 0) {
+            return TxAdmissionStats.Rejection.NONCE_TOO_LOW;
+        }
+        if (txNonce.subtract(accNonce).compareTo(BigInteger.valueOf(NONCE_WINDOW)) >= 0) {
+            return TxAdmissionStats.Rejection.NONCE_TOO_HIGH;
+        }
+
+        return null;
+    }
+
     public synchronized void trackTransaction(AionTransaction tx) {
         List<AionTxInfo> infos = transactionStore.get(tx.getHash());
         if (!infos.isEmpty()) {
@@ -275,7 +397,7 @@ public class AionPendingStateImpl
          * TODO: only add timerDummys FOR NOW, we need to replace them with real
          * timers later
          */
-        addPendingTransaction(tx, new TimerDummy());
+        addPendingTransaction(tx, timerDummy);
     }
 
     private void fireTxUpdate(AionTxReceipt txReceipt, PendingTransactionState state, IAionBlock block) {
@@ -299,24 +421,28 @@ public class AionPendingStateImpl
      * Executes pending tx on the latest best block Fires pending state update
      *
      * @param tx
-     * @return True if transaction gets NEW_PENDING state, False if DROPPED
+     *            a transaction which passed the stateless checks
+     * @return null if transaction gets NEW_PENDING state, the rejection reason
+     *         if DROPPED
      */
-    private boolean addPendingTransactionImpl(final AionTransaction tx, ITimer timer) {
+    private TxAdmissionStats.Rejection addPendingTransactionImpl(final AionTransaction tx) {
 
-        if (!TXValidator.isValid(tx)) {
-            LOG.error("tx sig does not match with the tx raw data, tx[{}]", tx.toString());
-            return false;
+        AionTransaction pending = this.txPool.getPoolTx(tx.getFrom(), new BigInteger(1, tx.getNonce()));
+        if (pending != null) {
+            return replacePendingTransaction(tx, pending);
         }
 
-        AionTxExecSummary txSum = executeTx(tx, timer);
-        timer.shutdown();
+        // the changes reach the pending state only if the txpool keeps the tx
+        IRepositoryCache txTrack = pendingState.startTracking();
+        AionTxExecSummary txSum = executeTx(tx, txTrack);
 
         if (txSum.isRejected()) {
+            txTrack.rollback();
             if (LOG.isErrorEnabled()) {
                 LOG.error("addPendingTransactionImpl tx is rejected due to: {}", txSum.getReceipt().getError());
             }
             fireTxUpdate(txSum.getReceipt(), PendingTransactionState.DROPPED, getBestBlock());
-            return false;
+            return TxAdmissionStats.Rejection.EXECUTION;
         } else {
             tx.setNrgConsume(txSum.getReceipt().getEnergyUsed());
 
@@ -324,13 +450,80 @@ public class AionPendingStateImpl
                 LOG.trace("addPendingTransactionImpl: [{}]", tx.toString());
             }
 
-            this.txPool.add(tx);
+            if (!this.txPool.add(tx)) {
+                txTrack.rollback();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("addPendingTransactionImpl tx is not accepted by the txpool: [{}]", tx.toString());
+                }
+                fireTxUpdate(txSum.getReceipt(), PendingTransactionState.DROPPED, getBestBlock());
+                return TxAdmissionStats.Rejection.TXPOOL;
+            }
+            txTrack.flush();
 
             fireTxUpdate(txSum.getReceipt(), PendingTransactionState.NEW_PENDING, getBestBlock());
-            return true;
+
+            // the txs replaced or evicted to make room are dropped right away
+            dropOutdated();
+            return null;
         }
     }
 
+    /**
+     * Replaces the pending tx of the same sender and nonce. The pending state
+     * already applied that nonce, so the new tx is executed on a discarded
+     * child of the pending state with the nonce and the balance of the sender
+     * wound back to before the replaced tx. This measures the energy the pool
+     * ranks the new tx by. The pending state keeps the changes of the
+     * replaced tx until it is rebuilt once with the next best block.
+     *
+     * @return null if the tx replaced the pending one, the rejection reason
+     *         if DROPPED
+     */
+    private TxAdmissionStats.Rejection replacePendingTransaction(final AionTransaction tx,
+            final AionTransaction pending) {
+        // the txpool refuses it as well, without executing it first
+        if (tx.getNrgPrice() <= pending.getNrgPrice()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("replacePendingTransaction tx is not accepted by the txpool: [{}]", tx.toString());
+            }
+            fireTxUpdate(createDroppedReceipt(tx, "Tx does not pay more than the pending tx of the same nonce"),
+                    PendingTransactionState.DROPPED, getBestBlock());
+            return TxAdmissionStats.Rejection.TXPOOL;
+        }
+
+        Address from = tx.getFrom();
+        BigInteger pendingCost = BigInteger.valueOf(pending.getNrgPrice())
+                .multiply(BigInteger.valueOf(pending.getNrgConsume()));
+        IRepositoryCache txTrack = pendingState.startTracking();
+        txTrack.setNonce(from, new BigInteger(1, tx.getNonce()));
+        txTrack.addBalance(from, new BigInteger(1, pending.getValue()).add(pendingCost));
+        AionTxExecSummary txSum = executeTx(tx, txTrack);
+        txTrack.rollback();
+
+        if (txSum.isRejected()) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("replacePendingTransaction tx is rejected due to: {}", txSum.getReceipt().getError());
+            }
+            fireTxUpdate(txSum.getReceipt(), PendingTransactionState.DROPPED, getBestBlock());
+            return TxAdmissionStats.Rejection.EXECUTION;
+        }
+
+        tx.setNrgConsume(txSum.getReceipt().getEnergyUsed());
+        if (!this.txPool.add(tx)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("replacePendingTransaction tx is not accepted by the txpool: [{}]", tx.toString());
+            }
+            fireTxUpdate(txSum.getReceipt(), PendingTransactionState.DROPPED, getBestBlock());
+            return TxAdmissionStats.Rejection.TXPOOL;
+        }
+
+        fireTxUpdate(txSum.getReceipt(), PendingTransactionState.NEW_PENDING, getBestBlock());
+
+        // reports the replaced tx as dropped and marks the pending state stale
+        dropOutdated();
+        return null;
+    }
+
     private AionTxReceipt createDroppedReceipt(AionTransaction tx, String error) {
         AionTxReceipt txReceipt = new AionTxReceipt();
         txReceipt.setTransaction(tx);
@@ -405,6 +598,8 @@ public class AionPendingStateImpl
 
             best = newBlock;
 
+            rebuildPendingStateIfStale();
+
             if (LOG.isTraceEnabled()) {
                 LOG.trace("PendingStateImpl.processBest: updateState");
             }
@@ -432,19 +627,36 @@ public class AionPendingStateImpl
         clearOutdated(block.getNumber());
     }
 
+    /**
+     * Reports the transactions which timed out or were replaced or evicted
+     * from the txpool as dropped. Their changes are still applied to the
+     * pending state, which is marked to be rebuilt with the next best block.
+     */
+    private List<AionTransaction> dropOutdated() {
+        List<AionTransaction> outdated = this.txPool.getOutdatedList();
+
+        final long timeout = this.txPool.getOutDateTime();
+        for (AionTransaction tx : outdated) {
+            // @Jay
+            // TODO : considering add new state - TIMEOUT
+            fireTxUpdate(createDroppedReceipt(tx, "Tx was not included into last " + timeout
+                    + " seconds, or was replaced or evicted from the txpool"), PendingTransactionState.DROPPED,
+                    getBestBlock());
+        }
+
+        if (!outdated.isEmpty()) {
+            pendingStateStale = true;
+        }
+        return outdated;
+    }
+
     private void clearOutdated(final long blockNumber) {
 
         List<AionPendingTx> outdated = new ArrayList<>();
 
-        final long timeout = this.txPool.getOutDateTime();
         final long best = getBestBlock().getNumber();
-        for (AionTransaction tx : this.txPool.getOutdatedList()) {
+        for (AionTransaction tx : dropOutdated()) {
             outdated.add(new AionPendingTx(tx, best));
-
-            // @Jay
-            // TODO : considering add new state - TIMEOUT
-            fireTxUpdate(createDroppedReceipt(tx, "Tx was not included into last " + timeout + " seconds"),
-                    PendingTransactionState.DROPPED, getBestBlock());
         }
 
         if (LOG.isDebugEnabled()) {
@@ -532,7 +744,39 @@ public class AionPendingStateImpl
         // timer.shutdown();
     }
 
-    private AionTxExecSummary executeTx(AionTransaction tx, ITimer timer) {
+    /**
+     * Replaces the pending state with the best state and the transactions
+     * left in the txpool, if some transactions left the pool other than
+     * through a block since the last rebuild. The transactions are replayed
+     * in the order they entered the txpool, so the ones depending on the
+     * transactions of another sender still execute. A transaction which no
+     * longer executes stays in the txpool until it times out.
+     */
+    synchronized void rebuildPendingStateIfStale() {
+        if (!pendingStateStale) {
+            return;
+        }
+
+        pendingState = repository.startTracking();
+
+        List<AionTransaction> pendingTxl = this.txPool.snapshotAll();
+        for (AionTransaction tx : pendingTxl) {
+            IRepositoryCache txTrack = pendingState.startTracking();
+            AionTxExecSummary txSum = executeTx(tx, txTrack);
+            if (txSum.isRejected()) {
+                txTrack.rollback();
+            } else {
+                txTrack.flush();
+            }
+        }
+        pendingStateStale = false;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("rebuildPendingState - txs[{}]", pendingTxl.size());
+        }
+    }
+
+    private AionTxExecSummary executeTx(AionTransaction tx, IRepositoryCache repo) {
 
         IAionBlock best = getBestBlock();
 
@@ -540,7 +784,7 @@ public class AionPendingStateImpl
             LOG.trace("executeTx: {}", Hex.toHexString(tx.getHash()));
         }
 
-        TransactionExecutor executor = new TransactionExecutor(tx, best, pendingState);
+        TransactionExecutor executor = new TransactionExecutor(tx, best, repo);
         return executor.execute();
     }
 
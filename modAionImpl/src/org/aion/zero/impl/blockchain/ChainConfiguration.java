@@ -60,6 +60,7 @@ public class ChainConfiguration implements IChainCfg<IAionBlock, AionTransaction
     protected IRewardsCalculator rewardsCalculatorAdapter;
     protected EquiValidator equiValidator;
     protected Address tokenBridgingOwnerAddress;
+    protected boolean postTxStateEnabled = true;
 
     public ChainConfiguration() {
         this(new BlockConstants());
@@ -92,6 +93,21 @@ public class ChainConfiguration implements IChainCfg<IAionBlock, AionTransaction
         return true;
     }
 
+    /**
+     * Whether the state root is computed after each transaction and stored in
+     * its receipt. When disabled the receipts carry an empty post-tx state and
+     * the state trie is hashed once per block instead of once per transaction.
+     * The post-tx state is part of the receipts root, so all the nodes on a
+     * chain must agree on this setting, which is read from the genesis.
+     */
+    public boolean isPostTxStateEnabled() {
+        return postTxStateEnabled;
+    }
+
+    public void setPostTxStateEnabled(boolean postTxStateEnabled) {
+        this.postTxStateEnabled = postTxStateEnabled;
+    }
+
     @Override
     public IDifficultyCalculator getDifficultyCalculator() {
         return difficultyCalculatorAdapter;
@@ -106,7 +122,7 @@ public class ChainConfiguration implements IChainCfg<IAionBlock, AionTransaction
      *
      * @return
      */
-    protected EquiValidator getEquihashValidator() {
+    protected synchronized EquiValidator getEquihashValidator() {
         if (this.equiValidator == null) {
             this.equiValidator = new EquiValidator(CfgAion.getN(), CfgAion.getK());
         }
@@ -117,7 +133,11 @@ public class ChainConfiguration implements IChainCfg<IAionBlock, AionTransaction
     public BlockHeaderValidator<A0BlockHeader> createBlockHeaderValidator() {
         return new BlockHeaderValidator<A0BlockHeader>(Arrays.asList(
                 new AionExtraDataRule(this.getConstants().getMaximumExtraDataSize()), new EnergyConsumedRule(),
-                new AionPOWRule(), new EquihashSolutionRule(this.getEquihashValidator())));
+                new AionPOWRule(), createEquihashSolutionRule()));
+    }
+
+    public EquihashSolutionRule createEquihashSolutionRule() {
+        return new EquihashSolutionRule(this.getEquihashValidator());
     }
 
     @Override
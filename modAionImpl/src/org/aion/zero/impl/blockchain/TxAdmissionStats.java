@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.blockchain;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pending transaction admission statistics.
+ */
+public class TxAdmissionStats {
+
+    /**
+     * The reasons for which a pending transaction is not admitted.
+     */
+    public enum Rejection {
+        /** already received */
+        KNOWN,
+        /** malformed fields or signature mismatch */
+        INVALID,
+        /** encoded size over the limit */
+        OVERSIZED,
+        /** nonce below the account nonce */
+        NONCE_TOO_LOW,
+        /** nonce beyond the window of the account nonce */
+        NONCE_TOO_HIGH,
+        /** rejected by the execution on the pending state */
+        EXECUTION,
+        /** refused by the txpool */
+        TXPOOL
+    }
+
+    private final long startupTimeStamp = System.currentTimeMillis();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final Map<Rejection, LongAdder> rejected = new EnumMap<>(Rejection.class);
+
+    public TxAdmissionStats() {
+        for (Rejection r : Rejection.values()) {
+            rejected.put(r, new LongAdder());
+        }
+    }
+
+    public void addReceived(int cnt) {
+        received.add(cnt);
+    }
+
+    public void addAdmitted() {
+        admitted.increment();
+    }
+
+    public void addRejected(Rejection reason) {
+        rejected.get(reason).increment();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected(Rejection reason) {
+        return rejected.get(reason).sum();
+    }
+
+    /**
+     * @return the admitted transactions per second since startup
+     */
+    public double getAdmissionRate() {
+        long elapsed = Math.max(System.currentTimeMillis() - startupTimeStamp, 1);
+        return getAdmitted() * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("received=").append(getReceived());
+        sb.append(" admitted=").append(getAdmitted());
+        sb.append(String.format(" rate=%.2f/s", getAdmissionRate()));
+        for (Rejection r : Rejection.values()) {
+            sb.append(' ').append(r.name().toLowerCase()).append('=').append(getRejected(r));
+        }
+        return sb.toString();
+    }
+}
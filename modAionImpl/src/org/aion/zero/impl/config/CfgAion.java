@@ -56,6 +56,7 @@ public final class CfgAion extends Cfg {
         this.sync = new CfgSync();
         this.api = new CfgApi();
         this.db = new CfgDb();
+        this.tx = new CfgTx();
         this.log = new CfgLog();
     }
 
@@ -176,6 +177,9 @@ public final class CfgAion extends Cfg {
                     case "db":
                         this.db.fromXML(sr);
                         break;
+                    case "tx":
+                        this.tx.fromXML(sr);
+                        break;
                     case "log":
                         this.log.fromXML(sr);
                         break;
@@ -290,6 +294,7 @@ public final class CfgAion extends Cfg {
             sw.writeCharacters(this.getSync().toXML());
             sw.writeCharacters(this.getConsensus().toXML());
             sw.writeCharacters(this.getDb().toXML());
+            sw.writeCharacters(this.getTx().toXML());
             sw.writeCharacters(this.getLog().toXML());
 
             sw.writeCharacters("\r\n");
@@ -24,7 +24,12 @@
 
 package org.aion.zero.impl.db;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
 import org.aion.mcf.db.AbstractPowBlockstore;
 import org.aion.mcf.ds.DataSourceArray;
@@ -41,9 +46,11 @@ import org.slf4j.Logger;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static java.math.BigInteger.ZERO;
 import static org.aion.crypto.HashUtil.shortHash;
@@ -57,11 +64,66 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     public IByteArrayKeyValueDatabase blocksDS;
     ObjectDataSource<AionBlock> blocks;
 
-    public AionBlockStore(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks) {
-        init(index, blocks);
+    /**
+     * Headers are stored apart from the blocks so that header, hash and
+     * existence queries do not decode the block bodies.
+     */
+    public IByteArrayKeyValueDatabase headersDS;
+    ObjectDataSource<A0BlockHeader> headers;
+
+    private static final int HEADER_CACHE_SIZE = 4096;
+
+    /** Upper bound on the summed encoded size of the cached blocks. */
+    private static final long BLOCK_CACHE_WEIGHT = 32L * 1024 * 1024;
+
+    /**
+     * Decoded objects are kept around so that walks over recent blocks do not
+     * parse the same bytes again; the byte level cache of the database sits
+     * below the deserializer and does not help there. Blocks and headers are
+     * mutable, so the caches hold and hand out copies.
+     */
+    private final Cache<ByteArrayWrapper, A0BlockHeader> headerCache = CacheBuilder.newBuilder()
+            .maximumSize(HEADER_CACHE_SIZE).recordStats().build();
+
+    private final Cache<ByteArrayWrapper, AionBlock> blockCache = CacheBuilder.newBuilder()
+            .maximumWeight(BLOCK_CACHE_WEIGHT).weigher((ByteArrayWrapper k, AionBlock b) -> b.getEncoded().length)
+            .recordStats().build();
+
+    /**
+     * Main chain hash and total difficulty by block number, loaded from the
+     * index on start-up and updated whenever a level of the index is written.
+     */
+    private final MainChainIndex mainChain = new MainChainIndex();
+
+    /**
+     * Main chain blocks deeper than {@link #archiveDepth} below the best block
+     * are moved from the block database to this archive, or kept in the block
+     * database when it is {@code null}.
+     */
+    private BlockArchive archive;
+    private long archiveDepth;
+
+    /** Upper bound on the levels moved to the archive by a single flush. */
+    private static final int ARCHIVE_BATCH_SIZE = 1024;
+
+    public AionBlockStore(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks,
+            IByteArrayKeyValueDatabase headers) {
+        init(index, blocks, headers);
     }
 
-    public void init(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks) {
+    public AionBlockStore(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks,
+            IByteArrayKeyValueDatabase headers, File archiveDir, long archiveDepth) {
+        init(index, blocks, headers);
+        try {
+            this.archive = new BlockArchive(archiveDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open the block archive.", e);
+        }
+        this.archiveDepth = archiveDepth;
+    }
+
+    public void init(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks,
+            IByteArrayKeyValueDatabase headers) {
 
         indexDS = index;
         this.index = new DataSourceArray<>(new ObjectDataSource<>(index, BLOCK_INFO_SERIALIZER));
@@ -79,6 +141,50 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             }
         });
 
+        this.headersDS = headers;
+        this.headers = new ObjectDataSource<>(headers, new Serializer<A0BlockHeader, byte[]>() {
+            @Override
+            public byte[] serialize(A0BlockHeader header) {
+                return header.getEncoded();
+            }
+
+            @Override
+            public A0BlockHeader deserialize(byte[] bytes) {
+                return new A0BlockHeader(bytes);
+            }
+        });
+        headerCache.invalidateAll();
+        blockCache.invalidateAll();
+        loadMainChain();
+    }
+
+    private void loadMainChain() {
+        mainChain.clear();
+
+        long size = this.index.longSize();
+        try (IKeyValueIterator<byte[], byte[]> itr = indexDS.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = itr.next();
+                long level = DataSourceArray.fromKey(entry.getKey());
+                if (level >= 0 && level < size) {
+                    updateMainChain(level, BLOCK_INFO_SERIALIZER.deserialize(entry.getValue()));
+                }
+            }
+        }
+        if (mainChain.size() < size) {
+            // levels missing from the database have no main chain block
+            mainChain.set(size - 1, null, null);
+        }
+    }
+
+    private void updateMainChain(long level, List<BlockInfo> infos) {
+        for (BlockInfo blockInfo : infos) {
+            if (blockInfo.isMainChain()) {
+                mainChain.set(level, blockInfo.getHash(), blockInfo.getCummDifficulty());
+                return;
+            }
+        }
+        mainChain.set(level, null, null);
     }
 
     public AionBlock getBestBlock() {
@@ -103,23 +209,29 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
     public byte[] getBlockHashByNumber(long blockNumber) {
 
-        if (blockNumber < 0L || blockNumber >= index.size()) {
-            return null;
-        }
-
-        List<BlockInfo> blockInfos = index.get((int) blockNumber);
+        return mainChain.getHash(blockNumber);
+    }
 
-        for (BlockInfo blockInfo : blockInfos) {
-            if (blockInfo.isMainChain()) {
-                return blockInfo.getHash();
-            }
+    /**
+     * Captures the main chain levels to move to the archive. The other changes
+     * of the store stay in its databases, for the repository to commit them
+     * with its write group, see {@link AionRepositoryImpl#prepareFlush()}.
+     *
+     * @return the move of the captured levels, which writes to the archive
+     *         and is meant to run without the locks of the caller
+     */
+    public synchronized Runnable prepareFlush() {
+        if (archive == null) {
+            return () -> {};
         }
 
-        return null;
+        long last = getMaxNumber() - archiveDepth;
+        return () -> archiveBlocks(last);
     }
 
     @Override
-    public void flush() {
+    public synchronized void flush() {
+        archiveBlocks(getMaxNumber() - archiveDepth);
         blocks.flush();
         index.flush();
         try {
@@ -129,6 +241,13 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         } catch (Exception e) {
             LOG.error("Unable to flush blocks data.", e);
         }
+        try {
+            if (!headersDS.isAutoCommitEnabled()) {
+                headersDS.commit();
+            }
+        } catch (Exception e) {
+            LOG.error("Unable to flush headers data.", e);
+        }
         try {
             if (!indexDS.isAutoCommitEnabled()) {
                 indexDS.commit();
@@ -139,14 +258,14 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     }
 
     @Override
-    public void saveBlock(AionBlock block, BigInteger cummDifficulty, boolean mainChain) {
+    public synchronized void saveBlock(AionBlock block, BigInteger cummDifficulty, boolean mainChain) {
         addInternalBlock(block, cummDifficulty, mainChain);
     }
 
     private void addInternalBlock(AionBlock block, BigInteger cummDifficulty, boolean mainChain) {
 
-        List<BlockInfo> blockInfos = block.getNumber() >= index.size() ? new ArrayList<BlockInfo>()
-                : index.get((int) block.getNumber());
+        List<BlockInfo> blockInfos = block.getNumber() >= index.longSize() ? new ArrayList<BlockInfo>()
+                : index.get(block.getNumber());
 
         BlockInfo blockInfo = new BlockInfo();
         blockInfo.setCummDifficulty(cummDifficulty);
@@ -156,25 +275,32 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                                            // that level
 
         blockInfos.add(blockInfo);
-        index.set((int) block.getNumber(), blockInfos);
+        index.set(block.getNumber(), blockInfos);
+        updateMainChain(block.getNumber(), blockInfos);
 
         blocks.put(block.getHash(), block);
+        headers.put(block.getHash(), block.getHeader());
+
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(block.getHash());
+        AionBlock cached = block.copy();
+        blockCache.put(key, cached);
+        headerCache.put(key, cached.getHeader());
     }
 
     public List<IAionBlock> getBlocksByNumber(long number) {
 
         List<IAionBlock> result = new ArrayList<>();
 
-        if (number >= index.size()) {
+        if (number >= index.longSize()) {
             return result;
         }
 
-        List<BlockInfo> blockInfos = index.get((int) number);
+        List<BlockInfo> blockInfos = index.get(number);
 
         for (BlockInfo blockInfo : blockInfos) {
 
             byte[] hash = blockInfo.getHash();
-            IAionBlock block = blocks.get(hash);
+            IAionBlock block = getBlock(hash);
 
             result.add(block);
         }
@@ -183,44 +309,191 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
     @Override
     public AionBlock getChainBlockByNumber(long number) {
-        int size = index.size();
-        if (number < 0L || number >= size) {
-            return null;
-        }
+        byte[] hash = getBlockHashByNumber(number);
+        return hash == null ? null : getBlock(hash);
+    }
 
-        List<BlockInfo> blockInfos = index.get((int) number);
+    /**
+     * Retrieves the header of the main chain block with the given number
+     * without reading the block body.
+     */
+    public A0BlockHeader getChainHeaderByNumber(long number) {
+        byte[] hash = getBlockHashByNumber(number);
+        return hash == null ? null : getHeaderByHash(hash);
+    }
 
-        for (BlockInfo blockInfo : blockInfos) {
+    /**
+     * Retrieves the header of the block with the given hash without reading
+     * the block body.
+     */
+    public A0BlockHeader getHeaderByHash(byte[] hash) {
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(hash);
+        A0BlockHeader header = headerCache.getIfPresent(key);
+        if (header != null) {
+            return new A0BlockHeader(header);
+        }
 
-            if (blockInfo.isMainChain()) {
+        AionBlock cached = blockCache.getIfPresent(key);
+        if (cached != null) {
+            header = cached.getHeader();
+            headerCache.put(key, header);
+            return new A0BlockHeader(header);
+        }
 
-                byte[] hash = blockInfo.getHash();
-                return blocks.get(hash);
+        header = headers.get(hash);
+        if (header == null) {
+            // blocks stored before the header database was introduced
+            AionBlock block = getBlock(hash);
+            if (block == null) {
+                return null;
             }
+            header = block.getHeader();
+            headers.put(hash, header);
         }
 
-        return null;
+        headerCache.put(key, header);
+        return new A0BlockHeader(header);
     }
 
     @Override
     public AionBlock getBlockByHash(byte[] hash) {
-        return blocks.get(hash);
+        return getBlock(hash);
+    }
+
+    private AionBlock getBlock(byte[] hash) {
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(hash);
+        AionBlock block = blockCache.getIfPresent(key);
+        if (block == null) {
+            block = blocks.get(hash);
+            if (block == null && archive != null) {
+                block = getArchivedBlock(key);
+            }
+            if (block == null) {
+                return null;
+            }
+            blockCache.put(key, block);
+        }
+        return block.copy();
+    }
+
+    private AionBlock getArchivedBlock(ByteArrayWrapper key) {
+        // archived blocks keep their header in the header database
+        A0BlockHeader header = headerCache.getIfPresent(key);
+        if (header == null) {
+            header = headers.get(key.getData());
+            if (header == null) {
+                return null;
+            }
+        }
+
+        try {
+            ByteBuffer record = archive.get(header.getNumber());
+            if (record == null) {
+                return null;
+            }
+            byte[] encoded = new byte[record.remaining()];
+            record.get(encoded);
+
+            // the archived block at this level may belong to another branch
+            AionBlock block = new AionBlock(encoded);
+            return Arrays.equals(block.getHash(), key.getData()) ? block : null;
+        } catch (IOException e) {
+            LOG.error("Unable to read block " + header.getNumber() + " from the archive.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Moves the main chain blocks that are deeper than the archive depth from
+     * the block database to the archive. The archive is forced to disk before
+     * the blocks are deleted, so a block is always readable from one of them.
+     * Holds the store monitor, so the move cannot interleave with a revert
+     * truncating the archive.
+     *
+     * @param upTo the last level to move, lowered if the chain was reverted
+     *            since it was captured
+     */
+    private synchronized void archiveBlocks(long upTo) {
+        if (archive == null) {
+            return;
+        }
+
+        long last = Math.min(Math.min(upTo, getMaxNumber() - archiveDepth), archive.size() + ARCHIVE_BATCH_SIZE - 1);
+        if (archive.size() > last) {
+            return;
+        }
+
+        List<byte[]> archived = new ArrayList<>();
+        try {
+            for (long level = archive.size(); level <= last; level++) {
+                byte[] hash = mainChain.getHash(level);
+                byte[] encoded = hash == null ? null : blocksDS.get(hash).orElse(null);
+                if (encoded == null) {
+                    archive.append(ByteUtil.EMPTY_BYTE_ARRAY);
+                    continue;
+                }
+                if (!headersDS.get(hash).isPresent()) {
+                    headers.put(hash, new AionBlock(encoded).getHeader());
+                }
+                archive.append(encoded);
+                archived.add(hash);
+            }
+            archive.flush();
+        } catch (IOException e) {
+            LOG.error("Unable to write blocks to the archive.", e);
+            return;
+        }
+
+        for (byte[] hash : archived) {
+            blocks.delete(hash);
+        }
+    }
+
+    /**
+     * Returns the hit and miss counts of the decoded block cache.
+     */
+    public CacheStats getBlockCacheStats() {
+        return blockCache.stats();
+    }
+
+    /**
+     * Returns the hit and miss counts of the decoded header cache.
+     */
+    public CacheStats getHeaderCacheStats() {
+        return headerCache.stats();
+    }
+
+    @Override
+    public byte[] getBlockHashByNumber(long blockNumber, byte[] branchBlockHash) {
+        A0BlockHeader branch = getHeaderByHash(branchBlockHash);
+        if (branch.getNumber() < blockNumber) {
+            throw new IllegalArgumentException(
+                    "Requested block number > branch hash number: " + blockNumber + " < " + branch.getNumber());
+        }
+        while (branch.getNumber() > blockNumber) {
+            branch = getHeaderByHash(branch.getParentHash());
+        }
+        return branch.getHash();
     }
 
     @Override
     public boolean isBlockExist(byte[] hash) {
-        return blocks.get(hash) != null;
+        return getHeaderByHash(hash) != null;
     }
 
     @Override
     public BigInteger getTotalDifficultyForHash(byte[] hash) {
-        IAionBlock block = this.getBlockByHash(hash);
-        if (block == null) {
+        A0BlockHeader header = this.getHeaderByHash(hash);
+        if (header == null) {
             return ZERO;
         }
 
-        Long level = block.getNumber();
-        List<BlockInfo> blockInfos = index.get(level.intValue());
+        long level = header.getNumber();
+        if (Arrays.equals(mainChain.getHash(level), hash)) {
+            return mainChain.getTotalDifficulty(level);
+        }
+
+        List<BlockInfo> blockInfos = index.get(level);
         for (BlockInfo blockInfo : blockInfos) {
             if (Arrays.equals(blockInfo.getHash(), hash)) {
                 return blockInfo.cummDifficulty;
@@ -232,42 +505,31 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
     @Override
     public BigInteger getTotalDifficulty() {
-        long maxNumber = getMaxNumber();
-
-        List<BlockInfo> blockInfos = index.get((int) maxNumber);
-        for (BlockInfo blockInfo : blockInfos) {
-            if (blockInfo.isMainChain()) {
-                return blockInfo.getCummDifficulty();
+        for (long level = getMaxNumber(); level >= 0; --level) {
+            BigInteger totalDifficulty = mainChain.getTotalDifficulty(level);
+            if (totalDifficulty != null) {
+                return totalDifficulty;
             }
         }
 
-        while (true) {
-            --maxNumber;
-            List<BlockInfo> infos = getBlockInfoForLevel(maxNumber);
-
-            for (BlockInfo blockInfo : infos) {
-                if (blockInfo.isMainChain()) {
-                    return blockInfo.getCummDifficulty();
-                }
-            }
-        }
+        return ZERO;
     }
 
     @Override
     public long getMaxNumber() {
         // the index size is always >= 0
-        long bestIndex = (long) index.size();
+        long bestIndex = index.longSize();
         return bestIndex - 1L;
     }
 
     @Override
     public List<byte[]> getListHashesEndWith(byte[] hash, long number) {
 
-        List<AionBlock> blocks = getListBlocksEndWith(hash, number);
-        List<byte[]> hashes = new ArrayList<>(blocks.size());
+        List<A0BlockHeader> headers = getListHeadersEndWith(hash, number);
+        List<byte[]> hashes = new ArrayList<>(headers.size());
 
-        for (IAionBlock b : blocks) {
-            hashes.add(b.getHash());
+        for (A0BlockHeader h : headers) {
+            hashes.add(h.getHash());
         }
 
         return hashes;
@@ -276,11 +538,20 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     @Override
     public List<A0BlockHeader> getListHeadersEndWith(byte[] hash, long qty) {
 
-        List<AionBlock> blocks = getListBlocksEndWith(hash, qty);
-        List<A0BlockHeader> headers = new ArrayList<>(blocks.size());
+        A0BlockHeader header = getHeaderByHash(hash);
 
-        for (IAionBlock b : blocks) {
-            headers.add(b.getHeader());
+        if (header == null) {
+            return new ArrayList<>();
+        }
+
+        List<A0BlockHeader> headers = new ArrayList<>((int) qty);
+
+        for (int i = 0; i < qty; ++i) {
+            headers.add(header);
+            header = getHeaderByHash(header.getParentHash());
+            if (header == null) {
+                break;
+            }
         }
 
         return headers;
@@ -293,7 +564,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
     private List<AionBlock> getListBlocksEndWithInner(byte[] hash, long qty) {
 
-        AionBlock block = this.blocks.get(hash);
+        AionBlock block = getBlock(hash);
 
         if (block == null) {
             return new ArrayList<>();
@@ -303,7 +574,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
         for (int i = 0; i < qty; ++i) {
             blocks.add(block);
-            block = this.blocks.get(block.getParentHash());
+            block = getBlock(block.getParentHash());
             if (block == null) {
                 break;
             }
@@ -313,14 +584,14 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     }
 
     @Override
-    public void reBranch(AionBlock forkBlock) {
+    public synchronized void reBranch(AionBlock forkBlock) {
 
-        IAionBlock bestBlock = getBestBlock();
+        A0BlockHeader bestBlock = getBestBlock().getHeader();
 
         long currentLevel = Math.max(bestBlock.getNumber(), forkBlock.getNumber());
 
         // 1. First ensure that you are one the save level
-        IAionBlock forkLine = forkBlock;
+        A0BlockHeader forkLine = forkBlock.getHeader();
         if (forkBlock.getNumber() > bestBlock.getNumber()) {
 
             while (currentLevel > bestBlock.getNumber()) {
@@ -330,12 +601,12 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                     blockInfo.setMainChain(true);
                     setBlockInfoForLevel(currentLevel, blocks);
                 }
-                forkLine = getBlockByHash(forkLine.getParentHash());
+                forkLine = getHeaderByHash(forkLine.getParentHash());
                 --currentLevel;
             }
         }
 
-        IAionBlock bestLine = bestBlock;
+        A0BlockHeader bestLine = bestBlock;
         if (bestBlock.getNumber() > forkBlock.getNumber()) {
 
             while (currentLevel > forkBlock.getNumber()) {
@@ -346,13 +617,13 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                     blockInfo.setMainChain(false);
                     setBlockInfoForLevel(currentLevel, blocks);
                 }
-                bestLine = getBlockByHash(bestLine.getParentHash());
+                bestLine = getHeaderByHash(bestLine.getParentHash());
                 --currentLevel;
             }
         }
 
         // 2. Loop back on each level until common block
-        while (!bestLine.isEqual(forkLine)) {
+        while (!Arrays.equals(bestLine.getHash(), forkLine.getHash())) {
 
             List<BlockInfo> levelBlocks = getBlockInfoForLevel(currentLevel);
             BlockInfo bestInfo = getBlockInfoForHash(levelBlocks, bestLine.getHash());
@@ -367,8 +638,8 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 setBlockInfoForLevel(currentLevel, levelBlocks);
             }
 
-            bestLine = getBlockByHash(bestLine.getParentHash());
-            forkLine = getBlockByHash(forkLine.getParentHash());
+            bestLine = getHeaderByHash(bestLine.getParentHash());
+            forkLine = getHeaderByHash(forkLine.getParentHash());
 
             --currentLevel;
         }
@@ -376,9 +647,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     }
 
     @Override
-    public void revert(long previousLevel) {
+    public synchronized void revert(long previousLevel) {
 
-        IAionBlock bestBlock = getBestBlock();
+        A0BlockHeader bestBlock = getBestBlock().getHeader();
 
         long currentLevel = bestBlock.getNumber();
 
@@ -388,11 +659,24 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         }
 
         // walk back removing blocks greater than the given level value
-        IAionBlock bestLine = bestBlock;
+        A0BlockHeader bestLine = bestBlock;
         while (currentLevel > previousLevel) {
-            index.remove((int) currentLevel);
+            index.remove(currentLevel);
+            mainChain.truncate(currentLevel);
+            if (archive != null && archive.size() > currentLevel) {
+                try {
+                    archive.truncate(currentLevel);
+                } catch (IOException e) {
+                    LOG.error("Unable to revert the block archive.", e);
+                }
+            }
             blocks.delete(bestLine.getHash());
-            bestLine = getBlockByHash(bestLine.getParentHash());
+            headers.delete(bestLine.getHash());
+
+            ByteArrayWrapper key = ByteArrayWrapper.wrap(bestLine.getHash());
+            blockCache.invalidate(key);
+            headerCache.invalidate(key);
+            bestLine = getHeaderByHash(bestLine.getParentHash());
             --currentLevel;
         }
 
@@ -409,23 +693,14 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
         List<byte[]> result = new ArrayList<>();
 
-        int i;
-        for (i = 0; i < maxBlocks; ++i) {
-            List<BlockInfo> blockInfos = index.get((int) number);
-            if (blockInfos == null) {
-                break;
-            }
-
-            for (BlockInfo blockInfo : blockInfos) {
-                if (blockInfo.isMainChain()) {
-                    result.add(blockInfo.getHash());
-                    break;
-                }
+        for (int i = 0; i < maxBlocks && number <= getMaxNumber(); ++i) {
+            byte[] hash = mainChain.getHash(number);
+            if (hash != null) {
+                result.add(hash);
             }
 
             ++number;
         }
-        maxBlocks -= i;
 
         return result;
     }
@@ -504,8 +779,8 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     }
 
     /**
-     * Called by {@link AionBlockStore#BLOCK_INFO_SERIALIZER} for now, on main-net launch
-     * we should default to this class.
+     * Previous format of the index entries, still read by
+     * {@link AionBlockStore#BLOCK_INFO_SERIALIZER}.
      */
     public static final Serializer<List<BlockInfo>, byte[]> BLOCK_INFO_RLP_SERIALIZER = new Serializer<List<BlockInfo>,byte[]>() {
         @Override
@@ -531,16 +806,86 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         }
     };
 
+    private static final byte BLOCK_INFO_COMPACT_VERSION = 0x01;
+    private static final int BLOCK_INFO_HASH_LENGTH = 32;
+    private static final int BLOCK_INFO_DIFFICULTY_LENGTH = 32;
+    private static final int BLOCK_INFO_COMPACT_LENGTH = BLOCK_INFO_HASH_LENGTH + 1 + BLOCK_INFO_DIFFICULTY_LENGTH;
+
+    /**
+     * Fixed-width format of the index entries: a version byte followed by,
+     * for each block on the level, the 32-byte hash, a main chain flag byte
+     * and the total difficulty as a 32-byte unsigned integer. The version
+     * byte cannot start an RLP list or a Java serialization stream, so the
+     * previous formats remain distinguishable.
+     */
+    public static final Serializer<List<BlockInfo>, byte[]> BLOCK_INFO_COMPACT_SERIALIZER = new Serializer<List<BlockInfo>, byte[]>() {
+        @Override
+        public byte[] serialize(List<BlockInfo> object) {
+            byte[] out = new byte[1 + object.size() * BLOCK_INFO_COMPACT_LENGTH];
+            out[0] = BLOCK_INFO_COMPACT_VERSION;
+
+            int pos = 1;
+            for (BlockInfo b : object) {
+                if (b.hash.length != BLOCK_INFO_HASH_LENGTH) {
+                    throw new IllegalArgumentException("Invalid block hash length: " + b.hash.length);
+                }
+                if (b.cummDifficulty.signum() < 0 || b.cummDifficulty.bitLength() > BLOCK_INFO_DIFFICULTY_LENGTH * 8) {
+                    throw new IllegalArgumentException("Total difficulty out of range: " + b.cummDifficulty);
+                }
+                System.arraycopy(b.hash, 0, out, pos, BLOCK_INFO_HASH_LENGTH);
+                out[pos + BLOCK_INFO_HASH_LENGTH] = b.mainChain ? (byte) 0x1 : (byte) 0x0;
+                System.arraycopy(ByteUtil.bigIntegerToBytes(b.cummDifficulty, BLOCK_INFO_DIFFICULTY_LENGTH), 0, out,
+                        pos + BLOCK_INFO_HASH_LENGTH + 1, BLOCK_INFO_DIFFICULTY_LENGTH);
+                pos += BLOCK_INFO_COMPACT_LENGTH;
+            }
+            return out;
+        }
+
+        @Override
+        public List<BlockInfo> deserialize(byte[] stream) {
+            if (!isCompact(stream)) {
+                throw new RuntimeException("Not a compact block info list.");
+            }
+
+            int count = (stream.length - 1) / BLOCK_INFO_COMPACT_LENGTH;
+            List<BlockInfo> res = new ArrayList<>(count);
+
+            int pos = 1;
+            for (int i = 0; i < count; i++) {
+                BlockInfo info = new BlockInfo();
+                info.hash = Arrays.copyOfRange(stream, pos, pos + BLOCK_INFO_HASH_LENGTH);
+                info.mainChain = stream[pos + BLOCK_INFO_HASH_LENGTH] == (byte) 0x1;
+                info.cummDifficulty = new BigInteger(1, Arrays.copyOfRange(stream, pos + BLOCK_INFO_HASH_LENGTH + 1,
+                        pos + BLOCK_INFO_COMPACT_LENGTH));
+                res.add(info);
+                pos += BLOCK_INFO_COMPACT_LENGTH;
+            }
+            return res;
+        }
+    };
+
+    private static boolean isCompact(byte[] stream) {
+        return stream.length > 0 && stream[0] == BLOCK_INFO_COMPACT_VERSION
+                && (stream.length - 1) % BLOCK_INFO_COMPACT_LENGTH == 0;
+    }
+
+    /**
+     * Writes index entries in the compact format and reads all the formats
+     * used so far.
+     */
     public static final Serializer<List<BlockInfo>, byte[]> BLOCK_INFO_SERIALIZER = new Serializer<List<BlockInfo>, byte[]>() {
 
         @Override
         public byte[] serialize(List<BlockInfo> value) {
-            return BLOCK_INFO_RLP_SERIALIZER.serialize(value);
+            return BLOCK_INFO_COMPACT_SERIALIZER.serialize(value);
         }
 
         @SuppressWarnings("unchecked")
         @Override
         public List<BlockInfo> deserialize(byte[] bytes) {
+            if (isCompact(bytes)) {
+                return BLOCK_INFO_COMPACT_SERIALIZER.deserialize(bytes);
+            }
             try {
                 return BLOCK_INFO_RLP_SERIALIZER.deserialize(bytes);
             } catch (Exception e) {
@@ -558,13 +903,23 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
     public void printChain() {
 
-        Long number = getMaxNumber();
+        long number = getMaxNumber();
+        if (number <= 0) {
+            return;
+        }
 
-        for (int i = 0; i < number; ++i) {
-            List<BlockInfo> levelInfos = index.get(i);
+        // streaming the index entries in key order avoids a lookup per level, the levels are in increasing order up
+        // to the largest int, the larger levels have longer keys and are printed between them
+        try (IKeyValueIterator<byte[], byte[]> itr = indexDS.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = itr.next();
+                long level = DataSourceArray.fromKey(entry.getKey());
+                if (level < 0 || level >= number) {
+                    continue;
+                }
+                List<BlockInfo> levelInfos = BLOCK_INFO_SERIALIZER.deserialize(entry.getValue());
 
-            if (levelInfos != null) {
-                System.out.print(i);
+                System.out.print(level);
                 for (BlockInfo blockInfo : levelInfos) {
                     if (blockInfo.isMainChain()) {
                         System.out.print(" [" + shortHash(blockInfo.getHash()) + "] ");
@@ -578,11 +933,12 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     }
 
     private List<BlockInfo> getBlockInfoForLevel(long level) {
-        return index.get((int) level);
+        return index.get(level);
     }
 
     private void setBlockInfoForLevel(long level, List<BlockInfo> infos) {
-        index.set((int) level, infos);
+        index.set(level, infos);
+        updateMainChain(level, infos);
     }
 
     private static BlockInfo getBlockInfoForHash(List<BlockInfo> blocks, byte[] hash) {
@@ -612,5 +968,17 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         } catch (Exception e) {
             e.printStackTrace();
         }
+        try {
+            headersDS.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
     }
 }
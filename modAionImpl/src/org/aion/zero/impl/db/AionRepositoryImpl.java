@@ -27,6 +27,7 @@ package org.aion.zero.impl.db;
 import org.aion.base.db.*;
 import org.aion.base.type.Address;
 import org.aion.base.util.Hex;
+import org.aion.db.impl.DatabaseWriteGroup;
 import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.AbstractRepository;
 import org.aion.mcf.db.ContractDetailsCacheImpl;
@@ -45,6 +46,7 @@ import org.aion.mcf.vm.types.DataWord;
 import java.io.File;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 
 import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
@@ -98,10 +100,16 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
                                                              // caching of data
                         config.getDb().getMaxHeapCacheSize(), // size of the
                                                               // heap cache
-                        config.getDb().isHeapCacheStatsEnabled())); // enable
-                                                                    // stats for
-                                                                    // heap
-                                                                    // cache
+                        config.getDb().isHeapCacheStatsEnabled(), // enable
+                                                                  // stats for
+                                                                  // heap
+                                                                  // cache
+                        config.getDb().getMaxFdAllocSize(), // open files
+                        config.getDb().getBlockSize(), // on disk block size
+                        config.getDb().getWriteBufferSize(), // write buffer
+                        config.getDb().getCacheSize(), // database cache
+                        config.getDb().getBlockArchiveDepth(), // archived blocks
+                        config.getDb().getTrieCacheSize())); // state trie cache
     }
 
     public static AionRepositoryImpl inst() {
@@ -123,7 +131,12 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
 
             // Setup block store.
             // TODO
-            this.blockStore = new AionBlockStore(indexDatabase, blockDatabase);
+            if (cfg.getBlockArchiveDepth() > 0) {
+                this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, headerDatabase,
+                        new File(cfg.getDbPath(), ARCHIVE_DIR), cfg.getBlockArchiveDepth());
+            } else {
+                this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, headerDatabase);
+            }
 
             // Setup world trie.
             worldState = createStateTrie();
@@ -137,13 +150,55 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
     }
 
     private Trie createStateTrie() {
-        return new SecureTrie(stateDSPrune).withPruningEnabled(pruneBlockCount >= 0);
+        return new SecureTrie(stateDSPrune, "", cfg.getTrieCacheSize()).withPruningEnabled(pruneBlockCount >= 0);
     }
 
     @Override
-    public synchronized void updateBatch(Map<Address, AccountState> stateCache,
+    public void updateBatch(Map<Address, AccountState> stateCache,
+            Map<Address, IContractDetails<DataWord>> detailsCache) {
+        rwLock.writeLock().lock();
+        try {
+            updateBatchInternal(stateCache, detailsCache);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @implNote Must be called while holding the write lock.
+     */
+    private void updateBatchInternal(Map<Address, AccountState> stateCache,
             Map<Address, IContractDetails<DataWord>> detailsCache) {
 
+        // new contracts get their storage tries here, the ones of existing
+        // contracts were already updated when the cache was flushed
+        List<ContractDetailsCacheImpl> toCommit = new ArrayList<>();
+        for (Map.Entry<Address, AccountState> entry : stateCache.entrySet()) {
+            Address address = entry.getKey();
+            IContractDetails<DataWord> contractDetails = detailsCache.get(address);
+
+            if (entry.getValue().isDeleted() || !contractDetails.isDirty()) {
+                continue;
+            }
+
+            ContractDetailsCacheImpl contractDetailsCache = (ContractDetailsCacheImpl) contractDetails;
+            if (contractDetailsCache.origContract == null) {
+                contractDetailsCache.origContract = this.cfg.contractDetailsImpl();
+
+                try {
+                    contractDetailsCache.origContract.setAddress(address);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    LOG.error("contractDetailsCache setAddress exception [{}]", e.toString());
+                }
+
+                toCommit.add(contractDetailsCache);
+            }
+        }
+
+        // the storage tries are independent so they are hashed in parallel
+        ContractDetailsCacheImpl.commit(toCommit);
+
         for (Map.Entry<Address, AccountState> entry : stateCache.entrySet()) {
             Address address = entry.getKey();
             AccountState accountState = entry.getValue();
@@ -151,13 +206,10 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
 
             if (accountState.isDeleted()) {
                 // TODO-A: batch operations here
-                rwLock.readLock().lock();
                 try {
                     worldState.delete(address.toBytes());
                 } catch (Exception e) {
                     LOG.error("key deleted exception [{}]", e.toString());
-                } finally {
-                    rwLock.readLock().unlock();
                 }
                 LOG.debug("key deleted <key={}>", Hex.toHexString(address.toBytes()));
             } else {
@@ -178,21 +230,7 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
                     continue;
                 }
 
-                ContractDetailsCacheImpl contractDetailsCache = (ContractDetailsCacheImpl) contractDetails;
-                if (contractDetailsCache.origContract == null) {
-                    contractDetailsCache.origContract = this.cfg.contractDetailsImpl();
-
-                    try {
-                        contractDetailsCache.origContract.setAddress(address);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        LOG.error("contractDetailsCache setAddress exception [{}]", e.toString());
-                    }
-
-                    contractDetailsCache.commit();
-                }
-
-                contractDetails = contractDetailsCache.origContract;
+                contractDetails = ((ContractDetailsCacheImpl) contractDetails).origContract;
 
                 updateContractDetails(address, contractDetails);
 
@@ -214,43 +252,47 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
         detailsCache.clear();
     }
 
-    private synchronized void updateContractDetails(final Address address,
-            final IContractDetails<DataWord> contractDetails) {
-        rwLock.readLock().lock();
-        try {
-            detailsDS.update(address, contractDetails);
-        } finally {
-            rwLock.readLock().unlock();
-        }
+    private void updateContractDetails(final Address address, final IContractDetails<DataWord> contractDetails) {
+        detailsDS.update(address, contractDetails);
     }
 
     @Override
     public void flush() {
         LOG.debug("------ FLUSH ON " + this.toString());
+        long s = System.currentTimeMillis();
+
+        if (!prepareFlush().getAsBoolean()) {
+            LOG.error("Unable to flush all databases.");
+        }
+
+        LOG.info("RepositoryImpl.flush took " + (System.currentTimeMillis() - s) + " ms");
+    }
+
+    /**
+     * Syncs the world state and detaches the changes of all the databases
+     * under the write lock. The returned commit writes them to disk without
+     * the lock, with the block index last, see
+     * {@link DatabaseWriteGroup#prepareCommit()}.
+     *
+     * @return the commit of the detached changes, which must be run exactly
+     *         once
+     */
+    public BooleanSupplier prepareFlush() {
         LOG.debug("rwLock.writeLock().lock()");
         rwLock.writeLock().lock();
         try {
-            LOG.debug("flushing to disk");
-            long s = System.currentTimeMillis();
-
             // First sync worldState.
             LOG.info("worldState.sync()");
             worldState.sync();
 
-            // Flush all necessary caches.
-            LOG.info("flush all databases");
-
-            if (databaseGroup != null) {
-                for (IByteArrayKeyValueDatabase db : databaseGroup) {
-                    if (!db.isAutoCommitEnabled()) {
-                        db.commit();
-                    }
-                }
-            } else {
-                LOG.warn("databaseGroup is null");
+            if (writeGroup == null) {
+                LOG.warn("writeGroup is null");
+                return () -> true;
             }
 
-            LOG.info("RepositoryImpl.flush took " + (System.currentTimeMillis() - s) + " ms");
+            // Flush all necessary caches.
+            LOG.info("flush all databases");
+            return writeGroup.prepareCommit();
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -263,31 +305,36 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
 
     @Override
     public boolean isValidRoot(byte[] root) {
-        return worldState.isValidRoot(root);
+        rwLock.readLock().lock();
+        try {
+            return worldState.isValidRoot(root);
+        } finally {
+            rwLock.readLock().unlock();
+        }
     }
 
     @Override
-    public synchronized void syncToRoot(final byte[] root) {
-        rwLock.readLock().lock();
+    public void syncToRoot(final byte[] root) {
+        rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
         } finally {
-            rwLock.readLock().unlock();
+            rwLock.writeLock().unlock();
         }
     }
 
     @Override
-    public synchronized IRepositoryCache startTracking() {
+    public IRepositoryCache startTracking() {
         return new AionRepositoryCache(this);
     }
 
     // @Override
-    public synchronized void dumpState(IAionBlock block, long nrgUsed, int txNumber, byte[] txHash) {
+    public void dumpState(IAionBlock block, long nrgUsed, int txNumber, byte[] txHash) {
         return;
 
     }
 
-    public synchronized String getTrieDump() {
+    public String getTrieDump() {
         rwLock.readLock().lock();
         try {
             return worldState.getTrieDump();
@@ -296,72 +343,72 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
         }
     }
 
-    public synchronized void dumpTrie(IAionBlock block) {
+    public void dumpTrie(IAionBlock block) {
         return;
 
     }
 
     @Override
-    public synchronized BigInteger getBalance(Address address) {
+    public BigInteger getBalance(Address address) {
         AccountState account = getAccountState(address);
         return (account == null) ? BigInteger.ZERO : account.getBalance();
     }
 
     @Override
-    public synchronized DataWord getStorageValue(Address address, DataWord key) {
+    public DataWord getStorageValue(Address address, DataWord key) {
         IContractDetails<DataWord> details = getContractDetails(address);
         return (details == null) ? null : details.get(key);
     }
 
     @Override
-    public synchronized int getStorageSize(Address address) {
+    public int getStorageSize(Address address) {
         IContractDetails<DataWord> details = getContractDetails(address);
         return (details == null) ? 0 : details.getStorageSize();
     }
 
     @Override
-    public synchronized Set<DataWord> getStorageKeys(Address address) {
+    public Set<DataWord> getStorageKeys(Address address) {
         IContractDetails<DataWord> details = getContractDetails(address);
         return (details == null) ? Collections.emptySet() : details.getStorageKeys();
     }
 
     @Override
-    public synchronized Map<DataWord, DataWord> getStorage(Address address, Collection<DataWord> keys) {
+    public Map<DataWord, DataWord> getStorage(Address address, Collection<DataWord> keys) {
         IContractDetails<DataWord> details = getContractDetails(address);
         return (details == null) ? Collections.emptyMap() : details.getStorage(keys);
     }
 
     @Override
-    public synchronized byte[] getCode(Address address) {
-        AccountState accountState = getAccountState(address);
+    public byte[] getCode(Address address) {
+        rwLock.readLock().lock();
+        try {
+            AccountState accountState = getAccountState(address);
 
-        if (accountState == null) {
-            return EMPTY_BYTE_ARRAY;
-        }
+            if (accountState == null) {
+                return EMPTY_BYTE_ARRAY;
+            }
 
-        byte[] codeHash = accountState.getCodeHash();
+            byte[] codeHash = accountState.getCodeHash();
 
-        IContractDetails<DataWord> details = getContractDetails(address);
-        return (details == null) ? EMPTY_BYTE_ARRAY : details.getCode(codeHash);
+            IContractDetails<DataWord> details = getContractDetails(address);
+            return (details == null) ? EMPTY_BYTE_ARRAY : details.getCode(codeHash);
+        } finally {
+            rwLock.readLock().unlock();
+        }
     }
 
     @Override
-    public synchronized BigInteger getNonce(Address address) {
+    public BigInteger getNonce(Address address) {
         AccountState account = getAccountState(address);
         return (account == null) ? BigInteger.ZERO : account.getNonce();
     }
 
-    private synchronized void updateAccountState(Address address, AccountState accountState) {
-        rwLock.readLock().lock();
-        try {
-            worldState.update(address.toBytes(), accountState.getEncoded());
-        } finally {
-            rwLock.readLock().unlock();
-        }
+    private void updateAccountState(Address address, AccountState accountState) {
+        worldState.update(address.toBytes(), accountState.getEncoded());
     }
 
     @Override
-    public synchronized IContractDetails<DataWord> getContractDetails(Address address) {
+    public IContractDetails<DataWord> getContractDetails(Address address) {
         rwLock.readLock().lock();
         try {
             // That part is important cause if we have
@@ -370,7 +417,7 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
             AccountState accountState = getAccountState(address);
             byte[] storageRoot = EMPTY_TRIE_HASH;
             if (accountState != null) {
-                storageRoot = getAccountState(address).getStateRoot();
+                storageRoot = accountState.getStateRoot();
             }
             IContractDetails<DataWord> details = detailsDS.get(address.toBytes());
 
@@ -386,11 +433,16 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
 
     @Override
     public boolean hasContractDetails(Address address) {
-        return detailsDS.get(address.toBytes()) != null;
+        rwLock.readLock().lock();
+        try {
+            return detailsDS.get(address.toBytes()) != null;
+        } finally {
+            rwLock.readLock().unlock();
+        }
     }
 
     @Override
-    public synchronized AccountState getAccountState(Address address) {
+    public AccountState getAccountState(Address address) {
         // TODO
         rwLock.readLock().lock();
         try {
@@ -408,6 +460,17 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
         }
     }
 
+    /**
+     * Reads the account at the given world state root from the live state
+     * trie, so a single lookup does not build a snapshot repository.
+     *
+     * @throws RuntimeException if the state under the root was pruned
+     */
+    public AccountState getAccountState(Address address, byte[] stateRoot) {
+        byte[] accountData = worldState.get(stateRoot, address.toBytes());
+        return accountData.length == 0 ? null : new AccountState(accountData);
+    }
+
     @Override
     public boolean hasAccountState(Address address) {
         return getAccountState(address) != null;
@@ -418,11 +481,19 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
      *           state and contract details.
      */
     @Override
-    public synchronized void loadAccountState(Address address, Map<Address, AccountState> cacheAccounts,
+    public void loadAccountState(Address address, Map<Address, AccountState> cacheAccounts,
             Map<Address, IContractDetails<DataWord>> cacheDetails) {
 
-        AccountState account = getAccountState(address);
-        IContractDetails<DataWord> details = getContractDetails(address);
+        AccountState account;
+        IContractDetails<DataWord> details;
+
+        rwLock.readLock().lock();
+        try {
+            account = getAccountState(address);
+            details = getContractDetails(address);
+        } finally {
+            rwLock.readLock().unlock();
+        }
 
         account = (account == null) ? new AccountState() : new AccountState(account);
         details = new ContractDetailsCacheImpl(details);
@@ -433,26 +504,41 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
     }
 
     @Override
-    public synchronized byte[] getRoot() {
-        return worldState.getRootHash();
+    public byte[] getRoot() {
+        rwLock.readLock().lock();
+        try {
+            return worldState.getRootHash();
+        } finally {
+            rwLock.readLock().unlock();
+        }
     }
 
-    public synchronized void setRoot(byte[] root) {
-        worldState.setRoot(root);
+    public void setRoot(byte[] root) {
+        rwLock.writeLock().lock();
+        try {
+            worldState.setRoot(root);
+        } finally {
+            rwLock.writeLock().unlock();
+        }
     }
 
     public void setPruneBlockCount(long pruneBlockCount) {
         this.pruneBlockCount = pruneBlockCount;
     }
 
-    public synchronized void commitBlock(A0BlockHeader blockHeader) {
-        worldState.sync();
-        detailsDS.syncLargeStorage();
+    public void commitBlock(A0BlockHeader blockHeader) {
+        rwLock.writeLock().lock();
+        try {
+            worldState.sync();
+            detailsDS.syncLargeStorage();
 
-        if (pruneBlockCount >= 0) {
-            stateDSPrune.storeBlockChanges(blockHeader);
-            detailsDS.getStorageDSPrune().storeBlockChanges(blockHeader);
-            pruneBlocks(blockHeader);
+            if (pruneBlockCount >= 0) {
+                stateDSPrune.storeBlockChanges(blockHeader);
+                detailsDS.getStorageDSPrune().storeBlockChanges(blockHeader);
+                pruneBlocks(blockHeader);
+            }
+        } finally {
+            rwLock.writeLock().unlock();
         }
     }
 
@@ -477,7 +563,7 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
     }
 
     @Override
-    public synchronized IRepository getSnapshotTo(byte[] root) {
+    public IRepository getSnapshotTo(byte[] root) {
 
         AionRepositoryImpl repo = new AionRepositoryImpl();
         repo.blockStore = blockStore;
@@ -494,6 +580,19 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
         return repo;
     }
 
+    @Override
+    public IRepository getFrozenSnapshotTo(byte[] root) {
+
+        AionRepositoryImpl repo = new AionRepositoryImpl();
+        // the read lock excludes commitBlock for a consistent view of all the databases
+        initializeSnapshotDatabases(repo);
+
+        repo.worldState = repo.createStateTrie();
+        repo.worldState.setRoot(root);
+
+        return repo;
+    }
+
     /**
      * This function cannot for any reason fail, otherwise we may have dangling
      * file IO locks
@@ -503,6 +602,20 @@ public class AionRepositoryImpl extends AbstractRepository<AionBlock, A0BlockHea
         rwLock.writeLock().lock();
         try {
 
+            if (isSnapshot) {
+                // snapshots only own the database views created for them
+                if (databaseGroup != null) {
+                    for (IByteArrayKeyValueDatabase db : databaseGroup) {
+                        db.close();
+                    }
+                    databaseGroup = null;
+                }
+                stateDatabase = null;
+                detailsDatabase = null;
+                storageDatabase = null;
+                return;
+            }
+
             try {
                 if (detailsDatabase != null) {
                     detailsDatabase.close();
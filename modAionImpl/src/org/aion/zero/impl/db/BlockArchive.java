@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only store for the encoding of old main chain blocks, one record per
+ * block number. Records are written to segment files of bounded size and
+ * located through a fixed-width offset index, so a lookup is one index read
+ * and a slice of a memory-mapped segment.
+ * <p>
+ * The index file holds, for each number, the segment, the offset in that
+ * segment and the length of the record. A length of zero marks a level with
+ * no archived block. Records are written before their index entry, therefore
+ * an interrupted append leaves at most an unreferenced record that is
+ * overwritten by the next append.
+ */
+final class BlockArchive {
+
+    static final int SEGMENT_SIZE = 1 << 28;
+
+    private static final String INDEX_FILE = "blocks.idx";
+    private static final String SEGMENT_FORMAT = "blocks-%06d.seg";
+    private static final int ENTRY_SIZE = 12;
+
+    private final File dir;
+    private final int segmentSize;
+    private final FileChannel indexChannel;
+
+    private long size;
+
+    // the next record goes to this position
+    private int writeSegment;
+    private int writePosition;
+    private FileChannel writeChannel;
+
+    private final Map<Integer, MappedByteBuffer> mapped = new HashMap<>();
+
+    BlockArchive(File dir) throws IOException {
+        this(dir, SEGMENT_SIZE);
+    }
+
+    BlockArchive(File dir, int segmentSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create the block archive directory " + dir);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.indexChannel = FileChannel.open(new File(dir, INDEX_FILE).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // drop the trailing entries of an interrupted append
+        size = indexChannel.size() / ENTRY_SIZE;
+        while (size > 0) {
+            ByteBuffer entry = readEntry(size - 1);
+            int segment = entry.getInt();
+            long end = (long) entry.getInt() + entry.getInt();
+            if (segmentFile(segment).length() >= end) {
+                writeSegment = segment;
+                writePosition = (int) end;
+                break;
+            }
+            size--;
+        }
+        indexChannel.truncate(size * ENTRY_SIZE);
+    }
+
+    /**
+     * Returns the number of levels in the archive, which is also the number of
+     * the next level to append.
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Appends the record for the next level. An empty record marks a level
+     * with no archived block.
+     */
+    synchronized void append(byte[] data) throws IOException {
+        if (data.length > segmentSize) {
+            throw new IllegalArgumentException("Record larger than the archive segment size: " + data.length);
+        }
+
+        if ((long) writePosition + data.length > segmentSize) {
+            writeSegment++;
+            writePosition = 0;
+            closeWriter();
+        }
+        if (data.length > 0) {
+            if (writeChannel == null) {
+                writeChannel = FileChannel.open(segmentFile(writeSegment).toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            long pos = writePosition;
+            while (buf.hasRemaining()) {
+                pos += writeChannel.write(buf, pos);
+            }
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putInt(writeSegment).putInt(writePosition).putInt(data.length).flip();
+        long pos = size * ENTRY_SIZE;
+        while (entry.hasRemaining()) {
+            pos += indexChannel.write(entry, pos);
+        }
+
+        writePosition += data.length;
+        size++;
+    }
+
+    /**
+     * Returns a read-only view of the record at the given level, backed by the
+     * mapped segment, or {@code null} if the level has no archived block.
+     */
+    synchronized ByteBuffer get(long number) throws IOException {
+        if (number < 0 || number >= size) {
+            return null;
+        }
+
+        ByteBuffer entry = readEntry(number);
+        int segment = entry.getInt();
+        int offset = entry.getInt();
+        int length = entry.getInt();
+        if (length == 0) {
+            return null;
+        }
+
+        MappedByteBuffer buf = mapped.get(segment);
+        if (buf == null || buf.capacity() < offset + length) {
+            // the segment still being written is mapped again as it grows
+            try (FileChannel ch = FileChannel.open(segmentFile(segment).toPath(), StandardOpenOption.READ)) {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            mapped.put(segment, buf);
+        }
+
+        ByteBuffer record = buf.duplicate();
+        record.position(offset).limit(offset + length);
+        return record.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Drops the levels greater or equal to the given size. The space of the
+     * dropped records is reused by the next appends.
+     */
+    synchronized void truncate(long newSize) throws IOException {
+        if (newSize >= size) {
+            return;
+        }
+        newSize = Math.max(newSize, 0L);
+
+        if (newSize == 0) {
+            writeSegment = 0;
+            writePosition = 0;
+        } else {
+            ByteBuffer entry = readEntry(newSize - 1);
+            writeSegment = entry.getInt();
+            writePosition = entry.getInt() + entry.getInt();
+        }
+        closeWriter();
+
+        size = newSize;
+        indexChannel.truncate(size * ENTRY_SIZE);
+    }
+
+    /**
+     * Forces the appended records and index entries to the storage device.
+     */
+    synchronized void flush() throws IOException {
+        if (writeChannel != null) {
+            writeChannel.force(false);
+        }
+        indexChannel.force(false);
+    }
+
+    synchronized void close() throws IOException {
+        flush();
+        closeWriter();
+        indexChannel.close();
+        mapped.clear();
+    }
+
+    private ByteBuffer readEntry(long number) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        long pos = number * ENTRY_SIZE;
+        while (entry.hasRemaining()) {
+            int read = indexChannel.read(entry, pos);
+            if (read < 0) {
+                throw new IOException("Truncated block archive index at level " + number);
+            }
+            pos += read;
+        }
+        entry.flip();
+        return entry;
+    }
+
+    private void closeWriter() throws IOException {
+        if (writeChannel != null) {
+            writeChannel.force(false);
+            writeChannel.close();
+            writeChannel = null;
+        }
+    }
+
+    private File segmentFile(int segment) {
+        return new File(dir, String.format(SEGMENT_FORMAT, segment));
+    }
+}
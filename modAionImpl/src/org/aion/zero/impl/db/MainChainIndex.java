@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * In-memory map from main chain block number to the block hash and total
+ * difficulty. Levels are kept in fixed-size chunks of flat arrays so that the
+ * map grows without copying and is not limited to {@code int} block numbers.
+ * Total difficulties are stored as fixed-width unsigned big-endian slices and
+ * decoded on read. A level without a main chain block has no total
+ * difficulty.
+ */
+final class MainChainIndex {
+
+    private static final int HASH_LENGTH = 32;
+    private static final int DIFFICULTY_LENGTH = 32;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final List<byte[]> hashChunks = new ArrayList<>();
+    private final List<byte[]> difficultyChunks = new ArrayList<>();
+    private final List<BitSet> mainChainChunks = new ArrayList<>();
+
+    private long size = 0L;
+
+    /**
+     * Returns the number of levels tracked by the index.
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Records the main chain block for the given level, growing the index if
+     * needed. Passing a {@code null} hash marks the level as having no main
+     * chain block.
+     */
+    synchronized void set(long level, byte[] hash, BigInteger totalDifficulty) {
+        if (hash != null && hash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Invalid block hash length: " + hash.length);
+        }
+        if (hash != null && (totalDifficulty == null || totalDifficulty.signum() < 0
+                || totalDifficulty.bitLength() > DIFFICULTY_LENGTH * Byte.SIZE)) {
+            throw new IllegalArgumentException("Invalid total difficulty: " + totalDifficulty);
+        }
+        ensureCapacity(level + 1);
+        if (level >= size) {
+            size = level + 1;
+        }
+
+        int chunk = (int) (level >>> CHUNK_BITS);
+        int offset = (int) (level & CHUNK_MASK);
+        if (hash == null) {
+            Arrays.fill(hashChunks.get(chunk), offset * HASH_LENGTH, (offset + 1) * HASH_LENGTH, (byte) 0);
+            Arrays.fill(difficultyChunks.get(chunk), offset * DIFFICULTY_LENGTH, (offset + 1) * DIFFICULTY_LENGTH,
+                    (byte) 0);
+            mainChainChunks.get(chunk).clear(offset);
+        } else {
+            System.arraycopy(hash, 0, hashChunks.get(chunk), offset * HASH_LENGTH, HASH_LENGTH);
+            writeDifficulty(difficultyChunks.get(chunk), offset * DIFFICULTY_LENGTH, totalDifficulty);
+            mainChainChunks.get(chunk).set(offset);
+        }
+    }
+
+    /**
+     * Returns the main chain block hash at the given level or {@code null} if
+     * the level is unknown or has no main chain block.
+     */
+    synchronized byte[] getHash(long level) {
+        if (!isMainChain(level)) {
+            return null;
+        }
+        int offset = (int) (level & CHUNK_MASK);
+        return Arrays.copyOfRange(hashChunks.get((int) (level >>> CHUNK_BITS)), offset * HASH_LENGTH,
+                (offset + 1) * HASH_LENGTH);
+    }
+
+    /**
+     * Returns the total difficulty of the main chain block at the given level
+     * or {@code null} if the level is unknown or has no main chain block.
+     */
+    synchronized BigInteger getTotalDifficulty(long level) {
+        if (!isMainChain(level)) {
+            return null;
+        }
+        int offset = (int) (level & CHUNK_MASK);
+        return new BigInteger(1, Arrays.copyOfRange(difficultyChunks.get((int) (level >>> CHUNK_BITS)),
+                offset * DIFFICULTY_LENGTH, (offset + 1) * DIFFICULTY_LENGTH));
+    }
+
+    /**
+     * Drops all the levels greater or equal to the given size.
+     */
+    synchronized void truncate(long newSize) {
+        if (newSize >= size) {
+            return;
+        }
+        for (long level = Math.max(newSize, 0L); level < size; level++) {
+            mainChainChunks.get((int) (level >>> CHUNK_BITS)).clear((int) (level & CHUNK_MASK));
+        }
+        size = Math.max(newSize, 0L);
+
+        // release the chunks that are no longer used
+        int chunks = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+        while (hashChunks.size() > chunks) {
+            hashChunks.remove(hashChunks.size() - 1);
+            difficultyChunks.remove(difficultyChunks.size() - 1);
+            mainChainChunks.remove(mainChainChunks.size() - 1);
+        }
+    }
+
+    synchronized void clear() {
+        hashChunks.clear();
+        difficultyChunks.clear();
+        mainChainChunks.clear();
+        size = 0L;
+    }
+
+    private boolean isMainChain(long level) {
+        return level >= 0 && level < size && mainChainChunks.get((int) (level >>> CHUNK_BITS))
+                .get((int) (level & CHUNK_MASK));
+    }
+
+    /**
+     * Writes the value right-aligned into the slice starting at the given
+     * position, padding it with leading zeros.
+     */
+    private static void writeDifficulty(byte[] chunk, int position, BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // drop the sign byte of values using all the bits of the slice
+        int start = Math.max(bytes.length - DIFFICULTY_LENGTH, 0);
+        int length = bytes.length - start;
+        Arrays.fill(chunk, position, position + DIFFICULTY_LENGTH - length, (byte) 0);
+        System.arraycopy(bytes, start, chunk, position + DIFFICULTY_LENGTH - length, length);
+    }
+
+    private void ensureCapacity(long capacity) {
+        while (((long) hashChunks.size() << CHUNK_BITS) < capacity) {
+            hashChunks.add(new byte[CHUNK_SIZE * HASH_LENGTH]);
+            difficultyChunks.add(new byte[CHUNK_SIZE * DIFFICULTY_LENGTH]);
+            mainChainChunks.add(new BitSet(CHUNK_SIZE));
+        }
+    }
+}
@@ -44,6 +44,14 @@ public class RepositoryConfig implements IRepositoryConfig {
     private String max_heap_cache_size;
     private boolean enable_heap_cache_stats;
 
+    private int max_fd_alloc_size;
+    private int block_size;
+    private int write_buffer_size;
+    private int cache_size;
+
+    private int block_archive_depth;
+    private int trie_cache_size;
+
     @Override
     public String[] getVendorList() {
         return vendorList;
@@ -100,6 +108,36 @@ public class RepositoryConfig implements IRepositoryConfig {
 
     }
 
+    @Override
+    public int getMaxFdAllocSize() {
+        return max_fd_alloc_size;
+    }
+
+    @Override
+    public int getBlockSize() {
+        return block_size;
+    }
+
+    @Override
+    public int getWriteBufferSize() {
+        return write_buffer_size;
+    }
+
+    @Override
+    public int getCacheSize() {
+        return cache_size;
+    }
+
+    @Override
+    public int getBlockArchiveDepth() {
+        return block_archive_depth;
+    }
+
+    @Override
+    public int getTrieCacheSize() {
+        return trie_cache_size;
+    }
+
     public RepositoryConfig(final String[] vendorList, //
             final String activeVendor, //
             final String dbPath, //
@@ -110,7 +148,13 @@ public class RepositoryConfig implements IRepositoryConfig {
             final boolean enable_db_compression, //
             final boolean enable_heap_cache, //
             final String max_heap_cache_size, //
-            final boolean enable_heap_cache_stats) { //
+            final boolean enable_heap_cache_stats, //
+            final int max_fd_alloc_size, //
+            final int block_size, //
+            final int write_buffer_size, //
+            final int cache_size, //
+            final int block_archive_depth, //
+            final int trie_cache_size) { //
 
         this.vendorList = vendorList;
         this.activeVendor = activeVendor;
@@ -127,6 +171,15 @@ public class RepositoryConfig implements IRepositoryConfig {
         this.enable_heap_cache = enable_heap_cache;
         this.max_heap_cache_size = max_heap_cache_size;
         this.enable_heap_cache_stats = enable_heap_cache_stats;
+
+        // parameters for tuning the database storage
+        this.max_fd_alloc_size = max_fd_alloc_size;
+        this.block_size = block_size;
+        this.write_buffer_size = write_buffer_size;
+        this.cache_size = cache_size;
+
+        this.block_archive_depth = block_archive_depth;
+        this.trie_cache_size = trie_cache_size;
     }
 
 }
@@ -27,15 +27,15 @@ package org.aion.zero.impl.sync;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import com.google.common.cache.CacheStats;
 import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ExecutorPipeline;
 import org.aion.base.util.Hex;
-import org.aion.mcf.blockchain.IChainCfg;
 import org.aion.mcf.core.ImportResult;
 import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.IEventMgr;
@@ -45,55 +45,153 @@ import org.aion.log.LogEnum;
 import org.aion.p2p.INode;
 import org.aion.p2p.IP2pMgr;
 import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.blockchain.AionPendingStateImpl;
 import org.aion.zero.impl.blockchain.ChainConfiguration;
-import org.aion.zero.impl.sync.msg.BroadcastNewBlock;
 import org.aion.zero.impl.sync.msg.ReqBlocksBodies;
 import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
 import org.aion.zero.impl.sync.msg.ReqStatus;
 import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.valid.EquihashSolutionRule;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.mcf.valid.BlockHeaderValidator;
 
 /**
+ * Downloads the chain from all the active peers at once. Header ranges are
+ * split across the peers, each peer keeps a few requests in flight, and the
+ * requests that time out or come back incomplete are handed to another peer.
+ * Downloaded blocks go through the context free checks on a pool of workers
+ * and are then reassembled in block number order for the serial import.
+ *
  * @author chris
  */
 public final class SyncMgr {
 
-    private static final long FETCH_INTERVAL = 1000;
     private final static Logger LOG = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
 
+    /**
+     * Upper bound for how long the request and import threads wait for a
+     * response or a status update before re-checking their state
+     */
+    private static final long CHECK_INTERVAL = 100;
+
+    /**
+     * Requests without a response after this long are reassigned
+     */
+    static final long REQUEST_TIMEOUT = 10_000;
+
+    /**
+     * Headers and bodies requests in flight per peer
+     */
+    private static final int MAX_REQUESTS_PER_PEER = 4;
+
+    /**
+     * Times a headers range rejected as invalid is requested again, later
+     * rejections leave the range to the rewind of a stalled import
+     */
+    static final int MAX_HEADERS_RETRIES = 3;
+
+    /**
+     * Peers that sent invalid headers are not asked for headers or bodies
+     * for this long
+     */
+    static final long BAD_PEER_TIMEOUT = 6 * REQUEST_TIMEOUT;
+
     private boolean showStatus = false;
     private int syncBackwardMax = 128;
     private int syncForwardMax = 192;
     private int blocksQueueMax = 2000;
     private AtomicBoolean start = new AtomicBoolean(true);
-    //private AtomicBoolean newBlockUpdated = new AtomicBoolean(false);
 
     private AionBlockchainImpl blockchain;
     private IP2pMgr p2pMgr;
     private IEventMgr evtMgr;
     private BlockHeaderValidator blockHeaderValidator;
 
-    private AtomicInteger selectedNodeIdHashcode = new AtomicInteger(0);
-    private AtomicLong longestHeaders = new AtomicLong(0);
+    private EquihashSolutionRule equihashRule;
+
     private AtomicLong networkBestBlockNumber = new AtomicLong(0);
     private AtomicReference<byte[]> networkBestBlockHash = new AtomicReference<>(new byte[0]);
 
     private static final int GET_STATUS_SLEEP = 1;
 
-    private ConcurrentHashMap<Integer, SequentialHeaders<A0BlockHeader>> importedHeaders = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<Integer, List<A0BlockHeader>> sentHeaders = new ConcurrentHashMap<>();
-    private final BlockingQueue<AionBlock> importedBlocksQueue = new LinkedBlockingQueue<>();
+    /**
+     * Lowest block number whose header has not been requested yet
+     */
+    private final AtomicLong nextHeaderNumber = new AtomicLong(0);
+
+    private final ConcurrentHashMap<Integer, Deque<HeadersRequest>> headersRequests = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Deque<BodiesRequest>> bodiesRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Ranges and headers waiting for a peer, either reassigned after a
+     * failed request or left over from a partial response
+     */
+    private final Deque<HeadersRequest> pendingHeaders = new ConcurrentLinkedDeque<>();
+    private final Deque<List<A0BlockHeader>> pendingBodies = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Time of the last invalid headers response of each peer
+     */
+    private final Map<Integer, Long> badPeers = new ConcurrentHashMap<>();
+
+    /**
+     * Reassembly buffer, blocks are taken in ascending number order once the
+     * chain reaches them
+     */
+    private final BlockingQueue<AionBlock> importedBlocksQueue = new PriorityBlockingQueue<>(1024,
+            Comparator.comparingLong(AionBlock::getNumber));
+
+    /**
+     * Time of the last block connected to the chain, used to detect an import
+     * waiting on a block that will not arrive
+     */
+    private final AtomicLong lastImportTime = new AtomicLong(System.currentTimeMillis());
 
     private Map<ByteArrayWrapper, Object> importedBlocksCache = Collections.synchronizedMap(new LRUMap<>(1024));
 
+    /**
+     * Blocks that failed the pre-validation, their headers are requested
+     * again once in case the peer sent a bad body, a second failure means
+     * the block itself is invalid
+     */
+    private Map<ByteArrayWrapper, Object> rejectedBlocksCache = Collections.synchronizedMap(new LRUMap<>(1024));
+
+    private final Object requestLock = new Object();
+    private final Object importLock = new Object();
+
     /**
      * Threads
      */
-    private Thread getHeadersThread;
-    private Thread getBodiesThread;
+    private Thread requestsThread;
     private Thread importBlocksThread;
     private ScheduledThreadPoolExecutor scheduledWorkers;
+    private ExecutorPipeline<AionBlock, Void> validateBlocksPipeline;
+
+    private static final class HeadersRequest {
+        final long from;
+        final int take;
+        final int retries;
+        final long timestamp = System.currentTimeMillis();
+
+        HeadersRequest(long _from, int _take) {
+            this(_from, _take, 0);
+        }
+
+        HeadersRequest(long _from, int _take, int _retries) {
+            this.from = _from;
+            this.take = _take;
+            this.retries = _retries;
+        }
+    }
+
+    private static final class BodiesRequest {
+        final List<A0BlockHeader> headers;
+        final long timestamp = System.currentTimeMillis();
+
+        BodiesRequest(final List<A0BlockHeader> _headers) {
+            this.headers = _headers;
+        }
+    }
 
     private static final class AionSyncMgrHolder {
         static final SyncMgr INSTANCE = new SyncMgr();
@@ -110,12 +208,6 @@ public final class SyncMgr {
         if (_nodeBestBlockNumber > this.networkBestBlockNumber.get()) {
             this.networkBestBlockNumber.set(_nodeBestBlockNumber);
             this.networkBestBlockHash.set(_nodeBestBlockHash);
-
-            // fire the init push
-            // if(headersLatch != null)
-            // headersLatch.countDown();
-            //newBlockUpdated.set(true);
-
         }
 
         if (this.networkBestBlockNumber.get() <= selfBestBlockNumber) {
@@ -129,68 +221,87 @@ public final class SyncMgr {
                 LOG.debug("<network-best-block-updated num={} self-num={} continue-on-sync>", _nodeBestBlockNumber,
                         selfBestBlockNumber);
             }
+            wakeUp(requestLock);
         }
     }
 
-    private void updateSentHeaders(int _nodeIdHashcode, final List<A0BlockHeader> _receivedBlocksHeaders) {
-        if (_receivedBlocksHeaders != null && _receivedBlocksHeaders.size() > 0)
-            this.sentHeaders.put(_nodeIdHashcode, _receivedBlocksHeaders);
-    }
-
-    public void clearSentHeaders(int _nodeIdHashcode) {
-        this.sentHeaders.remove(_nodeIdHashcode);
-    }
-
-    public List<A0BlockHeader> getSentHeaders(int _nodeIdHashcode) {
-        return this.sentHeaders.get(_nodeIdHashcode);
-    }
-
     public void init(final IP2pMgr _p2pMgr, final IEventMgr _evtMgr, final int _syncForwardMax,
             final int _blocksQueueMax, final boolean _showStatus) {
         showStatus = _showStatus;
-        this.p2pMgr = _p2pMgr;
-        this.blockchain = AionBlockchainImpl.inst();
         this.evtMgr = _evtMgr;
-        this.syncForwardMax = _syncForwardMax;
-        this.blocksQueueMax = _blocksQueueMax;
-        IChainCfg chainCfg = new ChainConfiguration();
-        this.blockHeaderValidator = chainCfg.createBlockHeaderValidator();
 
         setupEventHandler();
 
-        getHeadersThread = new Thread(this::processGetHeaders, "sync-headers");
-        getHeadersThread.start();
-        getBodiesThread = new Thread(this::processGetBlocks, "sync-blocks");
-        getBodiesThread.start();
+        setup(_p2pMgr, AionBlockchainImpl.inst(), new ChainConfiguration(), _syncForwardMax, _blocksQueueMax);
+
+        // block N is written to disk while N + 1 executes
+        this.blockchain.setDeferredFlush(true);
+
+        requestsThread = new Thread(this::processRequests, "sync-requests");
+        requestsThread.start();
         importBlocksThread = new Thread(this::processImportBlocks, "sync-import");
         importBlocksThread.start();
         scheduledWorkers = new ScheduledThreadPoolExecutor(1);
         scheduledWorkers.allowCoreThreadTimeOut(true);
 
-        if (showStatus)
+        if (showStatus) {
+            // the hub creates the pending state before the sync
+            final AionPendingStateImpl pendingState = AionPendingStateImpl.inst();
             scheduledWorkers.scheduleWithFixedDelay(() -> {
                 Thread.currentThread().setName("sync-status");
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(
-                            "<status self-best={} network-best-blk-number={} network-best-blk-hash={} longest-headers={} imported-headers=[{}] sent-headers=[{}] blocks-queue={}>",
+                            "<status self-best={} network-best-blk-number={} network-best-blk-hash={} next-header={} headers-requests=[{}] bodies-requests=[{}] pending-headers={} pending-bodies={} blocks-queue={}>",
                             blockchain.getBestBlock().getNumber(), networkBestBlockNumber.get(),
-                            Hex.toHexString(networkBestBlockHash.get()).substring(0, 6), longestHeaders.get(),
-                            importedHeaders.entrySet().stream()
+                            Hex.toHexString(networkBestBlockHash.get()).substring(0, 6), nextHeaderNumber.get(),
+                            headersRequests.entrySet().stream()
                                     .map((entry) -> entry.getKey() + "-" + entry.getValue().size())
                                     .collect(Collectors.joining(",")),
-                            sentHeaders.entrySet().stream()
+                            bodiesRequests.entrySet().stream()
                                     .map((entry) -> entry.getKey() + "-" + entry.getValue().size())
                                     .collect(Collectors.joining(",")),
-                            importedBlocksQueue.size());
+                            pendingHeaders.size(), pendingBodies.size(), importedBlocksQueue.size());
+                    LOG.debug("<status pending-txs={} tx-admission=[{}]>", pendingState.getPendingTxSize(),
+                            pendingState.getAdmissionStats());
+                    CacheStats blockCache = blockchain.getBlockStore().getBlockCacheStats();
+                    CacheStats headerCache = blockchain.getBlockStore().getHeaderCacheStats();
+                    LOG.debug("<status block-cache-hit-rate={} ({} requests) header-cache-hit-rate={} ({} requests)>",
+                            String.format("%.2f", blockCache.hitRate()), blockCache.requestCount(),
+                            String.format("%.2f", headerCache.hitRate()), headerCache.requestCount());
                 }
             }, 0, 5, TimeUnit.SECONDS);
+        }
+
+        // every peer is asked for its status so that the request scheduler
+        // knows how far each of them can serve
         scheduledWorkers.scheduleWithFixedDelay(() -> {
-            INode node = p2pMgr.getRandom();
-            if (node != null)
+            for (INode node : p2pMgr.getActiveNodes().values()) {
                 p2pMgr.send(node.getIdHash(), new ReqStatus());
+            }
         }, 0, GET_STATUS_SLEEP, TimeUnit.SECONDS);
     }
 
+    /**
+     * Sets up the request tracking and the validation of the downloaded
+     * blocks, without starting the request and import threads.
+     */
+    void setup(final IP2pMgr _p2pMgr, final AionBlockchainImpl _blockchain, final ChainConfiguration _chainCfg,
+            final int _syncForwardMax, final int _blocksQueueMax) {
+        this.p2pMgr = _p2pMgr;
+        this.blockchain = _blockchain;
+        this.syncForwardMax = _syncForwardMax;
+        this.blocksQueueMax = _blocksQueueMax;
+        this.blockHeaderValidator = _chainCfg.createBlockHeaderValidator();
+        this.equihashRule = _chainCfg.createEquihashSolutionRule();
+
+        // header rules, equihash, tx trie and signatures ahead of the import
+        // thread, which is left with the state dependent part of the import
+        validateBlocksPipeline = new ExecutorPipeline<AionBlock, Void>(Runtime.getRuntime().availableProcessors(),
+                this.blocksQueueMax, false, this::preValidateBlock,
+                (Throwable e) -> LOG.error("<sync-validate exception={}>", e.toString()))
+                        .setThreadPoolName("sync-validate");
+    }
+
     /**
      * Oct 12, 2017 jay void
      */
@@ -200,118 +311,340 @@ public final class SyncMgr {
         this.evtMgr.registerEvent(evts);
     }
 
+    private static void wakeUp(final Object _lock) {
+        synchronized (_lock) {
+            _lock.notifyAll();
+        }
+    }
+
+    private int requestsInFlight(int _nodeIdHashcode) {
+        Deque<HeadersRequest> headers = headersRequests.get(_nodeIdHashcode);
+        Deque<BodiesRequest> bodies = bodiesRequests.get(_nodeIdHashcode);
+        return (headers == null ? 0 : headers.size()) + (bodies == null ? 0 : bodies.size());
+    }
+
     @SuppressWarnings("unchecked")
     public void validateAndAddHeaders(int _nodeIdHashcode, final List<A0BlockHeader> _headers) {
 
         if (_headers == null || _headers.isEmpty())
             return;
 
-        boolean headersValid = true;
+        // match the response against the range requested from this peer,
+        // unsolicited or expired responses are dropped
+        Deque<HeadersRequest> requests = this.headersRequests.get(_nodeIdHashcode);
+        if (requests == null)
+            return;
+        long first = _headers.stream().mapToLong(A0BlockHeader::getNumber).min().getAsLong();
+        HeadersRequest request = null;
+        for (HeadersRequest r : requests) {
+            if (r.from == first && requests.remove(r)) {
+                request = r;
+                break;
+            }
+        }
+        if (request == null)
+            return;
+
+        // the solutions are checked on all cores first, the header rules
+        // below then find them verified
+        boolean headersValid = this.equihashRule.validateAll(_headers);
         for (A0BlockHeader _header : _headers) {
-            if (!this.blockHeaderValidator.validate(_header)) {
+            if (!headersValid || !this.blockHeaderValidator.validate(_header)) {
                 headersValid = false;
                 break;
             }
         }
-        if (!headersValid)
+        if (!headersValid) {
+            // the range goes to another peer
+            badPeers.put(_nodeIdHashcode, System.currentTimeMillis());
+            if (request.retries < MAX_HEADERS_RETRIES) {
+                pendingHeaders.offerFirst(new HeadersRequest(request.from, request.take, request.retries + 1));
+                wakeUp(requestLock);
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("<invalid-headers from={} take={} retries={} from-node={}>", request.from, request.take,
+                        request.retries, _nodeIdHashcode);
+            }
             return;
-        SequentialHeaders<A0BlockHeader> headers = this.importedHeaders.get(_nodeIdHashcode);
-        if (headers == null)
-            headers = new SequentialHeaders<>();
+        }
 
+        SequentialHeaders<A0BlockHeader> headers = new SequentialHeaders<>();
         headers.addAll(_headers);
-        importedHeaders.putIfAbsent(_nodeIdHashcode, headers);
-        int size = headers.size();
-        if (size > this.longestHeaders.get()) {
-            this.longestHeaders.set(size);
-            this.selectedNodeIdHashcode.set(_nodeIdHashcode);
+        if (headers.size() > request.take) {
+            headers.subList(request.take, headers.size()).clear();
+        }
+
+        // the remainder of a partial response goes to another peer
+        if (headers.size() < request.take) {
+            pendingHeaders.offerFirst(new HeadersRequest(request.from + headers.size(), request.take - headers.size(),
+                    request.retries));
+        }
+
+        // the peer just served these headers, so it has the bodies as well
+        sendBodiesRequest(_nodeIdHashcode, headers);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<incoming-headers size={} from={} to={} from-node={}>", _headers.size(),
+                    headers.get(0).getNumber(), headers.get(headers.size() - 1).getNumber(), _nodeIdHashcode);
+        }
+        wakeUp(requestLock);
+    }
+
+    /**
+     * Matches the bodies against the bodies requests in flight to the peer.
+     * Bodies carry no block hash, so a request matches when every body
+     * reproduces the tx trie root of its header. Late responses to expired
+     * requests therefore do not pair with a newer request, responses that
+     * match no request are dropped and their requests expire.
+     */
+    public void validateAndAddBodies(int _nodeIdHashcode, final List<byte[]> _bodies) {
+        Deque<BodiesRequest> requests = this.bodiesRequests.get(_nodeIdHashcode);
+        if (requests == null || _bodies == null || _bodies.isEmpty())
+            return;
+
+        for (BodiesRequest request : requests) {
+            if (request.headers.size() != _bodies.size())
+                continue;
+
+            List<AionBlock> blocks = new ArrayList<>(_bodies.size());
+            Iterator<A0BlockHeader> headerIt = request.headers.iterator();
+            Iterator<byte[]> bodyIt = _bodies.iterator();
+            while (headerIt.hasNext() && bodyIt.hasNext()) {
+                AionBlock block = AionBlock.createBlockFromNetwork(headerIt.next(), bodyIt.next());
+                if (block == null) {
+                    blocks = null;
+                    break;
+                } else
+                    blocks.add(block);
+            }
+
+            if (blocks != null && requests.remove(request)) {
+                validateAndAddBlocks(_nodeIdHashcode, blocks, false);
+                wakeUp(requestLock);
+                return;
+            }
         }
+
         if (LOG.isDebugEnabled()) {
-            LOG.debug("<incoming-headers size={} from={} to={} imported-headers={}>", _headers.size(),
-                    _headers.get(0).getNumber(), _headers.get(_headers.size() - 1).getNumber(), headers.size());
+            LOG.debug("<res-bodies-unmatched from-node={} received={}>", _nodeIdHashcode, _bodies.size());
         }
     }
 
     public void validateAndAddBlocks(int _nodeIdHashcode, final List<AionBlock> _blocks, boolean ifNewBlockBroadcast) {
         if (_blocks == null || _blocks.isEmpty())
             return;
-        int m = _blocks.size();
-        /*
-         * sort if sync batch
-         */
-        if (m > 1)
-            _blocks.sort((b1, b2) -> b1.getNumber() > b2.getNumber() ? 1 : 0);
         if (LOG.isDebugEnabled()) {
             LOG.debug("<validate-incoming-blocks size={} from={} to={}>", _blocks.size(), _blocks.get(0).getNumber(),
                     _blocks.get(_blocks.size() - 1).getNumber());
         }
 
-        for (AionBlock b : _blocks) {
-            importedBlocksQueue.add(b);
+        validateBlocksPipeline.pushAll(_blocks);
+    }
+
+    private Void preValidateBlock(final AionBlock _block) {
+        if (this.blockchain.preValidate(_block)) {
+            importedBlocksQueue.add(_block);
+            wakeUp(importLock);
+            return null;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<pre-validate-failed num={} hash={}>", _block.getNumber(), _block.getShortHash());
         }
 
+        // another peer may serve a valid block at this height
+        if (_block.getNumber() > this.blockchain.getBestBlock().getNumber()
+                && rejectedBlocksCache.put(ByteArrayWrapper.wrap(_block.getHash()), Boolean.TRUE) == null) {
+            pendingHeaders.offerFirst(new HeadersRequest(_block.getNumber(), 1));
+            wakeUp(requestLock);
+        }
+        return null;
     }
 
-    private void processGetHeaders() {
-        while (start.get()) {
+    private void sendHeadersRequest(int _nodeIdHashcode, long _from, int _take, int _retries) {
+        headersRequests.computeIfAbsent(_nodeIdHashcode, k -> new ConcurrentLinkedDeque<>())
+                .add(new HeadersRequest(_from, _take, _retries));
+        this.p2pMgr.send(_nodeIdHashcode, new ReqBlocksHeaders(_from, _take));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<send-get-headers from-node={} from={} take={}>", _nodeIdHashcode, _from, _take);
+        }
+    }
 
-            try {
-                Thread.sleep(FETCH_INTERVAL);
-            } catch (InterruptedException e) {
+    private void sendBodiesRequest(int _nodeIdHashcode, final List<A0BlockHeader> _headers) {
+        List<byte[]> blockHashes = new ArrayList<>(_headers.size());
+        for (A0BlockHeader header : _headers) {
+            blockHashes.add(header.getHash());
+        }
+        bodiesRequests.computeIfAbsent(_nodeIdHashcode, k -> new ConcurrentLinkedDeque<>())
+                .add(new BodiesRequest(_headers));
+        this.p2pMgr.send(_nodeIdHashcode, new ReqBlocksBodies(blockHashes));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<req-blocks from-node={} from={} take={}>", _nodeIdHashcode, _headers.get(0).getNumber(),
+                    blockHashes.size());
+        }
+    }
+
+    /**
+     * Puts the requests that timed out or whose peer disconnected back to the
+     * pending queues.
+     */
+    void expireRequests(final Map<Integer, INode> _nodes, long _now) {
+        long expiry = _now - REQUEST_TIMEOUT;
+
+        for (Map.Entry<Integer, Deque<HeadersRequest>> entry : headersRequests.entrySet()) {
+            boolean active = _nodes.containsKey(entry.getKey());
+            // newest first, so that the offers keep the oldest ranges in front
+            Iterator<HeadersRequest> it = entry.getValue().descendingIterator();
+            while (it.hasNext()) {
+                HeadersRequest r = it.next();
+                if ((!active || r.timestamp < expiry) && entry.getValue().remove(r)) {
+                    pendingHeaders.offerFirst(new HeadersRequest(r.from, r.take, r.retries));
+                }
+            }
+            if (!active) {
+                headersRequests.remove(entry.getKey());
             }
+        }
 
-            AionBlock selfBlock = this.blockchain.getBestBlock();
-            long selfBest = selfBlock.getNumber();
+        for (Map.Entry<Integer, Deque<BodiesRequest>> entry : bodiesRequests.entrySet()) {
+            boolean active = _nodes.containsKey(entry.getKey());
+            Iterator<BodiesRequest> it = entry.getValue().descendingIterator();
+            while (it.hasNext()) {
+                BodiesRequest r = it.next();
+                if ((!active || r.timestamp < expiry) && entry.getValue().remove(r)) {
+                    pendingBodies.offerFirst(r.headers);
+                }
+            }
+            if (!active) {
+                bodiesRequests.remove(entry.getKey());
+            }
+        }
+    }
 
-            INode node = p2pMgr.getRandom();
+    /**
+     * @return the active peer with the fewest requests in flight that has
+     *         reached the given block number and recently sent no invalid
+     *         headers, or {@code null} if every such peer is busy
+     */
+    private INode selectNode(final Collection<INode> _nodes, long _number) {
+        INode selected = null;
+        int selectedLoad = MAX_REQUESTS_PER_PEER;
+        for (INode node : _nodes) {
+            if (node.getBestBlockNumber() < _number || isBadPeer(node.getIdHash()))
+                continue;
+            int load = requestsInFlight(node.getIdHash());
+            if (load < selectedLoad) {
+                selected = node;
+                selectedLoad = load;
+            }
+        }
+        return selected;
+    }
 
-            if (node != null) {
-                long remoteBest = node.getBestBlockNumber();
-                long diff = remoteBest - selfBest;
-                if (diff > 0) {
-                    long from = Math.max(1, selfBest - syncBackwardMax);
-                    long to = selfBest + (diff > this.syncForwardMax ? this.syncForwardMax : diff);
-                    this.p2pMgr.send(node.getIdHash(), new ReqBlocksHeaders(from, (int) (to - from) + 1));
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("<send-get-headers from-node={} from={} to={} self-best={} remote-best={}>",
-                                node.getIdHash(), from, to, selfBest, remoteBest);
-                    }
-                }
+    private boolean isBadPeer(int _nodeIdHashcode) {
+        Long time = badPeers.get(_nodeIdHashcode);
+        if (time == null)
+            return false;
+        if (System.currentTimeMillis() - time < BAD_PEER_TIMEOUT)
+            return true;
+        badPeers.remove(_nodeIdHashcode, time);
+        return false;
+    }
+
+    void scheduleRequests(final Collection<INode> _nodes) {
+
+        // retries first, they are the oldest missing parts of the chain
+        List<A0BlockHeader> bodies;
+        while ((bodies = pendingBodies.poll()) != null) {
+            INode node = selectNode(_nodes, bodies.get(bodies.size() - 1).getNumber());
+            if (node == null) {
+                pendingBodies.offerFirst(bodies);
+                break;
+            }
+            sendBodiesRequest(node.getIdHash(), bodies);
+        }
+
+        HeadersRequest retry;
+        while ((retry = pendingHeaders.poll()) != null) {
+            INode node = selectNode(_nodes, retry.from);
+            if (node == null) {
+                pendingHeaders.offerFirst(retry);
+                break;
             }
+            int take = (int) Math.min(retry.take, node.getBestBlockNumber() - retry.from + 1);
+            sendHeadersRequest(node.getIdHash(), retry.from, take, retry.retries);
+            if (take < retry.take) {
+                pendingHeaders.offerFirst(new HeadersRequest(retry.from + take, retry.take - take, retry.retries));
+            }
+        }
+
+        // new ranges, bounded by the amount of blocks waiting for import
+        long selfBest = this.blockchain.getBestBlock().getNumber();
+        long windowEnd = selfBest + this.blocksQueueMax - importedBlocksQueue.size();
+        long next = nextHeaderNumber.get();
+        long from = Math.max(next, Math.max(1, selfBest - syncBackwardMax));
+        while (start.get() && from <= windowEnd) {
+            INode node = selectNode(_nodes, from);
+            if (node == null)
+                break;
+            int take = (int) Math.min(this.syncForwardMax, node.getBestBlockNumber() - from + 1);
+            sendHeadersRequest(node.getIdHash(), from, take, 0);
+            from += take;
         }
+        // a concurrent rewind takes precedence
+        nextHeaderNumber.compareAndSet(next, from);
     }
 
-    private void processGetBlocks() {
+    private void processRequests() {
         while (start.get()) {
-
             try {
-                Thread.sleep(FETCH_INTERVAL * 2);
-            } catch (InterruptedException e) {
+                Map<Integer, INode> nodes = this.p2pMgr.getActiveNodes();
+                expireRequests(nodes, System.currentTimeMillis());
+                scheduleRequests(nodes.values());
+            } catch (Exception e) {
+                LOG.error("<sync-requests exception={}>", e.toString());
             }
 
-            List<A0BlockHeader> headers = importedHeaders.get(selectedNodeIdHashcode.get());
-            if (importedBlocksQueue.size() < blocksQueueMax && headers != null) {
-                List<byte[]> blockHashes = new ArrayList<>();
-                for (A0BlockHeader header : headers) {
-                    blockHashes.add(header.getHash());
+            synchronized (requestLock) {
+                try {
+                    requestLock.wait(CHECK_INTERVAL);
+                } catch (InterruptedException e) {
                 }
-                clearSentHeaders(selectedNodeIdHashcode.get());
-                updateSentHeaders(selectedNodeIdHashcode.get(), headers);
-                if (headers.size() > 0) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("<req-blocks from={} take={}>", headers.get(0).getNumber(), blockHashes.size());
-                    }
-                    importedHeaders.clear();
-                    this.p2pMgr.send(selectedNodeIdHashcode.get(), new ReqBlocksBodies(blockHashes));
+            }
+        }
+    }
+
+    /**
+     * Waits until the lowest block in the reassembly buffer can be connected
+     * to the chain. Blocks that wait for longer than a request timeout point
+     * to a block that was dropped after download, the headers are then
+     * requested again from below the best block.
+     */
+    AionBlock takeNextBlock() throws InterruptedException {
+        synchronized (importLock) {
+            while (start.get()) {
+                AionBlock b = importedBlocksQueue.peek();
+                if (b != null && b.getNumber() <= this.blockchain.getBestBlock().getNumber() + 1) {
+                    return importedBlocksQueue.poll();
                 }
+                long last = lastImportTime.get();
+                if (b != null && System.currentTimeMillis() - last > REQUEST_TIMEOUT
+                        && lastImportTime.compareAndSet(last, System.currentTimeMillis())) {
+                    rewind();
+                }
+                importLock.wait(CHECK_INTERVAL);
             }
+            return null;
         }
     }
 
     private void processImportBlocks() {
         while (start.get()) {
             try {
-                AionBlock b = importedBlocksQueue.take();
+                AionBlock b = takeNextBlock();
+                if (b == null) {
+                    continue;
+                }
 
                 // TODO: is it possible the import result of a block may change
                 // over time?
@@ -326,6 +659,9 @@ public final class SyncMgr {
                 }
 
                 ImportResult importResult = this.blockchain.tryToConnect(b);
+                if (importResult.isSuccessful()) {
+                    lastImportTime.set(System.currentTimeMillis());
+                }
                 switch (importResult) {
                 case IMPORTED_BEST:
                     if (LOG.isInfoEnabled()) {
@@ -333,6 +669,7 @@ public final class SyncMgr {
                                 b.getTransactionsList().size());
                     }
                     importedBlocksCache.put(ByteArrayWrapper.wrap(b.getHash()), null);
+                    wakeUp(requestLock);
                     break;
                 case IMPORTED_NOT_BEST:
                     if (LOG.isInfoEnabled()) {
@@ -346,6 +683,7 @@ public final class SyncMgr {
                         LOG.debug("<import-unsuccess err=no-parent num={} hash={}>", b.getNumber(),
                                 b.getShortHash());
                     }
+                    rewind();
                     break;
                 case INVALID_BLOCK:
                     if (LOG.isDebugEnabled()) {
@@ -371,9 +709,49 @@ public final class SyncMgr {
         }
     }
 
+    /**
+     * Restarts the header requests {@code syncBackwardMax} blocks below the
+     * best block, so that the common ancestor with a fork that does not
+     * connect to our chain is downloaded as well. Does nothing while a
+     * previous rewind is still being downloaded.
+     */
+    private void rewind() {
+        long selfBest = this.blockchain.getBestBlock().getNumber();
+        long next = nextHeaderNumber.get();
+        if (next > selfBest + 1) {
+            long from = Math.max(1, selfBest - syncBackwardMax);
+            if (nextHeaderNumber.compareAndSet(next, from)) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("<rewind-headers from={} to={}>", next, from);
+                }
+                wakeUp(requestLock);
+            }
+        }
+    }
+
     public void shutdown() {
-        scheduledWorkers.shutdown();
+        if (scheduledWorkers != null) {
+            scheduledWorkers.shutdown();
+        }
         start.set(false);
+        wakeUp(requestLock);
+        wakeUp(importLock);
+        if (validateBlocksPipeline != null) {
+            validateBlocksPipeline.shutdown();
+        }
+        // the last flush covers every imported block only once the import
+        // has stopped
+        if (importBlocksThread != null) {
+            try {
+                importBlocksThread.join();
+            } catch (InterruptedException e) {
+                LOG.error("<sync-shutdown interrupted while waiting for the import to stop>");
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (blockchain != null) {
+            blockchain.setDeferredFlush(false);
+        }
     }
 
     public long getNetworkBestBlockNumber() {
@@ -39,7 +39,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
-import org.aion.base.timer.StackTimer;
+import org.aion.base.timer.ITimer;
+import org.aion.base.timer.TimerDummy;
 import org.aion.base.type.ITransaction;
 import org.aion.mcf.blockchain.IPendingStateInternal;
 import org.aion.p2p.*;
@@ -53,6 +54,10 @@ import org.slf4j.Logger;
  */
 public final class BroadcastTxCallback extends Handler {
 
+    // the pending state does not schedule on the timer, so a thread backed
+    // timer per message is not needed
+    private static final ITimer timer = new TimerDummy();
+
     private final Logger log;
 
     private final IPendingStateInternal pendingState;
@@ -88,7 +93,7 @@ public final class BroadcastTxCallback extends Handler {
             txn.add(tx);
         }
 
-        List<ITransaction> newPendingTx = this.pendingState.addPendingTransactions(txn, new StackTimer());
+        List<ITransaction> newPendingTx = this.pendingState.addPendingTransactions(txn, timer);
 
         // new pending tx, broadcast out to the active nodes
         if (newPendingTx != null && !newPendingTx.isEmpty()) {
@@ -35,8 +35,6 @@
 
 package org.aion.zero.impl.sync.callback;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.aion.p2p.Handler;
@@ -45,8 +43,6 @@ import org.aion.p2p.Ver;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.sync.msg.ResBlocksBodies;
-import org.aion.zero.types.A0BlockHeader;
-import org.aion.zero.impl.types.AionBlock;
 import org.slf4j.Logger;
 
 /**
@@ -69,30 +65,14 @@ public final class ResBlocksBodiesCallback extends Handler {
     @Override
     public void receive(int _nodeIdHashcode,String _displayId, final byte[] _msgBytes) {
         ResBlocksBodies resBlocksBodies = ResBlocksBodies.decode(_msgBytes);
-        List<A0BlockHeader> headers = this.syncMgr.getSentHeaders(_nodeIdHashcode);
         List<byte[]> bodies = resBlocksBodies.getBlocksBodies();
-        if (headers != null && bodies != null && headers.size() == bodies.size()) {
-            List<AionBlock> blocks = new ArrayList<>(bodies.size());
-            Iterator<A0BlockHeader> headerIt = headers.iterator();
-            Iterator<byte[]> bodyIt = bodies.iterator();
-            boolean pass = true;
-            while (headerIt.hasNext() && bodyIt.hasNext()) {
-                AionBlock block = AionBlock.createBlockFromNetwork(headerIt.next(), bodyIt.next());
-                if (block == null) {
-                    pass = false;
-                    break;
-                } else
-                    blocks.add(block);
-            }
-            this.syncMgr.clearSentHeaders(_nodeIdHashcode);
-            if (pass) {
-                this.log.debug(
-                        "<res-bodies bodies={} from-node={}>",
-                        blocks.size(),
-                        _displayId
-                );
-                this.syncMgr.validateAndAddBlocks(_nodeIdHashcode, blocks, false);
-            }
+        if (bodies != null) {
+            this.log.debug(
+                    "<res-bodies bodies={} from-node={}>",
+                    bodies.size(),
+                    _displayId
+            );
+            this.syncMgr.validateAndAddBodies(_nodeIdHashcode, bodies);
         } else
             this.log.error("<res-bodies decode-msg>");
     }
@@ -46,6 +46,7 @@ import org.aion.rlp.RLPElement;
 import org.aion.zero.impl.sync.Act;
 import org.aion.rlp.RLP;
 import org.aion.rlp.RLPList;
+import org.aion.rlp.RlpWriter;
 
 /**
  * @author chris
@@ -66,11 +67,19 @@ public final class BroadcastTx extends Msg {
     @Override
     public byte[] encode() {
         List<byte[]> encodedTx = new ArrayList<>();
+        int length = 0;
         for(ITransaction tx : txl) {
-            encodedTx.add(tx.getEncoded());
+            byte[] encoded = tx.getEncoded();
+            encodedTx.add(encoded);
+            length += encoded.length;
         }
 
-        return RLP.encodeList(encodedTx.toArray(new byte[encodedTx.size()][]));
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length);
+        for (byte[] encoded : encodedTx) {
+            rlp.writeEncoded(encoded);
+        }
+        return rlp.toByteArray();
     }
 
     /* return the encodedData of the Transaction list, the caller function need to cast the return byte[] array
@@ -40,10 +40,9 @@ import java.util.List;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Msg;
 import org.aion.p2p.Ver;
-import org.aion.rlp.RLPElement;
 import org.aion.zero.impl.sync.Act;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RlpWriter;
+import org.aion.rlp.RLPView;
 
 /**
  *
@@ -60,11 +59,10 @@ public final class ResBlocksBodies extends Msg {
     }
 
     public static ResBlocksBodies decode(final byte[] _msgBytes) {
-        RLPList paramsList = (RLPList) RLP.decode2(_msgBytes).get(0);
+        RLPView paramsList = RLPView.decode(_msgBytes);
         List<byte[]> blocksBodies = new ArrayList<>();
-        for (RLPElement aParamsList : paramsList) {
-            RLPList rlpData = ((RLPList) aParamsList);
-            blocksBodies.add(rlpData.getRLPData());
+        for (RLPView aParamsList : paramsList) {
+            blocksBodies.add(aParamsList.getEncoded());
         }
         return new ResBlocksBodies(blocksBodies);
     }
@@ -75,6 +73,16 @@ public final class ResBlocksBodies extends Msg {
 
     @Override
     public byte[] encode() {
-        return RLP.encodeList(this.blocksBodies.toArray(new byte[this.blocksBodies.size()][]));
+        int length = 0;
+        for (byte[] body : this.blocksBodies) {
+            length += body.length;
+        }
+
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length);
+        for (byte[] body : this.blocksBodies) {
+            rlp.writeEncoded(body);
+        }
+        return rlp.toByteArray();
     }
 }
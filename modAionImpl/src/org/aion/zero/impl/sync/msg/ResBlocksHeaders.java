@@ -40,10 +40,9 @@ import java.util.List;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Msg;
 import org.aion.p2p.Ver;
-import org.aion.rlp.RLPElement;
 import org.aion.zero.impl.sync.Act;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RlpWriter;
+import org.aion.rlp.RLPView;
 import org.aion.zero.types.A0BlockHeader;
 
 /**
@@ -65,11 +64,10 @@ public final class ResBlocksHeaders extends Msg {
             return null;
         else {
             try {
-                RLPList list = (RLPList) RLP.decode2(_msgBytes).get(0);
+                RLPView list = RLPView.decode(_msgBytes);
                 List<A0BlockHeader> blockHeaders = new ArrayList<>();
-                for (RLPElement aList : list) {
-                    RLPList rlpData = ((RLPList) aList);
-                    blockHeaders.add(A0BlockHeader.fromRLP(rlpData, true));
+                for (RLPView aList : list) {
+                    blockHeaders.add(A0BlockHeader.fromRLP(aList, true));
                 }
                 return new ResBlocksHeaders(blockHeaders);
             } catch (Exception ex) {
@@ -84,12 +82,19 @@ public final class ResBlocksHeaders extends Msg {
 
     @Override
     public byte[] encode() {
-        List<byte[]> tempList = new ArrayList<>();
-        for (A0BlockHeader blockHeader : this.blockHeaders) {
-            tempList.add(blockHeader.getEncoded());
+        byte[][] headers = new byte[this.blockHeaders.size()][];
+        int length = 0;
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = this.blockHeaders.get(i).getEncoded();
+            length += headers[i].length;
         }
-        byte[][] bytesArray = tempList.toArray(new byte[tempList.size()][]);
-        return RLP.encodeList(bytesArray);
+
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length);
+        for (byte[] header : headers) {
+            rlp.writeEncoded(header);
+        }
+        return rlp.toByteArray();
     }
 
 }
@@ -25,18 +25,20 @@
 package org.aion.zero.impl.types;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.aion.base.type.Address;
 import org.aion.base.util.ByteUtil;
+import org.aion.base.util.Copyable;
 import org.aion.base.util.Hex;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RlpWriter;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.IAionBlock;
@@ -48,7 +50,8 @@ import org.slf4j.Logger;
 /**
  *
  */
-public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> implements IAionBlock {
+public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction>
+        implements IAionBlock, Copyable<AionBlock> {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.CONS.toString());
 
@@ -108,21 +111,44 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         this.parsed = true;
     }
 
+    /**
+     * Creates a copy whose header and transactions can be modified without
+     * affecting this block. Unlike the copy constructor the block encoding is
+     * shared and the transactions are decoded again from their encodings,
+     * which are only read, so copies can be made concurrently.
+     */
+    @Override
+    public AionBlock copy() {
+        parseRLP();
+        AionBlock block = new AionBlock();
+        block.header = new A0BlockHeader(this.header);
+        List<AionTransaction> txs = new ArrayList<>(this.transactionsList.size());
+        for (AionTransaction tx : this.transactionsList) {
+            AionTransaction copy = new AionTransaction(tx.getEncoded());
+            // the copy has the same content, so the verification still holds
+            if (tx.isSignatureVerified()) {
+                copy.setSignatureVerified();
+            }
+            txs.add(copy);
+        }
+        block.transactionsList = new CopyOnWriteArrayList<>(txs);
+        block.rlpEncoded = getEncoded();
+        block.parsed = true;
+        return block;
+    }
+
     public synchronized void parseRLP() {
         if (parsed) {
             return;
         }
 
-        RLPList params = RLP.decode2(rlpEncoded);
-        RLPList block = (RLPList) params.get(0);
+        List<RLPView> block = RLPView.decode(rlpEncoded).getElements();
 
         // Parse Header
-        RLPList header = (RLPList) block.get(0);
-        this.header = new A0BlockHeader(header);
+        this.header = new A0BlockHeader(block.get(0));
 
         // Parse Transactions
-        RLPList txTransactions = (RLPList) block.get(1);
-        this.parseTxs(this.header.getTxTrieRoot(), txTransactions);
+        this.parseTxs(this.header.getTxTrieRoot(), block.get(1));
 
         this.parsed = true;
     }
@@ -316,17 +342,18 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         return toStringBuff.toString();
     }
 
-    private void parseTxs(RLPList txTransactions) {
+    private void parseTxs(RLPView txTransactions) {
 
         this.txsState = new TrieImpl(null);
-        for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            this.transactionsList.add(new AionTransaction(transactionRaw.getRLPData()));
-            this.txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+        int i = 0;
+        for (RLPView transactionRaw : txTransactions) {
+            byte[] encoded = transactionRaw.getEncoded();
+            this.transactionsList.add(new AionTransaction(encoded));
+            this.txsState.update(RLP.encodeInt(i++), encoded);
         }
     }
 
-    private boolean parseTxs(byte[] expectedRoot, RLPList txTransactions) {
+    private boolean parseTxs(byte[] expectedRoot, RLPView txTransactions) {
 
         parseTxs(txTransactions);
         String calculatedRoot = Hex.toHexString(txsState.getRootHash());
@@ -348,13 +375,16 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
 
     public byte[] getEncoded() {
         if (rlpEncoded == null) {
+            parseRLP();
             byte[] header = this.header.getEncoded();
-
-            List<byte[]> block = getBodyElements();
-            block.add(0, header);
-            byte[][] elements = block.toArray(new byte[block.size()][]);
-
-            this.rlpEncoded = RLP.encodeList(elements);
+            byte[][] transactionsEncoded = getTransactionsElements();
+            int txsLength = payloadLength(transactionsEncoded);
+            int length = header.length + RlpWriter.listLength(txsLength);
+
+            RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+            rlp.writeListHeader(length).writeEncoded(header);
+            writeList(rlp, txsLength, transactionsEncoded);
+            this.rlpEncoded = rlp.toByteArray();
         }
         return rlpEncoded;
     }
@@ -396,8 +426,7 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         block.header = header;
         block.parsed = true;
 
-        RLPList items = (RLPList) RLP.decode2(body).get(0);
-        RLPList transactions = (RLPList) items.get(0);
+        RLPView transactions = RLPView.decode(body).get(0);
 
         if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
             return null;
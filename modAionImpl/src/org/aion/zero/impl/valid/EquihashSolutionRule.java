@@ -24,11 +24,19 @@
 
 package org.aion.zero.impl.valid;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ParallelExecutor;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
 import org.aion.mcf.blockchain.valid.BlockHeaderRule;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.equihash.EquiValidator;
-
-import static org.aion.base.util.Hex.toHexString;
+import org.apache.commons.collections4.map.LRUMap;
+import org.slf4j.Logger;
 
 /**
  * Checks if {@link A0BlockHeader#solution} is a valid Equihash solution.
@@ -36,6 +44,16 @@ import static org.aion.base.util.Hex.toHexString;
  */
 public class EquihashSolutionRule extends BlockHeaderRule<A0BlockHeader> {
 
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.CONS.name());
+
+    /**
+     * Hashes of the headers with verified solutions. The hash covers the
+     * nonce and the solution, so a header validated by sync is not verified
+     * again when its block is imported.
+     */
+    private static final Map<ByteArrayWrapper, Boolean> verified = Collections
+            .synchronizedMap(new LRUMap<>(8192));
+
     private EquiValidator validator;
 
     public EquihashSolutionRule(EquiValidator validator) {
@@ -46,10 +64,47 @@ public class EquihashSolutionRule extends BlockHeaderRule<A0BlockHeader> {
     public boolean validate(A0BlockHeader header) {
         errors.clear();
 
-        if (!validator.isValidSolution(header.getSolution(), header.getHeaderBytes(true), header.getNonce())) {
+        if (!isValid(header)) {
             errors.add("Invalid equihash solution contained in block header");
             return false;
         }
         return true;
     }
+
+    /**
+     * Validates the solutions of the given headers in parallel.
+     *
+     * @return {@code true} if all the headers have valid solutions,
+     *         {@code false} otherwise
+     */
+    public boolean validateAll(List<A0BlockHeader> headers) {
+        errors.clear();
+
+        boolean valid;
+        if (headers.size() < 2) {
+            valid = headers.stream().allMatch(this::isValid);
+        } else {
+            valid = ParallelExecutor.invoke(() -> headers.parallelStream().allMatch(this::isValid),
+                    () -> headers.stream().allMatch(this::isValid),
+                    e -> LOG.error("parallel equihash validation failed", e));
+        }
+
+        if (!valid) {
+            errors.add("Invalid equihash solution contained in block header");
+        }
+        return valid;
+    }
+
+    private boolean isValid(A0BlockHeader header) {
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(header.getHash());
+        if (verified.containsKey(key)) {
+            return true;
+        }
+
+        if (validator.isValidSolution(header.getSolution(), header.getHeaderBytes(true), header.getNonce())) {
+            verified.put(key, Boolean.TRUE);
+            return true;
+        }
+        return false;
+    }
 }
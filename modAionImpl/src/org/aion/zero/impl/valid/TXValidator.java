@@ -25,18 +25,35 @@
 package org.aion.zero.impl.valid;
 
 import org.aion.base.type.Hash256;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ParallelExecutor;
 import org.aion.crypto.ISignature;
 import org.aion.crypto.SignatureFac;
 import org.aion.mcf.vm.types.DataWord;
 import org.aion.zero.types.AionTransaction;
 import org.aion.log.LogEnum;
+import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
 public class TXValidator {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogEnum.TX.name());
 
+    /**
+     * Hashes of the transactions with verified signatures. The hash covers the
+     * signature and is reset whenever the transaction is re-signed or
+     * re-encoded, so a cache hit guarantees the same signed content. Shared
+     * between the pending state and block import since they receive distinct
+     * instances of the same transaction.
+     */
+    private static final Map<ByteArrayWrapper, Boolean> verified = Collections
+            .synchronizedMap(new LRUMap<>(100_000));
+
     // TODO : MOVE ISignature to aionbase, and then use interface as an input
     public static boolean isValid(AionTransaction tx) {
 
@@ -76,23 +93,71 @@ public class TXValidator {
             return false;
         }
 
-        byte[] hash = tx.getRawHash();
-        if (hash == null || hash.length != Hash256.BYTES) {
-            LOG.error("invalid tx raw hash!");
-            return false;
-        }
-
         ISignature sig = tx.getSignature();
         if (sig == null) {
             LOG.error("invalid tx signature!");
             return false;
         }
 
+        if (tx.isSignatureVerified()) {
+            return true;
+        }
+
+        // checked before computing the raw hash so that a hit skips all hashing
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(tx.getHash());
+        if (verified.containsKey(key)) {
+            tx.setSignatureVerified();
+            return true;
+        }
+
+        byte[] hash = tx.getRawHash();
+        if (hash == null || hash.length != Hash256.BYTES) {
+            LOG.error("invalid tx raw hash!");
+            return false;
+        }
+
         try {
-            return SignatureFac.verify(hash, sig);
+            if (SignatureFac.verify(hash, sig)) {
+                verified.put(key, Boolean.TRUE);
+                tx.setSignatureVerified();
+                return true;
+            } else {
+                return false;
+            }
         } catch (Exception ex) {
             ex.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Validates the given transactions in parallel.
+     *
+     * @return {@code true} if all the transactions are valid, {@code false} otherwise
+     */
+    public static boolean isValid(Collection<AionTransaction> txs) {
+        if (txs.size() < 2) {
+            return txs.stream().allMatch(TXValidator::isValid);
+        }
+
+        return ParallelExecutor.invoke(() -> txs.parallelStream().allMatch(TXValidator::isValid),
+                () -> txs.stream().allMatch(TXValidator::isValid),
+                e -> LOG.error("parallel tx validation failed", e));
+    }
+
+    /**
+     * Verifies the signatures of the given transactions in parallel such that
+     * later calls to {@link #isValid(AionTransaction)} for the same
+     * transactions do not repeat the verification. Invalid transactions are
+     * not reported and will be rejected by the later validation.
+     */
+    public static void preVerify(Collection<AionTransaction> txs) {
+        if (txs.size() < 2) {
+            return;
+        }
+
+        // the serial fallback is left to the later validation
+        ParallelExecutor.run(() -> txs.parallelStream().forEach(TXValidator::isValid), () -> {},
+                e -> LOG.error("parallel tx validation failed", e));
+    }
 }
@@ -41,6 +41,7 @@ import org.aion.equihash.Equihash;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class EquihashValidatorTest {
 
@@ -105,4 +106,41 @@ public class EquihashValidatorTest {
 //        System.out.println("Execution: " + (stop-start));
 
     }
+
+    @Test
+    public void validateBrokenSolutions() {
+        EquiValidator validate = new EquiValidator(210, 9);
+        Equihash e = new Equihash(210, 9);
+
+        byte[] header = new byte[108];
+        byte[] nonce = new byte[32];
+        nonce[0] = 1;
+
+        int[] sol = e.getSolutionsForNonce(header, nonce)[1];
+        assertEquals(true, validate.isValidSolution(EquiUtils.getMinimalFromIndices(sol, 21), header, nonce));
+
+        // swapped leaves still collide but are out of order
+        int[] swapped = sol.clone();
+        swapped[0] = sol[1];
+        swapped[1] = sol[0];
+        assertFalse(validate.isValidSolution(EquiUtils.getMinimalFromIndices(swapped, 21), header, nonce));
+
+        // a changed index breaks the collisions
+        int[] changed = sol.clone();
+        changed[100] ^= 1;
+        assertFalse(validate.isValidSolution(EquiUtils.getMinimalFromIndices(changed, 21), header, nonce));
+
+        // the same subtree twice
+        int[] duplicate = sol.clone();
+        System.arraycopy(sol, 0, duplicate, 256, 256);
+        assertFalse(validate.isValidSolution(EquiUtils.getMinimalFromIndices(duplicate, 21), header, nonce));
+
+        // a different nonce
+        nonce[0] = 2;
+        assertFalse(validate.isValidSolution(EquiUtils.getMinimalFromIndices(sol, 21), header, nonce));
+
+        // the validator is reused after rejections
+        nonce[0] = 1;
+        assertEquals(true, validate.isValidSolution(EquiUtils.getMinimalFromIndices(sol, 21), header, nonce));
+    }
 }
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl;
+
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.blockchain.valid.BlockHeaderRule;
+import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.trie.TrieImpl;
+import org.aion.mcf.valid.BlockHeaderValidator;
+import org.aion.zero.impl.blockchain.ChainConfiguration;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.valid.AionExtraDataRule;
+import org.aion.zero.impl.valid.EnergyConsumedRule;
+import org.aion.zero.types.A0BlockHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test cases for the import path used by the sync: the pre-validation of
+ * blocks ahead of the import and the deferred flush
+ */
+public class BlockchainImportTest {
+
+    private final AtomicInteger headerChecks = new AtomicInteger();
+    private StandaloneBlockchain bc;
+
+    @Before
+    public void setup() {
+        // the simple header rules, counting how often they run
+        ChainConfiguration config = new ChainConfiguration() {
+            @Override
+            public BlockHeaderValidator<A0BlockHeader> createBlockHeaderValidator() {
+                return new BlockHeaderValidator<>(Arrays.asList(
+                        new AionExtraDataRule(this.constants.getMaximumExtraDataSize()), new EnergyConsumedRule(),
+                        new BlockHeaderRule<A0BlockHeader>() {
+                            @Override
+                            public boolean validate(A0BlockHeader header) {
+                                headerChecks.incrementAndGet();
+                                return true;
+                            }
+                        }));
+            }
+        };
+
+        bc = new StandaloneBlockchain.Builder()
+                .withChainConfig(config)
+                .withDefaultAccounts(Collections.singletonList(ECKeyFac.inst().create()))
+                .build().bc;
+    }
+
+    private AionBlock nextBlock() {
+        return bc.createNewBlock(bc.getBestBlock(), Collections.emptyList());
+    }
+
+    @Test
+    public void testPreValidatedBlockSkipsChecks() {
+        AionBlock block = nextBlock();
+        assertThat(bc.preValidate(block)).isTrue();
+        assertThat(headerChecks.get()).isEqualTo(1);
+
+        // the import of the same instance only runs the checks against the parent
+        assertThat(bc.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(headerChecks.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPreValidationBoundToInstance() {
+        AionBlock block = nextBlock();
+        assertThat(bc.preValidate(block)).isTrue();
+        assertThat(headerChecks.get()).isEqualTo(1);
+
+        // a copy with the same hash was not validated, so it is checked again
+        AionBlock copy = new AionBlock(block.getEncoded());
+        assertThat(copy.getHash()).isEqualTo(block.getHash());
+        assertThat(bc.tryToConnect(copy)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(headerChecks.get()).isEqualTo(2);
+
+        // the validated instance is not found again for a later import
+        AionBlock next = nextBlock();
+        assertThat(bc.tryToConnect(next)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(headerChecks.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testPreValidateRejectsTxTrieMismatch() {
+        AionBlock block = nextBlock();
+        block.getHeader().setTxTrieRoot(new byte[32]);
+        assertThat(bc.preValidate(block)).isFalse();
+
+        // a rejected block does not skip the checks on import
+        assertThat(bc.tryToConnect(block)).isEqualTo(ImportResult.INVALID_BLOCK);
+        assertThat(bc.getBestBlock().getNumber()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testPreValidateRejectsGenesis() {
+        assertThat(bc.preValidate(bc.getGenesis())).isFalse();
+        assertThat(bc.preValidate(null)).isFalse();
+    }
+
+    private boolean isStateDirty() {
+        return ((TrieImpl) ((AionRepositoryImpl) bc.getRepository()).getWorldState()).getCache().isDirty();
+    }
+
+    private static boolean isFlushThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(t -> t.isAlive() && t.getName().equals("chain-flush"));
+    }
+
+    @Test
+    public void testDeferredFlushDrainedOnDisable() {
+        bc.setDeferredFlush(true);
+        for (int i = 0; i < 8; i++) {
+            assertThat(bc.tryToConnect(nextBlock())).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+
+        // disabling waits for the flush thread and writes the remainder
+        bc.setDeferredFlush(false);
+        assertThat(isFlushThreadAlive()).isFalse();
+        assertThat(isStateDirty()).isFalse();
+        assertThat(bc.getBlockStore().getMaxNumber()).isEqualTo(8L);
+
+        // the imports flush on the calling thread again
+        assertThat(bc.tryToConnect(nextBlock())).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(isStateDirty()).isFalse();
+        assertThat(isFlushThreadAlive()).isFalse();
+    }
+}
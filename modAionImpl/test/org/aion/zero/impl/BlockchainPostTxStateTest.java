@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl;
+
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.types.AionTxInfo;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test cases for chains that do not store the post-tx state in the receipts
+ */
+public class BlockchainPostTxStateTest {
+
+    private static StandaloneBlockchain newChain(List<ECKey> keys, boolean postTxStateEnabled) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys)
+                .withPostTxStateEnabled(postTxStateEnabled)
+                .build().bc;
+    }
+
+    private static AionTransaction newTransfer(ECKey sender) {
+        AionTransaction tx = new AionTransaction(BigInteger.ZERO.toByteArray(),
+                Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE"),
+                BigInteger.valueOf(100).toByteArray(), ByteUtil.EMPTY_BYTE_ARRAY, 21000L, 1L);
+        tx.sign(sender);
+        return tx;
+    }
+
+    @Test
+    public void testReceiptsRootWithPostTxStateDisabled() {
+        List<ECKey> keys = Collections.singletonList(ECKeyFac.inst().create());
+        StandaloneBlockchain producer = newChain(keys, false);
+        StandaloneBlockchain importer = newChain(keys, false);
+        assertThat(producer.chainConfiguration.isPostTxStateEnabled()).isFalse();
+        assertThat(producer.getGenesis().isPostTxStateEnabled()).isFalse();
+
+        AionTransaction tx = newTransfer(keys.get(0));
+
+        // the receipts root of the block comes from generatePreBlock, the
+        // import recomputes it in applyBlock and rejects the block on mismatch
+        AionBlock block = producer.createNewBlock(producer.getBestBlock(), Collections.singletonList(tx));
+        assertThat(block.getTransactionsList().size()).isEqualTo(1);
+        assertThat(producer.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(importer.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(importer.getBestBlock().getStateRoot()).isEqualTo(block.getStateRoot());
+
+        for (StandaloneBlockchain bc : new StandaloneBlockchain[] { producer, importer }) {
+            AionTxInfo info = bc.getTransactionInfo(tx.getHash());
+            assertThat(info).isNotNull();
+            assertThat(info.getReceipt().getPostTxState()).isEmpty();
+        }
+    }
+
+    @Test
+    public void testReceiptsRootDependsOnPostTxState() {
+        List<ECKey> keys = Collections.singletonList(ECKeyFac.inst().create());
+        StandaloneBlockchain disabled = newChain(keys, false);
+        StandaloneBlockchain enabled = newChain(keys, true);
+
+        // the chains do not share a genesis, so their blocks never connect
+        assertThat(enabled.getGenesis().getHash()).isNotEqualTo(disabled.getGenesis().getHash());
+
+        AionTransaction tx = newTransfer(keys.get(0));
+        AionBlock block = disabled.createNewBlock(disabled.getBestBlock(), Collections.singletonList(tx));
+        assertThat(enabled.tryToConnect(block)).isEqualTo(ImportResult.NO_PARENT);
+
+        // a node expecting the post-tx state computes a different receipts root
+
+        AionBlock expected = enabled.createNewBlock(enabled.getBestBlock(), Collections.singletonList(tx));
+        assertThat(expected.getReceiptsRoot()).isNotEqualTo(block.getReceiptsRoot());
+        assertThat(expected.getStateRoot()).isEqualTo(block.getStateRoot());
+        assertThat(enabled.tryToConnect(expected)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(enabled.getTransactionInfo(tx.getHash()).getReceipt().getPostTxState()).hasLength(32);
+    }
+}
@@ -36,7 +36,10 @@ package org.aion.zero.impl;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -46,7 +49,9 @@ import org.aion.base.util.ByteUtil;
 import org.aion.mcf.core.AccountState;
 import org.aion.zero.impl.AionGenesis;
 import org.aion.crypto.HashUtil;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Specifies the properties of AionGenesis and intended parameters, ensures that
@@ -58,6 +63,9 @@ import org.junit.Test;
  */
 public class GenesisSpecificationTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Test that the default genesis block built from the builder produces the
      * correct genesis specs
@@ -133,4 +141,32 @@ public class GenesisSpecificationTest {
         
         assertThat(genesis.getPremine().keySet().equals(accountStateSet));
     }
+
+    /**
+     * Test that genesis files which only differ in the post-tx state option
+     * produce different genesis blocks, since the option changes the receipts
+     * root of every later block
+     */
+    @Test
+    public void postTxStateGenesisHashTest() throws IOException {
+        String json = "{\"extraData\": \"0x00\", \"energyLimit\": \"15000000\"%s}";
+
+        File unset = folder.newFile("unset.json");
+        Files.write(unset.toPath(), String.format(json, "").getBytes());
+        File enabled = folder.newFile("enabled.json");
+        Files.write(enabled.toPath(), String.format(json, ", \"postTxState\": true").getBytes());
+        File disabled = folder.newFile("disabled.json");
+        Files.write(disabled.toPath(), String.format(json, ", \"postTxState\": false").getBytes());
+
+        AionGenesis unsetGenesis = GenesisBlockLoader.loadJSON(unset.getAbsolutePath());
+        AionGenesis enabledGenesis = GenesisBlockLoader.loadJSON(enabled.getAbsolutePath());
+        AionGenesis disabledGenesis = GenesisBlockLoader.loadJSON(disabled.getAbsolutePath());
+
+        assertThat(disabledGenesis.isPostTxStateEnabled()).isFalse();
+        assertThat(disabledGenesis.getHash()).isNotEqualTo(enabledGenesis.getHash());
+
+        // the default keeps the existing genesis hash
+        assertThat(enabledGenesis.isPostTxStateEnabled()).isTrue();
+        assertThat(enabledGenesis.getHash()).isEqualTo(unsetGenesis.getHash());
+    }
 }
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.blockchain;
+
+import org.aion.base.db.IRepository;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IEventMgr;
+import org.aion.evtmgr.IHandler;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.blockchain.TxAdmissionStats.Rejection;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Test cases for the admission checks of the pending state
+ */
+public class PendingTxAdmissionTest {
+
+    private StandaloneBlockchain bc;
+    private IRepository repo;
+    private ECKey key;
+
+    @Before
+    public void setup() {
+        key = ECKeyFac.inst().create();
+        StandaloneBlockchain.Bundle bundle = new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(Collections.singletonList(key))
+                .build();
+        bc = bundle.bc;
+        bc.setEventManager(new DiscardingEventMgr());
+        repo = bc.getRepository();
+    }
+
+    private AionTransaction genTransaction(ECKey key, long nonce, BigInteger value, byte[] data) {
+        AionTransaction tx = new AionTransaction(BigInteger.valueOf(nonce).toByteArray(),
+                Address.wrap(key.getAddress()),
+                Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                value.toByteArray(), data, 10_000L, 10L);
+        tx.sign(key);
+        return tx;
+    }
+
+    /**
+     * Accepts the events of the pending state without dispatching them
+     */
+    private static class DiscardingEventMgr implements IEventMgr {
+        public boolean registerEvent(List<IEvent> _evt) {
+            return true;
+        }
+
+        public boolean unregisterEvent(List<IEvent> _evt) {
+            return true;
+        }
+
+        public boolean newEvents(List<IEvent> _evt) {
+            return true;
+        }
+
+        public boolean newEvent(IEvent _evt) {
+            return true;
+        }
+
+        public List<IHandler> getHandlerList() {
+            return Collections.emptyList();
+        }
+
+        public IHandler getHandler(int _type) {
+            return null;
+        }
+
+        public void shutDown() {
+        }
+
+        public void start() {
+        }
+    }
+
+    private AionTransaction genTransfer(ECKey key, long nonce, Address to, long value, long nrgPrice) {
+        AionTransaction tx = new AionTransaction(BigInteger.valueOf(nonce).toByteArray(),
+                Address.wrap(key.getAddress()), to, BigInteger.valueOf(value).toByteArray(), new byte[0], 21_000L,
+                nrgPrice);
+        tx.sign(key);
+        return tx;
+    }
+
+    @Test
+    public void testAdmit() {
+        assertThat(AionPendingStateImpl.checkStateless(genTransaction(key, 0, BigInteger.ONE, new byte[0]), repo))
+                .isNull();
+        assertThat(AionPendingStateImpl.checkStateless(genTransaction(key, 999, BigInteger.ONE, new byte[0]), repo))
+                .isNull();
+    }
+
+    @Test
+    public void testRejectNonce() {
+        assertThat(AionPendingStateImpl.checkStateless(genTransaction(key, 1000, BigInteger.ONE, new byte[0]), repo))
+                .isEqualTo(Rejection.NONCE_TOO_HIGH);
+    }
+
+    @Test
+    public void testBalanceNotChecked() {
+        // the pending txs can credit the sender, so the balance of the best
+        // state is left to the execution on the pending state
+        BigInteger value = StandaloneBlockchain.Builder.DEFAULT_BALANCE.add(BigInteger.ONE);
+        assertThat(AionPendingStateImpl.checkStateless(genTransaction(key, 0, value, new byte[0]), repo)).isNull();
+
+        ECKey poor = ECKeyFac.inst().create();
+        assertThat(AionPendingStateImpl.checkStateless(genTransaction(poor, 0, BigInteger.ZERO, new byte[0]), repo))
+                .isNull();
+    }
+
+    @Test
+    public void testRejectInvalid() {
+        // the raw data without a signature
+        AionTransaction unsigned = new AionTransaction(BigInteger.ZERO.toByteArray(), Address.wrap(key.getAddress()),
+                Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                BigInteger.ONE.toByteArray(), new byte[0], 10_000L, 10L);
+        assertThat(AionPendingStateImpl.checkStateless(unsigned, repo)).isEqualTo(Rejection.INVALID);
+    }
+
+    @Test
+    public void testRejectOversized() {
+        AionTransaction tx = genTransaction(key, 0, BigInteger.ONE, new byte[16_000_001]);
+        assertThat(AionPendingStateImpl.checkStateless(tx, repo)).isEqualTo(Rejection.OVERSIZED);
+    }
+
+    @Test
+    public void testStats() {
+        TxAdmissionStats stats = new TxAdmissionStats();
+        stats.addReceived(3);
+        stats.addAdmitted();
+        stats.addRejected(Rejection.KNOWN);
+        stats.addRejected(Rejection.KNOWN);
+
+        assertThat(stats.getReceived()).isEqualTo(3);
+        assertThat(stats.getAdmitted()).isEqualTo(1);
+        assertThat(stats.getRejected(Rejection.KNOWN)).isEqualTo(2);
+        assertThat(stats.getRejected(Rejection.EXECUTION)).isEqualTo(0);
+        assertThat(stats.getAdmissionRate()).isGreaterThan(0.0);
+    }
+
+    @Test
+    public void testReplacePendingTransaction() {
+        AionPendingStateImpl ps = AionPendingStateImpl.createForTesting((AionRepositoryImpl) repo, bc);
+        Address from = Address.wrap(key.getAddress());
+        Address to = Address.wrap(ECKeyFac.inst().create().getAddress());
+
+        AionTransaction tx = genTransfer(key, 0, to, 1, 10L);
+        assertThat(ps.addPendingTransaction(tx, null)).containsExactly(tx);
+
+        // the same nonce without a higher energy price is refused by the pool
+        AionTransaction samePrice = genTransfer(key, 0, to, 5, 10L);
+        assertThat(ps.addPendingTransaction(samePrice, null)).isEmpty();
+        assertThat(ps.getAdmissionStats().getRejected(Rejection.TXPOOL)).isEqualTo(1);
+
+        // a high energy limit does not buy the replacement a higher rank
+        AionTransaction replacement = new AionTransaction(BigInteger.ZERO.toByteArray(), from, to,
+                BigInteger.valueOf(2).toByteArray(), new byte[0], 1_000_000L, 20L);
+        replacement.sign(key);
+        assertThat(ps.addPendingTransaction(replacement, null)).containsExactly(replacement);
+        assertThat(ps.getPendingTransactions()).contains(replacement);
+        assertThat(ps.getPendingTransactions()).doesNotContain(tx);
+
+        assertThat(replacement.getNrgConsume()).isEqualTo(tx.getNrgConsume());
+
+        // the pending state keeps the replaced tx until it is rebuilt
+        assertThat(ps.getRepository().getBalance(to)).isEqualTo(BigInteger.ONE);
+        assertThat(ps.getRepository().getNonce(from)).isEqualTo(BigInteger.ONE);
+
+        AionTransaction next = genTransfer(key, 1, to, 3, 10L);
+        assertThat(ps.addPendingTransaction(next, null)).containsExactly(next);
+
+        ps.rebuildPendingStateIfStale();
+        assertThat(ps.getRepository().getBalance(to)).isEqualTo(BigInteger.valueOf(5));
+        assertThat(ps.getRepository().getNonce(from)).isEqualTo(BigInteger.valueOf(2));
+    }
+
+    @Test
+    public void testRebuildKeepsFundedTransaction() {
+        AionPendingStateImpl ps = AionPendingStateImpl.createForTesting((AionRepositoryImpl) repo, bc);
+        ECKey funded = ECKeyFac.inst().create();
+        Address fundedAddr = Address.wrap(funded.getAddress());
+        Address to = Address.wrap(ECKeyFac.inst().create().getAddress());
+
+        // the spending of the funded account depends on its funding
+        AionTransaction funding = genTransfer(key, 0, fundedAddr, 1_000_000, 10L);
+        assertThat(ps.addPendingTransaction(funding, null)).containsExactly(funding);
+        AionTransaction spend = genTransfer(funded, 0, to, 1, 10L);
+        assertThat(ps.addPendingTransaction(spend, null)).containsExactly(spend);
+
+        // replacing a later tx of the funder marks the pending state stale
+        AionTransaction next = genTransfer(key, 1, to, 1, 10L);
+        assertThat(ps.addPendingTransaction(next, null)).containsExactly(next);
+        AionTransaction replacement = genTransfer(key, 1, to, 2, 20L);
+        assertThat(ps.addPendingTransaction(replacement, null)).containsExactly(replacement);
+
+        ps.rebuildPendingStateIfStale();
+        assertThat(ps.getPendingTransactions()).containsAllOf(funding, spend, replacement);
+        assertThat(ps.getRepository().getNonce(fundedAddr)).isEqualTo(BigInteger.ONE);
+        assertThat(ps.getRepository().getBalance(to)).isEqualTo(BigInteger.valueOf(3));
+    }
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKeyFac;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Tests for the header-only paths of {@link AionBlockStore}.
+ */
+public class AionBlockStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockDB indexDB;
+    private MockDB blockDB;
+    private MockDB headerDB;
+    private AionBlockStore store;
+    private List<AionBlock> chain;
+
+    @Before
+    public void setup() {
+        indexDB = open("index");
+        blockDB = open("block");
+        headerDB = open("header");
+        store = new AionBlockStore(indexDB, blockDB, headerDB);
+
+        chain = new ArrayList<>();
+        byte[] parentHash = new byte[32];
+        for (int i = 0; i < 5; i++) {
+            A0BlockHeader header = new A0BlockHeader.Builder()
+                    .withParentHash(parentHash)
+                    .withNumber(i)
+                    .withTimestamp(1000 + i)
+                    .withDifficulty(BigInteger.TEN)
+                    .build();
+            AionBlock block = new AionBlock(header, Collections.emptyList());
+            store.saveBlock(block, BigInteger.TEN.multiply(BigInteger.valueOf(i + 1)), true);
+            chain.add(block);
+            parentHash = block.getHash();
+        }
+        store.flush();
+    }
+
+    private static MockDB open(String name) {
+        MockDB db = new MockDB(name);
+        db.open();
+        return db;
+    }
+
+    @Test
+    public void testHeaderLookups() {
+        for (AionBlock block : chain) {
+            A0BlockHeader byHash = store.getHeaderByHash(block.getHash());
+            assertThat(byHash).isNotNull();
+            assertThat(byHash.getNumber()).isEqualTo(block.getNumber());
+
+            A0BlockHeader byNumber = store.getChainHeaderByNumber(block.getNumber());
+            assertThat(byNumber.getHash()).isEqualTo(block.getHash());
+
+            assertThat(store.isBlockExist(block.getHash())).isTrue();
+        }
+        assertThat(store.getHeaderByHash(new byte[32])).isNull();
+        assertThat(store.isBlockExist(new byte[32])).isFalse();
+        assertThat(store.getChainHeaderByNumber(5)).isNull();
+    }
+
+    @Test
+    public void testBranchHashAndDifficulty() {
+        AionBlock head = chain.get(4);
+        assertThat(store.getBlockHashByNumber(1, head.getHash())).isEqualTo(chain.get(1).getHash());
+        assertThat(store.getBlockHashByNumber(4, head.getHash())).isEqualTo(head.getHash());
+        assertThat(store.getTotalDifficultyForHash(head.getHash())).isEqualTo(BigInteger.valueOf(50));
+    }
+
+    @Test
+    public void testListHeadersEndWith() {
+        List<A0BlockHeader> headers = store.getListHeadersEndWith(chain.get(4).getHash(), 3);
+        assertThat(headers.size()).isEqualTo(3);
+        assertThat(headers.get(0).getNumber()).isEqualTo(4L);
+        assertThat(headers.get(2).getNumber()).isEqualTo(2L);
+
+        List<byte[]> hashes = store.getListHashesEndWith(chain.get(1).getHash(), 10);
+        assertThat(hashes.size()).isEqualTo(2);
+        assertThat(hashes.get(1)).isEqualTo(chain.get(0).getHash());
+    }
+
+    @Test
+    public void testHeaderFallbackToBlocks() {
+        // a store opened over an existing block database without headers
+        MockDB emptyHeaders = open("header2");
+        AionBlockStore legacy = new AionBlockStore(indexDB, blockDB, emptyHeaders);
+
+        AionBlock block = chain.get(2);
+        A0BlockHeader header = legacy.getHeaderByHash(block.getHash());
+        assertThat(header).isNotNull();
+        assertThat(header.getHash()).isEqualTo(block.getHash());
+
+        legacy.flush();
+        assertThat(emptyHeaders.get(block.getHash()).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testRevertRemovesHeaders() {
+        store.revert(2);
+        store.flush();
+
+        assertThat(store.isBlockExist(chain.get(3).getHash())).isFalse();
+        assertThat(store.isBlockExist(chain.get(4).getHash())).isFalse();
+        assertThat(store.getHeaderByHash(chain.get(4).getHash())).isNull();
+        assertThat(headerDB.get(chain.get(4).getHash()).isPresent()).isFalse();
+        assertThat(store.getBestBlock().getHash()).isEqualTo(chain.get(2).getHash());
+    }
+
+    @Test
+    public void testDecodedBlockCache() {
+        byte[] hash = chain.get(3).getHash();
+        AionBlock block = store.getChainBlockByNumber(3);
+        assertThat(block.getHash()).isEqualTo(hash);
+
+        // changes to a returned block or header do not reach the cache
+        block.getHeader().setEnergyConsumed(block.getNrgConsumed() + 1);
+        store.getHeaderByHash(hash).setEnergyConsumed(block.getNrgConsumed() + 1);
+
+        long hits = store.getBlockCacheStats().hitCount();
+        AionBlock cached = store.getBlockByHash(hash);
+        assertThat(store.getBlockCacheStats().hitCount()).isEqualTo(hits + 1);
+        assertThat(cached).isNotSameAs(block);
+        assertThat(cached.getHash()).isEqualTo(hash);
+        assertThat(store.getHeaderByHash(hash).getHash()).isEqualTo(hash);
+        assertThat(cached.getEncoded()).isEqualTo(chain.get(3).getEncoded());
+    }
+
+    @Test
+    public void testDecodedBlockCacheCopiesTransactions() {
+        AionTransaction tx = new AionTransaction(BigInteger.ZERO.toByteArray(), Address.ZERO_ADDRESS(),
+                BigInteger.ONE.toByteArray(), ByteUtil.EMPTY_BYTE_ARRAY, 21000L, 1L);
+        tx.sign(ECKeyFac.inst().create());
+        List<AionTransaction> txs = Collections.singletonList(tx);
+
+        A0BlockHeader header = new A0BlockHeader.Builder()
+                .withParentHash(chain.get(4).getHash())
+                .withNumber(5)
+                .withTimestamp(1005)
+                .withDifficulty(BigInteger.TEN)
+                .withTxTrieRoot(AionBlockchainImpl.calcTxTrie(txs))
+                .build();
+        AionBlock block = new AionBlock(header, txs);
+        store.saveBlock(block, BigInteger.valueOf(60), true);
+
+        // changes to a returned transaction do not reach the cache
+        AionTransaction returned = store.getBlockByHash(block.getHash()).getTransactionsList().get(0);
+        returned.setNrgConsume(21000L);
+        returned.setTxIndexInBlock(7);
+
+        AionTransaction cached = store.getBlockByHash(block.getHash()).getTransactionsList().get(0);
+        assertThat(cached).isNotSameAs(returned);
+        assertThat(cached.getNrgConsume()).isEqualTo(0L);
+        assertThat(cached.getHash()).isEqualTo(tx.getHash());
+    }
+
+    @Test
+    public void testReBranchUpdatesChainLookups() {
+        assertThat(store.getChainBlockByNumber(4).getHash()).isEqualTo(chain.get(4).getHash());
+
+        A0BlockHeader header = new A0BlockHeader.Builder()
+                .withParentHash(chain.get(3).getHash())
+                .withNumber(4)
+                .withTimestamp(2000)
+                .withDifficulty(BigInteger.TEN)
+                .build();
+        AionBlock fork = new AionBlock(header, Collections.emptyList());
+        store.saveBlock(fork, BigInteger.valueOf(60), false);
+        store.reBranch(fork);
+
+        assertThat(store.getChainBlockByNumber(4).getHash()).isEqualTo(fork.getHash());
+        assertThat(store.getChainHeaderByNumber(4).getHash()).isEqualTo(fork.getHash());
+    }
+
+    @Test
+    public void testMainChainLoadedOnInit() {
+        AionBlockStore reopened = new AionBlockStore(indexDB, blockDB, headerDB);
+
+        assertThat(reopened.getMaxNumber()).isEqualTo(4L);
+        assertThat(reopened.getTotalDifficulty()).isEqualTo(BigInteger.valueOf(50));
+        for (AionBlock block : chain) {
+            assertThat(reopened.getBlockHashByNumber(block.getNumber())).isEqualTo(block.getHash());
+        }
+        assertThat(reopened.getListHashesStartWith(3, 10).size()).isEqualTo(2);
+
+        reopened.revert(1);
+        assertThat(reopened.getMaxNumber()).isEqualTo(1L);
+        assertThat(reopened.getTotalDifficulty()).isEqualTo(BigInteger.valueOf(20));
+        assertThat(reopened.getBlockHashByNumber(2)).isNull();
+    }
+
+    @Test
+    public void testArchiveOldBlocks() throws IOException {
+        File archiveDir = folder.newFolder();
+        AionBlockStore archiving = new AionBlockStore(indexDB, blockDB, headerDB, archiveDir, 2);
+        archiving.flush();
+
+        // levels 0 to 2 leave the block database
+        for (int i = 0; i < 5; i++) {
+            assertThat(blockDB.get(chain.get(i).getHash()).isPresent()).isEqualTo(i > 2);
+        }
+
+        AionBlockStore reopened = new AionBlockStore(indexDB, blockDB, headerDB, archiveDir, 2);
+        for (AionBlock block : chain) {
+            AionBlock stored = reopened.getBlockByHash(block.getHash());
+            assertThat(stored).isNotNull();
+            assertThat(stored.getEncoded()).isEqualTo(block.getEncoded());
+        }
+        assertThat(reopened.getChainBlockByNumber(1).getHash()).isEqualTo(chain.get(1).getHash());
+
+        reopened.revert(1);
+        assertThat(reopened.getBlockByHash(chain.get(2).getHash())).isNull();
+        assertThat(reopened.getBlockByHash(chain.get(1).getHash())).isNotNull();
+    }
+}
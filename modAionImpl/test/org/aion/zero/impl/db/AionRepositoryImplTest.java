@@ -36,6 +36,7 @@ package org.aion.zero.impl.db;
 
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.db.IRepositoryConfig;
 import org.aion.base.type.Address;
@@ -362,4 +363,57 @@ public class AionRepositoryImplTest {
         repository.syncToRoot(root);
         assertThat(repository.getBalance(DOG_ACC)).isEqualTo(BigInteger.ONE);
     }
+
+    @Test
+    public void testFrozenSnapshotIgnoresLaterUpdates() {
+        final Address FIRST_ACC = Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE");
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+
+        IRepositoryCache track = repository.startTracking();
+        track.addBalance(FIRST_ACC, BigInteger.ONE);
+        track.flush();
+        repository.flush();
+        final byte[] root = repository.getRoot();
+
+        IRepository snapshot = repository.getFrozenSnapshotTo(root);
+
+        // updates to the live repository must not leak into the frozen view
+        track = repository.startTracking();
+        track.addBalance(FIRST_ACC, BigInteger.ONE);
+        track.flush();
+        repository.flush();
+
+        assertThat(repository.getBalance(FIRST_ACC)).isEqualTo(BigInteger.TWO);
+        assertThat(snapshot.getBalance(FIRST_ACC)).isEqualTo(BigInteger.ONE);
+
+        // closing the view leaves the live repository usable
+        snapshot.close();
+        assertThat(repository.isClosed()).isFalse();
+        assertThat(repository.getBalance(FIRST_ACC)).isEqualTo(BigInteger.TWO);
+    }
+
+    @Test
+    public void testAccountStateAtRoot() {
+        final Address FIRST_ACC = Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE");
+        final Address SECOND_ACC = Address.wrap("BEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEFBEEF");
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+
+        IRepositoryCache track = repository.startTracking();
+        track.addBalance(FIRST_ACC, BigInteger.ONE);
+        track.flush();
+        repository.flush();
+        final byte[] root = repository.getRoot();
+
+        track = repository.startTracking();
+        track.addBalance(FIRST_ACC, BigInteger.ONE);
+        track.addBalance(SECOND_ACC, BigInteger.ONE);
+        track.flush();
+        repository.flush();
+
+        // the old root is read from the live trie
+        assertThat(repository.getAccountState(FIRST_ACC, root).getBalance()).isEqualTo(BigInteger.ONE);
+        assertThat(repository.getAccountState(SECOND_ACC, root)).isNull();
+        assertThat(repository.getAccountState(FIRST_ACC, repository.getRoot()).getBalance())
+                .isEqualTo(BigInteger.TWO);
+    }
 }
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class BlockArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(int value, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (value + i);
+        }
+        return data;
+    }
+
+    private static byte[] read(BlockArchive archive, long number) throws IOException {
+        ByteBuffer buf = archive.get(number);
+        if (buf == null) {
+            return null;
+        }
+        byte[] data = new byte[buf.remaining()];
+        buf.get(data);
+        return data;
+    }
+
+    @Test
+    public void testAppendAcrossSegments() throws IOException {
+        File dir = folder.newFolder();
+        BlockArchive archive = new BlockArchive(dir, 100);
+
+        for (int i = 0; i < 10; i++) {
+            archive.append(i == 4 ? new byte[0] : record(i, 30));
+        }
+        assertThat(archive.size()).isEqualTo(10L);
+
+        for (int i = 0; i < 10; i++) {
+            if (i == 4) {
+                assertThat(read(archive, i)).isNull();
+            } else {
+                assertThat(read(archive, i)).isEqualTo(record(i, 30));
+            }
+        }
+        assertThat(read(archive, 10)).isNull();
+        assertThat(new File(dir, "blocks-000002.seg").exists()).isTrue();
+        assertThat(new File(dir, "blocks-000003.seg").exists()).isFalse();
+        archive.close();
+
+        // the archive is readable after a restart
+        BlockArchive reopened = new BlockArchive(dir, 100);
+        assertThat(reopened.size()).isEqualTo(10L);
+        assertThat(read(reopened, 9)).isEqualTo(record(9, 30));
+        reopened.close();
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        File dir = folder.newFolder();
+        BlockArchive archive = new BlockArchive(dir, 100);
+
+        for (int i = 0; i < 6; i++) {
+            archive.append(record(i, 40));
+        }
+        archive.truncate(3);
+        assertThat(archive.size()).isEqualTo(3L);
+        assertThat(read(archive, 3)).isNull();
+
+        archive.append(record(50, 40));
+        assertThat(read(archive, 2)).isEqualTo(record(2, 40));
+        assertThat(read(archive, 3)).isEqualTo(record(50, 40));
+        archive.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordLargerThanSegment() throws IOException {
+        BlockArchive archive = new BlockArchive(folder.newFolder(), 100);
+        archive.append(new byte[101]);
+    }
+}
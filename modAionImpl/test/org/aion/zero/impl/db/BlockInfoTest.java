@@ -118,4 +118,36 @@ public class BlockInfoTest {
         assertThat(Arrays.equals(info.getHash(), ByteUtil.hexStringToBytes("0xbfd84d03d8726c6b3b9221d2cce051b94900a2b1dd6186838a2bd9c47853e7a8"))).isTrue();
         assertThat(info.mainChain).isTrue();
     }
+
+    @Test
+    public void testBlockInfoCompactSerialization() {
+        AionBlockStore.BlockInfo info = new AionBlockStore.BlockInfo();
+        info.setMainChain(false);
+        info.setCummDifficulty(BigInteger.ONE.shiftLeft(255));
+        info.setHash(DEFAULT_HASH);
+
+        byte[] serialized = AionBlockStore.BLOCK_INFO_SERIALIZER.serialize(Arrays.asList(info, info));
+        assertThat(serialized.length).isEqualTo(1 + 2 * (32 + 1 + 32));
+
+        List<AionBlockStore.BlockInfo> des = AionBlockStore.BLOCK_INFO_SERIALIZER.deserialize(serialized);
+        assertThat(des.size()).isEqualTo(2);
+        assertThat(des.get(1).cummDifficulty).isEqualTo(info.cummDifficulty);
+        assertThat(des.get(1).hash).isEqualTo(info.hash);
+        assertThat(des.get(1).mainChain).isFalse();
+    }
+
+    @Test
+    public void testBlockInfoRlpMigrationSerialization() {
+        AionBlockStore.BlockInfo info = new AionBlockStore.BlockInfo();
+        info.setMainChain(true);
+        info.setCummDifficulty(BigInteger.valueOf(5927284));
+        info.setHash(DEFAULT_HASH);
+
+        byte[] legacy = AionBlockStore.BLOCK_INFO_RLP_SERIALIZER.serialize(Collections.singletonList(info));
+        List<AionBlockStore.BlockInfo> des = AionBlockStore.BLOCK_INFO_SERIALIZER.deserialize(legacy);
+        assertThat(des.size()).isEqualTo(1);
+        assertThat(des.get(0).cummDifficulty).isEqualTo(info.cummDifficulty);
+        assertThat(des.get(0).hash).isEqualTo(info.hash);
+        assertThat(des.get(0).mainChain).isTrue();
+    }
 }
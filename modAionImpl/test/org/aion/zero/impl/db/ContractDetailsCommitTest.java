@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.type.Address;
+import org.aion.db.impl.DBVendor;
+import org.aion.mcf.db.ContractDetailsCacheImpl;
+import org.aion.mcf.vm.types.DataWord;
+import org.aion.zero.db.AionContractDetailsImpl;
+import org.junit.Test;
+
+/**
+ * Checks that committing contract storage in parallel gives the same storage
+ * as committing it one contract after the other.
+ */
+public class ContractDetailsCommitTest {
+
+    private static final int SLOTS = 32;
+
+    private IRepositoryConfig repoConfig = new IRepositoryConfig() {
+        @Override
+        public String[] getVendorList() {
+            return new String[] { DBVendor.MOCKDB.toValue() };
+        }
+
+        @Override
+        public String getActiveVendor() {
+            return DBVendor.MOCKDB.toValue();
+        }
+
+        @Override
+        public String getDbPath() {
+            return "";
+        }
+
+        @Override
+        public int getPrune() {
+            return 0;
+        }
+
+        @Override
+        public IContractDetails contractDetailsImpl() {
+            return ContractDetailsAion.createForTesting(0, 1000000).getDetails();
+        }
+
+        @Override
+        public boolean isAutoCommitEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDbCacheEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDbCompressionEnabled() {
+            return false;
+        }
+
+        @Override
+        public boolean isHeapCacheEnabled() {
+            return true;
+        }
+
+        @Override
+        public String getMaxHeapCacheSize() {
+            return "0";
+        }
+
+        @Override
+        public boolean isHeapCacheStatsEnabled() {
+            return false;
+        }
+    };
+
+    /** Fails the first storage update, as an interrupted parallel commit would. */
+    private static class FailingContractDetails extends AionContractDetailsImpl {
+
+        private boolean failed;
+
+        @Override
+        public void put(DataWord key, DataWord value) {
+            if (!failed) {
+                failed = true;
+                throw new IllegalStateException("storage update failed");
+            }
+            super.put(key, value);
+        }
+    }
+
+    private static Address address(Random random) {
+        byte[] address = new byte[Address.ADDRESS_LEN];
+        random.nextBytes(address);
+        return Address.wrap(address);
+    }
+
+    private static DataWord word(Random random) {
+        byte[] word = new byte[DataWord.BYTES];
+        random.nextBytes(word);
+        return new DataWord(word);
+    }
+
+    private static List<ContractDetailsCacheImpl> createCaches(int count, long seed, int failing) {
+        Random random = new Random(seed);
+        List<ContractDetailsCacheImpl> caches = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AionContractDetailsImpl details = i == failing ? new FailingContractDetails()
+                    : new AionContractDetailsImpl();
+            details.setAddress(address(random));
+
+            ContractDetailsCacheImpl cache = new ContractDetailsCacheImpl(details);
+            for (int j = 0; j < SLOTS; j++) {
+                cache.put(word(random), word(random));
+            }
+            caches.add(cache);
+        }
+        return caches;
+    }
+
+    private static void assertSameStorage(List<ContractDetailsCacheImpl> actual,
+            List<ContractDetailsCacheImpl> expected) {
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).origContract.getStorageHash())
+                    .isEqualTo(expected.get(i).origContract.getStorageHash());
+            assertThat(actual.get(i).origContract.getEncoded()).isEqualTo(expected.get(i).origContract.getEncoded());
+        }
+    }
+
+    private void testCommitMatchesSerial(int count) {
+        List<ContractDetailsCacheImpl> serial = createCaches(count, count, -1);
+        serial.forEach(ContractDetailsCacheImpl::commit);
+
+        List<ContractDetailsCacheImpl> batch = createCaches(count, count, -1);
+        ContractDetailsCacheImpl.commit(batch);
+
+        assertSameStorage(batch, serial);
+    }
+
+    @Test
+    public void testCommitBelowThreshold() {
+        testCommitMatchesSerial(ContractDetailsCacheImpl.PARALLEL_COMMIT_THRESHOLD - 1);
+    }
+
+    @Test
+    public void testCommitAtThreshold() {
+        testCommitMatchesSerial(ContractDetailsCacheImpl.PARALLEL_COMMIT_THRESHOLD);
+    }
+
+    @Test
+    public void testCommitAboveThreshold() {
+        testCommitMatchesSerial(ContractDetailsCacheImpl.PARALLEL_COMMIT_THRESHOLD * 8);
+    }
+
+    @Test
+    public void testCommitFallsBackToSerial() {
+        int count = ContractDetailsCacheImpl.PARALLEL_COMMIT_THRESHOLD * 2;
+        List<ContractDetailsCacheImpl> serial = createCaches(count, 7, -1);
+        serial.forEach(ContractDetailsCacheImpl::commit);
+
+        // the parallel commit fails and the caches are committed again
+        List<ContractDetailsCacheImpl> batch = createCaches(count, 7, count / 2);
+        ContractDetailsCacheImpl.commit(batch);
+
+        assertSameStorage(batch, serial);
+    }
+
+    private void testNewContractsMatchSerial(int count) {
+        Random random = new Random(count);
+        List<Address> contracts = new ArrayList<>();
+        List<DataWord[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            contracts.add(address(random));
+            for (int j = 0; j < SLOTS; j++) {
+                rows.add(new DataWord[] { word(random), word(random) });
+            }
+        }
+
+        // all the new contracts are committed by the same batch
+        AionRepositoryImpl batch = AionRepositoryImpl.createForTesting(repoConfig);
+        IRepositoryCache track = batch.startTracking();
+        for (int i = 0; i < count; i++) {
+            track.addBalance(contracts.get(i), BigInteger.ONE);
+            for (int j = 0; j < SLOTS; j++) {
+                DataWord[] row = rows.get(i * SLOTS + j);
+                track.addStorageRow(contracts.get(i), row[0], row[1]);
+            }
+        }
+        track.flush();
+
+        // one contract per batch takes the serial path
+        AionRepositoryImpl serial = AionRepositoryImpl.createForTesting(repoConfig);
+        for (int i = 0; i < count; i++) {
+            track = serial.startTracking();
+            track.addBalance(contracts.get(i), BigInteger.ONE);
+            for (int j = 0; j < SLOTS; j++) {
+                DataWord[] row = rows.get(i * SLOTS + j);
+                track.addStorageRow(contracts.get(i), row[0], row[1]);
+            }
+            track.flush();
+        }
+
+        assertThat(batch.getRoot()).isEqualTo(serial.getRoot());
+        for (int i = 0; i < count; i++) {
+            assertThat(batch.getContractDetails(contracts.get(i)).getStorageHash())
+                    .isEqualTo(serial.getContractDetails(contracts.get(i)).getStorageHash());
+            for (int j = 0; j < SLOTS; j++) {
+                DataWord[] row = rows.get(i * SLOTS + j);
+                assertThat(batch.getStorageValue(contracts.get(i), row[0])).isEqualTo(row[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testNewContractsBelowThreshold() {
+        testNewContractsMatchSerial(ContractDetailsCacheImpl.PARALLEL_COMMIT_THRESHOLD - 1);
+    }
+
+    @Test
+    public void testNewContractsAboveThreshold() {
+        testNewContractsMatchSerial(ContractDetailsCacheImpl.PARALLEL_COMMIT_THRESHOLD * 4);
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.db;
+
+import org.aion.crypto.HashUtil;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class MainChainIndexTest {
+
+    @Test
+    public void testTotalDifficultyRoundTrip() {
+        MainChainIndex index = new MainChainIndex();
+        BigInteger max = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+        index.set(0, HashUtil.h256(new byte[] { 0 }), BigInteger.ZERO);
+        index.set(1, HashUtil.h256(new byte[] { 1 }), BigInteger.valueOf(255));
+        index.set(2, HashUtil.h256(new byte[] { 2 }), max);
+
+        assertThat(index.getTotalDifficulty(0)).isEqualTo(BigInteger.ZERO);
+        assertThat(index.getTotalDifficulty(1)).isEqualTo(BigInteger.valueOf(255));
+        assertThat(index.getTotalDifficulty(2)).isEqualTo(max);
+        assertThat(index.getHash(2)).isEqualTo(HashUtil.h256(new byte[] { 2 }));
+
+        // a smaller value overwrites the whole slice
+        index.set(2, HashUtil.h256(new byte[] { 2 }), BigInteger.TEN);
+        assertThat(index.getTotalDifficulty(2)).isEqualTo(BigInteger.TEN);
+    }
+
+    @Test
+    public void testLevelsWithoutMainChainBlock() {
+        MainChainIndex index = new MainChainIndex();
+        long level = 70_000L;
+
+        index.set(level, HashUtil.h256(new byte[] { 1 }), BigInteger.TEN);
+        assertThat(index.size()).isEqualTo(level + 1);
+        assertThat(index.getTotalDifficulty(level)).isEqualTo(BigInteger.TEN);
+        assertThat(index.getTotalDifficulty(level - 1)).isNull();
+        assertThat(index.getHash(level - 1)).isNull();
+
+        index.set(level, null, null);
+        assertThat(index.getTotalDifficulty(level)).isNull();
+        assertThat(index.getHash(level)).isNull();
+
+        index.set(level, HashUtil.h256(new byte[] { 1 }), BigInteger.TEN);
+        index.truncate(level);
+        assertThat(index.size()).isEqualTo(level);
+        assertThat(index.getTotalDifficulty(level)).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTotalDifficultyTooLarge() {
+        new MainChainIndex().set(0, HashUtil.h256(new byte[] { 0 }), BigInteger.ONE.shiftLeft(256));
+    }
+}
@@ -0,0 +1,514 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.sync;
+
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.valid.BlockHeaderValidator;
+import org.aion.p2p.Handler;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.blockchain.ChainConfiguration;
+import org.aion.zero.impl.sync.msg.ReqBlocksBodies;
+import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.valid.AionExtraDataRule;
+import org.aion.zero.impl.valid.EnergyConsumedRule;
+import org.aion.zero.impl.valid.EquihashSolutionRule;
+import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Unit tests for the request scheduling, request expiry and block
+ * reassembly of the sync manager
+ */
+public class SyncMgrTest {
+
+    private static final int BLOCKS = 6;
+    private static final int TAKE = 3;
+
+    private static class NodeMock implements INode {
+
+        private final byte[] nodeId;
+        private final long latestBlockNumber;
+
+        NodeMock(String name, long latestBlockNumber) {
+            this.nodeId = HashUtil.h256(name.getBytes());
+            this.latestBlockNumber = latestBlockNumber;
+        }
+
+        @Override
+        public byte[] getId() {
+            return this.nodeId;
+        }
+
+        @Override
+        public int getIdHash() {
+            return Arrays.hashCode(nodeId);
+        }
+
+        @Override
+        public long getBestBlockNumber() {
+            return this.latestBlockNumber;
+        }
+
+        @Override
+        public byte[] getIp() {
+            return new byte[0];
+        }
+
+        @Override
+        public String getIdShort() {
+            return null;
+        }
+
+        @Override
+        public String getIpStr() {
+            return null;
+        }
+
+        @Override
+        public int getPort() {
+            return 0;
+        }
+
+        @Override
+        public long getTotalDifficulty() {
+            return 0;
+        }
+
+        @Override
+        public void updateStatus(long _bestBlockNumber, byte[] _bestBlockHash, long _totalDifficulty) {
+
+        }
+    }
+
+    private static class Sent {
+        final int nodeId;
+        final Msg msg;
+
+        Sent(int nodeId, Msg msg) {
+            this.nodeId = nodeId;
+            this.msg = msg;
+        }
+    }
+
+    private static class P2pMock implements IP2pMgr {
+
+        private final Map<Integer, INode> nodes = new HashMap<>();
+        private final List<Sent> sent = Collections.synchronizedList(new ArrayList<>());
+
+        void add(INode node) {
+            nodes.put(node.getIdHash(), node);
+        }
+
+        /**
+         * @return the messages sent since the last call
+         */
+        List<Sent> drain() {
+            synchronized (sent) {
+                List<Sent> result = new ArrayList<>(sent);
+                sent.clear();
+                return result;
+            }
+        }
+
+        @Override
+        public Map<Integer, INode> getActiveNodes() {
+            return nodes;
+        }
+
+        @Override
+        public INode getRandom() {
+            return null;
+        }
+
+        @Override
+        public void shutdown() {
+
+        }
+
+        @Override
+        public void run() {
+
+        }
+
+        @Override
+        public String version() {
+            return null;
+        }
+
+        @Override
+        public void register(List<Handler> _hs) {
+
+        }
+
+        @Override
+        public void send(int _nodeId, Msg _msg) {
+            sent.add(new Sent(_nodeId, _msg));
+        }
+    }
+
+    /**
+     * Chain configuration without the proof of work rules, matching the
+     * blocks of the simple standalone blockchain
+     */
+    private static ChainConfiguration simpleConfiguration() {
+        return new ChainConfiguration() {
+            @Override
+            public BlockHeaderValidator<A0BlockHeader> createBlockHeaderValidator() {
+                return new BlockHeaderValidator<>(Arrays.asList(
+                        new AionExtraDataRule(this.constants.getMaximumExtraDataSize()), new EnergyConsumedRule()));
+            }
+
+            @Override
+            public EquihashSolutionRule createEquihashSolutionRule() {
+                return new EquihashSolutionRule(null) {
+                    @Override
+                    public boolean validate(A0BlockHeader header) {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean validateAll(List<A0BlockHeader> headers) {
+                        return true;
+                    }
+                };
+            }
+        };
+    }
+
+    private static AionTransaction newTransfer(ECKey sender, long nonce) {
+        AionTransaction tx = new AionTransaction(BigInteger.valueOf(nonce).toByteArray(),
+                Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE"),
+                BigInteger.ONE.toByteArray(), ByteUtil.EMPTY_BYTE_ARRAY, 21000L, 1L);
+        tx.sign(sender);
+        return tx;
+    }
+
+    private List<AionBlock> blocks;
+    private StandaloneBlockchain producer;
+    private StandaloneBlockchain syncer;
+    private P2pMock p2p;
+    private SyncMgr sync;
+
+    @Before
+    public void setup() {
+        List<ECKey> keys = Collections.singletonList(ECKeyFac.inst().create());
+        producer = new StandaloneBlockchain.Builder().withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys).build().bc;
+        syncer = new StandaloneBlockchain.Builder().withValidatorConfiguration("simple")
+                .withDefaultAccounts(keys).build().bc;
+
+        // one transaction per block, so that no two bodies are alike
+        blocks = new ArrayList<>();
+        for (int i = 0; i < BLOCKS; i++) {
+            AionBlock block = producer.createNewBlock(producer.getBestBlock(),
+                    Collections.singletonList(newTransfer(keys.get(0), i)));
+            assertThat(producer.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            blocks.add(block);
+        }
+
+        p2p = new P2pMock();
+        sync = new SyncMgr();
+        sync.setup(p2p, syncer, simpleConfiguration(), TAKE, 100);
+    }
+
+    @After
+    public void shutdown() {
+        sync.shutdown();
+    }
+
+    private List<A0BlockHeader> headers(long from, long to) {
+        return blocks.subList((int) from - 1, (int) to).stream().map(AionBlock::getHeader)
+                .collect(Collectors.toList());
+    }
+
+    private List<byte[]> bodies(long from, long to) {
+        return producer.getListOfBodiesByHashes(
+                blocks.subList((int) from - 1, (int) to).stream().map(AionBlock::getHash).collect(Collectors.toList()));
+    }
+
+    private static void assertHeadersRequest(Sent sent, int nodeId, long from, int take) {
+        assertThat(sent.nodeId).isEqualTo(nodeId);
+        assertThat(sent.msg).isInstanceOf(ReqBlocksHeaders.class);
+        assertThat(((ReqBlocksHeaders) sent.msg).getFromBlock()).isEqualTo(from);
+        assertThat(((ReqBlocksHeaders) sent.msg).getTake()).isEqualTo(take);
+    }
+
+    private static void assertBodiesRequest(Sent sent, int nodeId, List<A0BlockHeader> headers) {
+        assertThat(sent.nodeId).isEqualTo(nodeId);
+        assertThat(sent.msg).isInstanceOf(ReqBlocksBodies.class);
+        List<byte[]> hashes = ((ReqBlocksBodies) sent.msg).getBlocksHashes();
+        assertThat(hashes.size()).isEqualTo(headers.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertThat(hashes.get(i)).isEqualTo(headers.get(i).getHash());
+        }
+    }
+
+    /**
+     * Takes the downloaded blocks in order and imports them
+     */
+    private void importAll() throws InterruptedException {
+        for (int i = 1; i <= BLOCKS; i++) {
+            AionBlock block = sync.takeNextBlock();
+            assertThat(block.getNumber()).isEqualTo((long) i);
+            assertThat(syncer.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        assertThat(syncer.getBestBlock().getHash()).isEqualTo(producer.getBestBlock().getHash());
+    }
+
+    @Test(timeout = 30_000)
+    public void testScheduleAndReassemble() throws InterruptedException {
+        NodeMock a = new NodeMock("a", BLOCKS);
+        NodeMock b = new NodeMock("b", BLOCKS);
+        p2p.add(a);
+        p2p.add(b);
+
+        // the ranges are spread over the idle peers
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        List<Sent> sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(2);
+        assertHeadersRequest(sent.get(0), sent.get(0).nodeId, 1, TAKE);
+        assertHeadersRequest(sent.get(1), sent.get(1).nodeId, 1 + TAKE, TAKE);
+        assertThat(sent.get(0).nodeId).isNotEqualTo(sent.get(1).nodeId);
+        int first = sent.get(0).nodeId;
+        int second = sent.get(1).nodeId;
+
+        // the upper range arrives first, the peer that served the headers is
+        // asked for the bodies
+        sync.validateAndAddHeaders(second, headers(1 + TAKE, BLOCKS));
+        sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(1);
+        assertBodiesRequest(sent.get(0), second, headers(1 + TAKE, BLOCKS));
+        sync.validateAndAddBodies(second, bodies(1 + TAKE, BLOCKS));
+
+        sync.validateAndAddHeaders(first, headers(1, TAKE));
+        sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(1);
+        assertBodiesRequest(sent.get(0), first, headers(1, TAKE));
+        sync.validateAndAddBodies(first, bodies(1, TAKE));
+
+        importAll();
+    }
+
+    @Test(timeout = 30_000)
+    public void testPartialHeadersResponse() throws InterruptedException {
+        NodeMock a = new NodeMock("a", BLOCKS);
+        p2p.add(a);
+
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        List<Sent> sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(2);
+        assertHeadersRequest(sent.get(0), a.getIdHash(), 1, TAKE);
+        assertHeadersRequest(sent.get(1), a.getIdHash(), 1 + TAKE, TAKE);
+
+        // the remainder of the range is requested again
+        sync.validateAndAddHeaders(a.getIdHash(), headers(1, 1));
+        sync.validateAndAddBodies(a.getIdHash(), bodies(1, 1));
+        sync.validateAndAddHeaders(a.getIdHash(), headers(1 + TAKE, BLOCKS));
+        sync.validateAndAddBodies(a.getIdHash(), bodies(1 + TAKE, BLOCKS));
+        p2p.drain();
+
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(1);
+        assertHeadersRequest(sent.get(0), a.getIdHash(), 2, TAKE - 1);
+
+        sync.validateAndAddHeaders(a.getIdHash(), headers(2, TAKE));
+        sync.validateAndAddBodies(a.getIdHash(), bodies(2, TAKE));
+
+        importAll();
+    }
+
+    @Test(timeout = 30_000)
+    public void testExpiredRequestsAreReassigned() throws InterruptedException {
+        NodeMock a = new NodeMock("a", BLOCKS);
+        p2p.add(a);
+
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        p2p.drain();
+        sync.validateAndAddHeaders(a.getIdHash(), headers(1, TAKE));
+        sync.validateAndAddHeaders(a.getIdHash(), headers(1 + TAKE, BLOCKS));
+        assertThat(p2p.drain().size()).isEqualTo(2);
+
+        // both bodies requests time out and go to another peer
+        NodeMock b = new NodeMock("b", BLOCKS);
+        p2p.add(b);
+        sync.expireRequests(p2p.getActiveNodes(), System.currentTimeMillis() + SyncMgr.REQUEST_TIMEOUT + 1);
+        sync.scheduleRequests(Collections.singletonList(b));
+        List<Sent> sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(2);
+        assertThat(sent.stream().allMatch(s -> s.nodeId == b.getIdHash() && s.msg instanceof ReqBlocksBodies))
+                .isTrue();
+
+        // a late response for an expired request is dropped
+        sync.validateAndAddBodies(a.getIdHash(), bodies(1, TAKE));
+
+        // the responses arrive out of order, each is matched to its own
+        // request by the tx trie roots of the headers
+        sync.validateAndAddBodies(b.getIdHash(), bodies(1 + TAKE, BLOCKS));
+        sync.validateAndAddBodies(b.getIdHash(), bodies(1, TAKE));
+
+        // a duplicate response matches no request
+        sync.validateAndAddBodies(b.getIdHash(), bodies(1, TAKE));
+
+        importAll();
+
+        // nothing is left to request
+        sync.expireRequests(p2p.getActiveNodes(), System.currentTimeMillis() + SyncMgr.REQUEST_TIMEOUT + 1);
+        p2p.drain();
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        for (Sent s : p2p.drain()) {
+            assertThat(s.msg).isInstanceOf(ReqBlocksHeaders.class);
+            assertThat(((ReqBlocksHeaders) s.msg).getFromBlock()).isGreaterThan((long) BLOCKS);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void testDisconnectedPeerRequestsAreReassigned() {
+        NodeMock a = new NodeMock("a", BLOCKS);
+        p2p.add(a);
+
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        p2p.drain();
+
+        // the peer leaves before answering
+        p2p.getActiveNodes().clear();
+        NodeMock b = new NodeMock("b", BLOCKS);
+        p2p.add(b);
+        sync.expireRequests(p2p.getActiveNodes(), System.currentTimeMillis());
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        List<Sent> sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(2);
+        assertHeadersRequest(sent.get(0), b.getIdHash(), 1, TAKE);
+        assertHeadersRequest(sent.get(1), b.getIdHash(), 1 + TAKE, TAKE);
+    }
+
+    @Test(timeout = 30_000)
+    public void testRejectedBlockRequeuesHeader() throws InterruptedException {
+        NodeMock a = new NodeMock("a", BLOCKS);
+        p2p.add(a);
+
+        sync.scheduleRequests(p2p.getActiveNodes().values());
+        p2p.drain();
+
+        // the body matches the tx trie root of the header, but carries a
+        // transaction with an invalid signature
+        AionTransaction tx = blocks.get(0).getTransactionsList().get(0);
+        byte[] encoded = tx.getEncoded().clone();
+        encoded[encoded.length - 1] ^= 1;
+        List<AionTransaction> badTxs = Collections.singletonList(new AionTransaction(encoded));
+        A0BlockHeader badHeader = new A0BlockHeader(blocks.get(0).getHeader());
+        badHeader.setTxTrieRoot(AionBlockchainImpl.calcTxTrie(badTxs));
+        AionBlock bad = new AionBlock(badHeader, badTxs);
+
+        sync.validateAndAddHeaders(a.getIdHash(), Collections.singletonList(badHeader));
+        sync.validateAndAddBodies(a.getIdHash(), Collections.singletonList(bad.getEncodedBody()));
+
+        // the header is requested again once the validation fails
+        boolean requested = false;
+        while (!requested) {
+            Thread.sleep(10);
+            sync.scheduleRequests(p2p.getActiveNodes().values());
+            for (Sent s : p2p.drain()) {
+                requested |= s.msg instanceof ReqBlocksHeaders && ((ReqBlocksHeaders) s.msg).getFromBlock() == 1
+                        && ((ReqBlocksHeaders) s.msg).getTake() == 1;
+            }
+        }
+
+        sync.validateAndAddHeaders(a.getIdHash(), headers(1, 1));
+        sync.validateAndAddBodies(a.getIdHash(), bodies(1, 1));
+        sync.validateAndAddHeaders(a.getIdHash(), headers(2, TAKE));
+        sync.validateAndAddBodies(a.getIdHash(), bodies(2, TAKE));
+        sync.validateAndAddHeaders(a.getIdHash(), headers(1 + TAKE, BLOCKS));
+        sync.validateAndAddBodies(a.getIdHash(), bodies(1 + TAKE, BLOCKS));
+
+        importAll();
+    }
+
+    @Test(timeout = 30_000)
+    public void testInvalidHeadersExcludePeer() {
+        List<NodeMock> nodes = new ArrayList<>();
+        for (int i = 0; i <= SyncMgr.MAX_HEADERS_RETRIES + 1; i++) {
+            NodeMock node = new NodeMock("node" + i, BLOCKS);
+            nodes.add(node);
+            p2p.add(node);
+        }
+
+        sync.scheduleRequests(Collections.singletonList(nodes.get(0)));
+        List<Sent> sent = p2p.drain();
+        assertThat(sent.size()).isEqualTo(2);
+        assertHeadersRequest(sent.get(0), nodes.get(0).getIdHash(), 1, TAKE);
+
+        List<A0BlockHeader> invalid = headers(1, TAKE).stream().map(A0BlockHeader::new).collect(Collectors.toList());
+        invalid.get(0).setEnergyConsumed(Long.MAX_VALUE);
+
+        // each invalid response sends the range to a peer that has not
+        // failed yet, until the retries are used up
+        Set<Integer> failed = new HashSet<>();
+        int holder = nodes.get(0).getIdHash();
+        for (int i = 0; i <= SyncMgr.MAX_HEADERS_RETRIES; i++) {
+            sync.validateAndAddHeaders(holder, invalid);
+            failed.add(holder);
+            sync.scheduleRequests(p2p.getActiveNodes().values());
+            sent = p2p.drain();
+            if (i < SyncMgr.MAX_HEADERS_RETRIES) {
+                assertThat(sent.size()).isEqualTo(1);
+                holder = sent.get(0).nodeId;
+                assertThat(failed).doesNotContain(holder);
+                assertHeadersRequest(sent.get(0), holder, 1, TAKE);
+            } else {
+                assertThat(sent).isEmpty();
+            }
+        }
+    }
+}
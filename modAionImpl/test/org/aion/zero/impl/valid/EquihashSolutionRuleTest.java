@@ -45,6 +45,7 @@ import org.junit.Test;
 import org.mockito.MockitoAnnotations;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -85,4 +86,33 @@ public class EquihashSolutionRuleTest {
         assertThat(result).isTrue();
         assertThat(rule.getErrors()).isEmpty();
     }
+
+    private static A0BlockHeader solvedHeader(Equihash equihash, int nonce) {
+        byte[] nonceBytes = new byte[32];
+        nonceBytes[31] = (byte) nonce;
+
+        A0BlockHeader header = new A0BlockHeader.Builder().build();
+        header.setNonce(nonceBytes);
+        int[][] solutions = equihash.getSolutionsForNonce(header.getHeaderBytes(true), header.getNonce());
+        header.setSolution(EquiUtils.getMinimalFromIndices(solutions[0], 21));
+        return header;
+    }
+
+    @Test
+    public void testValidateAll() {
+        Equihash equihash = new Equihash(210, 9);
+        A0BlockHeader first = solvedHeader(equihash, 21);
+        A0BlockHeader second = solvedHeader(equihash, 22);
+
+        EquihashSolutionRule rule = new EquihashSolutionRule(new EquiValidator(210, 9));
+        assertThat(rule.validateAll(Arrays.asList(first, second))).isTrue();
+        assertThat(rule.getErrors()).isEmpty();
+
+        // the solution of the first header does not solve the second
+        second.setSolution(first.getSolution());
+        assertThat(rule.validateAll(Arrays.asList(first, second))).isFalse();
+        assertThat(rule.getErrors()).isNotEmpty();
+        assertThat(rule.validate(second)).isFalse();
+        assertThat(rule.validate(first)).isTrue();
+    }
 }
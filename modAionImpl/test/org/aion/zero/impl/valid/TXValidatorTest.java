@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.zero.impl.valid;
+
+import com.google.common.primitives.Bytes;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.zero.types.AionTransaction;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TXValidatorTest {
+
+    private static AionTransaction newSignedTx(ECKey key) {
+        AionTransaction tx = new AionTransaction(RandomUtils.nextBytes(16),
+                Address.wrap(RandomUtils.nextBytes(32)), RandomUtils.nextBytes(16),
+                RandomUtils.nextBytes(64), 21000L, 1L);
+        tx.sign(key);
+        return tx;
+    }
+
+    @Test
+    public void testValidCachedAcrossInstances() {
+        AionTransaction tx = newSignedTx(ECKeyFac.inst().create());
+        assertThat(tx.isSignatureVerified()).isFalse();
+
+        assertThat(TXValidator.isValid(tx)).isTrue();
+        assertThat(tx.isSignatureVerified()).isTrue();
+
+        // a decoded copy is a new instance, the result is taken from the cache
+        AionTransaction copy = new AionTransaction(tx.getEncoded());
+        assertThat(copy.isSignatureVerified()).isFalse();
+        assertThat(TXValidator.isValid(copy)).isTrue();
+        assertThat(copy.isSignatureVerified()).isTrue();
+    }
+
+    @Test
+    public void testReEncodedTxNotTakenFromCache() {
+        AionTransaction tx = newSignedTx(ECKeyFac.inst().create());
+        assertThat(TXValidator.isValid(tx)).isTrue();
+
+        // change one byte of the signed data, keeping the signature
+        byte[] data = tx.getData();
+        byte[] encoded = tx.getEncoded().clone();
+        int offset = Bytes.indexOf(encoded, data);
+        assertThat(offset).isAtLeast(0);
+        encoded[offset] ^= 1;
+
+        tx.setEncoded(encoded);
+        assertThat(tx.isSignatureVerified()).isFalse();
+        assertThat(TXValidator.isValid(tx)).isFalse();
+        assertThat(TXValidator.isValid(new AionTransaction(encoded))).isFalse();
+    }
+
+    @Test
+    public void testReSignedTxHashIsReset() {
+        AionTransaction tx = newSignedTx(ECKeyFac.inst().create());
+        assertThat(TXValidator.isValid(tx)).isTrue();
+        byte[] hash = tx.getHash();
+
+        tx.sign(ECKeyFac.inst().create());
+        assertThat(tx.isSignatureVerified()).isFalse();
+        assertThat(tx.getHash()).isNotEqualTo(hash);
+        assertThat(tx.getHash()).isEqualTo(new AionTransaction(tx.getEncoded()).getHash());
+        assertThat(TXValidator.isValid(tx)).isTrue();
+    }
+
+    @Test
+    public void testBatchValidation() {
+        ECKey key = ECKeyFac.inst().create();
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            txs.add(newSignedTx(key));
+        }
+
+        assertThat(TXValidator.isValid(txs)).isTrue();
+        for (AionTransaction tx : txs) {
+            assertThat(tx.isSignatureVerified()).isTrue();
+        }
+    }
+
+    @Test
+    public void testBatchValidationWithUnsignedTx() {
+        ECKey key = ECKeyFac.inst().create();
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            txs.add(newSignedTx(key));
+        }
+        txs.add(new AionTransaction(RandomUtils.nextBytes(16), Address.wrap(RandomUtils.nextBytes(32)),
+                RandomUtils.nextBytes(16), RandomUtils.nextBytes(64), 21000L, 1L));
+
+        assertThat(TXValidator.isValid(txs)).isFalse();
+    }
+}
@@ -36,6 +36,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.aion.mcf.account.Keystore;
+import org.aion.mcf.core.AccountState;
 import org.aion.api.server.types.ArgTxCall;
 import org.aion.api.server.types.Fltr;
 import org.aion.api.server.types.SyncInfo;
@@ -282,7 +283,7 @@ public abstract class ApiAion extends Api {
     }
 
     public byte[] getCode(Address addr) {
-        return this.ac.getRepository().getCode(addr);
+        return this.ac.getCode(addr).map(ByteArrayWrapper::getData).orElse(ByteUtil.EMPTY_BYTE_ARRAY);
     }
 
     public TxRecpt getTransactionReceipt(byte[] txHash) {
@@ -395,11 +396,11 @@ public abstract class ApiAion extends Api {
 
     // Transaction Level
     public BigInteger getBalance(String _address) throws Exception {
-        return this.ac.getRepository().getBalance(Address.wrap(_address));
+        return getBalance(Address.wrap(_address));
     }
 
     public BigInteger getBalance(Address _address) {
-        return this.ac.getRepository().getBalance(_address);
+        return this.ac.getAccountState(_address).map(AccountState::getBalance).orElse(BigInteger.ZERO);
     }
 
     public long estimateNrg(ArgTxCall _params) {
@@ -50,6 +50,7 @@ import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionBlockSummary;
 import org.aion.zero.types.AionTransaction;
 import org.aion.zero.types.AionTxReceipt;
+import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.IAionBlock;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -137,19 +138,15 @@ final class ApiWeb3Aion extends ApiAion implements IRpc {
     }
 
     /*
-     * Return a reference to the AIONBlock without converting values to hex
-     * Requied for the mining pool implementation
+     * Return a reference to the block header without converting values to hex
+     * Requied for the mining pool implementation, the block body is not read
      */
-    AionBlock getBlockRaw(int bn) {
-        // long bn = this.parseBnOrId(_bnOrId);
-        AionBlock nb = this.ac.getBlockchain().getBlockByNumber(bn);
-        if (nb == null) {
-            if (LOG.isDebugEnabled())
-                LOG.debug("<get-block-raw bn={} err=not-found>", bn);
-            return null;
-        } else {
-            return nb;
+    A0BlockHeader getHeaderRaw(int bn) {
+        A0BlockHeader header = this.ac.getBlockchain().getHeaderByNumber(bn);
+        if (header == null && LOG.isDebugEnabled()) {
+            LOG.debug("<get-header-raw bn={} err=not-found>", bn);
         }
+        return header;
     }
 
     private JSONObject blockToJson(AionBlock block, BigInteger totalDifficulty, boolean fullTransaction) {
@@ -519,10 +519,9 @@ public final class HttpServer {
                 try {
                     bn = (Integer) params.get(0);
 
-                    AionBlock block = api.getBlockRaw(bn);
+                    A0BlockHeader header = api.getHeaderRaw(bn);
 
-                    if (block != null) {
-                        A0BlockHeader header = block.getHeader();
+                    if (header != null) {
 
                         // Add code (0) to show successful
                         jsonObj.put("code", 0);
@@ -35,16 +35,21 @@
 package org.aion.db.impl;
 
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IRepositoryConfig;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -60,8 +65,8 @@ public abstract class AbstractDB implements IByteArrayKeyValueDatabase {
 
     protected final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-    protected static final int DEFAULT_CACHE_SIZE_BYTES = 128 * 1024 * 1024; // 128mb
-    protected static final int DEFAULT_WRITE_BUFFER_SIZE_BYTES = 10 * 1024 * 1024; // 10mb
+    protected static final int DEFAULT_CACHE_SIZE_BYTES = IRepositoryConfig.DEFAULT_CACHE_SIZE;
+    protected static final int DEFAULT_WRITE_BUFFER_SIZE_BYTES = IRepositoryConfig.DEFAULT_WRITE_BUFFER_SIZE;
 
     protected final String name;
     protected String path = null;
@@ -146,6 +151,32 @@ public abstract class AbstractDB implements IByteArrayKeyValueDatabase {
         }
     }
 
+    /**
+     * Checks that the given key is strictly smaller than the upper bound of an iteration range
+     * using the unsigned lexicographic ordering of the underlying data stores.
+     *
+     * @param to the exclusive upper bound or {@code null} for ranges without an upper bound
+     */
+    protected static boolean isBefore(byte[] key, byte[] to) {
+        return to == null || Arrays.compareUnsigned(key, to) < 0;
+    }
+
+    /**
+     * Returns a view of the entries of a map sorted by unsigned key order that fall within the range {@code [from,
+     * to)}, where {@code null} bounds are not applied.
+     */
+    protected static SortedMap<byte[], byte[]> range(TreeMap<byte[], byte[]> map, byte[] from, byte[] to) {
+        if (from != null && to != null) {
+            return Arrays.compareUnsigned(from, to) < 0 ? map.subMap(from, to) : Collections.emptySortedMap();
+        } else if (from != null) {
+            return map.tailMap(from);
+        } else if (to != null) {
+            return map.headMap(to);
+        } else {
+            return map;
+        }
+    }
+
     /**
      * @inheritDoc
      */
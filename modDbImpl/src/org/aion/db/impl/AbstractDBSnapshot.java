@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.db.impl;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Common functionality for read-only point-in-time views of a database.
+ *
+ * @implNote The vendor specific implementations are responsible for synchronizing the reads from the snapshot
+ *         with the database connection it was taken from and for releasing the snapshot when the database is closed.
+ */
+public abstract class AbstractDBSnapshot implements IByteArrayKeyValueDatabase {
+
+    private final String name;
+    private final String path;
+    private volatile boolean closed = false;
+
+    protected AbstractDBSnapshot(IByteArrayKeyValueDatabase source) {
+        this.name = source.getName().orElse(null);
+        this.path = source.getPath().orElse(null);
+    }
+
+    /**
+     * Releases the resources held by the view. Called at most once, when the snapshot is closed.
+     */
+    protected abstract void release();
+
+    /**
+     * Checks that the snapshot is open.
+     * Throws a {@link RuntimeException} if the snapshot or the database it was taken from is closed.
+     *
+     * @implNote Always do this check after acquiring a lock on the database the snapshot was taken from.
+     */
+    protected void check() {
+        if (!isOpen()) {
+            throw new RuntimeException("Snapshot is not opened: " + this);
+        }
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Updates are not supported by the read-only " + this.toString());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ":<name=" + name + ">";
+    }
+
+    // IDatabase functionality -----------------------------------------------------------------------------------------
+
+    /**
+     * A snapshot cannot be reopened after being closed.
+     *
+     * @return {@code true} if the snapshot is open, {@code false} otherwise
+     */
+    @Override
+    public boolean open() {
+        return isOpen();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        release();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean commit() {
+        throw readOnly();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Optional<String> getName() {
+        return Optional.ofNullable(name);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Optional<String> getPath() {
+        return Optional.ofNullable(path);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean isClosed() {
+        return !isOpen();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean isLocked() {
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean isAutoCommitEnabled() {
+        return true;
+    }
+
+    /**
+     * The view itself is never persisted.
+     */
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean isCreatedOnDisk() {
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public long approximateSize() {
+        check();
+        return -1L;
+    }
+
+    /**
+     * Snapshots cannot be taken from another snapshot.
+     */
+    @Override
+    public IByteArrayKeyValueDatabase snapshot() {
+        throw new UnsupportedOperationException("Snapshots are not supported by " + this.toString());
+    }
+
+    // IKeyValueStore functionality ------------------------------------------------------------------------------------
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public boolean isEmpty() {
+        try (IKeyValueIterator<byte[], byte[]> itr = iterator()) {
+            return !itr.hasNext();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Set<byte[]> keys() {
+        Set<byte[]> keys = new HashSet<>();
+
+        try (IKeyValueIterator<byte[], byte[]> itr = iterator()) {
+            while (itr.hasNext()) {
+                keys.add(itr.next().getKey());
+            }
+        }
+
+        return keys;
+    }
+
+    @Override
+    public void put(byte[] k, byte[] v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void delete(byte[] k) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putBatch(Map<byte[], byte[]> inputMap) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        throw readOnly();
+    }
+}
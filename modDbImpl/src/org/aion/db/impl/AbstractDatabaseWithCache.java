@@ -40,6 +40,7 @@ import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.primitives.Longs;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.aion.log.AionLoggerFactory;
@@ -47,6 +48,7 @@ import org.aion.log.LogEnum;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -72,6 +74,15 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
     /** Keeps track of the entries that have been modified. */
     private Map<ByteArrayWrapper, byte[]> dirtyEntries = null;
 
+    /** The entries detached by {@link #prepareCommit()} which are being written to the database. */
+    private volatile Map<ByteArrayWrapper, byte[]> committingEntries = Collections.emptyMap();
+
+    /** Held from {@link #prepareCommit()} until the detached entries are written, keeps the commits in order. */
+    private final Semaphore commitPermit = new Semaphore(1);
+
+    /** The updates copied by the last {@link #snapshot()}, shared by the following ones until the next change. */
+    private volatile TreeMap<byte[], byte[]> snapshotUpdates = null;
+
     /** The underlying cache max size, will default to DEFAULT_JAVA_CACHE_SIZE at first. */
     private long maxSize;
 
@@ -119,6 +130,12 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
         this.loadingCache = builder.build(new CacheLoader<ByteArrayWrapper, Optional<byte[]>>() {
             @Override
             public Optional<byte[]> load(ByteArrayWrapper keyToLoad) {
+                // the entries being committed are not readable from the data source yet
+                Map<ByteArrayWrapper, byte[]> committing = committingEntries;
+                if (committing.containsKey(keyToLoad)) {
+                    return Optional.ofNullable(committing.get(keyToLoad));
+                }
+
                 // It is safe to say keyToLoad is not null or the data is null.
                 // Load from the data source.
                 return database.get(keyToLoad.getData());
@@ -209,7 +226,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
         boolean open;
 
         try {
-            LOG.debug("init heap cache {} for {}", this.toString(), database.toString());
+            LOG.debug("init heap cache {}", this.toString());
 
             open = database.open();
 
@@ -230,6 +247,8 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
      */
     @Override
     public void close() {
+        // a prepared commit completes before the database is closed
+        commitPermit.acquireUninterruptibly();
         // acquire write lock
         lock.writeLock().lock();
 
@@ -242,6 +261,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
 
             // clear the dirty entries
             dirtyEntries.clear();
+            snapshotUpdates = null;
         } finally {
             // ensuring the db is null after close was called
             loadingCache = null;
@@ -249,6 +269,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
 
             // releasing write lock
             lock.writeLock().unlock();
+            commitPermit.release();
         }
     }
 
@@ -257,6 +278,8 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
      */
     @Override
     public boolean commit() {
+        // a prepared commit completes first, so older changes do not overwrite newer ones
+        commitPermit.acquireUninterruptibly();
         // acquire write lock
         lock.writeLock().lock();
 
@@ -283,16 +306,103 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
 
                     // the dirty entries now match the storage
                     dirtyEntries.clear();
+                    snapshotUpdates = null;
                 }
             }
         } finally {
             // releasing write lock
             lock.writeLock().unlock();
+            commitPermit.release();
         }
 
         return success;
     }
 
+    /**
+     * Detaches the dirty entries, so that they can be written to the database without holding the locks of the
+     * caller. The detached entries stay readable from this instance until they are written. Later changes are
+     * tracked as new dirty entries and committed afterwards.
+     *
+     * @return the commit of the detached entries, which must be either completed or aborted
+     * @implNote A prepared commit blocks the following commits until it is completed or aborted.
+     */
+    PreparedCommit prepareCommit() {
+        commitPermit.acquireUninterruptibly();
+        // acquire write lock
+        lock.writeLock().lock();
+
+        try {
+            check();
+
+            if (!enableAutoCommit && dirtyEntries != null) {
+                committingEntries = dirtyEntries;
+                dirtyEntries = new HashMap<>();
+            }
+        } catch (RuntimeException e) {
+            commitPermit.release();
+            throw e;
+        } finally {
+            // releasing write lock
+            lock.writeLock().unlock();
+        }
+
+        return new PreparedCommit();
+    }
+
+    /**
+     * The dirty entries detached by {@link #prepareCommit()}.
+     */
+    class PreparedCommit {
+
+        private boolean done = false;
+        private boolean written = false;
+
+        /**
+         * Writes the detached entries to the database. When the write fails, the entries which were not changed
+         * again are restored as dirty entries. When it throws, the commit can be repeated.
+         *
+         * @return {@code true} if the entries were written, {@code false} otherwise
+         */
+        boolean commit() {
+            if (done) {
+                return written;
+            }
+
+            Map<ByteArrayWrapper, byte[]> committing = committingEntries;
+            boolean success = committing.isEmpty() || database.commitCache(committing);
+            complete(success);
+            return success;
+        }
+
+        /**
+         * Restores the detached entries as dirty entries, so that they are written by the next commit.
+         */
+        void abort() {
+            if (!done) {
+                complete(false);
+            }
+        }
+
+        private void complete(boolean written) {
+            this.done = true;
+            this.written = written;
+            // acquire write lock
+            lock.writeLock().lock();
+
+            try {
+                if (!written && dirtyEntries != null) {
+                    committingEntries.forEach(dirtyEntries::putIfAbsent);
+                }
+                committingEntries = Collections.emptyMap();
+                snapshotUpdates = null;
+            } finally {
+                // releasing write lock
+                lock.writeLock().unlock();
+                commitPermit.release();
+            }
+        }
+    }
+
     /**
      * @inheritDoc
      */
@@ -383,7 +493,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
 
     @Override
     public String toString() {
-        return this.getClass().getSimpleName() + ":" + propertiesInfo();
+        return this.getClass().getSimpleName() + ":" + propertiesInfo() + " for " + database.toString();
     }
 
     private String propertiesInfo() {
@@ -439,6 +549,11 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
                 }
             }
 
+            // values still being committed are not in the source yet
+            if (isEmpty && committingEntries.values().stream().anyMatch(Objects::nonNull)) {
+                isEmpty = false;
+            }
+
             // so far empty => check the source
             if (isEmpty) {
                 isEmpty = database.isEmpty();
@@ -467,8 +582,10 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
             // add all database keys
             keys.addAll(database.keys());
 
-            // add updated cached keys
-            dirtyEntries.forEach((k, v) -> {
+            // add updated cached keys, the ones being committed first
+            Map<ByteArrayWrapper, byte[]> updates = new HashMap<>(committingEntries);
+            updates.putAll(dirtyEntries);
+            updates.forEach((k, v) -> {
                 if (v == null) {
                     keys.remove(k.getData());
                 } else {
@@ -483,6 +600,74 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
         return keys;
     }
 
+    /**
+     * @inheritDoc
+     *
+     * @implNote The dirty entries in the given range are copied at creation time and merged with the entries
+     *         read lazily from the underlying database. Dirty entries take precedence over the database entries
+     *         with the same key and deleted keys are skipped.
+     */
+    @Override
+    public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        TreeMap<byte[], byte[]> updates = new TreeMap<>(Arrays::compareUnsigned);
+        IKeyValueIterator<byte[], byte[]> stored;
+
+        try {
+            check();
+
+            // the dirty entries override the ones being committed
+            for (Map<ByteArrayWrapper, byte[]> entries : Arrays.asList(committingEntries, dirtyEntries)) {
+                for (Map.Entry<ByteArrayWrapper, byte[]> e : entries.entrySet()) {
+                    byte[] key = e.getKey().getData();
+                    if ((from == null || Arrays.compareUnsigned(key, from) >= 0) && (to == null
+                            || Arrays.compareUnsigned(key, to) < 0)) {
+                        updates.put(key, e.getValue());
+                    }
+                }
+            }
+
+            stored = database.iterator(from, to);
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+
+        return new MergingIterator(stored, updates.entrySet().iterator());
+    }
+
+    /**
+     * @inheritDoc
+     *
+     * @implNote The snapshot combines a snapshot of the underlying database with a copy of the dirty entries. The
+     *         copy is shared by the snapshots taken before the next change.
+     */
+    @Override
+    public IByteArrayKeyValueDatabase snapshot() {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            check();
+
+            // the changes hold the write lock, so the copy cannot be outdated by the time it is stored
+            TreeMap<byte[], byte[]> updates = snapshotUpdates;
+            if (updates == null) {
+                TreeMap<byte[], byte[]> copy = new TreeMap<>(Arrays::compareUnsigned);
+                committingEntries.forEach((k, v) -> copy.put(k.getData(), v));
+                dirtyEntries.forEach((k, v) -> copy.put(k.getData(), v));
+                snapshotUpdates = updates = copy;
+            }
+
+            return new CacheSnapshot(this, database.snapshot(), updates);
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Returns the value from the cache if it exists or if not, loads it from the
      * database given the loader and return that.
@@ -529,6 +714,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
             this.loadingCache.put(key, Optional.ofNullable(v));
             // keeping track of dirty data
             this.dirtyEntries.put(key, v);
+            snapshotUpdates = null;
 
             if (enableAutoCommit) {
                 flushInternal();
@@ -563,6 +749,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
                 // keeping track of dirty data
                 this.dirtyEntries.put(key, value);
             }
+            snapshotUpdates = null;
 
             if (enableAutoCommit) {
                 flushInternal();
@@ -590,6 +777,7 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
                 // keeping track of dirty data
                 this.dirtyEntries.put(key, null);
             }
+            snapshotUpdates = null;
 
             if (enableAutoCommit) {
                 flushInternal();
@@ -614,4 +802,124 @@ public abstract class AbstractDatabaseWithCache implements IByteArrayKeyValueDat
         // the dirty entries now match the storage
         dirtyEntries.clear();
     }
+
+    /**
+     * Merges two cursors ordered by key, giving precedence to the updates and skipping deleted keys.
+     */
+    private static class MergingIterator implements IKeyValueIterator<byte[], byte[]> {
+
+        private final IKeyValueIterator<byte[], byte[]> stored;
+        private final Iterator<Map.Entry<byte[], byte[]>> updates;
+
+        private Map.Entry<byte[], byte[]> nextStored = null;
+        private Map.Entry<byte[], byte[]> nextUpdate = null;
+        private Map.Entry<byte[], byte[]> next = null;
+        private boolean closed = false;
+
+        MergingIterator(IKeyValueIterator<byte[], byte[]> stored, Iterator<Map.Entry<byte[], byte[]>> updates) {
+            this.stored = stored;
+            this.updates = updates;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+
+            while (next == null) {
+                if (nextStored == null && stored.hasNext()) {
+                    nextStored = stored.next();
+                }
+                if (nextUpdate == null && updates.hasNext()) {
+                    nextUpdate = updates.next();
+                }
+
+                if (nextStored == null && nextUpdate == null) {
+                    return false;
+                }
+
+                int cmp = nextStored == null ? 1
+                        : nextUpdate == null ? -1 : Arrays.compareUnsigned(nextStored.getKey(), nextUpdate.getKey());
+
+                if (cmp < 0) {
+                    next = nextStored;
+                    nextStored = null;
+                } else {
+                    if (cmp == 0) {
+                        // the stored value was overwritten
+                        nextStored = null;
+                    }
+                    if (nextUpdate.getValue() != null) {
+                        next = nextUpdate;
+                    }
+                    nextUpdate = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<byte[], byte[]> entry = next;
+            next = null;
+
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            stored.close();
+        }
+    }
+
+    /**
+     * Read-only view combining a snapshot of the underlying database with the dirty entries at the same time.
+     */
+    private static class CacheSnapshot extends AbstractDBSnapshot {
+
+        private final IByteArrayKeyValueDatabase stored;
+        private final TreeMap<byte[], byte[]> updates;
+
+        CacheSnapshot(IByteArrayKeyValueDatabase source, IByteArrayKeyValueDatabase stored,
+                TreeMap<byte[], byte[]> updates) {
+            super(source);
+            this.stored = stored;
+            this.updates = updates;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return super.isOpen() && stored.isOpen();
+        }
+
+        @Override
+        public Optional<byte[]> get(byte[] k) {
+            AbstractDB.check(k);
+            check();
+
+            if (updates.containsKey(k)) {
+                return Optional.ofNullable(updates.get(k));
+            }
+            return stored.get(k);
+        }
+
+        @Override
+        public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+            check();
+
+            return new MergingIterator(stored.iterator(from, to),
+                    AbstractDB.range(updates, from, to).entrySet().iterator());
+        }
+
+        @Override
+        protected void release() {
+            stored.close();
+        }
+    }
 }
@@ -38,6 +38,7 @@ import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.db.impl.h2.H2MVMap;
 import org.aion.db.impl.h2.H2MVMapWithCache;
 import org.aion.db.impl.leveldb.LevelDB;
+import org.aion.db.impl.leveldb.LevelDBConstants;
 import org.aion.db.impl.leveldb.LevelDBWithCache;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.db.impl.mockdb.MockDBWithCache;
@@ -64,6 +65,11 @@ public abstract class DatabaseFactory {
     private static final String PROP_ENABLE_HEAP_CACHE_STATS = "enable_heap_cache_stats";
     private static final String PROP_MAX_HEAP_CACHE_SIZE = "max_heap_cache_size";
 
+    private static final String PROP_MAX_FD_ALLOC = "max_fd_alloc_size";
+    private static final String PROP_BLOCK_SIZE = "block_size";
+    private static final String PROP_WRITE_BUFFER_SIZE = "write_buffer_size";
+    private static final String PROP_CACHE_SIZE = "cache_size";
+
     public static IByteArrayKeyValueDatabase connect(Properties info) {
 
         DBVendor dbType = DBVendor.fromString(info.getProperty(PROP_DB_TYPE));
@@ -110,12 +116,19 @@ public abstract class DatabaseFactory {
         // select database implementation
         switch (dbType) {
             case LEVELDB:
+                int maxOpenFiles = parseInt(info, PROP_MAX_FD_ALLOC, LevelDBConstants.MAX_OPEN_FILES);
+                int blockSize = parseInt(info, PROP_BLOCK_SIZE, LevelDBConstants.BLOCK_SIZE);
+                int writeBufferSize = parseInt(info, PROP_WRITE_BUFFER_SIZE, LevelDBConstants.WRITE_BUFFER_SIZE);
+                int cacheSize = parseInt(info, PROP_CACHE_SIZE, LevelDBConstants.CACHE_SIZE);
+
                 if (enableHeapCache) {
                     return new LevelDBWithCache(dbName, dbPath, enableDbCache, enableDbCompression, enableAutoCommit,
                             info.getProperty(PROP_MAX_HEAP_CACHE_SIZE),
-                            Boolean.parseBoolean(info.getProperty(PROP_ENABLE_HEAP_CACHE_STATS)));
+                            Boolean.parseBoolean(info.getProperty(PROP_ENABLE_HEAP_CACHE_STATS)), maxOpenFiles,
+                            blockSize, writeBufferSize, cacheSize);
                 } else {
-                    return new LevelDB(dbName, dbPath, enableDbCache, enableDbCompression);
+                    return new LevelDB(dbName, dbPath, enableDbCache, enableDbCompression, maxOpenFiles, blockSize,
+                            writeBufferSize, cacheSize);
                 }
             case H2:
                 if (enableHeapCache) {
@@ -133,6 +146,30 @@ public abstract class DatabaseFactory {
         return null;
     }
 
+    /**
+     * Reads a positive integer property, falling back to the given default value when the property is missing or
+     * invalid.
+     */
+    private static int parseInt(Properties info, String key, int defaultValue) {
+        String value = info.getProperty(key);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+
+        LOG.warn("Invalid value {} for database property {}. Using the default value {}.", value, key, defaultValue);
+        return defaultValue;
+    }
+
     public static IByteArrayKeyValueDatabase connect(String driverName, Properties info) {
         try {
             // see if the given name is a valid driver
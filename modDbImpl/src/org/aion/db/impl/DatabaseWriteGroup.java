@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.db.impl;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ParallelExecutor;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Commits the pending changes of a group of related databases in a crash-consistent order.
+ * <p>
+ * The data databases are committed concurrently on the {@link ParallelExecutor} pool, since each one is backed by an
+ * independent store, followed by the index database which acts as the commit marker for the group. If any data
+ * database fails to commit, the index is left untouched so that the last persisted index never references data that
+ * was not written.
+ *
+ * <p>
+ * The changes can also be detached under the locks of the caller by {@link #prepareCommit()} and written later
+ * without them, in the same order.
+ *
+ * @implNote Databases with automatic commits enabled persist their changes on each write and are skipped.
+ */
+public class DatabaseWriteGroup {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    private final List<IByteArrayKeyValueDatabase> data;
+    private final IByteArrayKeyValueDatabase index;
+
+    /**
+     * @param data the databases holding the data referenced by the index
+     * @param index the database committed last, once all the data has been persisted
+     */
+    public DatabaseWriteGroup(Collection<IByteArrayKeyValueDatabase> data, IByteArrayKeyValueDatabase index) {
+        Objects.requireNonNull(data, "The data databases cannot be null.");
+        Objects.requireNonNull(index, "The index database cannot be null.");
+
+        this.data = new ArrayList<>(data);
+        this.index = index;
+    }
+
+    /**
+     * Makes all the pending changes of the group permanent.
+     *
+     * @return {@code true} if all the databases were successfully committed, {@code false} otherwise
+     * @throws RuntimeException if one of the databases is closed
+     */
+    public boolean commit() {
+        return prepareCommit().getAsBoolean();
+    }
+
+    /**
+     * Detaches the pending changes of all the databases of the group at once, so that they form one consistent
+     * point of the group. The detached changes stay readable from the databases and are made permanent when the
+     * returned commit runs, with the index last. Changes made in the meantime are left for the next commit.
+     *
+     * @return the commit of the detached changes, which must be run exactly once
+     * @throws RuntimeException if one of the databases is closed
+     * @implNote Only the databases with a heap cache can detach their changes. The others are committed when the
+     *         returned commit runs.
+     */
+    public BooleanSupplier prepareCommit() {
+        List<BooleanSupplier> dataCommits = new ArrayList<>();
+        BooleanSupplier indexCommit;
+        List<AbstractDatabaseWithCache.PreparedCommit> prepared = new ArrayList<>();
+        try {
+            for (IByteArrayKeyValueDatabase db : data) {
+                dataCommits.add(prepareCommit(db, prepared));
+            }
+            indexCommit = prepareCommit(index, prepared);
+        } catch (RuntimeException e) {
+            prepared.forEach(AbstractDatabaseWithCache.PreparedCommit::abort);
+            throw e;
+        }
+
+        return () -> commit(dataCommits, indexCommit, prepared);
+    }
+
+    private boolean commit(List<BooleanSupplier> dataCommits, BooleanSupplier indexCommit,
+            List<AbstractDatabaseWithCache.PreparedCommit> prepared) {
+        long start = System.nanoTime();
+
+        boolean success;
+        try {
+            // committing is idempotent so a failed parallel commit is simply repeated
+            success = ParallelExecutor.invoke(() -> commitAll(dataCommits.parallelStream()),
+                    () -> commitAll(dataCommits.stream()),
+                    e -> LOG.error("Parallel data commit failed for " + this + ".", e));
+
+            if (success) {
+                success = indexCommit.getAsBoolean();
+            } else {
+                LOG.error("Data commit failed for " + this + ". The index changes were not persisted.");
+            }
+        } finally {
+            // the changes which were not written are kept for the next commit
+            prepared.forEach(AbstractDatabaseWithCache.PreparedCommit::abort);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Group commit for " + this + " took " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        }
+
+        return success;
+    }
+
+    private static BooleanSupplier prepareCommit(IByteArrayKeyValueDatabase db,
+            List<AbstractDatabaseWithCache.PreparedCommit> prepared) {
+        if (db.isAutoCommitEnabled()) {
+            return () -> true;
+        }
+        if (db instanceof AbstractDatabaseWithCache) {
+            AbstractDatabaseWithCache.PreparedCommit commit = ((AbstractDatabaseWithCache) db).prepareCommit();
+            prepared.add(commit);
+            return commit::commit;
+        }
+        return db::commit;
+    }
+
+    private static boolean commitAll(Stream<BooleanSupplier> commits) {
+        return commits.map(BooleanSupplier::getAsBoolean).reduce(true, Boolean::logicalAnd);
+    }
+
+    @Override
+    public String toString() {
+        return "<data=" + data + ",index=" + index + ">";
+    }
+}
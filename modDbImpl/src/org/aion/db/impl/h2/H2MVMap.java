@@ -34,8 +34,12 @@
  ******************************************************************************/
 package org.aion.db.impl.h2;
 
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
+import org.aion.db.impl.AbstractDBSnapshot;
+import org.h2.mvstore.Cursor;
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
@@ -71,6 +75,9 @@ public class H2MVMap extends AbstractDB {
     private MVStore store;
     private MVMap<byte[], byte[]> map; // MVMap implements ConcurrentMap
 
+    /** The number of open snapshots of the store, guarded by this instance. */
+    private int openSnapshots = 0;
+
     public H2MVMap(String name, String path, boolean enableDbCache, boolean enableDbCompression) {
         super(name, path, enableDbCache, enableDbCompression);
 
@@ -202,7 +209,10 @@ public class H2MVMap extends AbstractDB {
             store.closeImmediately();
         } finally {
             // ensuring the store is null after close was called
-            store = null;
+            synchronized (this) {
+                store = null;
+                openSnapshots = 0;
+            }
             map = null; // MVMap automatically closed upon MVStore closing
             // releasing write lock
             lock.writeLock().unlock();
@@ -319,6 +329,25 @@ public class H2MVMap extends AbstractDB {
         return keys;
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            check();
+
+            // the cursor reads from the version of the map that is current at creation time
+            return new H2MVMapIterator(map.cursor(from), to);
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * @inheritDoc
      */
@@ -462,6 +491,56 @@ public class H2MVMap extends AbstractDB {
         }
     }
 
+    /**
+     * @inheritDoc
+     *
+     * @implNote The snapshot is a read-only version of the map. Versions are copy-on-write, therefore later updates
+     *         do not affect the snapshot. The chunks of the file are not reused while a snapshot is open, so that the
+     *         pages of its version are not overwritten by later commits.
+     */
+    @Override
+    public IByteArrayKeyValueDatabase snapshot() {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            check();
+
+            retainChunks();
+            try {
+                return new H2MVMapSnapshot(store, map.openVersion(store.getCurrentVersion()));
+            } catch (RuntimeException e) {
+                releaseChunks(store);
+                throw e;
+            }
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the store from overwriting the chunks of old versions while snapshots are open.
+     */
+    private synchronized void retainChunks() {
+        if (openSnapshots++ == 0) {
+            store.setReuseSpace(false);
+        }
+    }
+
+    /**
+     * Lets the store reuse the chunks of old versions once the last snapshot of it is closed.
+     */
+    private synchronized void releaseChunks(MVStore pinned) {
+        // the count is reset when the store is closed
+        if (pinned != store) {
+            return;
+        }
+        if (--openSnapshots == 0) {
+            store.setReuseSpace(true);
+        }
+    }
+
     // AbstractDB functionality ----------------------------------------------------------------------------------------
 
     public boolean commitCache(Map<ByteArrayWrapper, byte[]> cache) {
@@ -493,6 +572,130 @@ public class H2MVMap extends AbstractDB {
         return success;
     }
 
+    /**
+     * Cursor backed by a {@link Cursor} over the map that stops at the exclusive upper bound of the range.
+     *
+     * @implNote The database read lock is acquired on each access to ensure the cursor is not used after the
+     *         database was closed.
+     */
+    private class H2MVMapIterator implements IKeyValueIterator<byte[], byte[]> {
+
+        private final Cursor<byte[], byte[]> cursor;
+        private final byte[] to;
+        private byte[] nextKey = null;
+        private boolean closed = false;
+
+        H2MVMapIterator(Cursor<byte[], byte[]> cursor, byte[] to) {
+            this.cursor = cursor;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                if (closed || map == null) {
+                    return false;
+                }
+
+                // the cursor cannot peek, so the next key is retrieved once and stored
+                if (nextKey == null && cursor.hasNext()) {
+                    nextKey = cursor.next();
+                }
+
+                return nextKey != null && isBefore(nextKey, to);
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Map.Entry<byte[], byte[]> entry = new AbstractMap.SimpleImmutableEntry<>(nextKey, cursor.getValue());
+                nextKey = null;
+
+                return entry;
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Read-only view backed by an immutable version of the map.
+     */
+    private class H2MVMapSnapshot extends AbstractDBSnapshot {
+
+        private final MVStore pinned;
+        private final MVMap<byte[], byte[]> version;
+
+        H2MVMapSnapshot(MVStore pinned, MVMap<byte[], byte[]> version) {
+            super(H2MVMap.this);
+            this.pinned = pinned;
+            this.version = version;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return super.isOpen() && H2MVMap.this.isOpen();
+        }
+
+        @Override
+        public Optional<byte[]> get(byte[] k) {
+            AbstractDB.check(k);
+
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                check();
+
+                return Optional.ofNullable(version.get(k));
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                check();
+
+                return new H2MVMapIterator(version.cursor(from), to);
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        protected void release() {
+            // the map version is reclaimed by the garbage collector
+            releaseChunks(pinned);
+        }
+    }
+
     // TODO: Find a way to expose flush() and compact() up to the application level
 
     /**
@@ -34,14 +34,18 @@
  ******************************************************************************/
 package org.aion.db.impl.leveldb;
 
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
+import org.aion.db.impl.AbstractDBSnapshot;
 import org.fusesource.leveldbjni.JniDBFactory;
 import org.iq80.leveldb.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @implNote The read-write lock is used only for those operations that are not synchronized
@@ -50,9 +54,29 @@ import java.util.*;
 public class LevelDB extends AbstractDB {
 
     private DB db;
+    /** Open cursors that must be released before the native database can be closed. */
+    private final Set<LevelDBIterator> iterators = ConcurrentHashMap.newKeySet();
+    /** Open snapshots that must be released before the native database can be closed. */
+    private final Set<LevelDBSnapshot> snapshots = ConcurrentHashMap.newKeySet();
+
+    private final int maxOpenFiles;
+    private final int blockSize;
+    private final int writeBufferSize;
+    private final int cacheSize;
 
     public LevelDB(String name, String path, boolean enableCache, boolean enableCompression) {
+        this(name, path, enableCache, enableCompression, LevelDBConstants.MAX_OPEN_FILES, LevelDBConstants.BLOCK_SIZE,
+                LevelDBConstants.WRITE_BUFFER_SIZE, LevelDBConstants.CACHE_SIZE);
+    }
+
+    public LevelDB(String name, String path, boolean enableCache, boolean enableCompression, int maxOpenFiles,
+            int blockSize, int writeBufferSize, int cacheSize) {
         super(name, path, enableCache, enableCompression);
+
+        this.maxOpenFiles = maxOpenFiles;
+        this.blockSize = blockSize;
+        this.writeBufferSize = writeBufferSize;
+        this.cacheSize = cacheSize;
     }
 
     @Override
@@ -60,17 +84,23 @@ public class LevelDB extends AbstractDB {
         return this.getClass().getSimpleName() + ":" + propertiesInfo();
     }
 
+    @Override
+    protected String propertiesInfo() {
+        return super.propertiesInfo() + "<max_fd_alloc_size=" + maxOpenFiles + ",block_size=" + blockSize + //
+                ",write_buffer_size=" + writeBufferSize + ",cache_size=" + cacheSize + ">"; //
+    }
+
     private Options setupLevelDbOptions() {
         Options options = new Options();
 
         options.createIfMissing(true);
         options.compressionType(enableDbCompression ? CompressionType.SNAPPY : CompressionType.NONE);
-        options.blockSize(10 * 1024 * 1024);
-        options.writeBufferSize(DEFAULT_WRITE_BUFFER_SIZE_BYTES); // (levelDb default: 8mb)
-        options.cacheSize(enableDbCache ? DEFAULT_CACHE_SIZE_BYTES : 0);
+        options.blockSize(blockSize);
+        options.writeBufferSize(writeBufferSize);
+        options.cacheSize(enableDbCache ? cacheSize : 0);
         options.paranoidChecks(true);
         options.verifyChecksums(true);
-        options.maxOpenFiles(32);
+        options.maxOpenFiles(maxOpenFiles);
 
         return options;
     }
@@ -149,6 +179,14 @@ public class LevelDB extends AbstractDB {
         }
 
         try {
+            // native iterators must be released before the database
+            for (LevelDBIterator itr : new ArrayList<>(iterators)) {
+                itr.closeInternal();
+            }
+            for (LevelDBSnapshot snapshot : new ArrayList<>(snapshots)) {
+                snapshot.close();
+            }
+
             // attempt to close the database
             db.close();
         } catch (IOException e) {
@@ -290,6 +328,45 @@ public class LevelDB extends AbstractDB {
         return set;
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            check();
+
+            // bulk scans should not evict the blocks used by point lookups
+            return openIterator(new ReadOptions().fillCache(false), from, to);
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a cursor over the given range and registers it for release on close.
+     *
+     * @apiNote This method should be used where read locks have already been acquired.
+     */
+    private IKeyValueIterator<byte[], byte[]> openIterator(ReadOptions options, byte[] from, byte[] to) {
+        DBIterator itr = db.iterator(options);
+
+        if (from == null) {
+            itr.seekToFirst();
+        } else {
+            itr.seek(from);
+        }
+
+        LevelDBIterator cursor = new LevelDBIterator(itr, to);
+        iterators.add(cursor);
+
+        return cursor;
+    }
+
     /**
      * @inheritDoc
      */
@@ -429,6 +506,27 @@ public class LevelDB extends AbstractDB {
         }
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public IByteArrayKeyValueDatabase snapshot() {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            check();
+
+            LevelDBSnapshot snapshot = new LevelDBSnapshot(db.getSnapshot());
+            snapshots.add(snapshot);
+
+            return snapshot;
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
     // AbstractDB functionality ----------------------------------------------------------------------------------------
 
     public boolean commitCache(Map<ByteArrayWrapper, byte[]> cache) {
@@ -468,4 +566,139 @@ public class LevelDB extends AbstractDB {
         return success;
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Cursor backed by a native {@link DBIterator} that stops at the exclusive upper bound of the range.
+     *
+     * @implNote The database read lock is acquired on each access to ensure the native iterator is not used after
+     *         the database was closed. Open cursors are closed together with the database.
+     */
+    private class LevelDBIterator implements IKeyValueIterator<byte[], byte[]> {
+
+        private final DBIterator itr;
+        private final byte[] to;
+        private boolean closed = false;
+
+        LevelDBIterator(DBIterator itr, byte[] to) {
+            this.itr = itr;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                return !closed && itr.hasNext() && isBefore(itr.peekNext().getKey(), to);
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                if (closed || !itr.hasNext() || !isBefore(itr.peekNext().getKey(), to)) {
+                    throw new NoSuchElementException();
+                }
+
+                return itr.next();
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                closeInternal();
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        private void closeInternal() {
+            if (!closed) {
+                closed = true;
+                iterators.remove(this);
+
+                try {
+                    itr.close();
+                } catch (IOException e) {
+                    LOG.error("Unable to close iterator over " + LevelDB.this.toString() + ".", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read-only view backed by a native LevelDB {@link Snapshot}.
+     */
+    private class LevelDBSnapshot extends AbstractDBSnapshot {
+
+        private final Snapshot snapshot;
+
+        LevelDBSnapshot(Snapshot snapshot) {
+            super(LevelDB.this);
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public Optional<byte[]> get(byte[] k) {
+            AbstractDB.check(k);
+
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                check();
+
+                return Optional.ofNullable(db.get(k, new ReadOptions().snapshot(snapshot)));
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+            // acquire read lock
+            lock.readLock().lock();
+
+            try {
+                check();
+
+                return openIterator(new ReadOptions().snapshot(snapshot).fillCache(false), from, to);
+            } finally {
+                // releasing read lock
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        protected void release() {
+            // acquire write lock to ensure no reads are in progress
+            lock.writeLock().lock();
+
+            try {
+                snapshots.remove(this);
+                snapshot.close();
+            } catch (IOException e) {
+                LOG.error("Unable to release snapshot of " + LevelDB.this.toString() + ".", e);
+            } finally {
+                // releasing write lock
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.db.impl.leveldb;
+
+import org.aion.base.db.IRepositoryConfig;
+
+/**
+ * Default tuning parameters for {@link LevelDB} instances.
+ */
+public class LevelDBConstants {
+
+    public static final int MAX_OPEN_FILES = IRepositoryConfig.DEFAULT_MAX_FD_ALLOC_SIZE;
+    public static final int BLOCK_SIZE = IRepositoryConfig.DEFAULT_BLOCK_SIZE;
+    public static final int WRITE_BUFFER_SIZE = IRepositoryConfig.DEFAULT_WRITE_BUFFER_SIZE;
+    public static final int CACHE_SIZE = IRepositoryConfig.DEFAULT_CACHE_SIZE;
+
+    private LevelDBConstants() {
+    }
+}
@@ -45,4 +45,14 @@ public class LevelDBWithCache extends AbstractDatabaseWithCache {
         // the underlying database will always commit
         database = new LevelDB(name, path, enableCache, enableCompression);
     }
+
+    public LevelDBWithCache(String name, String path, boolean enableCache, boolean enableCompression,
+            boolean enableAutoCommit, String max_cache_size, boolean enableStats, int maxOpenFiles, int blockSize,
+            int writeBufferSize, int cacheSize) {
+        // when to commit is directed by this implementation
+        super(enableAutoCommit, max_cache_size, enableStats);
+        // the underlying database will always commit
+        database = new LevelDB(name, path, enableCache, enableCompression, maxOpenFiles, blockSize, writeBufferSize,
+                cacheSize);
+    }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package org.aion.db.impl.mockdb;
 
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
+import org.aion.db.impl.AbstractDBSnapshot;
 
 import java.util.*;
 
@@ -160,6 +163,36 @@ public class MockDB extends AbstractDB {
         return set;
     }
 
+    /**
+     * @inheritDoc
+     *
+     * @implNote The entries in the given range are copied at creation time since the in-memory map has no
+     *         ordering of its own.
+     */
+    @Override
+    public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        TreeMap<byte[], byte[]> range = new TreeMap<>(Arrays::compareUnsigned);
+
+        try {
+            check();
+
+            for (Map.Entry<ByteArrayWrapper, byte[]> e : kv.entrySet()) {
+                byte[] key = e.getKey().getData();
+                if ((from == null || Arrays.compareUnsigned(key, from) >= 0) && isBefore(key, to)) {
+                    range.put(key, e.getValue());
+                }
+            }
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+
+        return new MockDBIterator(range.entrySet().iterator());
+    }
+
     /**
      * @inheritDoc
      */
@@ -285,6 +318,30 @@ public class MockDB extends AbstractDB {
         }
     }
 
+    /**
+     * @inheritDoc
+     *
+     * @implNote The snapshot holds a copy of all the entries in the database.
+     */
+    @Override
+    public IByteArrayKeyValueDatabase snapshot() {
+        // acquire read lock
+        lock.readLock().lock();
+
+        TreeMap<byte[], byte[]> data = new TreeMap<>(Arrays::compareUnsigned);
+
+        try {
+            check();
+
+            kv.forEach((k, v) -> data.put(k.getData(), v));
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+
+        return new MockDBSnapshot(data);
+    }
+
     // AbstractDB functionality ----------------------------------------------------------------------------------------
 
     public boolean commitCache(Map<ByteArrayWrapper, byte[]> cache) {
@@ -315,10 +372,73 @@ public class MockDB extends AbstractDB {
 
         return success;
     }
-}
 
+    /**
+     * Cursor over a copy of the entries in a range.
+     */
+    private static class MockDBIterator implements IKeyValueIterator<byte[], byte[]> {
 
+        private final Iterator<Map.Entry<byte[], byte[]>> itr;
+        private boolean closed = false;
 
+        MockDBIterator(Iterator<Map.Entry<byte[], byte[]>> itr) {
+            this.itr = itr;
+        }
 
+        @Override
+        public boolean hasNext() {
+            return !closed && itr.hasNext();
+        }
 
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            if (closed) {
+                throw new NoSuchElementException();
+            }
+            return itr.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Read-only view backed by a copy of the entries in the database.
+     */
+    private class MockDBSnapshot extends AbstractDBSnapshot {
 
+        private final TreeMap<byte[], byte[]> data;
+
+        MockDBSnapshot(TreeMap<byte[], byte[]> data) {
+            super(MockDB.this);
+            this.data = data;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return super.isOpen() && MockDB.this.isOpen();
+        }
+
+        @Override
+        public Optional<byte[]> get(byte[] k) {
+            AbstractDB.check(k);
+            check();
+
+            return Optional.ofNullable(data.get(k));
+        }
+
+        @Override
+        public IKeyValueIterator<byte[], byte[]> iterator(byte[] from, byte[] to) {
+            check();
+
+            return new MockDBIterator(range(data, from, to).entrySet().iterator());
+        }
+
+        @Override
+        protected void release() {
+            data.clear();
+        }
+    }
+}
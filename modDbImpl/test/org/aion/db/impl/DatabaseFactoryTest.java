@@ -37,6 +37,9 @@ package org.aion.db.impl;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.db.impl.DBVendor;
 import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.leveldb.LevelDB;
+import org.aion.db.impl.leveldb.LevelDBConstants;
+import org.aion.db.impl.leveldb.LevelDBWithCache;
 import org.aion.db.impl.mockdb.MockDB;
 import org.aion.db.impl.mockdb.MockDBDriver;
 import org.junit.Test;
@@ -46,6 +49,7 @@ import java.util.Properties;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class DatabaseFactoryTest {
 
@@ -111,4 +115,41 @@ public class DatabaseFactoryTest {
         // System.out.println(db);
         assertNull(db);
     }
+
+    @Test
+    public void testDriverWithTuningProperties() {
+        Properties props = new Properties();
+        props.setProperty("db_name", dbName);
+        props.setProperty("db_path", dbPath);
+        props.setProperty("db_type", DBVendor.LEVELDB.toValue());
+
+        props.setProperty("max_fd_alloc_size", "256");
+        props.setProperty("block_size", "16384");
+        props.setProperty("write_buffer_size", "4194304");
+        // invalid values fall back to the defaults
+        props.setProperty("cache_size", "not a number");
+
+        String tuning = "<max_fd_alloc_size=256,block_size=16384,write_buffer_size=4194304,cache_size="
+                + LevelDBConstants.CACHE_SIZE + ">";
+
+        IByteArrayKeyValueDatabase db = DatabaseFactory.connect(props);
+        assertNotNull(db);
+        assertTrue(db instanceof LevelDB);
+        assertTrue(db.toString().endsWith(tuning));
+
+        props.setProperty("enable_heap_cache", "true");
+        db = DatabaseFactory.connect(props);
+        assertNotNull(db);
+        assertTrue(db instanceof LevelDBWithCache);
+        assertTrue(db.toString().endsWith(tuning));
+
+        // without the properties the defaults are used
+        props.remove("max_fd_alloc_size");
+        props.remove("block_size");
+        props.remove("write_buffer_size");
+        db = DatabaseFactory.connect(props);
+        assertTrue(db.toString().endsWith("<max_fd_alloc_size=" + LevelDBConstants.MAX_OPEN_FILES + ",block_size="
+                + LevelDBConstants.BLOCK_SIZE + ",write_buffer_size=" + LevelDBConstants.WRITE_BUFFER_SIZE
+                + ",cache_size=" + LevelDBConstants.CACHE_SIZE + ">"));
+    }
 }
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.db.impl;
+
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.db.impl.leveldb.LevelDB;
+import org.aion.db.impl.leveldb.LevelDBWithCache;
+import org.aion.db.utils.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DatabaseWriteGroupTest {
+
+    private static final File testDir = new File(System.getProperty("user.dir"), "tmp-group");
+    private static final String dbPath = testDir.getAbsolutePath();
+    private static final String unboundHeapCache = "0";
+
+    private static final byte[] k1 = "key1".getBytes();
+    private static final byte[] v1 = "value1".getBytes();
+    private static final byte[] k2 = "key2".getBytes();
+    private static final byte[] v2 = "value2".getBytes();
+
+    private IByteArrayKeyValueDatabase state, block, index;
+
+    @Before
+    public void setup() {
+        assertThat(FileUtils.deleteRecursively(testDir)).isTrue();
+        assertThat(testDir.mkdirs()).isTrue();
+
+        state = new LevelDBWithCache("state", dbPath, false, false, false, unboundHeapCache, false);
+        block = new LevelDBWithCache("block", dbPath, false, false, false, unboundHeapCache, false);
+        index = new LevelDBWithCache("index", dbPath, false, false, false, unboundHeapCache, false);
+
+        for (IByteArrayKeyValueDatabase db : Arrays.asList(state, block, index)) {
+            assertThat(db.open()).isTrue();
+        }
+    }
+
+    @After
+    public void teardown() {
+        for (IByteArrayKeyValueDatabase db : Arrays.asList(state, block, index)) {
+            db.close();
+        }
+        assertThat(FileUtils.deleteRecursively(testDir)).isTrue();
+    }
+
+    /**
+     * Reads the given key directly from disk.
+     */
+    private static byte[] persisted(String name, byte[] key) {
+        IByteArrayKeyValueDatabase db = new LevelDB(name, dbPath, false, false);
+        assertThat(db.open()).isTrue();
+        try {
+            return db.get(key).orElse(null);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testCommit() {
+        state.put(k1, v1);
+        block.put(k1, v1);
+        index.put(k2, v2);
+
+        DatabaseWriteGroup group = new DatabaseWriteGroup(Arrays.asList(state, block), index);
+        assertThat(group.commit()).isTrue();
+
+        List<IByteArrayKeyValueDatabase> all = Arrays.asList(state, block, index);
+        for (IByteArrayKeyValueDatabase db : all) {
+            db.close();
+        }
+
+        assertThat(persisted("state", k1)).isEqualTo(v1);
+        assertThat(persisted("block", k1)).isEqualTo(v1);
+        assertThat(persisted("index", k2)).isEqualTo(v2);
+
+        for (IByteArrayKeyValueDatabase db : all) {
+            assertThat(db.open()).isTrue();
+        }
+    }
+
+    @Test
+    public void testPreparedCommit() {
+        state.put(k1, v1);
+        index.put(k2, v2);
+
+        DatabaseWriteGroup group = new DatabaseWriteGroup(Arrays.asList(state, block), index);
+        BooleanSupplier prepared = group.prepareCommit();
+
+        // changed after the prepare, left for the next commit
+        state.put(k2, v2);
+        assertThat(state.get(k1).get()).isEqualTo(v1);
+        assertThat(state.get(k2).get()).isEqualTo(v2);
+
+        assertThat(prepared.getAsBoolean()).isTrue();
+
+        List<IByteArrayKeyValueDatabase> all = Arrays.asList(state, block, index);
+        for (IByteArrayKeyValueDatabase db : all) {
+            db.close();
+        }
+
+        assertThat(persisted("state", k1)).isEqualTo(v1);
+        assertThat(persisted("state", k2)).isNull();
+        assertThat(persisted("index", k2)).isEqualTo(v2);
+
+        for (IByteArrayKeyValueDatabase db : all) {
+            assertThat(db.open()).isTrue();
+        }
+    }
+
+    @Test
+    public void testIndexNotCommittedOnDataFailure() {
+        index.put(k2, v2);
+        block.close();
+
+        DatabaseWriteGroup group = new DatabaseWriteGroup(Arrays.asList(state, block), index);
+        try {
+            group.commit();
+        } catch (RuntimeException e) {
+            // expected since the block database is closed
+        }
+
+        index.close();
+        assertThat(persisted("index", k2)).isNull();
+
+        assertThat(block.open()).isTrue();
+        assertThat(index.open()).isTrue();
+    }
+}
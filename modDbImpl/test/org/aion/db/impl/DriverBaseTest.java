@@ -36,6 +36,8 @@ package org.aion.db.impl;
 
 import com.google.common.truth.Truth;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IKeyValueIterator;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.h2.H2MVMap;
 import org.aion.db.impl.h2.H2MVMapWithCache;
 import org.aion.db.impl.leveldb.LevelDB;
@@ -52,12 +54,15 @@ import org.junit.runners.Parameterized.Parameters;
 import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.aion.base.util.ByteArrayWrapper.wrap;
 import static org.junit.Assert.assertTrue;
 
 /*
@@ -612,6 +617,126 @@ public class DriverBaseTest {
         assertThat(keys.size()).isEqualTo(0);
     }
 
+    @Test
+    public void testIterator() {
+        // iterators shouldn't be null even when empty
+        try (IKeyValueIterator<byte[], byte[]> itr = db.iterator()) {
+            assertThat(db.isLocked()).isFalse();
+            assertThat(itr.hasNext()).isFalse();
+        }
+
+        byte[] k0 = new byte[] { (byte) 0xFF, 0x01 };
+        Map<byte[], byte[]> ops = new HashMap<>();
+        ops.put(k0, v1);
+        ops.put(k1, v1);
+        ops.put(k2, v2);
+        ops.put(k3, v3);
+        db.putBatch(ops);
+        db.delete(k2);
+
+        // keys are returned in unsigned order, without the deleted key
+        List<ByteArrayWrapper> keys = new ArrayList<>();
+        try (IKeyValueIterator<byte[], byte[]> itr = db.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> e = itr.next();
+                assertThat(e.getValue()).isEqualTo(db.get(e.getKey()).get());
+                keys.add(wrap(e.getKey()));
+            }
+        }
+        assertThat(db.isLocked()).isFalse();
+        assertThat(keys).containsExactly(wrap(k1), wrap(k3), wrap(k0)).inOrder();
+
+        // checking range bounds
+        keys.clear();
+        try (IKeyValueIterator<byte[], byte[]> itr = db.iterator(k2, k0)) {
+            itr.forEachRemaining(e -> keys.add(wrap(e.getKey())));
+        }
+        assertThat(keys).containsExactly(wrap(k3));
+
+        // checking prefix
+        keys.clear();
+        try (IKeyValueIterator<byte[], byte[]> itr = db.prefixIterator("key".getBytes())) {
+            itr.forEachRemaining(e -> keys.add(wrap(e.getKey())));
+        }
+        assertThat(keys).containsExactly(wrap(k1), wrap(k3)).inOrder();
+
+        // closed iterators are exhausted
+        IKeyValueIterator<byte[], byte[]> itr = db.prefixIterator(new byte[] { (byte) 0xFF });
+        assertThat(itr.hasNext()).isTrue();
+        itr.close();
+        assertThat(itr.hasNext()).isFalse();
+        assertThat(db.isLocked()).isFalse();
+    }
+
+    @Test
+    public void testSnapshot() {
+        db.put(k1, v1);
+        db.put(k2, v2);
+        if (!db.isAutoCommitEnabled()) {
+            db.commit();
+        }
+
+        IByteArrayKeyValueDatabase snapshot = db.snapshot();
+        assertThat(db.isLocked()).isFalse();
+
+        // updates after the snapshot was taken, partially committed
+        db.put(k1, v3);
+        db.delete(k2);
+        if (!db.isAutoCommitEnabled()) {
+            db.commit();
+        }
+        db.put(k3, v3);
+
+        assertThat(db.get(k1).get()).isEqualTo(v3);
+        assertThat(db.get(k2).isPresent()).isFalse();
+
+        // the snapshot is not affected by the updates
+        assertThat(snapshot.get(k1).get()).isEqualTo(v1);
+        assertThat(snapshot.get(k2).get()).isEqualTo(v2);
+        assertThat(snapshot.get(k3).isPresent()).isFalse();
+        assertThat(snapshot.isEmpty()).isFalse();
+
+        List<ByteArrayWrapper> keys = new ArrayList<>();
+        try (IKeyValueIterator<byte[], byte[]> itr = snapshot.iterator()) {
+            itr.forEachRemaining(e -> keys.add(wrap(e.getKey())));
+        }
+        assertThat(keys).containsExactly(wrap(k1), wrap(k2)).inOrder();
+
+        // the snapshot is read-only
+        try {
+            snapshot.put(k3, v3);
+            Assert.fail("Expected UnsupportedOperationException.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // closing the snapshot does not affect the database
+        snapshot.close();
+        assertThat(snapshot.isOpen()).isFalse();
+        assertThat(db.isOpen()).isTrue();
+        assertThat(db.get(k3).get()).isEqualTo(v3);
+        assertThat(db.isLocked()).isFalse();
+
+        // consecutive snapshots see the same state and are not affected by later updates
+        IByteArrayKeyValueDatabase first = db.snapshot();
+        IByteArrayKeyValueDatabase second = db.snapshot();
+        db.put(k3, v1);
+        IByteArrayKeyValueDatabase third = db.snapshot();
+        assertThat(first.get(k3).get()).isEqualTo(v3);
+        assertThat(second.get(k3).get()).isEqualTo(v3);
+        assertThat(third.get(k3).get()).isEqualTo(v1);
+        first.close();
+        second.close();
+        third.close();
+
+        // closing the database closes the snapshot
+        snapshot = db.snapshot();
+        db.close();
+        assertThat(snapshot.isOpen()).isFalse();
+        assertThat(db.open()).isTrue();
+        assertThat(db.isLocked()).isFalse();
+    }
+
     @Test
     public void testIsEmpty() {
         assertThat(db.isEmpty()).isTrue();
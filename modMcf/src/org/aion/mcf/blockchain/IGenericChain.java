@@ -37,6 +37,8 @@ public interface IGenericChain<BLK extends IBlock, BH extends AbstractBlockHeade
 
     BLK getBlockByNumber(long number);
 
+    BH getHeaderByNumber(long number);
+
     BLK getBlockByHash(byte[] hash);
 
     IBlockStoreBase<?, ?> getBlockStore();
@@ -54,6 +54,8 @@ public abstract class Cfg {
 
     protected CfgDb db;
 
+    protected CfgTx tx;
+
     protected CfgLog log;
 
     public void setNet(CfgNet _net) {
@@ -100,6 +102,10 @@ public abstract class Cfg {
         return this.db;
     }
 
+    public CfgTx getTx() {
+        return this.tx;
+    }
+
     public CfgLog getLog() {
         return this.log;
     }
@@ -27,7 +27,9 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.aion.base.db.IRepositoryConfig;
 import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.leveldb.LevelDBConstants;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -49,6 +51,16 @@ public class CfgDb {
         // size 0 means unbound
         this.max_heap_cache_size = "0";
         this.enable_heap_cache_stats = false;
+
+        this.max_fd_alloc_size = LevelDBConstants.MAX_OPEN_FILES;
+        this.block_size = LevelDBConstants.BLOCK_SIZE;
+        this.write_buffer_size = LevelDBConstants.WRITE_BUFFER_SIZE;
+        this.cache_size = LevelDBConstants.CACHE_SIZE;
+
+        // 0 keeps all the blocks in the key-value store
+        this.block_archive_depth = 0;
+
+        this.trie_cache_size = IRepositoryConfig.DEFAULT_TRIE_CACHE_SIZE;
     }
 
     protected String path;
@@ -63,6 +75,14 @@ public class CfgDb {
     private String max_heap_cache_size;
     private boolean enable_heap_cache_stats;
 
+    private int max_fd_alloc_size;
+    private int block_size;
+    private int write_buffer_size;
+    private int cache_size;
+
+    private int block_archive_depth;
+    private int trie_cache_size;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -95,6 +115,24 @@ public class CfgDb {
                 case "enable_heap_cache_stats":
                     this.enable_heap_cache_stats = Boolean.parseBoolean(Cfg.readValue(sr));
                     break;
+                case "max_fd_alloc_size":
+                    this.max_fd_alloc_size = parseInt(elementName, Cfg.readValue(sr), 1, this.max_fd_alloc_size);
+                    break;
+                case "block_size":
+                    this.block_size = parseInt(elementName, Cfg.readValue(sr), 1, this.block_size);
+                    break;
+                case "write_buffer_size":
+                    this.write_buffer_size = parseInt(elementName, Cfg.readValue(sr), 1, this.write_buffer_size);
+                    break;
+                case "cache_size":
+                    this.cache_size = parseInt(elementName, Cfg.readValue(sr), 1, this.cache_size);
+                    break;
+                case "block_archive_depth":
+                    this.block_archive_depth = parseInt(elementName, Cfg.readValue(sr), 0, this.block_archive_depth);
+                    break;
+                case "trie_cache_size":
+                    this.trie_cache_size = parseInt(elementName, Cfg.readValue(sr), 0, this.trie_cache_size);
+                    break;
                 default:
                     Cfg.skipElement(sr);
                     break;
@@ -156,6 +194,36 @@ public class CfgDb {
             xmlWriter.writeCharacters(String.valueOf(this.isHeapCacheStatsEnabled()));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("max_fd_alloc_size");
+            xmlWriter.writeCharacters(String.valueOf(this.getMaxFdAllocSize()));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("block_size");
+            xmlWriter.writeCharacters(String.valueOf(this.getBlockSize()));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("write_buffer_size");
+            xmlWriter.writeCharacters(String.valueOf(this.getWriteBufferSize()));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("cache_size");
+            xmlWriter.writeCharacters(String.valueOf(this.getCacheSize()));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("block_archive_depth");
+            xmlWriter.writeCharacters(String.valueOf(this.getBlockArchiveDepth()));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("trie_cache_size");
+            xmlWriter.writeCharacters(String.valueOf(this.getTrieCacheSize()));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t");
             xmlWriter.writeEndElement();
             xml = strWriter.toString();
@@ -170,6 +238,24 @@ public class CfgDb {
         }
     }
 
+    /**
+     * Reads an integer value no lower than the given minimum, keeping the
+     * current value when the one given is invalid.
+     */
+    private static int parseInt(String key, String value, int min, int current) {
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            // handled below
+        }
+
+        System.out.println("<invalid-db-config " + key + "=" + value + " using " + current + ">");
+        return current;
+    }
+
     public String getPath() {
         return this.path;
     }
@@ -202,6 +288,30 @@ public class CfgDb {
         return enable_heap_cache_stats;
     }
 
+    public int getMaxFdAllocSize() {
+        return max_fd_alloc_size;
+    }
+
+    public int getBlockSize() {
+        return block_size;
+    }
+
+    public int getWriteBufferSize() {
+        return write_buffer_size;
+    }
+
+    public int getCacheSize() {
+        return cache_size;
+    }
+
+    public int getBlockArchiveDepth() {
+        return block_archive_depth;
+    }
+
+    public int getTrieCacheSize() {
+        return trie_cache_size;
+    }
+
 }
 
 
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ *
+ * Copyright (c) 2017, 2018 Aion foundation.
+ *
+ * 	This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>
+ *
+ * Contributors:
+ *     Aion foundation.
+ *******************************************************************************/
+package org.aion.mcf.config;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+public final class CfgTx {
+
+    private int poolSizeMax;
+
+    private int accountSlotsMax;
+
+    public CfgTx() {
+        this.poolSizeMax = 100000;
+        this.accountSlotsMax = 1000;
+    }
+
+    public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
+        loop:
+        while (sr.hasNext()) {
+            int eventType = sr.next();
+            switch (eventType) {
+            case XMLStreamReader.START_ELEMENT:
+                String elementName = sr.getLocalName().toLowerCase();
+                switch (elementName) {
+                case "pool-size-max":
+                    this.poolSizeMax = parseInt(elementName, Cfg.readValue(sr), 1, this.poolSizeMax);
+                    break;
+                case "account-slots-max":
+                    this.accountSlotsMax = parseInt(elementName, Cfg.readValue(sr), 1, this.accountSlotsMax);
+                    break;
+                default:
+                    Cfg.skipElement(sr);
+                    break;
+                }
+                break;
+            case XMLStreamReader.END_ELEMENT:
+                break loop;
+            }
+        }
+    }
+
+    public String toXML() {
+        final XMLOutputFactory output = XMLOutputFactory.newInstance();
+        XMLStreamWriter xmlWriter;
+        String xml;
+        try {
+            Writer strWriter = new StringWriter();
+            xmlWriter = output.createXMLStreamWriter(strWriter);
+            xmlWriter.writeCharacters("\r\n\t");
+            xmlWriter.writeStartElement("tx");
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("pool-size-max");
+            xmlWriter.writeCharacters(this.getPoolSizeMax() + "");
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement("account-slots-max");
+            xmlWriter.writeCharacters(this.getAccountSlotsMax() + "");
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t");
+            xmlWriter.writeEndElement();
+            xml = strWriter.toString();
+            strWriter.flush();
+            strWriter.close();
+            xmlWriter.flush();
+            xmlWriter.close();
+            return xml;
+        } catch (IOException | XMLStreamException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Reads an integer value no lower than the given minimum, keeping the
+     * current value when the one given is invalid.
+     */
+    private static int parseInt(String key, String value, int min, int current) {
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result >= min) {
+                return result;
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            // handled below
+        }
+
+        System.out.println("<invalid-tx-config " + key + "=" + value + " using " + current + ">");
+        return current;
+    }
+
+    /**
+     * @return the maximum number of transactions held by the pool
+     */
+    public int getPoolSizeMax() {
+        return this.poolSizeMax;
+    }
+
+    /**
+     * @return the maximum number of pending transactions of a single sender
+     */
+    public int getAccountSlotsMax() {
+        return this.accountSlotsMax;
+    }
+
+}
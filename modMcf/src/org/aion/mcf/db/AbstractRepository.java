@@ -30,6 +30,7 @@ import org.aion.db.impl.DBVendor;
 import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.exception.InvalidFilePathException;
 import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseWriteGroup;
 //import org.aion.dbmgr.exception.DriverManagerNoSuitableDriverRegisteredException;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -62,10 +63,14 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
     protected static final String TRANSACTION_DB = "transaction";
     protected static final String INDEX_DB = "index";
     protected static final String BLOCK_DB = "block";
+    protected static final String HEADER_DB = "header";
     protected static final String DETAILS_DB = "details";
     protected static final String STORAGE_DB = "storage";
     protected static final String STATE_DB = "state";
 
+    /** Directory of the block archive files, not a key-value database. */
+    protected static final String ARCHIVE_DIR = "archive";
+
     // State trie.
     protected Trie worldState;
 
@@ -80,10 +85,14 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
     protected IByteArrayKeyValueDatabase storageDatabase;
     protected IByteArrayKeyValueDatabase indexDatabase;
     protected IByteArrayKeyValueDatabase blockDatabase;
+    protected IByteArrayKeyValueDatabase headerDatabase;
     protected IByteArrayKeyValueDatabase stateDatabase;
 
     protected Collection<IByteArrayKeyValueDatabase> databaseGroup;
 
+    // commits the data databases before the block index
+    protected DatabaseWriteGroup writeGroup;
+
     protected JournalPruneDataSource<BLK, BH> stateDSPrune;
     protected DetailsDataStore<BLK, BH> detailsDS;
 
@@ -161,6 +170,10 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
         sharedProps.setProperty("enable_heap_cache", String.valueOf(this.cfg.isHeapCacheEnabled()));
         sharedProps.setProperty("max_heap_cache_size", this.cfg.getMaxHeapCacheSize());
         sharedProps.setProperty("enable_heap_cache_stats", String.valueOf(this.cfg.isHeapCacheStatsEnabled()));
+        sharedProps.setProperty("max_fd_alloc_size", String.valueOf(this.cfg.getMaxFdAllocSize()));
+        sharedProps.setProperty("block_size", String.valueOf(this.cfg.getBlockSize()));
+        sharedProps.setProperty("write_buffer_size", String.valueOf(this.cfg.getWriteBufferSize()));
+        sharedProps.setProperty("cache_size", String.valueOf(this.cfg.getCacheSize()));
 
         try {
             databaseGroup = new ArrayList<>();
@@ -192,6 +205,13 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
             this.blockDatabase = connectAndOpen(sharedProps);
             databaseGroup.add(blockDatabase);
 
+            sharedProps.setProperty("db_name", HEADER_DB);
+            this.headerDatabase = connectAndOpen(sharedProps);
+            databaseGroup.add(headerDatabase);
+
+            writeGroup = new DatabaseWriteGroup(Arrays.asList(stateDatabase, transactionDatabase, detailsDatabase,
+                    storageDatabase, blockDatabase, headerDatabase), indexDatabase);
+
             // Setup the cache for transaction data source.
             this.detailsDS = new DetailsDataStore<>(detailsDatabase, storageDatabase, this.cfg);
             stateDSPrune = new JournalPruneDataSource<>(stateDatabase);
@@ -201,6 +221,54 @@ public abstract class AbstractRepository<BLK extends AbstractBlock<BH, ? extends
         }
     }
 
+    /**
+     * Returns a read-only repository view of the world state with the given
+     * root built on point-in-time snapshots of the underlying databases.
+     * Unlike {@link #getSnapshotTo(byte[])}, the view is not affected by
+     * concurrent block imports or pruning and reads from it do not contend
+     * with this repository.
+     *
+     * @param root
+     *            a world state trie root
+     * @return a repository view that must be closed after use
+     */
+    public abstract IRepository getFrozenSnapshotTo(byte[] root);
+
+    /**
+     * Initializes the given repository with consistent point-in-time views of
+     * the state, details and storage databases of the current repository. The
+     * views are not affected by later commits or pruning, therefore reads from
+     * the snapshot do not require synchronization with this repository.
+     *
+     * @param snapshot
+     *            an empty repository instance to be used as snapshot
+     * @implNote The databases of the snapshot must be released by closing the
+     *           snapshot repository.
+     */
+    protected void initializeSnapshotDatabases(AbstractRepository<BLK, BH, BSB> snapshot) {
+        rwLock.readLock().lock();
+        try {
+            snapshot.cfg = this.cfg;
+            snapshot.blockStore = this.blockStore;
+            snapshot.isSnapshot = true;
+
+            snapshot.stateDatabase = this.stateDatabase.snapshot();
+            snapshot.detailsDatabase = this.detailsDatabase.snapshot();
+            snapshot.storageDatabase = this.storageDatabase.snapshot();
+            snapshot.databaseGroup = Arrays.asList(snapshot.stateDatabase, snapshot.detailsDatabase,
+                    snapshot.storageDatabase);
+
+            // the views are read-only, therefore pruning is disabled
+            snapshot.detailsDS = new DetailsDataStore<>(snapshot.detailsDatabase, snapshot.storageDatabase, this.cfg);
+            snapshot.detailsDS.getStorageDSPrune().setPruneEnabled(false);
+            snapshot.stateDSPrune = new JournalPruneDataSource<>(snapshot.stateDatabase);
+            snapshot.stateDSPrune.setPruneEnabled(false);
+            snapshot.pruneBlockCount = -1;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
     @Override
     public BSB getBlockStore() {
         return this.blockStore;
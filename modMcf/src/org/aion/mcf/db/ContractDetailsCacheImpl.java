@@ -31,15 +31,27 @@ import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.db.IContractDetails;
 import org.aion.base.type.Address;
+import org.aion.base.util.ParallelExecutor;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
 import org.aion.mcf.vm.types.DataWord;
 import org.aion.rlp.RLP;
 import org.aion.mcf.trie.SecureTrie;
+import org.slf4j.Logger;
 
 /**
  * Contract details cache implementation.
  */
 public class ContractDetailsCacheImpl extends AbstractContractDetails<DataWord> {
 
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /**
+     * Below this number of contracts the storage is committed on the calling
+     * thread since the hand-off costs more than the hashing.
+     */
+    public static final int PARALLEL_COMMIT_THRESHOLD = 4;
+
     private Map<DataWord, DataWord> storage = new HashMap<>();
 
     public IContractDetails<DataWord> origContract;
@@ -204,6 +216,27 @@ public class ContractDetailsCacheImpl extends AbstractContractDetails<DataWord>
         origContract.setDirty(this.isDirty() || origContract.isDirty());
     }
 
+    /**
+     * Commits the given caches into their original contracts. Each contract
+     * owns its storage trie, so the tries are updated and their nodes hashed
+     * in parallel when there are enough of them. The resulting storage is the
+     * same as committing the caches one after the other.
+     *
+     * @implNote The caches must refer to distinct original contracts.
+     */
+    public static void commit(Collection<ContractDetailsCacheImpl> caches) {
+        if (caches.size() < PARALLEL_COMMIT_THRESHOLD) {
+            caches.forEach(ContractDetailsCacheImpl::commit);
+            return;
+        }
+
+        // committing is idempotent so the partially applied caches are simply
+        // written again by the serial fallback
+        ParallelExecutor.run(() -> caches.parallelStream().forEach(ContractDetailsCacheImpl::commit),
+                () -> caches.forEach(ContractDetailsCacheImpl::commit),
+                e -> LOG.error("parallel storage commit failed", e));
+    }
+
     @Override
     public IContractDetails<DataWord> getSnapshotTo(byte[] hash) {
         throw new UnsupportedOperationException("No snapshot option during cache state");
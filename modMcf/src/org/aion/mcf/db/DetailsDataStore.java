@@ -26,11 +26,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IKeyValueIterator;
 import org.aion.base.db.IRepositoryConfig;
 import org.aion.base.type.Address;
 import org.aion.base.type.IBlockHeader;
@@ -133,13 +135,11 @@ public class DetailsDataStore<BLK extends AbstractBlock<BH, ? extends ITransacti
         syncLargeStorage();
 
         // Get everything from the cache and calculate the size.
-        Set<byte[]> keysFromSource = detailsSrc.keys();
-        for (byte[] keyInSource : keysFromSource) {
-            // Fetch the value given the keys.
-            Optional<byte[]> valFromKey = detailsSrc.get(keyInSource);
-
-            // Add to total size given size of the value
-            totalSize += valFromKey.map(rawDetails -> rawDetails.length).orElse(0);
+        try (IKeyValueIterator<byte[], byte[]> itr = detailsSrc.iterator()) {
+            while (itr.hasNext()) {
+                // Add to total size given size of the value
+                totalSize += itr.next().getValue().length;
+            }
         }
 
         // Flushes both details and storage.
@@ -151,25 +151,18 @@ public class DetailsDataStore<BLK extends AbstractBlock<BH, ? extends ITransacti
 
     public void syncLargeStorage() {
 
-        Set<byte[]> keysFromSource = detailsSrc.keys();
-        for (byte[] keyInSource : keysFromSource) {
+        // Stream the entries instead of fetching each value by key.
+        try (IKeyValueIterator<byte[], byte[]> itr = detailsSrc.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> rawDetails = itr.next();
 
-            // Fetch the value given the keys.
-            Optional<byte[]> rawDetails = detailsSrc.get(keyInSource);
+                // Decode the details.
+                IContractDetails<DataWord> detailsImpl = repoConfig.contractDetailsImpl();
+                detailsImpl.setDataSource(storageDSPrune);
+                detailsImpl.decode(rawDetails.getValue()); // Deleted entries are not returned by the iterator.
 
-            // If it is null, just continue
-            if (!rawDetails.isPresent()) {
-                continue;
+                detailsImpl.syncStorage();
             }
-
-            // Decode the details.
-            IContractDetails<DataWord> detailsImpl = repoConfig.contractDetailsImpl();
-            detailsImpl.setDataSource(storageDSPrune);
-            detailsImpl.decode(rawDetails.get()); // We can safely get as we
-            // checked if it is present.
-
-            // IContractDetails details = entry.getValue();
-            detailsImpl.syncStorage();
         }
     }
 
@@ -180,8 +173,10 @@ public class DetailsDataStore<BLK extends AbstractBlock<BH, ? extends ITransacti
     public synchronized Set<ByteArrayWrapper> keys() {
         // TODO - @yao do we wanted a sorted set?
         Set<ByteArrayWrapper> keys = new HashSet<>();
-        for (byte[] key : detailsSrc.keys()) {
-            keys.add(wrap(key));
+        try (IKeyValueIterator<byte[], byte[]> itr = detailsSrc.iterator()) {
+            while (itr.hasNext()) {
+                keys.add(wrap(itr.next().getKey()));
+            }
         }
         return keys;
     }
@@ -198,10 +193,13 @@ public class DetailsDataStore<BLK extends AbstractBlock<BH, ? extends ITransacti
     public static List<ByteArrayWrapper> dumpKeys(IByteArrayKeyValueDatabase ds) {
         ArrayList<ByteArrayWrapper> keys = new ArrayList<>();
 
-        for (byte[] key : ds.keys()) {
-            keys.add(wrap(key));
+        try (IKeyValueIterator<byte[], byte[]> itr = ds.iterator()) {
+            while (itr.hasNext()) {
+                keys.add(wrap(itr.next().getKey()));
+            }
         }
 
+        // the iterator uses unsigned ordering while the wrapper comparison is signed
         Collections.sort(keys);
         return keys;
     }
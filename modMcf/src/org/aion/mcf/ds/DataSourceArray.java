@@ -28,6 +28,7 @@ import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Hex;
 
 import java.util.AbstractList;
+import java.util.Arrays;
 
 /**
  * DataSource Array.
@@ -38,7 +39,7 @@ public class DataSourceArray<V> extends AbstractList<V> implements Flushable {
 
     private ObjectDataSource<V> src;
     private static final byte[] sizeKey = Hex.decode("FFFFFFFFFFFFFFFF");
-    private int size = -1;
+    private long size = -1L;
 
     public DataSourceArray(ObjectDataSource<V> src) {
         this.src = src;
@@ -49,12 +50,36 @@ public class DataSourceArray<V> extends AbstractList<V> implements Flushable {
         src.flush();
     }
 
+    /**
+     * Returns the key under which the element at the given index is stored.
+     * Indexes in the {@code int} range keep their original 4-byte keys, so
+     * existing databases remain readable; larger indexes use 8-byte keys.
+     */
+    public static byte[] toKey(long idx) {
+        return idx <= Integer.MAX_VALUE ? ByteUtil.intToBytes((int) idx) : ByteUtil.longToBytes(idx);
+    }
+
+    /**
+     * Returns the index stored under the given key or -1 if the key does not
+     * belong to an element.
+     */
+    public static long fromKey(byte[] key) {
+        if (key.length == 4 || (key.length == 8 && !Arrays.equals(key, sizeKey))) {
+            return ByteUtil.byteArrayToLong(key);
+        }
+        return -1L;
+    }
+
     @Override
     public V set(int idx, V value) {
-        if (idx >= size()) {
+        return set((long) idx, value);
+    }
+
+    public V set(long idx, V value) {
+        if (idx >= longSize()) {
             setSize(idx + 1);
         }
-        src.put(ByteUtil.intToBytes(idx), value);
+        src.put(toKey(idx), value);
         return value;
     }
 
@@ -65,8 +90,12 @@ public class DataSourceArray<V> extends AbstractList<V> implements Flushable {
 
     @Override
     public V remove(int index) {
-        src.delete(ByteUtil.intToBytes(index));
-        if (index < size()) {
+        return remove((long) index);
+    }
+
+    public V remove(long index) {
+        src.delete(toKey(index));
+        if (index < longSize()) {
             setSize(index);
         }
         // TODO: remove returned type
@@ -75,27 +104,40 @@ public class DataSourceArray<V> extends AbstractList<V> implements Flushable {
 
     @Override
     public V get(int idx) {
-        if (idx < 0 || idx >= size()) {
+        return get((long) idx);
+    }
+
+    public V get(long idx) {
+        if (idx < 0 || idx >= longSize()) {
             throw new IndexOutOfBoundsException(idx + " > " + size);
         }
-        return src.get(ByteUtil.intToBytes(idx));
+        return src.get(toKey(idx));
     }
 
+    /**
+     * Returns the number of elements, capped at {@link Integer#MAX_VALUE} as
+     * required by {@link java.util.List}. Use {@link #longSize()} for arrays
+     * that may grow past that.
+     */
     @Override
     public int size() {
+        return (int) Math.min(longSize(), Integer.MAX_VALUE);
+    }
+
+    public long longSize() {
 
         if (size < 0) {
             // Read the value from the database directly and
             // convert to the size, and if it doesn't exist, 0.
-            size = src.getSrc().get(sizeKey).map(ByteUtil::byteArrayToInt).orElse(0);
+            size = src.getSrc().get(sizeKey).map(ByteUtil::byteArrayToLong).orElse(0L);
         }
 
         return size;
     }
 
-    private synchronized void setSize(int newSize) {
+    private synchronized void setSize(long newSize) {
         size = newSize;
-        src.getSrc().put(sizeKey, ByteUtil.intToBytes(newSize));
+        src.getSrc().put(sizeKey, toKey(newSize));
     }
 
     @Override
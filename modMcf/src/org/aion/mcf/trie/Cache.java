@@ -37,15 +37,18 @@ package org.aion.mcf.trie;
 import static org.aion.base.util.ByteArrayWrapper.wrap;
 import static org.aion.rlp.Value.fromRlpEncoded;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.db.IKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.crypto.HashUtil;
 import org.aion.log.AionLoggerFactory;
@@ -53,26 +56,90 @@ import org.aion.log.LogEnum;
 import org.aion.rlp.Value;
 import org.slf4j.Logger;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 /**
  * Cache class
+ * <p>
+ * Lookups by hash do not lock: nodes are addressed by the hash of their
+ * content, so any node found in the cache or in the data source is the right
+ * one. Changes to the cache are made by a single writer at a time under the
+ * monitor of this object.
+ * <p>
+ * Nodes that cannot be read back from the data source, either because they
+ * are dirty or because there is no data source, are kept in an unbounded
+ * map. Nodes that are stored in the data source are kept in a cache bounded
+ * by the size of their encoding, from which the least recently used nodes
+ * are evicted. That cache is only built once there is a data source, since
+ * the short-lived tries of the transactions and receipts have none.
  */
 public class Cache {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
-    private IByteArrayKeyValueStore dataSource;
-    private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
-    private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
-    private boolean isDirty;
+    /** Capacity in bytes of the clean node cache when none is given. */
+    public static final long DEFAULT_CAPACITY = 4L * 1024 * 1024;
+
+    /**
+     * Capacity in bytes of the clean node cache of a contract storage trie,
+     * kept small since every loaded contract has its own trie.
+     */
+    public static final long STORAGE_CAPACITY = 256L * 1024;
+
+    // approximate memory used by the key and the node objects of an entry
+    private static final int NODE_OVERHEAD = 96;
+
+    private volatile IByteArrayKeyValueStore dataSource;
+    private final Map<ByteArrayWrapper, Node> pendingNodes = new ConcurrentHashMap<>();
+    private final long capacity;
+    // null until there is a data source, set before it
+    private volatile com.google.common.cache.Cache<ByteArrayWrapper, Node> cleanNodes;
+    private final Set<ByteArrayWrapper> removedNodes = new HashSet<>();
+    private volatile boolean isDirty;
 
     public Cache(IByteArrayKeyValueStore dataSource) {
+        this(dataSource, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity
+     *         the maximum size in bytes of the encoded clean nodes kept in
+     *         memory
+     */
+    public Cache(IByteArrayKeyValueStore dataSource, long capacity) {
+        this.capacity = capacity;
+        if (dataSource != null) {
+            this.cleanNodes = newCleanNodes(capacity);
+        }
         this.dataSource = dataSource;
     }
 
+    private static com.google.common.cache.Cache<ByteArrayWrapper, Node> newCleanNodes(long capacity) {
+        return CacheBuilder.newBuilder().maximumWeight(capacity)
+                .weigher((ByteArrayWrapper k, Node n) -> n.getValue().encode().length + NODE_OVERHEAD).recordStats()
+                .build();
+    }
+
+    private void invalidateClean(ByteArrayWrapper key) {
+        com.google.common.cache.Cache<ByteArrayWrapper, Node> clean = cleanNodes;
+        if (clean != null) {
+            clean.invalidate(key);
+        }
+    }
+
+    private void invalidateAllClean() {
+        com.google.common.cache.Cache<ByteArrayWrapper, Node> clean = cleanNodes;
+        if (clean != null) {
+            clean.invalidateAll();
+        }
+    }
+
     public synchronized void markRemoved(byte[] key) {
         ByteArrayWrapper keyW = new ByteArrayWrapper(key);
         removedNodes.add(keyW);
-        nodes.remove(keyW);
+        pendingNodes.remove(keyW);
+        invalidateClean(keyW);
     }
 
     /**
@@ -88,9 +155,9 @@ public class Cache {
         Value value = new Value(o);
         byte[] enc = value.encode();
         if (enc.length >= 32) {
-            byte[] sha = HashUtil.h256(value.encode());
+            byte[] sha = HashUtil.h256(enc);
             ByteArrayWrapper key = wrap(sha);
-            this.nodes.put(key, new Node(value, true));
+            this.pendingNodes.put(key, new Node(value, true));
             this.removedNodes.remove(key);
             this.isDirty = true;
 
@@ -99,20 +166,38 @@ public class Cache {
         return value;
     }
 
-    public synchronized Value get(byte[] key) {
+    /**
+     * Adds an already built node under the given key, keeping track of it
+     * when it still has to be written to the data source.
+     */
+    public synchronized void putNode(ByteArrayWrapper key, Node node) {
+        if (node.isDirty() || dataSource == null) {
+            this.pendingNodes.put(key, node);
+            this.isDirty |= node.isDirty();
+        } else {
+            this.cleanNodes.put(key, node);
+        }
+    }
+
+    public Value get(byte[] key) {
 
         ByteArrayWrapper wrappedKey = wrap(key);
-        Node node = nodes.get(wrappedKey);
+        Node node = pendingNodes.get(wrappedKey);
         if (node != null) {
-            // cachehits++;
             return node.getValue();
         }
-        if (this.dataSource != null) {
-            Optional<byte[]> data = (this.dataSource == null) ? Optional.empty() : this.dataSource.get(key);
+        IByteArrayKeyValueStore src = this.dataSource;
+        if (src != null) {
+            com.google.common.cache.Cache<ByteArrayWrapper, Node> clean = this.cleanNodes;
+            node = clean.getIfPresent(wrappedKey);
+            if (node != null) {
+                return node.getValue();
+            }
+            Optional<byte[]> data = src.get(key);
             if (data.isPresent()) {
-                // dbhits++;
                 Value val = fromRlpEncoded(data.get());
-                nodes.put(wrappedKey, new Node(val, false));
+                // a node added by the writer in the meantime is kept apart
+                clean.put(wrappedKey, new Node(val, false));
                 return val;
             }
         }
@@ -122,7 +207,8 @@ public class Cache {
 
     public synchronized void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
-        this.nodes.remove(wrappedKey);
+        this.pendingNodes.remove(wrappedKey);
+        invalidateClean(wrappedKey);
 
         if (dataSource != null) {
             this.dataSource.delete(key);
@@ -138,7 +224,8 @@ public class Cache {
         if ((dataSource == null) || !this.isDirty) {
             // clear cache when flush requested
             if (flushCache) {
-                this.nodes.clear();
+                this.pendingNodes.clear();
+                invalidateAllClean();
             }
             return;
         }
@@ -146,21 +233,12 @@ public class Cache {
         // long start = System.nanoTime();
         // int batchMemorySize = 0;
         Map<byte[], byte[]> batch = new HashMap<>();
-        for (ByteArrayWrapper nodeKey : this.nodes.keySet()) {
-            Node node = this.nodes.get(nodeKey);
-
-            if (node == null || node.isDirty()) {
-                byte[] value;
-                if (node != null) {
-                    node.setDirty(false);
-                    value = node.getValue().encode();
-                } else {
-                    value = null;
-                }
+        for (Map.Entry<ByteArrayWrapper, Node> entry : this.pendingNodes.entrySet()) {
+            Node node = entry.getValue();
 
-                byte[] key = nodeKey.getData();
-
-                batch.put(key, value);
+            if (node.isDirty()) {
+                node.setDirty(false);
+                batch.put(entry.getKey().getData(), node.getValue().encode());
                 // batchMemorySize += length(key, value);
             }
         }
@@ -168,17 +246,35 @@ public class Cache {
             batch.put(removedNode.getData(), null);
         }
 
+        // the nodes leave the pending map only after they can be read from
+        // the data source
         this.dataSource.putBatch(batch);
         this.isDirty = false;
         if (flushCache) {
-            this.nodes.clear();
+            this.cleanNodes.invalidateAll();
+        } else {
+            this.cleanNodes.putAll(this.pendingNodes);
         }
+        this.pendingNodes.clear();
         this.removedNodes.clear();
 
     }
 
+    /**
+     * Checks whether the node is still to be committed or is stored in the
+     * data source. The committed nodes kept in memory are skipped, since they
+     * may outlive rows removed from the data source directly.
+     */
+    public boolean hasNode(byte[] key) {
+        if (pendingNodes.containsKey(wrap(key))) {
+            return true;
+        }
+        IByteArrayKeyValueStore src = this.dataSource;
+        return src != null && src.get(key).isPresent();
+    }
+
     public synchronized void undo() {
-        Iterator<Map.Entry<ByteArrayWrapper, Node>> iter = this.nodes.entrySet().iterator();
+        Iterator<Map.Entry<ByteArrayWrapper, Node>> iter = this.pendingNodes.entrySet().iterator();
         while (iter.hasNext()) {
             if (iter.next().getValue().isDirty()) {
                 iter.remove();
@@ -187,7 +283,7 @@ public class Cache {
         this.isDirty = false;
     }
 
-    public synchronized boolean isDirty() {
+    public boolean isDirty() {
         return isDirty;
     }
 
@@ -195,20 +291,36 @@ public class Cache {
         this.isDirty = isDirty;
     }
 
-    public synchronized Map<ByteArrayWrapper, Node> getNodes() {
-        return nodes;
+    /**
+     * Returns a read-only snapshot of the cached nodes. Use {@link #putNode}
+     * to add nodes.
+     */
+    public Map<ByteArrayWrapper, Node> getNodes() {
+        com.google.common.cache.Cache<ByteArrayWrapper, Node> clean = cleanNodes;
+        Map<ByteArrayWrapper, Node> nodes = clean == null ? new HashMap<>() : new HashMap<>(clean.asMap());
+        nodes.putAll(pendingNodes);
+        return Collections.unmodifiableMap(nodes);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the clean node cache.
+     */
+    public CacheStats getStats() {
+        com.google.common.cache.Cache<ByteArrayWrapper, Node> clean = cleanNodes;
+        return clean == null ? new CacheStats(0, 0, 0, 0, 0, 0) : clean.stats();
     }
 
-    public synchronized IByteArrayKeyValueStore getDb() {
+    public IByteArrayKeyValueStore getDb() {
         return dataSource;
     }
 
     public String cacheDump() {
         StringBuffer cacheDump = new StringBuffer();
-        for (ByteArrayWrapper key : nodes.keySet()) {
-            Node node = nodes.get(key);
+        for (Map.Entry<ByteArrayWrapper, Node> entry : getNodes().entrySet()) {
+            Node node = entry.getValue();
             if (node.getValue() != null) {
-                cacheDump.append(key.toString()).append(" : ").append(node.getValue().toString()).append("\n");
+                cacheDump.append(entry.getKey().toString()).append(" : ").append(node.getValue().toString())
+                        .append("\n");
             }
         }
 
@@ -222,17 +334,25 @@ public class Cache {
 
         Map<byte[], byte[]> rows = new HashMap<>();
         if (this.dataSource == null) {
-            for (ByteArrayWrapper key : nodes.keySet()) {
-                Node node = nodes.get(key);
-                if (node == null) {
-                    rows.put(key.getData(), null);
-                } else if (!node.isDirty()) {
-                    rows.put(key.getData(), node.getValue().encode());
+            for (Map.Entry<ByteArrayWrapper, Node> entry : pendingNodes.entrySet()) {
+                if (!entry.getValue().isDirty()) {
+                    rows.put(entry.getKey().getData(), entry.getValue().getValue().encode());
                 }
             }
         } else {
-            for (byte[] key : this.dataSource.keys()) {
-                rows.put(key, this.dataSource.get(key).get());
+            if (this.dataSource instanceof IByteArrayKeyValueDatabase) {
+                // stream the entries instead of fetching each value by key
+                try (IKeyValueIterator<byte[], byte[]> itr = ((IByteArrayKeyValueDatabase) this.dataSource)
+                        .iterator()) {
+                    while (itr.hasNext()) {
+                        Map.Entry<byte[], byte[]> entry = itr.next();
+                        rows.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            } else {
+                for (byte[] key : this.dataSource.keys()) {
+                    rows.put(key, this.dataSource.get(key).get());
+                }
             }
 
             try {
@@ -243,10 +363,24 @@ public class Cache {
         }
 
         kvds.putBatch(rows);
+        if (cleanNodes == null) {
+            cleanNodes = newCleanNodes(capacity);
+        }
         this.dataSource = kvds;
+
+        // the nodes written above can now be evicted
+        Iterator<Map.Entry<ByteArrayWrapper, Node>> iter = pendingNodes.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<ByteArrayWrapper, Node> entry = iter.next();
+            if (!entry.getValue().isDirty()) {
+                cleanNodes.put(entry.getKey(), entry.getValue());
+                iter.remove();
+            }
+        }
     }
 
     public int getSize() {
-        return nodes.size();
+        com.google.common.cache.Cache<ByteArrayWrapper, Node> clean = cleanNodes;
+        return (int) (pendingNodes.size() + (clean == null ? 0 : clean.size()));
     }
 }
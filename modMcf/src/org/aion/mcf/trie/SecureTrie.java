@@ -49,11 +49,20 @@ public class SecureTrie extends TrieImpl implements Trie {
         super(db, root);
     }
 
+    public SecureTrie(IByteArrayKeyValueStore db, Object root, long cacheCapacity) {
+        super(db, root, cacheCapacity);
+    }
+
     @Override
     public byte[] get(byte[] key) {
         return super.get(h256(key));
     }
 
+    @Override
+    public byte[] get(byte[] root, byte[] key) {
+        return super.get(root, h256(key));
+    }
+
     @Override
     public void update(byte[] key, byte[] value) {
         super.update(h256(key), value);
@@ -35,6 +35,19 @@ public interface Trie {
      */
     byte[] get(byte[] key);
 
+    /**
+     * Gets a value for a given key from the trie with the given root instead of the current one
+     *
+     * @param root
+     *         - 32-byte SHA-3 hash of the root node
+     * @param key
+     *         - any length byte array
+     * @return an rlp encoded byte array of the stored object
+     * @throws RuntimeException
+     *         if a node of the given root is missing from the database
+     */
+    byte[] get(byte[] root, byte[] key);
+
     /**
      * Insert or update a value in the trie for a specified key
      *
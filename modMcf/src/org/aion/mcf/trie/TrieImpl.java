@@ -86,11 +86,11 @@ import org.aion.rlp.Value;
 public class TrieImpl implements Trie {
     private static byte PAIR_SIZE = 2;
     private static byte LIST_SIZE = 17;
-    private static int MAX_SIZE = 20;
 
     @Deprecated
     private Object prevRoot;
-    private Object root;
+    // read without locking by the lookups, see get(byte[])
+    private volatile Object root;
     private Cache cache;
 
     private boolean pruningEnabled;
@@ -100,7 +100,15 @@ public class TrieImpl implements Trie {
     }
 
     public TrieImpl(IByteArrayKeyValueStore db, Object root) {
-        this.cache = new Cache(db);
+        this(db, root, Cache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param cacheCapacity
+     *         the maximum size in bytes of the committed nodes kept in memory
+     */
+    public TrieImpl(IByteArrayKeyValueStore db, Object root, long cacheCapacity) {
+        this.cache = new Cache(db, cacheCapacity);
         this.root = root;
         this.prevRoot = root;
     }
@@ -166,14 +174,53 @@ public class TrieImpl implements Trie {
         return this.get(key.getBytes());
     }
 
+    /**
+     * Lookups walk the nodes reachable from the current root without taking
+     * the lock used by updates. Nodes are addressed by their hash, so a walk
+     * that finds all its nodes is correct for the root it started from. A
+     * node can only be missing while an update prunes it, in which case the
+     * lookup is repeated under the lock.
+     */
     @Override
     public byte[] get(byte[] key) {
-        synchronized (cache) {
-            byte[] k = binToNibbles(key);
-            Value c = new Value(this.get(this.root, k));
+        byte[] k = binToNibbles(key);
 
-            return c.asBytes();
+        Object value = this.get(this.root, k);
+        if (value == null) {
+            synchronized (cache) {
+                value = this.get(this.root, k);
+            }
         }
+
+        return new Value(value).asBytes();
+    }
+
+    /**
+     * Retrieves a value under the given root instead of the current one. The
+     * nodes are read through the same cache and without locking, like
+     * {@link #get(byte[])}. The nodes of an old root can be pruned during the
+     * lookup, so a node still missing under the lock fails the lookup instead
+     * of reading as an absent key.
+     */
+    @Override
+    public byte[] get(byte[] root, byte[] key) {
+        if (Arrays.equals(root, EMPTY_TRIE_HASH)) {
+            return EMPTY_BYTE_ARRAY;
+        }
+
+        byte[] k = binToNibbles(key);
+
+        Object value = this.get((Object) root, k);
+        if (value == null) {
+            synchronized (cache) {
+                value = this.get((Object) root, k);
+            }
+        }
+        if (value == null) {
+            throw new RuntimeException("Invalid Trie state, missing node under root " + Hex.toHexString(root));
+        }
+
+        return new Value(value).asBytes();
     }
 
     /**
@@ -202,6 +249,11 @@ public class TrieImpl implements Trie {
 
     @Override
     public synchronized boolean isValidRoot(byte[] root) {
+        // the recovery relies on this to find the states missing from the
+        // database, which the node cache may still hold
+        if (root != null && root.length >= 32) {
+            return this.cache.hasNode(root);
+        }
         return !(this.getNode(root) == null);
     }
 
@@ -221,47 +273,44 @@ public class TrieImpl implements Trie {
 
     @Override
     public byte[] getRootHash() {
-        synchronized (cache) {
-            if (root == null || (root instanceof byte[] && ((byte[]) root).length == 0) || (root instanceof String && ""
-                    .equals(root))) {
-                return EMPTY_TRIE_HASH;
-            } else if (root instanceof byte[]) {
-                return (byte[]) this.getRoot();
-            } else {
-                Value rootValue = new Value(this.getRoot());
-                return HashUtil.h256(rootValue.encode());
-            }
+        Object root = this.root;
+        if (root == null || (root instanceof byte[] && ((byte[]) root).length == 0) || (root instanceof String && ""
+                .equals(root))) {
+            return EMPTY_TRIE_HASH;
+        } else if (root instanceof byte[]) {
+            return (byte[]) root;
+        } else {
+            Value rootValue = new Value(root);
+            return HashUtil.h256(rootValue.encode());
         }
     }
 
     private Object get(Object node, byte[] key) {
-        synchronized (cache) {
-            int keypos = 0;
-            while (key.length - keypos != 0 && !isEmptyNode(node)) {
-                Value currentNode = this.getNode(node);
-                if (currentNode == null) {
-                    return null;
-                }
+        int keypos = 0;
+        while (key.length - keypos != 0 && !isEmptyNode(node)) {
+            Value currentNode = this.getNode(node);
+            if (currentNode == null) {
+                return null;
+            }
 
-                if (currentNode.length() == PAIR_SIZE) {
-                    // Decode the key
-                    byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-                    Object v = currentNode.get(1).asObj();
+            if (currentNode.length() == PAIR_SIZE) {
+                // Decode the key
+                byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
+                Object v = currentNode.get(1).asObj();
 
-                    if (key.length - keypos >= k.length && Arrays
-                            .equals(k, copyOfRange(key, keypos, k.length + keypos))) {
-                        node = v;
-                        keypos += k.length;
-                    } else {
-                        return "";
-                    }
+                if (key.length - keypos >= k.length && Arrays
+                        .equals(k, copyOfRange(key, keypos, k.length + keypos))) {
+                    node = v;
+                    keypos += k.length;
                 } else {
-                    node = currentNode.get(key[keypos]).asObj();
-                    keypos++;
+                    return "";
                 }
+            } else {
+                node = currentNode.get(key[keypos]).asObj();
+                keypos++;
             }
-            return node;
         }
+        return node;
     }
 
     private Object insertOrDelete(Object node, byte[] key, byte[] value) {
@@ -329,7 +378,7 @@ public class TrieImpl implements Trie {
                 newHash = this.putToCache(scaledSlice);
             }
 
-            markRemoved(HashUtil.h256(currentNode.encode()));
+            markRemoved(currentNode);
 
             if (matchingLength == 0) {
                 // End of the chain, return
@@ -346,9 +395,8 @@ public class TrieImpl implements Trie {
             // Replace the first nibble in the key
             newNode[key[0]] = this.insert(currentNode.get(key[0]).asObj(), copyOfRange(key, 1, key.length), value);
 
-            if (!FastByteComparisons
-                    .equal(HashUtil.h256(getNode(newNode).encode()), HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            if (pruningEnabled && !FastByteComparisons.equal(getNode(newNode).encode(), currentNode.encode())) {
+                markRemoved(currentNode);
                 if (!isEmptyNode(currentNode.get(key[0]))) {
                     markRemoved(currentNode.get(key[0]).asBytes());
                 }
@@ -390,7 +438,7 @@ public class TrieImpl implements Trie {
                 } else {
                     newNode = new Object[] { currentNode.get(0), hash };
                 }
-                markRemoved(HashUtil.h256(currentNode.encode()));
+                markRemoved(currentNode);
                 return this.putToCache(newNode);
             } else {
                 return node;
@@ -428,9 +476,8 @@ public class TrieImpl implements Trie {
                 newNode = itemList;
             }
 
-            if (!FastByteComparisons
-                    .equal(HashUtil.h256(getNode(newNode).encode()), HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            if (pruningEnabled && !FastByteComparisons.equal(getNode(newNode).encode(), currentNode.encode())) {
+                markRemoved(currentNode);
             }
 
             return this.putToCache(newNode);
@@ -443,6 +490,16 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /**
+     * Marks the given node as removed. The node is only hashed when pruning
+     * is enabled since its key is not needed otherwise.
+     */
+    private void markRemoved(Value node) {
+        if (pruningEnabled) {
+            cache.markRemoved(HashUtil.h256(node.encode()));
+        }
+    }
+
     /**
      * Helper method to retrieve the actual node. If the node is not a list and
      * length is > 32 bytes get the actual node from the db.
@@ -497,10 +554,8 @@ public class TrieImpl implements Trie {
 
     @Override
     public void sync() {
-        synchronized (cache) {
-            boolean flushCache = !cache.isDirty() || cache.getSize() > MAX_SIZE;
-            sync(flushCache);
-        }
+        // the committed nodes stay in the bounded cache across syncs
+        sync(false);
     }
 
     @Override
@@ -523,9 +578,8 @@ public class TrieImpl implements Trie {
     public TrieImpl copy() {
         synchronized (cache) {
             TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
-            for (ByteArrayWrapper key : this.cache.getNodes().keySet()) {
-                Node node = this.cache.getNodes().get(key);
-                trie.cache.getNodes().put(key, node.copy());
+            for (Map.Entry<ByteArrayWrapper, Node> entry : this.cache.getNodes().entrySet()) {
+                trie.cache.putNode(entry.getKey(), entry.getValue().copy());
             }
             return trie;
         }
@@ -624,7 +678,7 @@ public class TrieImpl implements Trie {
 
                 Value value = Value.fromRlpEncoded(val);
                 System.arraycopy(keysElement.getRLPData(), i * 32, key, 0, 32);
-                cache.getNodes().put(wrap(key), new Node(value));
+                cache.putNode(wrap(key), new Node(value));
             }
 
             this.deserializeRoot(root.getRLPData());
@@ -31,7 +31,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.aion.base.type.IBlock;
 import org.aion.base.type.IBlockHeader;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RlpWriter;
 
 /**
  * Abstract Block class.
@@ -63,9 +63,15 @@ public abstract class AbstractBlock<BH extends IBlockHeader, TX extends Abstract
     }
 
     public byte[] getEncodedBody() {
-        List<byte[]> body = getBodyElements();
-        byte[][] elements = body.toArray(new byte[body.size()][]);
-        return RLP.encodeList(elements);
+        parseRLP();
+        byte[][] transactionsEncoded = getTransactionsElements();
+        int txsLength = payloadLength(transactionsEncoded);
+        int length = RlpWriter.listLength(txsLength);
+
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        rlp.writeListHeader(length);
+        writeList(rlp, txsLength, transactionsEncoded);
+        return rlp.toByteArray();
     }
 
     public List<byte[]> getBodyElements() {
@@ -77,13 +83,36 @@ public abstract class AbstractBlock<BH extends IBlockHeader, TX extends Abstract
     }
 
     public byte[] getTransactionsEncoded() {
+        byte[][] transactionsEncoded = getTransactionsElements();
+        int length = payloadLength(transactionsEncoded);
 
+        RlpWriter rlp = new RlpWriter(RlpWriter.listLength(length));
+        writeList(rlp, length, transactionsEncoded);
+        return rlp.toByteArray();
+    }
+
+    protected byte[][] getTransactionsElements() {
         byte[][] transactionsEncoded = new byte[transactionsList.size()][];
         int i = 0;
         for (TX tx : transactionsList) {
             transactionsEncoded[i] = tx.getEncoded();
             ++i;
         }
-        return RLP.encodeList(transactionsEncoded);
+        return transactionsEncoded;
+    }
+
+    protected static int payloadLength(byte[][] elements) {
+        int length = 0;
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        return length;
+    }
+
+    protected static void writeList(RlpWriter rlp, int payloadLength, byte[][] elements) {
+        rlp.writeListHeader(payloadLength);
+        for (byte[] element : elements) {
+            rlp.writeEncoded(element);
+        }
     }
 }
@@ -0,0 +1,67 @@
+package org.aion.mcf.ds;
+
+import org.aion.base.util.ByteUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DataSourceArrayTest {
+
+    private static final Serializer<Long, byte[]> LONG_SERIALIZER = new Serializer<Long, byte[]>() {
+        @Override
+        public byte[] serialize(Long object) {
+            return ByteUtil.longToBytes(object);
+        }
+
+        @Override
+        public Long deserialize(byte[] stream) {
+            return ByteUtil.byteArrayToLong(stream);
+        }
+    };
+
+    private MockDB db;
+    private DataSourceArray<Long> array;
+
+    @Before
+    public void setup() {
+        db = new MockDB("array");
+        db.open();
+        array = new DataSourceArray<>(new ObjectDataSource<>(db, LONG_SERIALIZER));
+    }
+
+    @Test
+    public void testIntKeysUnchanged() {
+        array.set(7, 7L);
+
+        assertThat(db.get(ByteUtil.intToBytes(7)).isPresent()).isTrue();
+        assertThat(array.size()).isEqualTo(8);
+        assertThat(array.get(7)).isEqualTo(7L);
+        assertThat(DataSourceArray.fromKey(ByteUtil.intToBytes(7))).isEqualTo(7L);
+    }
+
+    @Test
+    public void testLongIndexes() {
+        long idx = Integer.MAX_VALUE + 10L;
+        array.set(idx, idx);
+
+        assertThat(array.longSize()).isEqualTo(idx + 1);
+        assertThat(array.size()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(array.get(idx)).isEqualTo(idx);
+        assertThat(DataSourceArray.fromKey(DataSourceArray.toKey(idx))).isEqualTo(idx);
+
+        // the size survives a reload
+        DataSourceArray<Long> reloaded = new DataSourceArray<>(new ObjectDataSource<>(db, LONG_SERIALIZER));
+        assertThat(reloaded.longSize()).isEqualTo(idx + 1);
+
+        array.remove(idx);
+        assertThat(array.longSize()).isEqualTo(idx);
+    }
+
+    @Test
+    public void testSizeKeyIsNotAnElement() {
+        array.set(0, 1L);
+        assertThat(DataSourceArray.fromKey(ByteUtil.hexStringToBytes("FFFFFFFFFFFFFFFF"))).isEqualTo(-1L);
+    }
+}
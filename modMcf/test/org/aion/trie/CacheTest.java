@@ -0,0 +1,210 @@
+package org.aion.trie;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.trie.Cache;
+import org.aion.mcf.trie.Node;
+import org.aion.mcf.trie.TrieImpl;
+import org.aion.rlp.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class CacheTest {
+
+    private MockDB db;
+
+    @Before
+    public void setup() {
+        db = new MockDB("cache");
+        db.open();
+    }
+
+    private static Object[] node(int i) {
+        // long enough to be stored by hash
+        return new Object[] { ("key-" + i + "-0123456789abcdef").getBytes(), ("value-" + i).getBytes() };
+    }
+
+    @Test
+    public void testCommitWritesOnlyDirtyNodes() {
+        Cache cache = new Cache(db);
+        byte[] first = (byte[]) cache.put(node(1));
+        cache.commit(false);
+        assertThat(db.get(first).isPresent()).isTrue();
+        assertThat(cache.isDirty()).isFalse();
+
+        byte[] second = (byte[]) cache.put(node(2));
+        db.delete(first);
+        cache.commit(false);
+
+        // the clean node is not written again
+        assertThat(db.get(first).isPresent()).isFalse();
+        assertThat(db.get(second).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testUndoKeepsCleanNodes() {
+        Cache cache = new Cache(db);
+        byte[] clean = (byte[]) cache.put(node(1));
+        cache.commit(false);
+        byte[] dirty = (byte[]) cache.put(node(2));
+
+        cache.undo();
+
+        assertThat(cache.getNodes().containsKey(ByteArrayWrapper.wrap(clean))).isTrue();
+        assertThat(cache.getNodes().containsKey(ByteArrayWrapper.wrap(dirty))).isFalse();
+        assertThat(cache.isDirty()).isFalse();
+    }
+
+    @Test
+    public void testPutNodeTracksDirtyNodes() {
+        Cache cache = new Cache(db);
+        Value value = new Value(node(3));
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(HashUtil.h256(value.encode()));
+
+        cache.putNode(key, new Node(value, true));
+        assertThat(cache.isDirty()).isTrue();
+
+        cache.commit(true);
+        assertThat(db.get(key.getData()).isPresent()).isTrue();
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cache.get(key.getData()).encode()).isEqualTo(value.encode());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNodesAreReadOnly() {
+        new Cache(db).getNodes().clear();
+    }
+
+    @Test
+    public void testConcurrentReadsDuringUpdates() throws Exception {
+        TrieImpl trie = new TrieImpl(db).withPruningEnabled(true);
+        for (int i = 0; i < 200; i++) {
+            trie.update(("key" + i).getBytes(), ("value" + i).getBytes());
+        }
+        trie.sync();
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(readers.submit(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (int i = 0; i < 200; i++) {
+                        byte[] value = trie.get(("key" + i).getBytes());
+                        if (!new String(value).equals("value" + i)) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }));
+        }
+
+        // the writer keeps changing other keys
+        for (int i = 200; i < 1200; i++) {
+            trie.update(("key" + i).getBytes(), ("value" + i).getBytes());
+            if (i % 100 == 0) {
+                trie.sync();
+            }
+        }
+
+        for (Future<Boolean> result : results) {
+            assertThat(result.get()).isTrue();
+        }
+        readers.shutdown();
+        assertThat(readers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testCleanNodesAreBounded() {
+        Cache cache = new Cache(db, 2048);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add((byte[]) cache.put(node(i)));
+        }
+        // dirty nodes are never evicted
+        assertThat(cache.getSize()).isEqualTo(100);
+
+        cache.commit(false);
+        assertThat(cache.getSize()).isLessThan(100);
+        assertThat(cache.getStats().evictionCount()).isGreaterThan(0L);
+
+        // evicted nodes are read back from the data source
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get(keys.get(i)).encode()).isEqualTo(new Value(node(i)).encode());
+        }
+        assertThat(cache.getStats().missCount()).isGreaterThan(0L);
+        assertThat(cache.get(keys.get(99)).encode()).isEqualTo(new Value(node(99)).encode());
+        assertThat(cache.getStats().hitCount()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testNodesWithoutDataSourceAreKept() {
+        Cache cache = new Cache(null, 1);
+        Value value = new Value(node(4));
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(HashUtil.h256(value.encode()));
+
+        cache.putNode(key, new Node(value, false));
+        assertThat(cache.get(key.getData())).isNotNull();
+
+        cache.setDB(db);
+        assertThat(db.get(key.getData()).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testCleanNodesBuiltWithDataSource() {
+        Cache cache = new Cache(null);
+        Value value = new Value(node(5));
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(HashUtil.h256(value.encode()));
+        cache.putNode(key, new Node(value, false));
+        assertThat(cache.getStats().requestCount()).isEqualTo(0L);
+
+        // the node written to the data source moves to the bounded cache
+        cache.setDB(db);
+        assertThat(cache.get(key.getData()).encode()).isEqualTo(value.encode());
+        assertThat(cache.getStats().hitCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testSyncKeepsCommittedNodes() {
+        TrieImpl trie = new TrieImpl(db);
+        for (int i = 0; i < 100; i++) {
+            trie.update(("key" + i).getBytes(), ("value" + i).getBytes());
+        }
+        trie.sync();
+        int committed = trie.getCache().getSize();
+        assertThat(committed).isGreaterThan(0);
+
+        // a sync without changes does not drop them either
+        trie.sync();
+        assertThat(trie.getCache().getSize()).isEqualTo(committed);
+        assertThat(trie.get("key7".getBytes())).isEqualTo("value7".getBytes());
+    }
+
+    @Test
+    public void testValidRootSkipsCommittedNodes() {
+        TrieImpl trie = new TrieImpl(db);
+        // long enough for the root to be stored as a node
+        trie.update("key".getBytes(), new byte[64]);
+        byte[] root = trie.getRootHash();
+        // still to be committed
+        assertThat(trie.isValidRoot(root)).isTrue();
+
+        trie.sync();
+        assertThat(trie.isValidRoot(root)).isTrue();
+
+        // removed behind the cache, which still holds the node
+        db.delete(root);
+        assertThat(trie.getCache().getNodes()).containsKey(ByteArrayWrapper.wrap(root));
+        assertThat(trie.isValidRoot(root)).isFalse();
+    }
+}
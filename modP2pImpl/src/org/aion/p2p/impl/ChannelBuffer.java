@@ -27,8 +27,10 @@ package org.aion.p2p.impl;
 
 import org.aion.p2p.Header;
 import java.nio.ByteBuffer;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -71,6 +73,65 @@ class ChannelBuffer {
         return header != null && body != null && body.length == header.getLen();
     }
 
+    /**
+     * Bound of the outbound queue, the oldest messages are dropped beyond it
+     */
+    static final int MAX_OUTBOUND_MSGS = 1024;
+
+    /**
+     * Encoded messages waiting to be written by the selector, each one as
+     * header and body buffers
+     */
+    private final Queue<ByteBuffer[]> outbound = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger outboundSize = new AtomicInteger(0);
+
+    /**
+     * Buffers of the batch being written, kept while the socket send buffer
+     * is full
+     */
+    ByteBuffer[] writeBufs = null;
+
+    int writeOffset = 0;
+
+    /**
+     * Set while the channel is registered for {@code OP_WRITE}
+     */
     public AtomicBoolean onWrite = new AtomicBoolean(false);
 
+    /**
+     * @param _msg ByteBuffer[] encoded message
+     * @return boolean false if the oldest queued message was dropped to make room
+     */
+    boolean offerOutbound(final ByteBuffer[] _msg) {
+        boolean dropped = false;
+        if (outboundSize.incrementAndGet() > MAX_OUTBOUND_MSGS && pollOutbound() != null)
+            dropped = true;
+        outbound.offer(_msg);
+        return !dropped;
+    }
+
+    /**
+     * @return ByteBuffer[] oldest queued message or null
+     */
+    ByteBuffer[] pollOutbound() {
+        ByteBuffer[] msg = outbound.poll();
+        if (msg != null)
+            outboundSize.decrementAndGet();
+        return msg;
+    }
+
+    /**
+     * @return boolean
+     */
+    boolean hasOutbound() {
+        return !outbound.isEmpty();
+    }
+
+    /**
+     * @return int
+     */
+    int outboundSize() {
+        return outbound.size();
+    }
 }
@@ -30,6 +30,7 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -66,6 +67,8 @@ public final class P2pMgr implements IP2pMgr {
     private final static int TIMEOUT_ACTIVE_NODES = 30000;
     private final static int TIMEOUT_MSG_READ = 10000;
 
+    private final static int MAX_GATHER_MSGS = 32;
+
     private final int maxTempNodes;
     private final int maxActiveNodes;
 
@@ -134,6 +137,16 @@ public final class P2pMgr implements IP2pMgr {
                             }
                             closeSocket((SocketChannel) sk.channel());
                         }
+
+                    if (sk.isValid() && sk.isWritable())
+                        try {
+                            write(sk);
+                        } catch (IOException | CancelledKeyException e) {
+                            if (showLog) {
+                                System.out.println("<p2p write-msg-io-exception>");
+                            }
+                            closeSocket((SocketChannel) sk.channel());
+                        }
                 }
                 selectorLock.unlock();
             }
@@ -208,7 +221,7 @@ public final class P2pMgr implements IP2pMgr {
                             node.setChannel(channel);
                             addOutboundNode(node);
                             selectorLock.unlock();
-                            workers.submit(new TaskWrite(node.getIdShort(), channel, cachedReqHandshake, rb));
+                            sendMsg(node.getIdShort(), channel, cachedReqHandshake, rb);
 
                             if (showLog)
                                 System.out.println("<p2p action=connect-outbound addr=" + node.getIpStr() + ":" + _port + " result=success>");
@@ -294,61 +307,6 @@ public final class P2pMgr implements IP2pMgr {
         }
     }
 
-    final class TaskWrite implements Runnable {
-
-        private String nodeShortId;
-        private SocketChannel sc;
-        private Msg msg;
-        private ChannelBuffer channelBuffer;
-
-        public TaskWrite(String _nodeShortId, final SocketChannel _sc, final Msg _msg, final ChannelBuffer _cb){
-            this.nodeShortId = _nodeShortId;
-            this.sc = _sc;
-            this.msg = _msg;
-            this.channelBuffer = _cb;
-        }
-
-        @Override
-        public void run() {
-            Thread.currentThread().setName("p2p-write");
-
-            // NOTE: the following logic may cause message loss
-            if(this.channelBuffer != null && this.channelBuffer.onWrite.compareAndSet(false, true)) {
-                /*
-                 * @warning header set len (body len) before header encode
-                 */
-                byte[] bodyBytes = msg.encode();
-                int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
-                Header h = msg.getHeader();
-                h.setLen(bodyLen);
-                byte[] headerBytes = h.encode();
-
-                //System.out.println("out " + h.getVer() + "-" + h.getCtrl() + "-" + h.getAction());
-                ByteBuffer buf = ByteBuffer.allocate(headerBytes.length + bodyLen);
-                buf.put(headerBytes);
-                if (bodyBytes != null)
-                    buf.put(bodyBytes);
-                buf.flip();
-
-                try {
-                    while (buf.hasRemaining()) {
-                        sc.write(buf);
-                    }
-                } catch (IOException e) {
-                    if (showLog) {
-                        System.out.println("<p2p write-msg-io-exception node=" + this.nodeShortId + ">");
-                        // e.printStackTrace();
-                    }
-                }
-                finally {
-                    this.channelBuffer.onWrite.set(false);
-//                    if (buf.hasRemaining())
-//                        dropActive(_nodeIdHash, _nodeShortId, "timeout-write-msg");
-                }
-            }
-        }
-    }
-
     /**
      * @param _nodeId byte[36]
      * @param _ip String
@@ -604,6 +562,96 @@ public final class P2pMgr implements IP2pMgr {
         }
     }
 
+    /**
+     * Encodes the message on the calling thread and queues it on the channel.
+     * The selector thread writes it once the channel is writable, so a busy
+     * channel delays messages instead of dropping them. Only a full queue
+     * drops messages, starting with the oldest.
+     *
+     * @param _nodeShortId String
+     * @param _sc SocketChannel
+     * @param _msg Msg
+     * @param _cb ChannelBuffer
+     */
+    private void sendMsg(String _nodeShortId, final SocketChannel _sc, final Msg _msg, final ChannelBuffer _cb) {
+        /*
+         * @warning header set len (body len) before header encode
+         */
+        byte[] bodyBytes = _msg.encode();
+        int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
+        Header h = _msg.getHeader();
+        h.setLen(bodyLen);
+        byte[] headerBytes = h.encode();
+
+        // wrapped without copying, the gathering write of the selector
+        // thread copies them into its cached direct buffer
+        ByteBuffer[] bufs = bodyLen == 0
+                ? new ByteBuffer[] { ByteBuffer.wrap(headerBytes) }
+                : new ByteBuffer[] { ByteBuffer.wrap(headerBytes), ByteBuffer.wrap(bodyBytes) };
+
+        if (!_cb.offerOutbound(bufs) && showLog)
+            System.out.println("<p2p outbound-queue-full drop-oldest node=" + _nodeShortId + ">");
+
+        if (_cb.onWrite.compareAndSet(false, true)) {
+            SelectionKey sk = _sc.keyFor(selector);
+            try {
+                if (sk != null && sk.isValid()) {
+                    sk.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    selector.wakeup();
+                }
+            } catch (CancelledKeyException e) {
+                // channel closed, the queued messages go with it
+            }
+        }
+    }
+
+    /**
+     * Writes the queued messages of the channel with gathering writes until
+     * the queue is empty or the socket send buffer is full.
+     *
+     * @param _sk SelectionKey
+     * @throws IOException IOException
+     */
+    private void write(final SelectionKey _sk) throws IOException {
+        if (_sk.attachment() == null) {
+            throw new IOException("attachment is null");
+        }
+        ChannelBuffer cb = (ChannelBuffer) _sk.attachment();
+        SocketChannel sc = (SocketChannel) _sk.channel();
+
+        while (true) {
+            if (cb.writeBufs == null) {
+                List<ByteBuffer> batch = new ArrayList<>();
+                ByteBuffer[] msg;
+                for (int i = 0; i < MAX_GATHER_MSGS && (msg = cb.pollOutbound()) != null; i++) {
+                    Collections.addAll(batch, msg);
+                }
+                if (batch.isEmpty())
+                    break;
+                cb.writeBufs = batch.toArray(new ByteBuffer[batch.size()]);
+                cb.writeOffset = 0;
+            }
+
+            sc.write(cb.writeBufs, cb.writeOffset, cb.writeBufs.length - cb.writeOffset);
+            while (cb.writeOffset < cb.writeBufs.length && !cb.writeBufs[cb.writeOffset].hasRemaining())
+                cb.writeOffset++;
+
+            // send buffer full, continue on the next OP_WRITE
+            if (cb.writeOffset < cb.writeBufs.length)
+                return;
+            cb.writeBufs = null;
+        }
+
+        /*
+         * deregister before clearing the flag, then check again for messages
+         * queued in between whose sender saw the flag still set
+         */
+        _sk.interestOps(SelectionKey.OP_READ);
+        cb.onWrite.set(false);
+        if (cb.hasOutbound() && cb.onWrite.compareAndSet(false, true))
+            _sk.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
     /**
      * @param _sk SelectionKey
      * @param _act ACT
@@ -624,12 +672,7 @@ public final class P2pMgr implements IP2pMgr {
                         node.setVersion(reqHandshake.getVersion());
                         node.setPort(reqHandshake.getPort());
                         moveInboundToActive(node.getChannel().hashCode());
-                        workers.submit(new TaskWrite(
-                            node.getIdShort(),
-                            node.getChannel(),
-                            new ResHandshake(true),
-                            rb
-                        ));
+                        sendMsg(node.getIdShort(), node.getChannel(), new ResHandshake(true), rb);
                     }
                 }
                 break;
@@ -649,12 +692,8 @@ public final class P2pMgr implements IP2pMgr {
                 if (rb.nodeIdHash != 0) {
                     Node node = activeNodes.get(rb.nodeIdHash);
                     if (node != null)
-                        workers.submit(new TaskWrite(
-                            node.getIdShort(),
-                            node.getChannel(),
-                            new ResActiveNodes(new ArrayList(activeNodes.values())),
-                            rb
-                        ));
+                        sendMsg(node.getIdShort(), node.getChannel(),
+                                new ResActiveNodes(new ArrayList(activeNodes.values())), rb);
                 }
                 break;
 
@@ -796,12 +835,7 @@ public final class P2pMgr implements IP2pMgr {
             if (sk != null) {
                 Object attachment = sk.attachment();
                 if (attachment != null)
-                    workers.submit(new TaskWrite(
-                            node.getIdShort(),
-                            node.getChannel(),
-                            _msg,
-                            (ChannelBuffer) attachment
-                    ));
+                    sendMsg(node.getIdShort(), node.getChannel(), _msg, (ChannelBuffer) attachment);
             }
         }
     }
@@ -0,0 +1,44 @@
+package org.aion.p2p.impl;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class ChannelBufferTest {
+
+    private static ByteBuffer[] msg(int _id) {
+        return new ByteBuffer[] { ByteBuffer.allocate(4).putInt(0, _id) };
+    }
+
+    @Test
+    public void testOutboundOrder() {
+        ChannelBuffer cb = new ChannelBuffer();
+        assertFalse(cb.hasOutbound());
+
+        for (int i = 0; i < 10; i++)
+            assertTrue(cb.offerOutbound(msg(i)));
+        assertEquals(10, cb.outboundSize());
+
+        for (int i = 0; i < 10; i++)
+            assertEquals(i, cb.pollOutbound()[0].getInt(0));
+        assertNull(cb.pollOutbound());
+        assertFalse(cb.hasOutbound());
+    }
+
+    @Test
+    public void testOutboundDropsOldest() {
+        ChannelBuffer cb = new ChannelBuffer();
+
+        for (int i = 0; i < ChannelBuffer.MAX_OUTBOUND_MSGS; i++)
+            assertTrue(cb.offerOutbound(msg(i)));
+
+        assertFalse(cb.offerOutbound(msg(ChannelBuffer.MAX_OUTBOUND_MSGS)));
+        assertEquals(ChannelBuffer.MAX_OUTBOUND_MSGS, cb.outboundSize());
+
+        // the first message was dropped, the rest keep their order
+        assertEquals(1, cb.pollOutbound()[0].getInt(0));
+    }
+
+}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.rlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.aion.base.util.ByteUtil;
+import org.aion.base.util.Hex;
+
+/**
+ * Read-only view of an RLP encoded element inside its source array.
+ *
+ * Unlike {@link RLP#decode2(byte[])}, decoding only reads the prefix of the
+ * element. Nothing is copied until the content is requested through
+ * {@link #getData()} or {@link #getEncoded()}, and the elements of a list are
+ * located while iterating over it. The source array must not be modified while
+ * views on it are in use.
+ */
+public final class RLPView implements Iterable<RLPView> {
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private final byte[] src;
+
+    /** position of the prefix */
+    private final int offset;
+
+    /** position and length of the payload */
+    private final int dataOffset;
+    private final int dataLength;
+
+    private final boolean list;
+
+    /**
+     * Reads the prefix of the element at {@code pos}, which must end before
+     * {@code limit}.
+     */
+    private RLPView(byte[] src, int pos, int limit) {
+        if (pos >= limit) {
+            throw new RuntimeException("RLP wrong encoding (no element at " + pos + ")");
+        }
+
+        int prefix = src[pos] & 0xFF;
+        int lengthOfLength = 0;
+        int length;
+
+        if (prefix < OFFSET_SHORT_ITEM) {
+            // single byte item, the prefix is the payload
+            this.list = false;
+            this.dataOffset = pos;
+            this.dataLength = 1;
+        } else {
+            if (prefix <= OFFSET_LONG_ITEM) {
+                length = prefix - OFFSET_SHORT_ITEM;
+                this.list = false;
+            } else if (prefix < OFFSET_SHORT_LIST) {
+                lengthOfLength = prefix - OFFSET_LONG_ITEM;
+                length = readLength(src, pos, lengthOfLength, limit);
+                this.list = false;
+            } else if (prefix <= OFFSET_LONG_LIST) {
+                length = prefix - OFFSET_SHORT_LIST;
+                this.list = true;
+            } else {
+                lengthOfLength = prefix - OFFSET_LONG_LIST;
+                length = readLength(src, pos, lengthOfLength, limit);
+                this.list = true;
+            }
+            this.dataOffset = pos + 1 + lengthOfLength;
+            this.dataLength = length;
+        }
+
+        if ((long) this.dataOffset + this.dataLength > limit) {
+            throw new RuntimeException("RLP wrong encoding (element at " + pos + " exceeds its bounds: "
+                    + Hex.toHexString(src, pos, Math.min(limit - pos, 32)) + ")");
+        }
+
+        this.src = src;
+        this.offset = pos;
+    }
+
+    private static int readLength(byte[] src, int pos, int lengthOfLength, int limit) {
+        if (lengthOfLength > 4 || pos + lengthOfLength >= limit) {
+            throw new RuntimeException("RLP wrong encoding (invalid length at " + pos + ")");
+        }
+        long length = 0;
+        for (int i = 1; i <= lengthOfLength; i++) {
+            length = (length << 8) | (src[pos + i] & 0xFF);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new RuntimeException("RLP wrong encoding (invalid length at " + pos + ")");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Decodes the first element of the given data.
+     *
+     * @throws RuntimeException
+     *             when the data is not a valid RLP encoding
+     */
+    public static RLPView decode(byte[] data) {
+        return decode(data, 0);
+    }
+
+    /**
+     * Decodes the element starting at {@code pos}.
+     *
+     * @throws RuntimeException
+     *             when the data is not a valid RLP encoding
+     */
+    public static RLPView decode(byte[] data, int pos) {
+        if (data == null) {
+            throw new RuntimeException("RLP wrong encoding (null data)");
+        }
+        return new RLPView(data, pos, data.length);
+    }
+
+    public boolean isList() {
+        return list;
+    }
+
+    /**
+     * @return {@code true} for an empty item or an empty list
+     */
+    public boolean isEmpty() {
+        return dataLength == 0;
+    }
+
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    public int getEncodedLength() {
+        return dataOffset + dataLength - offset;
+    }
+
+    /**
+     * @return a copy of the payload, for a list the concatenation of its encoded
+     *         elements
+     */
+    public byte[] getData() {
+        return dataLength == 0 ? ByteUtil.EMPTY_BYTE_ARRAY
+                : Arrays.copyOfRange(src, dataOffset, dataOffset + dataLength);
+    }
+
+    /**
+     * @return a copy of the whole element including its prefix, equal to
+     *         {@link RLPList#getRLPData()} for lists
+     */
+    public byte[] getEncoded() {
+        return Arrays.copyOfRange(src, offset, dataOffset + dataLength);
+    }
+
+    /**
+     * Reads the payload as an unsigned big-endian number, truncated to the
+     * lowest 64 bits as {@code new BigInteger(1, getData()).longValue()}.
+     */
+    public long getLong() {
+        long value = 0;
+        for (int i = dataOffset, end = dataOffset + dataLength; i < end; i++) {
+            value = (value << 8) | (src[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Locates the element of this list at the given index, walking over the
+     * elements before it.
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the list has fewer elements
+     */
+    public RLPView get(int index) {
+        Iterator<RLPView> it = iterator();
+        for (int i = 0; i < index && it.hasNext(); i++) {
+            it.next();
+        }
+        if (index < 0 || !it.hasNext()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return it.next();
+    }
+
+    /**
+     * @return the number of elements of this list
+     */
+    public int size() {
+        int size = 0;
+        for (Iterator<RLPView> it = iterator(); it.hasNext(); it.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * @return the views of all the elements of this list, located in one pass
+     */
+    public List<RLPView> getElements() {
+        List<RLPView> elements = new ArrayList<>();
+        for (RLPView element : this) {
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    /**
+     * Iterates lazily over the elements of this list.
+     *
+     * @throws IllegalStateException
+     *             if this view is an item
+     */
+    @Override
+    public Iterator<RLPView> iterator() {
+        if (!list) {
+            throw new IllegalStateException("RLP item is not a list");
+        }
+
+        return new Iterator<RLPView>() {
+            private final int end = dataOffset + dataLength;
+            private int pos = dataOffset;
+
+            @Override
+            public boolean hasNext() {
+                return pos < end;
+            }
+
+            @Override
+            public RLPView next() {
+                if (pos >= end) {
+                    throw new NoSuchElementException();
+                }
+                RLPView element = new RLPView(src, pos, end);
+                pos = element.dataOffset + element.dataLength;
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return (list ? "RLPView[list " : "RLPView[item ") + Hex.toHexString(src, dataOffset, dataLength) + "]";
+    }
+}
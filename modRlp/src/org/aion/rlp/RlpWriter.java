@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.rlp;
+
+import java.math.BigInteger;
+
+/**
+ * Writes RLP encodings directly into a byte array.
+ *
+ * The static {@code *Length} methods return the encoded size of a value, so a
+ * caller can sum up the payload of a list, allocate the exact output once and
+ * write the list header followed by its elements. Unlike
+ * {@link RLP#encodeList(byte[]...)}, no intermediate array is created per
+ * element or nesting level.
+ *
+ * The output of each method is identical to the corresponding method of
+ * {@link RLP}.
+ */
+public final class RlpWriter {
+
+    private static final int SIZE_THRESHOLD = 56;
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private final byte[] buf;
+    private final int start;
+    private int pos;
+
+    /**
+     * Creates a writer on a new array of the given exact length.
+     */
+    public RlpWriter(int length) {
+        this(new byte[length], 0);
+    }
+
+    /**
+     * Creates a writer on an existing array, starting at {@code offset}.
+     */
+    public RlpWriter(byte[] buf, int offset) {
+        this.buf = buf;
+        this.start = offset;
+        this.pos = offset;
+    }
+
+    // ----------------------------------------------------------------------
+    // sizes
+
+    /**
+     * @return the size of {@link RLP#encodeElement(byte[])}
+     */
+    public static int elementLength(byte[] data) {
+        if (data == null || data.length == 0) {
+            return 1;
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else {
+            return headerLength(data.length) + data.length;
+        }
+    }
+
+    /**
+     * @return the size of {@link RLP#encodeByte(byte)}
+     */
+    public static int byteLength(byte value) {
+        return (value & 0xFF) < OFFSET_SHORT_ITEM ? 1 : 2;
+    }
+
+    /**
+     * @return the size of {@link RLP#encodeLong(long)}, which uses the full 8
+     *         bytes for values that do not fit in 32 unsigned bits
+     */
+    public static int longLength(long value) {
+        if ((value & 0x00000000FFFFFFFFL) != value) {
+            return 9;
+        }
+        return value < OFFSET_SHORT_ITEM ? 1 : 1 + bytesNoLeadZeroes(value);
+    }
+
+    /**
+     * @return the size of
+     *         {@link RLP#encodeBigInteger(BigInteger)} for {@code BigInteger.valueOf(value)}
+     */
+    public static int numberLength(long value) {
+        if (value < 0) {
+            return elementLength(Utils.asUnsignedByteArray(BigInteger.valueOf(value)));
+        }
+        return value < OFFSET_SHORT_ITEM ? 1 : 1 + bytesNoLeadZeroes(value);
+    }
+
+    /**
+     * @return the size of a list with the given payload, including its header
+     */
+    public static int listLength(int payloadLength) {
+        return headerLength(payloadLength) + payloadLength;
+    }
+
+    private static int headerLength(int length) {
+        return length < SIZE_THRESHOLD ? 1 : 1 + bytesNoLeadZeroes(length);
+    }
+
+    private static int bytesNoLeadZeroes(long value) {
+        return value == 0 ? 0 : (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    // ----------------------------------------------------------------------
+    // writing
+
+    public RlpWriter writeListHeader(int payloadLength) {
+        writeHeader(payloadLength, OFFSET_SHORT_LIST, OFFSET_LONG_LIST);
+        return this;
+    }
+
+    public RlpWriter writeElement(byte[] data) {
+        if (data == null || data.length == 0) {
+            buf[pos++] = (byte) OFFSET_SHORT_ITEM;
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            buf[pos++] = data[0];
+        } else {
+            writeHeader(data.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM);
+            System.arraycopy(data, 0, buf, pos, data.length);
+            pos += data.length;
+        }
+        return this;
+    }
+
+    public RlpWriter writeByte(byte value) {
+        if (value == 0) {
+            buf[pos++] = (byte) OFFSET_SHORT_ITEM;
+        } else if ((value & 0xFF) < OFFSET_SHORT_ITEM) {
+            buf[pos++] = value;
+        } else {
+            buf[pos++] = (byte) (OFFSET_SHORT_ITEM + 1);
+            buf[pos++] = value;
+        }
+        return this;
+    }
+
+    public RlpWriter writeLong(long value) {
+        if ((value & 0x00000000FFFFFFFFL) != value) {
+            buf[pos++] = (byte) (OFFSET_SHORT_ITEM + 8);
+            writeBytes(value, 8);
+        } else {
+            writeNumber(value);
+        }
+        return this;
+    }
+
+    public RlpWriter writeNumber(long value) {
+        if (value < 0) {
+            return writeElement(Utils.asUnsignedByteArray(BigInteger.valueOf(value)));
+        }
+        if (value == 0) {
+            buf[pos++] = (byte) OFFSET_SHORT_ITEM;
+        } else if (value < OFFSET_SHORT_ITEM) {
+            buf[pos++] = (byte) value;
+        } else {
+            int n = bytesNoLeadZeroes(value);
+            buf[pos++] = (byte) (OFFSET_SHORT_ITEM + n);
+            writeBytes(value, n);
+        }
+        return this;
+    }
+
+    /**
+     * Copies an element that is already RLP encoded.
+     */
+    public RlpWriter writeEncoded(byte[] encoded) {
+        System.arraycopy(encoded, 0, buf, pos, encoded.length);
+        pos += encoded.length;
+        return this;
+    }
+
+    private void writeHeader(int length, int shortOffset, int longOffset) {
+        if (length < SIZE_THRESHOLD) {
+            buf[pos++] = (byte) (shortOffset + length);
+        } else {
+            int n = bytesNoLeadZeroes(length);
+            buf[pos++] = (byte) (longOffset + n);
+            writeBytes(length, n);
+        }
+    }
+
+    private void writeBytes(long value, int n) {
+        for (int i = n - 1; i >= 0; i--) {
+            buf[pos++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        return pos - start;
+    }
+
+    /**
+     * @return the underlying array, which must have been completely filled
+     * @throws IllegalStateException
+     *             if the written size does not match the array
+     */
+    public byte[] toByteArray() {
+        if (start != 0 || pos != buf.length) {
+            throw new IllegalStateException("RLP output size mismatch: wrote " + size() + " of " + buf.length);
+        }
+        return buf;
+    }
+}
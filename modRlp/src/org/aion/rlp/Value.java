@@ -51,12 +51,14 @@ import org.aion.base.util.Hex;
 public class Value {
 
     private Object value;
-    private byte[] rlp;
+    // the lazily computed fields are volatile so that values shared through
+    // the trie node cache can be decoded and encoded from several threads
+    private volatile byte[] rlp;
 
     // removed all sha3 logic in rlp
     // private byte[] sha3;
 
-    private boolean decoded = false;
+    private volatile boolean decoded = false;
 
     public static Value fromRlpEncoded(byte[] data) {
 
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.rlp;
+
+import static org.aion.rlp.RLP.decode2;
+import static org.aion.rlp.RLP.encodeElement;
+import static org.aion.rlp.RLP.encodeList;
+import static org.aion.rlp.RLP.encodeLong;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.aion.base.util.ByteUtil;
+import org.junit.Test;
+
+public class RLPViewTest {
+
+    private static byte[] bytes(int length, int fill) {
+        byte[] b = new byte[length];
+        Arrays.fill(b, (byte) fill);
+        return b;
+    }
+
+    @Test
+    public void testMatchesDecode2() {
+        byte[] inner = encodeList(encodeElement(bytes(3, 1)), encodeElement(new byte[0]));
+        byte[] encoded = encodeList(encodeElement(bytes(1, 0x7f)), encodeElement(bytes(60, 2)), inner,
+                encodeLong(1234567890123L));
+
+        RLPList expected = (RLPList) decode2(encoded).get(0);
+        RLPView view = RLPView.decode(encoded);
+
+        assertTrue(view.isList());
+        assertEquals(expected.size(), view.size());
+        assertEquals(encoded.length, view.getEncodedLength());
+        assertArrayEquals(expected.getRLPData(), view.getEncoded());
+
+        List<RLPView> elements = view.getElements();
+        assertArrayEquals(expected.get(0).getRLPData(), elements.get(0).getData());
+        assertArrayEquals(expected.get(1).getRLPData(), elements.get(1).getData());
+        assertArrayEquals(((RLPList) expected.get(2)).getRLPData(), elements.get(2).getEncoded());
+        assertEquals(1234567890123L, elements.get(3).getLong());
+
+        RLPView nested = view.get(2);
+        assertTrue(nested.isList());
+        assertEquals(2, nested.size());
+        assertArrayEquals(bytes(3, 1), nested.get(0).getData());
+        assertTrue(nested.get(1).isEmpty());
+        assertArrayEquals(ByteUtil.EMPTY_BYTE_ARRAY, nested.get(1).getData());
+    }
+
+    @Test
+    public void testLongList() {
+        byte[][] items = new byte[100][];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = encodeElement(bytes(i, i));
+        }
+        byte[] encoded = encodeList(items);
+
+        int i = 0;
+        for (RLPView item : RLPView.decode(encoded)) {
+            assertFalse(item.isList());
+            assertEquals(i, item.getDataLength());
+            assertArrayEquals(items[i], item.getEncoded());
+            i++;
+        }
+        assertEquals(items.length, i);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTruncatedElement() {
+        byte[] encoded = encodeList(encodeElement(bytes(10, 1)), encodeElement(bytes(10, 2)));
+        RLPView.decode(Arrays.copyOf(encoded, encoded.length - 1)).get(1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testElementExceedsEnclosingList() {
+        // list of length 2 holding an item that claims 3 bytes
+        byte[] encoded = new byte[] { (byte) 0xc2, (byte) 0x83, 1, 2, 3 };
+        RLPView.decode(encoded).get(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIterateItem() {
+        RLPView.decode(encodeElement(bytes(3, 1))).iterator();
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ ******************************************************************************/
+package org.aion.rlp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+public class RlpWriterTest {
+
+    private static final long[] NUMBERS = { 0, 1, 0x7f, 0x80, 0xff, 0x100, 0xffff, 0x10000, 0xffffff, 0x1000000,
+            Integer.MAX_VALUE, 0xffffffffL, 0x100000000L, 0xffffffffffL, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+
+    private static byte[] bytes(int length, int fill) {
+        byte[] b = new byte[length];
+        Arrays.fill(b, (byte) fill);
+        return b;
+    }
+
+    private static byte[] write(int length, Consumer<RlpWriter> writer) {
+        RlpWriter rlp = new RlpWriter(length);
+        writer.accept(rlp);
+        return rlp.toByteArray();
+    }
+
+    @Test
+    public void testElement() {
+        byte[][] inputs = { null, new byte[0], { 0 }, { 0x7f }, { (byte) 0x80 }, bytes(55, 1), bytes(56, 2),
+                bytes(255, 3), bytes(256, 4), bytes(70000, 5) };
+        for (byte[] input : inputs) {
+            byte[] expected = RLP.encodeElement(input);
+            assertEquals(expected.length, RlpWriter.elementLength(input));
+            assertArrayEquals(expected, write(expected.length, rlp -> rlp.writeElement(input)));
+        }
+    }
+
+    @Test
+    public void testNumbers() {
+        for (long n : NUMBERS) {
+            byte[] expected = RLP.encodeLong(n);
+            assertEquals(expected.length, RlpWriter.longLength(n));
+            assertArrayEquals(expected, write(expected.length, rlp -> rlp.writeLong(n)));
+
+            expected = RLP.encodeBigInteger(BigInteger.valueOf(n));
+            assertEquals(expected.length, RlpWriter.numberLength(n));
+            assertArrayEquals(expected, write(expected.length, rlp -> rlp.writeNumber(n)));
+        }
+        for (int b = Byte.MIN_VALUE; b <= Byte.MAX_VALUE; b++) {
+            byte value = (byte) b;
+            byte[] expected = RLP.encodeByte(value);
+            assertEquals(expected.length, RlpWriter.byteLength(value));
+            assertArrayEquals(expected, write(expected.length, rlp -> rlp.writeByte(value)));
+        }
+    }
+
+    @Test
+    public void testList() {
+        for (int count : new int[] { 0, 1, 10, 1000 }) {
+            byte[][] elements = new byte[count][];
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                elements[i] = RLP.encodeElement(bytes(i % 60, i));
+                length += elements[i].length;
+            }
+            byte[] expected = RLP.encodeList(elements);
+            assertEquals(expected.length, RlpWriter.listLength(length));
+
+            int payload = length;
+            assertArrayEquals(expected, write(expected.length, rlp -> {
+                rlp.writeListHeader(payload);
+                for (byte[] element : elements) {
+                    rlp.writeEncoded(element);
+                }
+            }));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIncompleteOutput() {
+        new RlpWriter(2).writeElement(new byte[] { 1 }).toByteArray();
+    }
+}
@@ -36,6 +36,8 @@ public interface ITxPool<TX extends ITransaction> {
     String PROP_TXN_TIMEOUT = "txn-timeout";
     String PROP_BLOCK_SIZE_LIMIT = "blk-size-limit";
     String PROP_BLOCK_NRG_LIMIT = "blk-nrg-limit";
+    String PROP_POOL_SIZE_MAX = "pool-size-max";
+    String PROP_ACCOUNT_SLOTS_MAX = "acc-slots-max";
 
     List<TX> add(List<TX> tx);
 
@@ -47,6 +49,18 @@ public interface ITxPool<TX extends ITransaction> {
 
     List<TX> snapshot();
 
+    /**
+     * @return all the transactions in the pool in the order they were added,
+     *         the ones of each sender in nonce order
+     */
+    List<TX> snapshotAll();
+
+    /**
+     * @return the transaction of the sender with the given nonce in the pool,
+     *         or {@code null}
+     */
+    TX getPoolTx(Address from, BigInteger nonce);
+
     List<TX> getOutdatedList();
 
     long getOutDateTime();
@@ -35,9 +35,8 @@ import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
 import java.math.BigInteger;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractTxPool<TX extends ITransaction> {
@@ -54,13 +53,17 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
     protected final int BLK_SIZE_MIN = 1_000_000; // 1MB
     protected final long BLK_NRG_MAX = 50_000_000;
     protected final long BLK_NRG_MIN = 1_000_000;
+    protected final int POOL_SIZE_MIN = 1;
+    protected final int ACC_SLOTS_MIN = 1;
+    protected int poolSizeMax = Integer.MAX_VALUE; // unlimited
+    protected int accSlotsMax = Integer.MAX_VALUE; // unlimited
+    private static final int ACCOUNT_LOCKS = 64;
     /**
      * mainMap : Map<ByteArrayWrapper, TXState>
      *
      * @ByteArrayWrapper transaction hash
-     * @TXState transaction data and sort status
+     * @TXState transaction data
      */
-    // TODO : should limit size
     private final Map<ByteArrayWrapper, TXState> mainMap = new ConcurrentHashMap<>();
     /**
      * timeView : SortedMap<Long, LinkedHashSet<ByteArrayWrapper>>
@@ -71,29 +74,44 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
     private final SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> timeView = Collections
             .synchronizedSortedMap(new TreeMap<>());
     /**
-     * feeView : SortedMap<BigInteger,
-     * LinkedHashSet<TxPoolList<ByteArrayWrapper>>>
+     * feeView : NavigableSet<TxDependList<ByteArrayWrapper>>
      *
-     * @BigInteger energy cost = energy consumption * energy price
-     * @LinkedHashSet<TxPoolList<ByteArrayWrapper>> the TxPoolList of the first
-     *                                              transaction hash
+     * @TxDependList<ByteArrayWrapper> the poolStates of all the accounts
+     *                                 ordered by energy cost = energy
+     *                                 consumption * energy price, highest
+     *                                 first, then by the first transaction
+     *                                 hash. The set is lock free so reading it
+     *                                 does not block the account updates.
      */
-    private final SortedMap<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> feeView = Collections
-            .synchronizedSortedMap(new TreeMap<>(Collections.reverseOrder()));
+    private final NavigableSet<TxDependList<ByteArrayWrapper>> feeView = new ConcurrentSkipListSet<>(
+            (a, b) -> a.getFee() != b.getFee() ? Long.compare(b.getFee(), a.getFee())
+                    : a.getTxList().get(0).compareTo(b.getTxList().get(0)));
     /**
      * accountView : Map<ByteArrayWrapper, AccountState>
      *
      * @ByteArrayWrapper account address
-     * @AccountState
+     * @AccountState guarded by the lock of the account
      */
     private final Map<Address, AccountState> accountView = new ConcurrentHashMap<>();
     /**
      * poolStateView : Map<ByteArrayWrapper, List<PoolState>>
      *
      * @ByteArrayWrapper account address
-     * @PoolState continuous transaction state including starting nonce
+     * @PoolState continuous transaction state including starting nonce, the
+     *            lists are replaced and never modified once published
      */
     private final Map<Address, List<PoolState>> poolStateView = new ConcurrentHashMap<>();
+    /**
+     * accountLocks : the locks of the accounts, sharded by address, such that
+     * the transactions of different senders are indexed in parallel
+     */
+    private final Object[] accountLocks = new Object[ACCOUNT_LOCKS];
+
+    {
+        for (int i = 0; i < ACCOUNT_LOCKS; i++) {
+            accountLocks[i] = new Object();
+        }
+    }
     private final List<TX> outDated = new ArrayList<>();
 
     public abstract List<TX> add(List<TX> txl);
@@ -106,28 +124,133 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
 
     public abstract List<TX> snapshot();
 
+    public abstract List<TX> snapshotAll();
+
     public abstract Map.Entry<BigInteger, BigInteger> bestNonceSet(Address address);
 
     protected Map<ByteArrayWrapper, TXState> getMainMap() {
         return this.mainMap;
     }
 
-    protected SortedMap<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> getFeeView() {
+    protected NavigableSet<TxDependList<ByteArrayWrapper>> getFeeView() {
         return this.feeView;
     }
 
-    protected AccountState getAccView(Address acc) {
+    /**
+     * @return the lock guarding the nonce index and the pool states of the
+     *         given account
+     */
+    protected Object getAccLock(Address acc) {
+        return this.accountLocks[(acc.hashCode() & Integer.MAX_VALUE) % ACCOUNT_LOCKS];
+    }
 
-        this.accountView.computeIfAbsent(acc, k -> new AccountState());
-        return this.accountView.get(acc);
+    /**
+     * @return {@code true} if the poolState was taken from the fee index
+     *         after the last update of its account
+     */
+    protected boolean isCurrent(TxDependList<ByteArrayWrapper> txl) {
+        List<PoolState> psl = this.poolStateView.get(txl.getAddress());
+        if (psl != null) {
+            for (PoolState ps : psl) {
+                if (ps.txl == txl) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
-    protected List<PoolState> getPoolStateView(Address acc) {
+    /**
+     * @return the poolState with the lowest fee in the pool, which is the
+     *         first to be evicted when the pool is full, or {@code null}
+     */
+    protected TxDependList<ByteArrayWrapper> getLowestFeeState() {
+        Iterator<TxDependList<ByteArrayWrapper>> it = this.feeView.descendingIterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * @implNote Must be called while holding the lock of the account.
+     *
+     * @return the number of transactions of the account in the pool
+     */
+    protected int getTxCount(Address acc) {
+        AccountState as = this.accountView.get(acc);
+        return as == null ? 0 : as.getMap().size();
+    }
+
+    /**
+     * @implNote Must be called while holding the lock of the account.
+     *
+     * @return the transaction of the account with the given nonce, or
+     *         {@code null}
+     */
+    protected TX getTxn(Address acc, long nonce) {
+        AccountState as = this.accountView.get(acc);
+        if (as == null) {
+            return null;
+        }
+
+        SimpleEntry<ByteArrayWrapper, Long> entry = as.getMap().get(nonce);
+        if (entry == null) {
+            return null;
+        }
+
+        TXState ts = this.mainMap.get(entry.getKey());
+        return ts == null ? null : ts.getTx();
+    }
+
+    /**
+     * @return the sender of the oldest transaction in the pool, or
+     *         {@code null} if the pool is empty
+     */
+    protected Address getOldestTxSender() {
+        synchronized (this.timeView) {
+            for (Set<ByteArrayWrapper> hashes : this.timeView.values()) {
+                for (ByteArrayWrapper hash : hashes) {
+                    TXState ts = this.mainMap.get(hash);
+                    if (ts != null) {
+                        return ts.getTx().getFrom();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the accounts having transactions in the pool
+     */
+    protected List<Address> getAccounts() {
+        return new ArrayList<>(this.accountView.keySet());
+    }
 
-        if (this.accountView.get(acc) == null) {
-            this.poolStateView.put(acc, new LinkedList<>());
+    /**
+     * @implNote Must be called while holding the lock of the account.
+     *
+     * @return the transactions of the account in the pool, in nonce order
+     */
+    protected List<TX> getAccTxs(Address acc) {
+        List<TX> txs = new ArrayList<>();
+        AccountState as = this.accountView.get(acc);
+        if (as != null) {
+            for (SimpleEntry<ByteArrayWrapper, Long> entry : as.getMap().values()) {
+                TXState ts = this.mainMap.get(entry.getKey());
+                if (ts != null) {
+                    txs.add(ts.getTx());
+                }
+            }
         }
-        return this.poolStateView.get(acc);
+        return txs;
+    }
+
+    protected AccountState getAccView(Address acc) {
+        return this.accountView.computeIfAbsent(acc, k -> new AccountState());
+    }
+
+    protected List<PoolState> getPoolStateView(Address acc) {
+        List<PoolState> psl = this.poolStateView.get(acc);
+        return psl == null ? Collections.emptyList() : psl;
     }
 
     protected synchronized List<TX> getOutdatedListImpl() {
@@ -141,6 +264,9 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
         this.outDated.addAll(txl);
     }
 
+    /**
+     * @implNote Not atomic with respect to concurrent updates of the pool.
+     */
     public synchronized void clear() {
         this.mainMap.clear();
         this.timeView.clear();
@@ -150,249 +276,246 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
         this.outDated.clear();
     }
 
-    protected void sortTxn() {
-
-        Map<Address, Map<BigInteger, SimpleEntry<ByteArrayWrapper, BigInteger>>> accMap = new HashMap<>();
-        SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> timeMap = new TreeMap<>();
-
-        this.mainMap.entrySet().parallelStream().forEach(e -> {
-            TXState ts = e.getValue();
-
-            if (ts.sorted()) {
-                return;
-            }
-
-            ITransaction tx = ts.getTx();
-
-            // Gen temp timeMap
-            LinkedHashSet<ByteArrayWrapper> lhs = new LinkedHashSet<>();
-            long timestamp = new BigInteger(1, tx.getTimeStamp()).longValue();
-
-            synchronized (timeMap) {
-                if (timeMap.get(timestamp) != null) {
-                    lhs = timeMap.get(timestamp);
-                }
-
-                lhs.add(e.getKey());
+    protected SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> getTimeView() {
+        return this.timeView;
+    }
 
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("AbstractTxPool.sortTxn Put txHash into timeMap: ts:[{}] size:[{}]", timestamp, lhs.size());
-                }
+    /**
+     * Reads an unsigned big-endian value such as a nonce or a timestamp
+     * without allocating.
+     *
+     * @return the value, or {@code -1} if it does not fit in a non-negative
+     *         long
+     */
+    protected static long toLong(byte[] b) {
+        if (b == null) {
+            return 0;
+        }
 
-                timeMap.put(timestamp, lhs);
+        long v = 0;
+        for (byte x : b) {
+            if ((v >>> 55) != 0) {
+                return -1;
             }
+            v = (v << 8) | (x & 0xFF);
+        }
+        return v;
+    }
 
-            Map<BigInteger, SimpleEntry<ByteArrayWrapper, BigInteger>> nonceMap;
+    /**
+     * @return the energy cost of the transaction, energy price * energy
+     *         consumption, saturated at {@link Long#MAX_VALUE}
+     */
+    protected static long nrgCharge(ITransaction tx) {
+        long price = tx.getNrgPrice();
+        long consume = tx.getNrgConsume();
+        if (price > 0 && consume > Long.MAX_VALUE / price) {
+            return Long.MAX_VALUE;
+        }
+        return price * consume;
+    }
 
-            synchronized (accMap) {
-                if (accMap.get(tx.getFrom()) != null) {
-                    nonceMap = accMap.get(tx.getFrom());
-                } else {
-                    nonceMap = Collections.synchronizedSortedMap(new TreeMap<>());
-                }
+    private static long addNrgCharge(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
 
-                // considering refactor later
-                BigInteger nonce = new BigInteger(tx.getNonce());
+    /**
+     * Puts the transaction into the main map and the time and nonce indexes.
+     * The fee index of the sender must be refreshed afterwards through
+     * {@link #updatePoolState(Address)}.
+     *
+     * @implNote Must be called while holding the lock of the sender.
+     *
+     * @return the transaction of the sender with the same nonce which was
+     *         replaced, or {@code null}
+     */
+    protected TX putTxn(ByteArrayWrapper hash, TX tx) {
+        this.mainMap.put(hash, new TXState(tx));
 
-                BigInteger nrgCharge = BigInteger.valueOf(tx.getNrgPrice())
-                        .multiply(BigInteger.valueOf(tx.getNrgConsume()));
+        long timestamp = toLong(tx.getTimeStamp());
+        synchronized (this.timeView) {
+            this.timeView.computeIfAbsent(timestamp, k -> new LinkedHashSet<>()).add(hash);
+        }
 
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("AbstractTxPool.sortTxn Put tx into nonceMap: nonce:[{}] ts:[{}] nrgCharge:[{}]", nonce,
-                            ByteUtils.toHexString(e.getKey().getData()), nrgCharge.toString());
-                }
+        long nonce = toLong(tx.getNonce());
+        long nrgCharge = nrgCharge(tx);
 
-                nonceMap.put(nonce, new SimpleEntry<>(e.getKey(), nrgCharge));
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("AbstractTxPool.putTxn acc:[{}] nonce:[{}] hash:[{}] nrgCharge:[{}]", tx.getFrom().toString(),
+                    nonce, ByteUtils.toHexString(hash.getData()), nrgCharge);
+        }
 
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("AbstractTxPool.sortTxn Put tx into accMap: acc:[{}] mapsize[{}] ", tx.getFrom().toString(), nonceMap.size());
-                }
+        SimpleEntry<ByteArrayWrapper, Long> prev = getAccView(tx.getFrom()).getMap()
+                .put(nonce, new SimpleEntry<>(hash, nrgCharge));
 
-                accMap.put(tx.getFrom(), nonceMap);
+        // the later transaction takes the nonce of the earlier one
+        if (prev != null && !prev.getKey().equals(hash)) {
+            TXState ts = this.mainMap.remove(prev.getKey());
+            if (ts != null) {
+                removeTimeView(prev.getKey(), ts.getTx());
+                return ts.getTx();
             }
-            ts.setSorted();
-        });
-
-        if (accMap.size() > 0) {
-
-            timeMap.entrySet().parallelStream().forEach(e -> {
-                if (this.timeView.get(e.getKey()) == null) {
-                    this.timeView.put(e.getKey(), e.getValue());
-                } else {
-                    Set<ByteArrayWrapper> lhs = this.getTimeView().get(e.getKey());
-                    lhs.addAll(e.getValue());
-
-                    this.timeView.put(e.getKey(), (LinkedHashSet<ByteArrayWrapper>) lhs);
-                }
-            });
+        }
+        return null;
+    }
 
-            accMap.entrySet().parallelStream().forEach(e -> {
-                this.accountView.computeIfAbsent(e.getKey(), k -> new AccountState());
+    /**
+     * Removes the transaction from the main map and the time and nonce
+     * indexes. The fee index of the sender must be refreshed afterwards
+     * through {@link #updatePoolState(Address)}.
+     *
+     * @implNote Must be called while holding the lock of the sender.
+     *
+     * @return the removed transaction, or {@code null} if it was not in the
+     *         pool
+     */
+    protected TX removeTxn(ByteArrayWrapper hash) {
+        TXState ts = this.mainMap.remove(hash);
+        if (ts == null) {
+            return null;
+        }
 
-                this.accountView.get(e.getKey()).updateMap(e.getValue());
-            });
+        TX tx = ts.getTx();
+        removeTimeView(hash, tx);
 
-            updateAccPoolState();
-            updateFeeMap();
+        AccountState as = this.accountView.get(tx.getFrom());
+        if (as != null) {
+            long nonce = toLong(tx.getNonce());
+            SimpleEntry<ByteArrayWrapper, Long> entry = as.getMap().get(nonce);
+            if (entry != null && entry.getKey().equals(hash)) {
+                as.getMap().remove(nonce);
+            }
         }
+        return tx;
     }
 
-    protected SortedMap<Long, LinkedHashSet<ByteArrayWrapper>> getTimeView() {
-        return this.timeView;
+    /**
+     * Removes the transaction with the highest nonce of the account, so the
+     * remaining ones are left without a nonce gap. The fee index of the
+     * account must be refreshed afterwards through
+     * {@link #updatePoolState(Address)}.
+     *
+     * @implNote Must be called while holding the lock of the account.
+     *
+     * @return the removed transaction, or {@code null} if the account has no
+     *         transaction in the pool
+     */
+    protected TX removeLastTxn(Address acc) {
+        AccountState as = this.accountView.get(acc);
+        if (as == null || as.isEmpty()) {
+            return null;
+        }
+        return removeTxn(as.getMap().get(as.getLastNonce()).getKey());
     }
 
-    protected void updateAccPoolState() {
-
-        // iterate tx by account
-        for (Entry<Address, AccountState> e : this.accountView.entrySet()) {
-            AccountState as = e.getValue();
-            if (as.isDirty()) {
-                // checking AccountState given by account
-                List<PoolState> psl = this.poolStateView.get(e.getKey());
-                if (psl == null) {
-                    psl = new LinkedList<>();
+    private void removeTimeView(ByteArrayWrapper hash, TX tx) {
+        long timestamp = toLong(tx.getTimeStamp());
+        synchronized (this.timeView) {
+            Set<ByteArrayWrapper> lhs = this.timeView.get(timestamp);
+            if (lhs != null) {
+                lhs.remove(hash);
+                if (lhs.isEmpty()) {
+                    this.timeView.remove(timestamp);
                 }
+            }
+        }
+    }
 
-                List<PoolState> newPoolState = new LinkedList<>();
-                // Checking new tx has been include into old pools.
-                // BigInteger txNonceStart = null;
-                BigInteger txNonceStart = as.getFirstNonce();
+    /**
+     * Rebuilds the pool states of the given account from its nonce index and
+     * replaces its entries in the fee index. Only the given account is
+     * visited, so the cost depends on the number of its transactions and not
+     * on the size of the pool.
+     *
+     * @implNote Must be called while holding the lock of the account.
+     */
+    protected void updatePoolState(Address acc) {
 
-                if (txNonceStart != null) {
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("AbstractTxPool.updateAccPoolState fn [{}]", txNonceStart.toString());
-                    }
-                    for (PoolState ps : psl) {
-                        // check the previous txn status in the old PoolState
-                        if (ps.firstNonce.equals(txNonceStart) && ps.combo == SEQUENTAILTXNCOUNT_MAX) {
-                            newPoolState.add(ps);
-                            txNonceStart = txNonceStart.add(BigInteger.valueOf(SEQUENTAILTXNCOUNT_MAX));
-                        } else {
-                            // remove old poolState in the feeMap
-                            Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> txDp = this.feeView.get(ps.getFee());
-                            if (txDp != null) {
-                                ByteArrayWrapper bw = e.getValue().getMap().get(ps.firstNonce).getKey();
-                                txDp.remove(bw);
-
-                                if (txDp.isEmpty()) {
-                                    this.feeView.remove(ps.getFee());
-                                }
-                            }
-                        }
-                    }
-                }
+        // remove the old poolStates of the account from the feeView
+        List<PoolState> psl = this.poolStateView.remove(acc);
+        if (psl != null) {
+            for (PoolState ps : psl) {
+                this.feeView.remove(ps.txl);
+            }
+        }
 
-                if (!this.poolStateView.isEmpty() && this.poolStateView.get(e.getKey()) != null) {
-                    this.poolStateView.get(e.getKey()).clear();
-                }
+        AccountState as = this.accountView.get(acc);
+        if (as == null || as.isEmpty()) {
+            this.accountView.remove(acc);
+            return;
+        }
 
-                int cnt = 0;
-                BigInteger fee = BigInteger.ZERO;
-                BigInteger totalFee = BigInteger.ZERO;
+        List<PoolState> newPoolState = new ArrayList<>();
 
-                for (Entry<BigInteger, SimpleEntry<ByteArrayWrapper, BigInteger>> en : as.getMap().entrySet()) {
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace(
-                                "AbstractTxPool.updateAccPoolState mapsize[{}] nonce:[{}] cnt[{}] txNonceStart[{}]", as.getMap().size(), en.getKey().toString(), cnt, txNonceStart.toString());
-                    }
-                    if (en.getKey().equals(txNonceStart != null ? txNonceStart.add(BigInteger.valueOf(cnt)) : null)) {
-                        if (en.getValue().getValue().compareTo(fee) > -1) {
-                            fee = en.getValue().getValue();
-                            totalFee = totalFee.add(fee);
-
-                            if (++cnt == SEQUENTAILTXNCOUNT_MAX) {
-                                if (LOG.isTraceEnabled()) {
-                                    LOG.trace(
-                                            "AbstractTxPool.updateAccPoolState case1 - nonce:[{}] totalFee:[{}] cnt:[{}]",
-                                            txNonceStart, totalFee.toString(), cnt);
-                                }
-                                newPoolState.add(
-                                        new PoolState(txNonceStart, totalFee.divide(BigInteger.valueOf(cnt)), cnt));
-
-                                txNonceStart = en.getKey().add(BigInteger.ONE);
-                                totalFee = BigInteger.ZERO;
-                                fee = BigInteger.ZERO;
-                                cnt = 0;
-                            }
-                        } else {
-                            if (totalFee.signum() == 1) {
-                                if (LOG.isTraceEnabled()) {
-                                    LOG.trace(
-                                            "AbstractTxPool.updateAccPoolState case2 - nonce:[{}] totalFee:[{}] cnt:[{}]",
-                                            txNonceStart, totalFee.toString(), cnt);
-                                }
-                                newPoolState.add(
-                                        new PoolState(txNonceStart, totalFee.divide(BigInteger.valueOf(cnt)), cnt));
-
-                                // next PoolState
-                                txNonceStart = en.getKey();
-                                fee = en.getValue().getValue();
-                                totalFee = fee;
-                                cnt = 1;
-                            }
-                        }
-                    }
-                }
+        int cnt = 0;
+        long fee = 0;
+        long totalFee = 0;
+        long txNonceStart = as.getFirstNonce();
 
-                if (totalFee.signum() == 1) {
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("AbstractTxPool.updateAccPoolState case3 - nonce:[{}] totalFee:[{}] cnt:[{}] bw:[{}]",
-                                txNonceStart, totalFee.toString(), cnt, e.getKey().toString());
-                    }
+        for (Map.Entry<Long, SimpleEntry<ByteArrayWrapper, Long>> en : as.getMap().entrySet()) {
+            if (en.getKey() != txNonceStart + cnt) {
+                // the following nonces can not be executed before the gap is filled
+                break;
+            }
 
-                    newPoolState.add(new PoolState(txNonceStart, totalFee.divide(BigInteger.valueOf(cnt)), cnt));
-                }
+            if (en.getValue().getValue() >= fee) {
+                fee = en.getValue().getValue();
+                totalFee = addNrgCharge(totalFee, fee);
 
-                this.poolStateView.put(e.getKey(), newPoolState);
+                if (++cnt == SEQUENTAILTXNCOUNT_MAX) {
+                    newPoolState.add(new PoolState(txNonceStart, totalFee / cnt, cnt));
 
-                if (LOG.isTraceEnabled()) {
-                    this.poolStateView.forEach((k, v) -> v.forEach(l -> {
-                        LOG.trace("AbstractTxPool.updateAccPoolState - the first nonce of the poolState list:[{}]",
-                                l.firstNonce);
-                    }));
+                    txNonceStart = en.getKey() + 1;
+                    totalFee = 0;
+                    fee = 0;
+                    cnt = 0;
                 }
-
-                as.sorted();
+            } else if (totalFee > 0) {
+                newPoolState.add(new PoolState(txNonceStart, totalFee / cnt, cnt));
+
+                // next PoolState
+                txNonceStart = en.getKey();
+                fee = en.getValue().getValue();
+                totalFee = fee;
+                cnt = 1;
             }
         }
-    }
 
-    protected void updateFeeMap() {
-        for (Entry<Address, List<PoolState>> e : this.poolStateView.entrySet()) {
-            ByteArrayWrapper dependTx = null;
-            for (PoolState ps : e.getValue()) {
-                if (!ps.isInFeePool()) {
+        if (totalFee > 0) {
+            newPoolState.add(new PoolState(txNonceStart, totalFee / cnt, cnt));
+        }
+
+        // put the new poolStates into the feeView
+        ByteArrayWrapper dependTx = null;
+        for (PoolState ps : newPoolState) {
+            TxDependList<ByteArrayWrapper> txl = new TxDependList<>();
+            Iterator<SimpleEntry<ByteArrayWrapper, Long>> it = as.getMap().tailMap(ps.firstNonce).values().iterator();
+            for (int i = 0; i < ps.combo; i++) {
+                txl.addTx(it.next().getKey());
+            }
 
-                    TxDependList<ByteArrayWrapper> txl = new TxDependList<>();
-                    for (BigInteger i = ps.firstNonce; i.compareTo(
-                            ps.firstNonce.add(BigInteger.valueOf(ps.combo))) < 0; i = i.add(BigInteger.ONE)) {
-                        txl.addTx(this.accountView.get(e.getKey()).getMap().get(i).getKey());
-                    }
+            txl.setDependTx(dependTx);
+            txl.setAddress(acc);
+            txl.setFee(ps.fee);
+            dependTx = txl.getTxList().get(0);
 
-                    if (!txl.isEmpty()) {
-                        txl.setDependTx(dependTx);
-                        dependTx = txl.getTxList().get(0);
-                        txl.setAddress(e.getKey());
-                    }
+            ps.txl = txl;
+        }
 
-                    if (this.feeView.get(ps.fee) == null) {
-                        Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> set = new LinkedHashMap<>();
-                        set.put(txl.getTxList().get(0), txl);
-                        this.feeView.put(ps.fee, set);
-                    } else {
-                        Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> preset = this.feeView.get(ps.fee);
-                        preset.put(txl.getTxList().get(0), txl);
-                        this.feeView.put(ps.fee, preset);
-                    }
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("AbstractTxPool.updatePoolState acc:[{}] txs:[{}] poolStates:[{}]", acc.toString(),
+                    as.getMap().size(), newPoolState.size());
+        }
 
-                    ps.setInFeePool();
-                }
-            }
+        // publish the poolStates before they can be found in the feeView
+        this.poolStateView.put(acc, Collections.unmodifiableList(newPoolState));
+        for (PoolState ps : newPoolState) {
+            this.feeView.add(ps.txl);
         }
     }
 
     protected class TXState {
-        private boolean sorted = false;
         private TX tx = null;
 
         public TXState(TX tx) {
@@ -402,50 +525,38 @@ public abstract class AbstractTxPool<TX extends ITransaction> {
         public TX getTx() {
             return this.tx;
         }
-
-        public boolean sorted() {
-            return this.sorted;
-        }
-
-        public void setSorted() {
-            this.sorted = true;
-        }
     }
 
     protected class PoolState {
-        private final AtomicBoolean inFeePool = new AtomicBoolean(false);
-        private BigInteger fee = BigInteger.ZERO;
-        private BigInteger firstNonce = BigInteger.ZERO;
+        private long fee;
+        private long firstNonce;
+        private TxDependList<ByteArrayWrapper> txl;
         private int combo = 0;
 
-        protected PoolState(BigInteger nonce, BigInteger fee, int combo) {
+        protected PoolState(long nonce, long fee, int combo) {
             this.firstNonce = nonce;
             this.combo = combo;
             this.fee = fee;
         }
 
-        public boolean contains(BigInteger bi) {
-            return (bi.compareTo(firstNonce) > -1) && (bi.compareTo(firstNonce.add(BigInteger.valueOf(combo))) < 0);
+        public boolean contains(long nonce) {
+            return nonce >= firstNonce && nonce - firstNonce < combo;
         }
 
-        public BigInteger getFee() {
+        public long getFee() {
             return fee;
         }
 
-        public BigInteger getFirstNonce() {
+        public long getFirstNonce() {
             return firstNonce;
         }
 
-        public int getCombo() {
-            return combo;
+        public TxDependList<ByteArrayWrapper> getTxDependList() {
+            return txl;
         }
 
-        public boolean isInFeePool() {
-            return inFeePool.get();
-        }
-
-        public void setInFeePool() {
-            inFeePool.set(true);
+        public int getCombo() {
+            return combo;
         }
     }
 }
@@ -26,40 +26,25 @@ package org.aion.txpool.common;
 
 import org.aion.base.util.ByteArrayWrapper;
 
-import java.math.BigInteger;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * The pending transactions of an account by nonce. Guarded by the lock of the
+ * account in the pool.
+ */
 public class AccountState {
-    private final SortedMap<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> txMap = Collections
-            .synchronizedSortedMap(new TreeMap<>());
-    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final SortedMap<Long, AbstractMap.SimpleEntry<ByteArrayWrapper, Long>> txMap = new TreeMap<>();
 
-    public void updateMap(Map<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> map) {
-        if (map != null && !map.isEmpty()) {
-            txMap.putAll(map);
-            setDirty();
-        }
-    }
-
-    public void setDirty() {
-        dirty.set(true);
-    }
-
-    public SortedMap<BigInteger, AbstractMap.SimpleEntry<ByteArrayWrapper, BigInteger>> getMap() {
+    public SortedMap<Long, AbstractMap.SimpleEntry<ByteArrayWrapper, Long>> getMap() {
         return txMap;
     }
 
-    public void sorted() {
-        dirty.set(false);
-    }
-
-    public BigInteger getFirstNonce() {
-        return txMap.isEmpty() ? null : txMap.firstKey();
+    public long getFirstNonce() {
+        return txMap.firstKey();
     }
 
-    public boolean isDirty() {
-        return dirty.get();
+    public long getLastNonce() {
+        return txMap.lastKey();
     }
 
     public boolean isEmpty() {
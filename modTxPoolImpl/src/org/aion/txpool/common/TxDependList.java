@@ -33,6 +33,7 @@ public class TxDependList<BW> {
     private final List<BW> txList;
     private BW dependTx;
     private Address address;
+    private long fee;
 
     public TxDependList() {
         txList = new ArrayList<>();
@@ -46,6 +47,14 @@ public class TxDependList<BW> {
         this.address = address;
     }
 
+    public long getFee() {
+        return fee;
+    }
+
+    public void setFee(long fee) {
+        this.fee = fee;
+    }
+
     public BW getDependTx() {
         return dependTx;
     }
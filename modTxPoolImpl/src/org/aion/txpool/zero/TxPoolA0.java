@@ -30,7 +30,6 @@ import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.TimeInstant;
 import org.aion.txpool.ITxPool;
 import org.aion.txpool.common.AbstractTxPool;
-import org.aion.txpool.common.AccountState;
 import org.aion.txpool.common.TxDependList;
 import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
 
@@ -42,6 +41,9 @@ import java.util.stream.Collectors;
 @SuppressWarnings("unchecked")
 public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implements ITxPool<TX> {
 
+    // serialises the trimming of the pool by concurrent adds
+    private final Object evictionLock = new Object();
+
     public TxPoolA0() {
         super();
     }
@@ -78,6 +80,14 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
             long sz_limit = Long.valueOf((String) config.get(PROP_BLOCK_NRG_LIMIT));
             updateBlkNrgLimit(sz_limit);
         }
+
+        if (Optional.ofNullable(config.get(PROP_POOL_SIZE_MAX)).isPresent()) {
+            poolSizeMax = Math.max(Integer.valueOf(config.get(PROP_POOL_SIZE_MAX).toString()), POOL_SIZE_MIN);
+        }
+
+        if (Optional.ofNullable(config.get(PROP_ACCOUNT_SLOTS_MAX)).isPresent()) {
+            accSlotsMax = Math.max(Integer.valueOf(config.get(PROP_ACCOUNT_SLOTS_MAX).toString()), ACC_SLOTS_MIN);
+        }
     }
 
     /**
@@ -88,16 +98,15 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
      */
     public List<BigInteger> getNonceList(Address acc) {
 
-        List<BigInteger> nl = Collections.synchronizedList(new ArrayList<>());
-        synchronized (this) {
-
-            this.getAccView(acc).getMap().entrySet().parallelStream().forEach(e -> nl.add(e.getKey()));
+        List<BigInteger> nl = new ArrayList<>();
+        synchronized (this.getAccLock(acc)) {
+            this.getAccView(acc).getMap().keySet().forEach(n -> nl.add(BigInteger.valueOf(n)));
         }
-        return nl.parallelStream().sorted().collect(Collectors.toList());
+        return nl;
     }
 
     @Override
-    public synchronized boolean add(TX tx) {
+    public boolean add(TX tx) {
         List<TX> txl = new ArrayList<>();
         txl.add(tx);
         List<TX> rtn = this.add(txl);
@@ -110,115 +119,243 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
      *
      * @return
      */
-    public synchronized List<BigInteger> getFeeList() {
-        List<BigInteger> nl = Collections.synchronizedList(new ArrayList<>());
-
-        this.getFeeView().entrySet().parallelStream().forEach(e -> nl.add(e.getKey()));
-
-        return nl.parallelStream().sorted(Collections.reverseOrder()).collect(Collectors.toList());
+    public List<BigInteger> getFeeList() {
+        return this.getFeeView().stream().map(txl -> BigInteger.valueOf(txl.getFee())).distinct()
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Adds the transactions holding only the locks of their senders, so the
+     * transactions of different senders can be added concurrently and a
+     * snapshot does not wait for them.
+     *
+     * A transaction replaces the pending one of the same nonce only if it
+     * pays a higher energy price. A sender holding {@link #accSlotsMax}
+     * transactions gives up its highest nonce for a lower one, otherwise the
+     * new transaction is rejected. When the pool holds {@link #poolSizeMax}
+     * transactions, a transaction paying no more than the lowest poolState is
+     * rejected, and the pool is trimmed back to its capacity once the batch is
+     * added. The replaced and evicted transactions are reported by
+     * {@link #getOutdatedList()}.
+     */
     @Override
-    public synchronized List<TX> add(List<TX> txl) {
-
-        List<TX> newPendingTx = new ArrayList<>();
-        Map<ByteArrayWrapper, TXState> mainMap = new HashMap<>();
+    public List<TX> add(List<TX> txl) {
 
+        Map<Object, List<TX>> txByLock = new LinkedHashMap<>();
         for (TX tx : txl) {
-            // Gen temp mainTxMap
-            byte[] hash = tx.getHash();
-
-            if (hash == null) {
+            if (tx.getHash() == null) {
                 if (LOG.isWarnEnabled()) {
                     LOG.warn("the tx hash is empty skip this tx [{}]!", tx);
                 }
                 continue;
             }
 
-            ByteArrayWrapper bw = ByteArrayWrapper.wrap(hash);
-            if (this.getMainMap().get(bw) != null) {
+            if (toLong(tx.getNonce()) < 0) {
                 if (LOG.isWarnEnabled()) {
-                    LOG.warn("The tx hash existed in the pool! [{}]", ByteUtils.toHexString(bw.getData()));
+                    LOG.warn("the tx nonce overflows skip this tx [{}]!", tx);
                 }
                 continue;
             }
 
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("Put tx into mainMap: hash:[{}] tx:[{}]", ByteUtils.toHexString(bw.getData()), tx.toString());
+            txByLock.computeIfAbsent(this.getAccLock(tx.getFrom()), k -> new ArrayList<>()).add(tx);
+        }
+
+        Set<TX> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<TX> evicted = new ArrayList<>();
+        for (Entry<Object, List<TX>> e : txByLock.entrySet()) {
+            Set<Address> updatedAddress = new HashSet<>();
+
+            synchronized (e.getKey()) {
+                for (TX tx : e.getValue()) {
+                    ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getHash());
+                    if (this.getMainMap().get(bw) != null) {
+                        if (LOG.isWarnEnabled()) {
+                            LOG.warn("The tx hash existed in the pool! [{}]", ByteUtils.toHexString(bw.getData()));
+                        }
+                        continue;
+                    }
+
+                    if (!admit(tx, evicted)) {
+                        continue;
+                    }
+
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Put tx into mainMap: hash:[{}] tx:[{}]", ByteUtils.toHexString(bw.getData()),
+                                tx.toString());
+                    }
+
+                    TX replaced = this.putTxn(bw, tx);
+                    if (replaced != null) {
+                        evicted.add(replaced);
+                    }
+                    added.add(tx);
+                    updatedAddress.add(tx.getFrom());
+                }
+
+                updatedAddress.forEach(this::updatePoolState);
             }
+        }
 
-            mainMap.put(bw, new TXState(tx));
-            newPendingTx.add(tx);
+        evictLowestFee(evicted);
+        if (!evicted.isEmpty()) {
+            this.addOutDatedList(evicted);
         }
 
-        this.getMainMap().putAll(mainMap);
+        // keep the order of the input, without the transactions evicted by
+        // the trimming
+        List<TX> newPendingTx = new ArrayList<>();
+        for (TX tx : txl) {
+            if (added.remove(tx) && this.getMainMap().containsKey(ByteArrayWrapper.wrap(tx.getHash()))) {
+                newPendingTx.add(tx);
+            }
+        }
 
         return newPendingTx;
     }
 
-    public List<TX> getOutdatedList() {
-        return this.getOutdatedListImpl();
-    }
-
-    @Override
-    public synchronized List<TX> remove(List<TX> txs) {
+    /**
+     * Applies the replacement rule and the account and pool limits to the
+     * transaction before it is put into the pool.
+     *
+     * @implNote Must be called while holding the lock of the sender.
+     *
+     * @return {@code false} if the transaction is rejected
+     */
+    private boolean admit(TX tx, List<TX> evicted) {
+        Address from = tx.getFrom();
+        long nonce = toLong(tx.getNonce());
+
+        TX prev = this.getTxn(from, nonce);
+        if (prev != null) {
+            if (tx.getNrgPrice() <= prev.getNrgPrice()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("TxPoolA0.add the tx does not pay more than the tx of the same nonce [{}]",
+                            ByteUtils.toHexString(prev.getHash()));
+                }
+                return false;
+            }
+            // the replaced tx is reported by putTxn
+            return true;
+        }
 
-        List<TX> removedTxl = Collections.synchronizedList(new ArrayList<>());
-        Set<Address> checkedAddress = Collections.synchronizedSet(new HashSet<>());
+        if (this.getTxCount(from) >= accSlotsMax) {
+            if (nonce > this.getAccView(from).getLastNonce()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("TxPoolA0.add acc:[{}] reach the account slots limit [{}]", from.toString(),
+                            accSlotsMax);
+                }
+                return false;
+            }
 
-        for (TX tx : txs) {
-            ByteArrayWrapper bw = ByteArrayWrapper.wrap(tx.getHash());
+            // the lower nonce takes the slot of the highest one, the size of
+            // the pool does not change
+            evicted.add(this.removeLastTxn(from));
+            return true;
+        }
 
-            if (this.getMainMap().remove(bw) == null) {
-                continue;
+        if (this.size() >= poolSizeMax) {
+            TxDependList<ByteArrayWrapper> lowest = this.getLowestFeeState();
+            if (lowest == null) {
+                // no transaction can be evicted for it by its fee
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("TxPoolA0.add the pool is full of txs without a poolState");
+                }
+                return false;
+            }
+            if (nrgCharge(tx) <= lowest.getFee()) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("TxPoolA0.add the pool is full, the tx fee is not higher than [{}]",
+                            lowest.getFee());
+                }
+                return false;
             }
+        }
 
-            //noinspection unchecked
-            removedTxl.add((TX) tx.clone());
+        return true;
+    }
 
-            if (LOG.isTraceEnabled()) {
-                LOG.trace("TxPoolA0.remove:[{}] nonce:[{}]", ByteUtils.toHexString(tx.getHash()),
-                        new BigInteger(tx.getNonce()).toString());
-            }
+    /**
+     * Trims the pool back to {@link #poolSizeMax} by taking the poolState with
+     * the lowest fee from the fee index and removing the transaction with the
+     * highest nonce of its account, until the pool fits. Removing from the
+     * end of the nonce sequence does not leave a gap in front of the
+     * transactions which stay in the pool. When no poolState is left, the
+     * remaining transactions pay no fee or wait behind a nonce gap, and the
+     * account of the oldest one gives up its highest nonce instead.
+     */
+    private void evictLowestFee(List<TX> evicted) {
+        synchronized (evictionLock) {
+            while (this.size() > poolSizeMax) {
+                TxDependList<ByteArrayWrapper> lowest = this.getLowestFeeState();
+                Address acc = lowest != null ? lowest.getAddress() : this.getOldestTxSender();
+                if (acc == null) {
+                    return;
+                }
 
-            long timestamp = new BigInteger(tx.getTimeStamp()).longValue();
-            if (this.getTimeView().get(timestamp) == null) {
-                continue;
-            }
+                synchronized (this.getAccLock(acc)) {
+                    TX tx = this.removeLastTxn(acc);
+                    if (tx != null) {
+                        evicted.add(tx);
 
-            this.getTimeView().get(timestamp).remove(bw);
-            if (this.getTimeView().get(timestamp).isEmpty()) {
-                this.getTimeView().remove(timestamp);
+                        if (LOG.isTraceEnabled()) {
+                            LOG.trace("TxPoolA0.evict acc:[{}] nonce:[{}] fee:[{}]", acc.toString(),
+                                    toLong(tx.getNonce()), lowest == null ? 0 : lowest.getFee());
+                        }
+                    }
+                    this.updatePoolState(acc);
+                }
             }
+        }
+    }
 
-            // remove the all transactions belong to the given address in the feeView
-            Address address = tx.getFrom();
-            Set<BigInteger> fee = Collections.synchronizedSet(new HashSet<>());
-            if (!checkedAddress.contains(address)) {
+    @Override
+    public TX getPoolTx(Address from, BigInteger nonce) {
+        if (nonce.bitLength() > 63) {
+            // the pool does not keep txs with a nonce overflowing a long
+            return null;
+        }
 
-                this.getPoolStateView(tx.getFrom()).parallelStream().forEach(ps -> fee.add(ps.getFee()));
+        synchronized (this.getAccLock(from)) {
+            return this.getTxn(from, nonce.longValue());
+        }
+    }
 
-                fee.parallelStream().forEach(bi -> {
+    public List<TX> getOutdatedList() {
+        return this.getOutdatedListImpl();
+    }
 
-                    this.getFeeView().get(bi).entrySet().removeIf(
-                            byteArrayWrapperTxDependListEntry -> byteArrayWrapperTxDependListEntry.getValue()
-                                    .getAddress().equals(address));
+    @Override
+    public List<TX> remove(List<TX> txs) {
 
-                    if (this.getFeeView().get(bi).isEmpty()) {
-                        this.getFeeView().remove(bi);
+        Map<Object, List<TX>> txByLock = new LinkedHashMap<>();
+        for (TX tx : txs) {
+            txByLock.computeIfAbsent(this.getAccLock(tx.getFrom()), k -> new ArrayList<>()).add(tx);
+        }
+
+        List<TX> removedTxl = new ArrayList<>();
+        for (Entry<Object, List<TX>> e : txByLock.entrySet()) {
+            Set<Address> updatedAddress = new HashSet<>();
+
+            synchronized (e.getKey()) {
+                for (TX tx : e.getValue()) {
+                    TX removed = this.removeTxn(ByteArrayWrapper.wrap(tx.getHash()));
+                    if (removed == null) {
+                        continue;
                     }
-                });
 
-                checkedAddress.add(address);
-            }
+                    //noinspection unchecked
+                    removedTxl.add((TX) tx.clone());
+                    updatedAddress.add(removed.getFrom());
 
-            AccountState as = this.getAccView(tx.getFrom());
-            as.getMap().remove(new BigInteger(tx.getNonce()));
-            as.setDirty();
-        }
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("TxPoolA0.remove:[{}] nonce:[{}]", ByteUtils.toHexString(tx.getHash()),
+                                toLong(tx.getNonce()));
+                    }
+                }
 
-        this.updateAccPoolState();
-        this.updateFeeMap();
+                updatedAddress.forEach(this::updatePoolState);
+            }
+        }
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("TxPoolA0.remove TX remove [{}] removed [{}]", txs.size(), removedTxl.size());
@@ -227,6 +364,54 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
         return removedTxl;
     }
 
+    /**
+     * Returns the transactions of every account, including the ones not
+     * picked by {@link #snapshot()} because of the block limits, a nonce gap
+     * or a zero fee. The transactions of each account are in nonce order and
+     * the accounts are interleaved in the order the transactions entered the
+     * timeView, so a transaction funding another sender comes before the
+     * spending of the funds.
+     */
+    @Override
+    public List<TX> snapshotAll() {
+        // the position in the timeView, which keeps the transactions of the
+        // same timestamp in the order they were added
+        Map<ByteArrayWrapper, Integer> rank = new HashMap<>();
+        synchronized (this.getTimeView()) {
+            for (Set<ByteArrayWrapper> hashes : this.getTimeView().values()) {
+                for (ByteArrayWrapper hash : hashes) {
+                    rank.put(hash, rank.size());
+                }
+            }
+        }
+
+        // the next transaction of each account, the earliest one first
+        PriorityQueue<Entry<TX, Iterator<TX>>> heads = new PriorityQueue<>(Comparator.comparingInt(
+                (Entry<TX, Iterator<TX>> e) -> rank.getOrDefault(ByteArrayWrapper.wrap(e.getKey().getHash()),
+                        Integer.MAX_VALUE)));
+        for (Address acc : this.getAccounts()) {
+            List<TX> txs;
+            synchronized (this.getAccLock(acc)) {
+                txs = this.getAccTxs(acc);
+            }
+            Iterator<TX> it = txs.iterator();
+            if (it.hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(it.next(), it));
+            }
+        }
+
+        List<TX> rtn = new ArrayList<>();
+        while (!heads.isEmpty()) {
+            Entry<TX, Iterator<TX>> head = heads.poll();
+            rtn.add(head.getKey());
+            Iterator<TX> it = head.getValue();
+            if (it.hasNext()) {
+                heads.add(new AbstractMap.SimpleEntry<>(it.next(), it));
+            }
+        }
+        return rtn;
+    }
+
     public long getOutDateTime() {
         return txn_timeout;
     }
@@ -251,67 +436,81 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
         }
     }
 
+    /**
+     * Picks the transactions for a block template from the fee index, which
+     * is kept up to date by {@link #add(List)} and {@link #remove(List)}. The
+     * pool states are visited from the highest fee down and merged across the
+     * accounts: a state whose preceding state of the same account was not
+     * picked yet waits until that one is picked. The walk stops at the block
+     * size or energy limit.
+     *
+     * @implNote No lock is held, so the accounts may be updated during the
+     *           walk. A pool state replaced by an update, or one whose
+     *           transactions were removed meanwhile, is skipped.
+     */
     @SuppressWarnings("unchecked")
     @Override
-    public synchronized List<TX> snapshot() {
+    public List<TX> snapshot() {
 
         List<TX> rtn = new ArrayList<>();
-        sortTxn();
 
         removeTimeoutTxn();
 
         int cnt_txSz = blkSizeLimit;
         long cnt_nrg = blkNrgLimit.get();
         Set<ByteArrayWrapper> snapshotSet = new HashSet<>();
+        // the waiting poolStates by the first tx of the poolState they depend on
+        Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> dependMap = new HashMap<>();
+        List<ITransaction> txs = new ArrayList<>();
 
-        for (Entry<BigInteger, Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>>> e : this.getFeeView()
-                .entrySet()) {
-
-            Map<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> tpl = e.getValue();
-
-            for (Entry<ByteArrayWrapper, TxDependList<ByteArrayWrapper>> pair : tpl.entrySet()) {
-                // Check the small nonce tx must been picked before put the high nonce tx
-                ByteArrayWrapper dependTx = pair.getValue().getDependTx();
-                if (dependTx == null || snapshotSet.contains(dependTx)) {
-                    boolean firstTx = true;
-                    for (ByteArrayWrapper bw : pair.getValue().getTxList()) {
-                        ITransaction itx = this.getMainMap().get(bw).getTx();
-
-                        cnt_txSz -= itx.getEncoded().length;
+        for (TxDependList<ByteArrayWrapper> txl : this.getFeeView()) {
+            if (!this.isCurrent(txl)) {
+                continue;
+            }
 
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
-                                    itx.getFrom().toString(), new BigInteger(itx.getNonce()).toString(),
-                                    itx.getEncoded().length, itx.getNrgConsume());
-                        }
+            // Check the small nonce tx must been picked before put the high nonce tx
+            ByteArrayWrapper dependTx = txl.getDependTx();
+            if (dependTx != null && !snapshotSet.contains(dependTx)) {
+                dependMap.put(dependTx, txl);
+                continue;
+            }
 
-                        cnt_nrg -= itx.getNrgConsume();
+            // a released poolState has a fee no lower than the current one
+            while (txl != null && getTxs(txl, txs)) {
+                for (ITransaction itx : txs) {
+                    cnt_txSz -= itx.getEncoded().length;
+                    cnt_nrg -= itx.getNrgConsume();
 
-                        if (cnt_txSz > 0 && cnt_nrg > 0) {
-                            try {
-                                rtn.add((TX) itx.clone());
-                                if (firstTx) {
-                                    snapshotSet.add(bw);
-                                    firstTx = false;
-                                }
-                            } catch (Exception ex) {
-                                ex.printStackTrace();
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
+                                itx.getFrom().toString(), toLong(itx.getNonce()),
+                                itx.getEncoded().length, itx.getNrgConsume());
+                    }
 
-                                if (LOG.isErrorEnabled()) {
-                                    LOG.error("Snapshot txn exception", ex.toString());
-                                }
+                    if (cnt_txSz > 0 && cnt_nrg > 0) {
+                        try {
+                            rtn.add((TX) itx.clone());
+                        } catch (Exception ex) {
+                            ex.printStackTrace();
 
-                                return rtn;
-                            }
-                        } else {
-                            if (LOG.isWarnEnabled()) {
-                                LOG.warn("Reach blockLimit: txSize[{}], nrgConsume[{}], txn_number[{}]", cnt_txSz,
-                                        cnt_nrg, rtn.size());
+                            if (LOG.isErrorEnabled()) {
+                                LOG.error("Snapshot txn exception", ex.toString());
                             }
+
                             return rtn;
                         }
+                    } else {
+                        if (LOG.isWarnEnabled()) {
+                            LOG.warn("Reach blockLimit: txSize[{}], nrgConsume[{}], txn_number[{}]", cnt_txSz,
+                                    cnt_nrg, rtn.size());
+                        }
+                        return rtn;
                     }
                 }
+
+                ByteArrayWrapper firstTx = txl.getTxList().get(0);
+                snapshotSet.add(firstTx);
+                txl = dependMap.remove(firstTx);
             }
         }
 
@@ -322,56 +521,65 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
         return rtn;
     }
 
+    /**
+     * Collects the transactions of the poolState into the given list.
+     *
+     * @return {@code false} if any of them was removed from the pool
+     */
+    private boolean getTxs(TxDependList<ByteArrayWrapper> txl, List<ITransaction> txs) {
+        txs.clear();
+        for (ByteArrayWrapper bw : txl.getTxList()) {
+            TXState ts = this.getMainMap().get(bw);
+            if (ts == null) {
+                return false;
+            }
+            txs.add(ts.getTx());
+        }
+        return true;
+    }
+
     @Override
     public String getVersion() {
         return "0.1.0";
     }
 
     @Override
-    public synchronized Map.Entry<BigInteger, BigInteger> bestNonceSet(Address address) {
+    public Map.Entry<BigInteger, BigInteger> bestNonceSet(Address address) {
 
-        List<BigInteger> nonceList = new ArrayList<>();
         List<PoolState> psl = this.getPoolStateView(address);
-        if (!psl.isEmpty()) {
-            boolean firstPS = true;
-            int combo = 0;
-            BigInteger nextNonce = BigInteger.ZERO;
-
-            for (PoolState ps : psl) {
-                if (firstPS) {
-                    nextNonce = ps.getFirstNonce();
-                    nonceList.add(nextNonce);
-                    nextNonce = nextNonce.add(BigInteger.valueOf(ps.getCombo()));
-                    combo += ps.getCombo();
-                    firstPS = false;
-                } else {
-                    if (ps.getFirstNonce().equals(nextNonce)) {
-                        nextNonce = nextNonce.add(BigInteger.valueOf(ps.getCombo()));
-                        combo += ps.getCombo();
-                    } else {
-                        break;
-                    }
-                }
-            }
+        if (psl.isEmpty()) {
+            return null;
+        }
 
-            nonceList.add(nonceList.get(0).add(BigInteger.valueOf(combo - 1)));
+        long firstNonce = psl.get(0).getFirstNonce();
+        long nextNonce = firstNonce;
+        for (PoolState ps : psl) {
+            if (ps.getFirstNonce() != nextNonce) {
+                break;
+            }
+            nextNonce += ps.getCombo();
         }
 
-        return nonceList.size() == 2 ? new AbstractMap.SimpleEntry<>(nonceList.get(0), nonceList.get(1)) : null;
+        return new AbstractMap.SimpleEntry<>(BigInteger.valueOf(firstNonce), BigInteger.valueOf(nextNonce - 1));
     }
 
     private void removeTimeoutTxn() {
 
         long ts = TimeInstant.now().toEpochMicro() - txn_timeout;
-        List<TX> txl = Collections.synchronizedList(new ArrayList<>());
+        List<TX> txl = new ArrayList<>();
 
-        this.getTimeView().entrySet().parallelStream().forEach(e -> {
-            if (e.getKey() < ts) {
-                for (ByteArrayWrapper bw : e.getValue()) {
-                    txl.add(this.getMainMap().get(bw).getTx());
-                }
+        // the timeView is sorted so only the expired entries are visited
+        List<ByteArrayWrapper> expired = new ArrayList<>();
+        synchronized (this.getTimeView()) {
+            this.getTimeView().headMap(ts).values().forEach(expired::addAll);
+        }
+
+        for (ByteArrayWrapper bw : expired) {
+            TXState state = this.getMainMap().get(bw);
+            if (state != null) {
+                txl.add(state.getTx());
             }
-        });
+        }
 
         if (txl.isEmpty()) {
             return;
@@ -383,18 +591,5 @@ public class TxPoolA0<TX extends ITransaction> extends AbstractTxPool<TX> implem
         if (LOG.isDebugEnabled()) {
             LOG.debug("TxPoolA0.remove return [{}] TX", txl.size());
         }
-
     }
-
-
-
-
-
-
-
-
-
-
-
-
 }
@@ -290,6 +290,37 @@ public class TxnPoolTest {
         }
     }
 
+    @Test
+    public void snapshotDependentPoolWithHigherFee() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        // the second poolState {1, 2} has a higher fee than the first one {0}
+        long[] nrg = { 10L, 5L, 100L };
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int i = 0; i < nrg.length; i++) {
+            byte[] nonce = new byte[Long.BYTES];
+            nonce[Long.BYTES - 1] = (byte) i;
+
+            ITransaction txn = genTransaction(nonce);
+            ((AionTransaction) txn).sign(key.get(0));
+            txn.setNrgConsume(nrg[i]);
+            txnl.add(txn);
+        }
+        tp.add(txnl);
+        assertTrue(tp.size() == nrg.length);
+
+        List<ITransaction> txl = tp.snapshot();
+        assertTrue(txl.size() == nrg.length);
+
+        long nonce = 0;
+        for (ITransaction tx : txl) {
+            assertTrue((new BigInteger(tx.getNonce())).longValue() == nonce++);
+        }
+    }
+
     @Test
     public void addRepeatedTxn() {
         Properties config = new Properties();
@@ -339,6 +370,256 @@ public class TxnPoolTest {
 
     }
 
+    @Test
+    public void addTxWithOverflowNonce() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+
+        ITxPool<ITransaction> tp = new TxPoolA0<>(config);
+
+        byte[] nonce = new byte[Long.BYTES + 1];
+        Arrays.fill(nonce, (byte) 0xFF);
+        ITransaction txn = genTransaction(nonce);
+        ((AionTransaction) txn).sign(key.get(0));
+
+        assertTrue(tp.add(Collections.singletonList(txn)).isEmpty());
+        assertTrue(tp.size() == 0);
+    }
+
+    @Test
+    public void replaceTxWithHigherPrice() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+
+        ITxPool<ITransaction> tp = new TxPoolA0<>(config);
+
+        ITransaction txn = genTransaction(key.get(0), 0, 1L, 100L);
+        assertTrue(tp.add(txn));
+
+        // the same nonce and price with another value
+        ITransaction txnSamePrice = new AionTransaction(BigInteger.ZERO.toByteArray(),
+                Address.wrap(key.get(0).getAddress()),
+                Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                ByteUtils.fromHexString("2"), ByteUtils.fromHexString("1"), 10000L, 1L);
+        ((AionTransaction) txnSamePrice).sign(key.get(0));
+        txnSamePrice.setNrgConsume(100L);
+        assertTrue(!tp.add(txnSamePrice));
+        assertTrue(tp.getOutdatedList().isEmpty());
+
+        ITransaction txnHigherPrice = genTransaction(key.get(0), 0, 2L, 100L);
+        assertTrue(tp.add(txnHigherPrice));
+        assertTrue(tp.size() == 1);
+
+        List<ITransaction> outdated = tp.getOutdatedList();
+        assertTrue(outdated.size() == 1);
+        assertTrue(Arrays.equals(outdated.get(0).getHash(), txn.getHash()));
+
+        List<ITransaction> txl = tp.snapshot();
+        assertTrue(txl.size() == 1);
+        assertTrue(Arrays.equals(txl.get(0).getHash(), txnHigherPrice.getHash()));
+    }
+
+    @Test
+    public void accountSlotsLimit() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+        config.put(ITxPool.PROP_ACCOUNT_SLOTS_MAX, "5");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+        Address acc = Address.wrap(key.get(0).getAddress());
+
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(tp.add(genTransaction(key.get(0), i, 1L, 100L)));
+        }
+
+        // no slot left for a higher nonce
+        assertTrue(!tp.add(genTransaction(key.get(0), 6, 1L, 100L)));
+        assertTrue(tp.size() == 5);
+
+        // a lower nonce takes the slot of the highest one
+        assertTrue(tp.add(genTransaction(key.get(0), 0, 1L, 100L)));
+        assertTrue(tp.size() == 5);
+
+        List<BigInteger> nl = tp.getNonceList(acc);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(nl.get(i).equals(BigInteger.valueOf(i)));
+        }
+
+        List<ITransaction> outdated = tp.getOutdatedList();
+        assertTrue(outdated.size() == 1);
+        assertTrue(new BigInteger(outdated.get(0).getNonce()).intValue() == 5);
+
+        // another account is not limited by the first one
+        assertTrue(tp.add(genTransaction(key.get(1), 0, 1L, 100L)));
+        assertTrue(tp.size() == 6);
+    }
+
+    @Test
+    public void poolSizeLimitEvictLowestFee() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+        config.put(ITxPool.PROP_POOL_SIZE_MAX, "10");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        List<ITransaction> txnl = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txnl.add(genTransaction(key.get(0), i, 1L, 100L));
+        }
+        assertTrue(tp.add(txnl).size() == 10);
+
+        // a higher fee evicts the highest nonce of the lowest fee account
+        ITransaction txn = genTransaction(key.get(1), 0, 1L, 1000L);
+        assertTrue(tp.add(txn));
+        assertTrue(tp.size() == 10);
+
+        List<ITransaction> outdated = tp.getOutdatedList();
+        assertTrue(outdated.size() == 1);
+        assertTrue(outdated.get(0).getFrom().equals(Address.wrap(key.get(0).getAddress())));
+        assertTrue(new BigInteger(outdated.get(0).getNonce()).intValue() == 9);
+
+        // a fee not higher than the lowest one is rejected
+        assertTrue(!tp.add(genTransaction(key.get(2), 0, 1L, 100L)));
+        assertTrue(tp.size() == 10);
+        assertTrue(tp.getOutdatedList().isEmpty());
+
+        List<ITransaction> txl = tp.snapshot();
+        assertTrue(txl.size() == 10);
+        assertTrue(Arrays.equals(txl.get(0).getHash(), txn.getHash()));
+
+        // a batch over the capacity is trimmed after it is added
+        txnl.clear();
+        for (int i = 0; i < 5; i++) {
+            txnl.add(genTransaction(key.get(3), i, 1L, 500L));
+        }
+        txnl.add(genTransaction(key.get(4), 0, 1L, 200L));
+        assertTrue(tp.add(txnl).size() == 6);
+        assertTrue(tp.size() == 10);
+        assertTrue(tp.getOutdatedList().size() == 6);
+        assertTrue(tp.getNonceList(Address.wrap(key.get(0).getAddress())).size() == 3);
+    }
+
+    @Test
+    public void poolSizeLimitZeroFee() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+        config.put(ITxPool.PROP_POOL_SIZE_MAX, "5");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(tp.add(genTransaction(key2.get(i), 0, 0L, 100L)));
+        }
+        assertTrue(tp.size() == 5);
+
+        // the zero fee txs have no poolState to be evicted by fee, so the full
+        // pool rejects any other tx
+        assertTrue(!tp.add(genTransaction(key2.get(5), 0, 0L, 100L)));
+        assertTrue(!tp.add(genTransaction(key2.get(6), 0, 1L, 100L)));
+        assertTrue(tp.size() == 5);
+        assertTrue(tp.getOutdatedList().isEmpty());
+    }
+
+    @Test
+    public void poolSizeLimitConcurrentAdd() throws Throwable {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+        config.put(ITxPool.PROP_POOL_SIZE_MAX, "50");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        int cnt = 100;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int k = 0; k < key.size(); k++) {
+            List<ITransaction> txnl = new ArrayList<>();
+            for (int i = 0; i < cnt; i++) {
+                // every other sender pays no fee
+                txnl.add(genTransaction(key.get(k), i, k % 2, 100L + i));
+            }
+
+            threads.add(new Thread(() -> {
+                try {
+                    for (ITransaction txn : txnl) {
+                        tp.add(txn);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertTrue(errors.isEmpty());
+        assertTrue(tp.size() <= 50);
+        assertTrue(tp.snapshotAll().size() == tp.size());
+    }
+
+    @Test
+    public void snapshotAll() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        ITransaction txn0 = genTransaction(key.get(0), 0, 1L, 100L);
+        ITransaction txn2 = genTransaction(key.get(0), 2, 1L, 100L);
+        ITransaction txnZeroFee = genTransaction(key.get(1), 0, 0L, 100L);
+        tp.add(Arrays.asList(txn2, txnZeroFee, txn0));
+
+        // the tx behind the nonce gap and the zero fee tx are not picked
+        assertTrue(tp.snapshot().size() == 1);
+
+        List<ITransaction> txl = tp.snapshotAll();
+        assertTrue(txl.size() == 3);
+
+        List<ITransaction> acc0 = new ArrayList<>();
+        for (ITransaction tx : txl) {
+            if (tx.getFrom().equals(Address.wrap(key.get(0).getAddress()))) {
+                acc0.add(tx);
+            }
+        }
+        assertTrue(acc0.size() == 2);
+        assertTrue(Arrays.equals(acc0.get(0).getHash(), txn0.getHash()));
+        assertTrue(Arrays.equals(acc0.get(1).getHash(), txn2.getHash()));
+    }
+
+    @Test
+    public void snapshotAllInAddedOrder() {
+        Properties config = new Properties();
+        config.put("txn-timeout", "10");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        ITransaction txn0 = genTransaction(key.get(0), 0, 1L, 100L);
+        ITransaction txn1 = genTransaction(key.get(1), 0, 1L, 100L);
+        ITransaction txn2 = genTransaction(key.get(0), 1, 1L, 100L);
+        tp.add(txn0);
+        tp.add(txn1);
+        tp.add(txn2);
+
+        // the accounts are interleaved in the order their txs were added
+        List<ITransaction> txl = tp.snapshotAll();
+        assertTrue(txl.size() == 3);
+        assertTrue(Arrays.equals(txl.get(0).getHash(), txn0.getHash()));
+        assertTrue(Arrays.equals(txl.get(1).getHash(), txn1.getHash()));
+        assertTrue(Arrays.equals(txl.get(2).getHash(), txn2.getHash()));
+    }
+
+    private ITransaction genTransaction(ECKey aKey, int nonce, long nrgPrice, long nrgConsume) {
+        ITransaction txn = new AionTransaction(BigInteger.valueOf(nonce).toByteArray(),
+                Address.wrap(aKey.getAddress()),
+                Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                ByteUtils.fromHexString("1"), ByteUtils.fromHexString("1"), 10000L, nrgPrice);
+        ((AionTransaction) txn).sign(aKey);
+        txn.setNrgConsume(nrgConsume);
+        return txn;
+    }
+
     @Test
     public void noncebyAccountTest() {
         Properties config = new Properties();
@@ -412,6 +693,65 @@ public class TxnPoolTest {
         }
     }
 
+    @Test
+    public void concurrentAddBySender() throws Throwable {
+        Properties config = new Properties();
+        config.put("txn-timeout", "100");
+
+        TxPoolA0<ITransaction> tp = new TxPoolA0<>(config);
+
+        int cnt = 100;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (ECKey aKey : key) {
+            List<ITransaction> txnl = new ArrayList<>();
+            for (int i = 0; i < cnt; i++) {
+                ITransaction txn = new AionTransaction(BigInteger.valueOf(i).toByteArray(),
+                        Address.wrap(aKey.getAddress()),
+                        Address.wrap("0000000000000000000000000000000000000000000000000000000000000001"),
+                        ByteUtils.fromHexString("1"), ByteUtils.fromHexString("1"), 10000L, 1L);
+                ((AionTransaction) txn).sign(aKey);
+                txn.setNrgConsume(100L + i);
+                txnl.add(txn);
+            }
+
+            threads.add(new Thread(() -> {
+                try {
+                    for (ITransaction txn : txnl) {
+                        tp.add(txn);
+                        tp.snapshot();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertTrue(errors.isEmpty());
+        assertTrue(tp.size() == cnt * key.size());
+
+        for (ECKey aKey : key) {
+            List<BigInteger> nl = tp.getNonceList(Address.wrap(aKey.getAddress()));
+            for (int i = 0; i < cnt; i++) {
+                assertTrue(nl.get(i).equals(BigInteger.valueOf(i)));
+            }
+        }
+
+        // every account is picked from its first nonce in order
+        Map<Address, Long> next = new HashMap<>();
+        for (ITransaction tx : tp.snapshot()) {
+            long nonce = new BigInteger(1, tx.getNonce()).longValue();
+            assertTrue(next.getOrDefault(tx.getFrom(), 0L) == nonce);
+            next.put(tx.getFrom(), nonce + 1);
+        }
+        assertTrue(next.size() == key.size());
+    }
+
     @Test
     public void feemapTest() {
         Properties config = new Properties();